@@ -0,0 +1,651 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import com.buck.commons.i18n.ResourceBundle;
+import com.buck.commons.io.ByteBufferOutputStream;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Binary to text encodings whose radix is a power of two: hexadecimal,
+ * Base32 and Base64 (RFC 4648), and Crockford's Base32. Encoders and decoders
+ * operate directly on byte arrays and buffers holding ASCII text, so no
+ * intermediate strings are created; {@link #newEncoder()} and {@link
+ * #newDecoder()} provide streaming state for inputs that do not fit in memory.
+ * <p/>
+ * Instances are immutable and thread safe. Decoding is strict: characters
+ * outside of the alphabet, data following padding, and truncated input are
+ * rejected with an {@link IllegalArgumentException}. Padding is optional when
+ * decoding.
+ *
+ * @author Robert J. Buck
+ */
+public final class BaseEncoding {
+
+    /**
+     * Decode table entry for characters outside of the alphabet.
+     */
+    private static final byte INVALID = -1;
+
+    /**
+     * Decode table entry for the padding character.
+     */
+    private static final byte PADDING = -2;
+
+    /**
+     * Decode table entry for separator characters that are ignored.
+     */
+    private static final byte SEPARATOR = -3;
+
+    /**
+     * Lower case hexadecimal; decoding accepts either case.
+     */
+    public static final BaseEncoding HEX;
+
+    static {
+        HEX = new BaseEncoding("0123456789abcdef", '\0', true, "");
+    }
+
+    /**
+     * RFC 4648 Base32 with padding; decoding accepts either case.
+     */
+    public static final BaseEncoding BASE32;
+
+    static {
+        BASE32 = new BaseEncoding("ABCDEFGHIJKLMNOPQRSTUVWXYZ234567", '=', true, "");
+    }
+
+    /**
+     * Crockford's Base32, without padding. Decoding accepts either case, maps
+     * 'O' to zero and 'I' and 'L' to one, and ignores hyphens.
+     */
+    public static final BaseEncoding BASE32_CROCKFORD;
+
+    static {
+        BASE32_CROCKFORD = new BaseEncoding("0123456789ABCDEFGHJKMNPQRSTVWXYZ", '\0', true, "-");
+        BASE32_CROCKFORD.alias('O', 0);
+        BASE32_CROCKFORD.alias('I', 1);
+        BASE32_CROCKFORD.alias('L', 1);
+    }
+
+    /**
+     * RFC 4648 Base64 with padding.
+     */
+    public static final BaseEncoding BASE64;
+
+    static {
+        BASE64 = new BaseEncoding("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/", '=', false, "");
+    }
+
+    /**
+     * RFC 4648 URL and filename safe Base64 with padding.
+     */
+    public static final BaseEncoding BASE64_URL;
+
+    static {
+        BASE64_URL = new BaseEncoding("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_", '=', false, "");
+    }
+
+    /**
+     * The encoding alphabet as ASCII bytes.
+     */
+    private final byte[] alphabet;
+
+    /**
+     * Maps ASCII characters to their value in the alphabet, or to one of
+     * INVALID, PADDING or SEPARATOR.
+     */
+    private final byte[] decodeTable = new byte[128];
+
+    /**
+     * The padding character, or zero if the encoding is not padded.
+     */
+    private final byte padding;
+
+    /**
+     * The number of bits encoded per character.
+     */
+    private final int bitsPerChar;
+
+    /**
+     * The number of bytes in a block encoded without a partial character.
+     */
+    private final int bytesPerBlock;
+
+    /**
+     * The number of characters encoding one block.
+     */
+    private final int charsPerBlock;
+
+    private BaseEncoding(String alphabet, char padding, boolean caseInsensitive, String separators) {
+        this.bitsPerChar = Integer.numberOfTrailingZeros(alphabet.length());
+        this.charsPerBlock = 8 / gcd(8, bitsPerChar);
+        this.bytesPerBlock = charsPerBlock * bitsPerChar / 8;
+        this.alphabet = new byte[alphabet.length()];
+        this.padding = (byte) padding;
+        Arrays.fill(decodeTable, INVALID);
+        for (int i = 0; i < alphabet.length(); i++) {
+            final char c = alphabet.charAt(i);
+            this.alphabet[i] = (byte) c;
+            decodeTable[c] = (byte) i;
+            if (caseInsensitive) {
+                decodeTable[Character.toLowerCase(c)] = (byte) i;
+                decodeTable[Character.toUpperCase(c)] = (byte) i;
+            }
+        }
+        if (padding != '\0') {
+            decodeTable[padding] = PADDING;
+        }
+        for (int i = 0; i < separators.length(); i++) {
+            decodeTable[separators.charAt(i)] = SEPARATOR;
+        }
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private void alias(char c, int value) {
+        decodeTable[Character.toLowerCase(c)] = (byte) value;
+        decodeTable[Character.toUpperCase(c)] = (byte) value;
+    }
+
+    /**
+     * Returns the number of characters produced by encoding the given number
+     * of bytes, including any padding.
+     *
+     * @param len the number of bytes to encode
+     * @return the encoded length in characters
+     */
+    public int encodedLength(int len) {
+        final int blocks = len / bytesPerBlock;
+        final int rem = len % bytesPerBlock;
+        int chars = blocks * charsPerBlock;
+        if (rem > 0) {
+            chars += padding != 0 ? charsPerBlock : (rem * 8 + bitsPerChar - 1) / bitsPerChar;
+        }
+        return chars;
+    }
+
+    /**
+     * Returns an upper bound on the number of bytes produced by decoding the
+     * given number of characters.
+     *
+     * @param chars the number of characters to decode
+     * @return the maximum decoded length in bytes
+     */
+    public int maxDecodedLength(int chars) {
+        return (int) ((long) chars * bitsPerChar / 8);
+    }
+
+    /**
+     * Encodes bytes as ASCII characters into a byte array.
+     *
+     * @param src    the bytes to encode
+     * @param off    the offset of the first byte to encode
+     * @param len    the number of bytes to encode
+     * @param dst    the array to write ASCII characters into
+     * @param dstOff the offset of the first character
+     * @return the offset one past the last character written
+     * @throws IndexOutOfBoundsException if the destination is too small
+     */
+    public int encode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        final int need = encodedLength(len);
+        if (dstOff < 0 || dstOff > dst.length - need) {
+            throw new IndexOutOfBoundsException();
+        }
+        final byte[] alphabet = this.alphabet;
+        final int bitsPerChar = this.bitsPerChar;
+        final int mask = alphabet.length - 1;
+        int i = off;
+        int d = dstOff;
+        final int blockEnd = off + len - len % bytesPerBlock;
+        while (i < blockEnd) {
+            long block = 0;
+            for (int k = 0; k < bytesPerBlock; k++) {
+                block = (block << 8) | (src[i++] & 0xFF);
+            }
+            for (int k = charsPerBlock - 1; k >= 0; k--) {
+                dst[d + k] = alphabet[(int) block & mask];
+                block >>>= bitsPerChar;
+            }
+            d += charsPerBlock;
+        }
+        final int rem = off + len - i;
+        if (rem > 0) {
+            long block = 0;
+            for (int k = 0; k < rem; k++) {
+                block = (block << 8) | (src[i++] & 0xFF);
+            }
+            final int chars = (rem * 8 + bitsPerChar - 1) / bitsPerChar;
+            block <<= chars * bitsPerChar - rem * 8;
+            for (int k = chars - 1; k >= 0; k--) {
+                dst[d + k] = alphabet[(int) block & mask];
+                block >>>= bitsPerChar;
+            }
+            d += chars;
+            if (padding != 0) {
+                for (int k = chars; k < charsPerBlock; k++) {
+                    dst[d++] = padding;
+                }
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Encodes bytes as a string.
+     *
+     * @param src the bytes to encode
+     * @return the encoded string
+     */
+    public String encode(byte[] src) {
+        final byte[] ascii = new byte[encodedLength(src.length)];
+        encode(src, 0, src.length, ascii, 0);
+        final char[] chars = new char[ascii.length];
+        for (int i = 0; i < ascii.length; i++) {
+            chars[i] = (char) ascii[i];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Encodes the remaining bytes of the source buffer as ASCII characters
+     * into the destination buffer. Both buffer positions are advanced.
+     *
+     * @param src the bytes to encode
+     * @param dst the buffer to write ASCII characters into
+     * @throws BufferOverflowException if the destination buffer is too small;
+     *                                 neither buffer is modified
+     */
+    public void encode(ByteBuffer src, ByteBuffer dst) {
+        final int len = src.remaining();
+        final int need = encodedLength(len);
+        if (need > dst.remaining()) {
+            throw new BufferOverflowException();
+        }
+        if (src.hasArray() && dst.hasArray()) {
+            encode(src.array(), src.arrayOffset() + src.position(), len,
+                    dst.array(), dst.arrayOffset() + dst.position());
+            src.position(src.limit());
+            dst.position(dst.position() + need);
+        } else {
+            final Encoder encoder = newEncoder();
+            encoder.update(src, dst);
+            encoder.finish(dst);
+        }
+    }
+
+    /**
+     * Encodes bytes as ASCII characters onto the output stream. The space is
+     * reserved up front and the characters are written straight into the
+     * stream's buffer.
+     *
+     * @param src the bytes to encode
+     * @param off the offset of the first byte to encode
+     * @param len the number of bytes to encode
+     * @param out the stream to write ASCII characters to
+     * @throws BufferOverflowException if the stream cannot grow to hold the
+     *                                 characters; nothing is written
+     */
+    public void encode(byte[] src, int off, int len, ByteBufferOutputStream out) {
+        final int need = encodedLength(len);
+        out.ensureCapacity(out.size() + need);
+        final ByteBuffer dst = out.getBuffer();
+        if (dst.hasArray() && dst.remaining() >= need) {
+            final int base = dst.arrayOffset();
+            dst.position(encode(src, off, len, dst.array(), base + dst.position()) - base);
+        } else {
+            encode(ByteBuffer.wrap(src, off, len), dst);
+        }
+    }
+
+    /**
+     * Decodes ASCII characters from a byte array.
+     *
+     * @param src    the array holding ASCII characters
+     * @param off    the offset of the first character
+     * @param len    the number of characters
+     * @param dst    the array to write decoded bytes into
+     * @param dstOff the offset of the first decoded byte
+     * @return the offset one past the last byte written
+     * @throws IllegalArgumentException  if the input is not valid
+     * @throws IndexOutOfBoundsException if the destination is too small
+     */
+    public int decode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        final byte[] decodeTable = this.decodeTable;
+        final int bitsPerChar = this.bitsPerChar;
+        int acc = 0;
+        int bits = 0;
+        int d = dstOff;
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            final int c = src[i];
+            final int v = c < 0 ? INVALID : decodeTable[c];
+            if (v >= 0) {
+                acc = (acc << bitsPerChar) | v;
+                bits += bitsPerChar;
+                if (bits >= 8) {
+                    bits -= 8;
+                    dst[d++] = (byte) (acc >>> bits);
+                }
+            } else if (v == PADDING) {
+                checkPadding(src, off, i, end);
+                break;
+            } else if (v != SEPARATOR) {
+                throw illegalCharacter(c & 0xFF, i - off);
+            }
+        }
+        checkComplete(bits);
+        return d;
+    }
+
+    /**
+     * Decodes ASCII characters from a byte array onto the output stream. The
+     * space is reserved up front and the bytes are written straight into the
+     * stream's buffer.
+     *
+     * @param src the array holding ASCII characters
+     * @param off the offset of the first character
+     * @param len the number of characters
+     * @param out the stream to write decoded bytes to
+     * @throws IllegalArgumentException if the input is not valid; nothing is
+     *                                  written
+     * @throws BufferOverflowException  if the stream cannot grow to hold the
+     *                                  decoded bytes
+     */
+    public void decode(byte[] src, int off, int len, ByteBufferOutputStream out) {
+        final int max = maxDecodedLength(len);
+        out.ensureCapacity(out.size() + max);
+        final ByteBuffer dst = out.getBuffer();
+        if (dst.hasArray() && dst.remaining() >= max) {
+            final int base = dst.arrayOffset();
+            dst.position(decode(src, off, len, dst.array(), base + dst.position()) - base);
+        } else {
+            decode(ByteBuffer.wrap(src, off, len), dst);
+        }
+    }
+
+    /**
+     * Decodes a string.
+     *
+     * @param s the characters to decode
+     * @return the decoded bytes
+     * @throws IllegalArgumentException if the input is not valid
+     */
+    public byte[] decode(CharSequence s) {
+        final int len = s.length();
+        int symbols = 0;
+        for (int i = 0; i < len; i++) {
+            final char c = s.charAt(i);
+            if (c < 128 && decodeTable[c] >= 0) {
+                symbols++;
+            }
+        }
+        final byte[] dst = new byte[maxDecodedLength(symbols)];
+        final Decoder decoder = newDecoder();
+        int d = 0;
+        for (int i = 0; i < len; i++) {
+            d = decoder.decodeChar(s.charAt(i), i, dst, d);
+        }
+        decoder.finish();
+        return dst;
+    }
+
+    /**
+     * Decodes the remaining ASCII characters of the source buffer into the
+     * destination buffer. Both buffer positions are advanced.
+     *
+     * @param src the buffer holding ASCII characters
+     * @param dst the buffer to write decoded bytes into
+     * @throws IllegalArgumentException if the input is not valid
+     * @throws BufferOverflowException  if the destination buffer is too small
+     */
+    public void decode(ByteBuffer src, ByteBuffer dst) {
+        final Decoder decoder = newDecoder();
+        decoder.update(src, dst);
+        if (src.hasRemaining()) {
+            throw new BufferOverflowException();
+        }
+        decoder.finish();
+    }
+
+    /**
+     * Creates a streaming encoder.
+     *
+     * @return a new encoder
+     */
+    public Encoder newEncoder() {
+        return new Encoder();
+    }
+
+    /**
+     * Creates a streaming decoder.
+     *
+     * @return a new decoder
+     */
+    public Decoder newDecoder() {
+        return new Decoder();
+    }
+
+    private void checkPadding(byte[] src, int off, int i, int end) {
+        for (int j = i; j < end; j++) {
+            if (src[j] != padding) {
+                throw illegalCharacter(src[j] & 0xFF, j - off);
+            }
+        }
+    }
+
+    private void checkComplete(int bits) {
+        if (bits >= bitsPerChar) {
+            Object[] arguments = {};
+            String message = ResourceBundle.formatResourceBundleMessage(BaseEncoding.class,
+                    "BASE_ENCODING_TRUNCATED", arguments);
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private static IllegalArgumentException illegalCharacter(int c, long index) {
+        Object[] arguments = {Integer.toHexString(c), index};
+        String message = ResourceBundle.formatResourceBundleMessage(BaseEncoding.class,
+                "BASE_ENCODING_ILLEGAL_CHARACTER", arguments);
+        return new IllegalArgumentException(message);
+    }
+
+    /**
+     * Incrementally encodes a stream of bytes. Encoders are not thread safe.
+     */
+    public final class Encoder {
+
+        private int acc;
+
+        private int bits;
+
+        private int chars;
+
+        private Encoder() {
+        }
+
+        /**
+         * Encodes as many bytes from the source buffer as will fit in the
+         * destination buffer. Both buffer positions are advanced.
+         *
+         * @param src the bytes to encode
+         * @param dst the buffer to write ASCII characters into
+         */
+        public void update(ByteBuffer src, ByteBuffer dst) {
+            final int mask = alphabet.length - 1;
+            // a single byte yields at most two characters
+            while (src.hasRemaining() && dst.remaining() >= 2) {
+                acc = (acc << 8) | (src.get() & 0xFF);
+                bits += 8;
+                while (bits >= bitsPerChar) {
+                    bits -= bitsPerChar;
+                    dst.put(alphabet[(acc >>> bits) & mask]);
+                    chars++;
+                }
+            }
+        }
+
+        /**
+         * Writes any partial character and padding, then resets the encoder.
+         *
+         * @param dst the buffer to write ASCII characters into
+         * @throws BufferOverflowException if the destination buffer is too
+         *                                 small; the encoder is unchanged
+         */
+        public void finish(ByteBuffer dst) {
+            int tail = bits > 0 ? 1 : 0;
+            if (padding != 0) {
+                tail = (charsPerBlock - (chars + tail) % charsPerBlock) % charsPerBlock + tail;
+            }
+            if (tail > dst.remaining()) {
+                throw new BufferOverflowException();
+            }
+            if (bits > 0) {
+                dst.put(alphabet[(acc << (bitsPerChar - bits)) & (alphabet.length - 1)]);
+                chars++;
+            }
+            if (padding != 0) {
+                while (chars % charsPerBlock != 0) {
+                    dst.put(padding);
+                    chars++;
+                }
+            }
+            reset();
+        }
+
+        /**
+         * Discards any buffered state.
+         *
+         * @return this encoder
+         */
+        public Encoder reset() {
+            acc = 0;
+            bits = 0;
+            chars = 0;
+            return this;
+        }
+    }
+
+    /**
+     * Incrementally decodes a stream of ASCII characters. Decoders are not
+     * thread safe.
+     */
+    public final class Decoder {
+
+        private int acc;
+
+        private int bits;
+
+        private boolean padded;
+
+        private long index;
+
+        private Decoder() {
+        }
+
+        /**
+         * Decodes characters from the source buffer for as long as the
+         * destination buffer has space. Both buffer positions are advanced.
+         *
+         * @param src the buffer holding ASCII characters
+         * @param dst the buffer to write decoded bytes into
+         * @throws IllegalArgumentException if the input is not valid
+         */
+        public void update(ByteBuffer src, ByteBuffer dst) {
+            while (src.hasRemaining() && dst.hasRemaining()) {
+                final int c = src.get() & 0xFF;
+                final int v = accept(c);
+                if (v >= 0) {
+                    acc = (acc << bitsPerChar) | v;
+                    bits += bitsPerChar;
+                    if (bits >= 8) {
+                        bits -= 8;
+                        dst.put((byte) (acc >>> bits));
+                    }
+                }
+            }
+            // trailing padding and separators produce no output
+            while (src.hasRemaining() && !dst.hasRemaining()) {
+                final int c = src.get(src.position()) & 0xFF;
+                if (c >= 128 || decodeTable[c] >= 0) {
+                    break;
+                }
+                accept(c);
+                src.get();
+            }
+        }
+
+        private int decodeChar(char c, int i, byte[] dst, int d) {
+            final int v = accept(c);
+            if (v >= 0) {
+                acc = (acc << bitsPerChar) | v;
+                bits += bitsPerChar;
+                if (bits >= 8) {
+                    bits -= 8;
+                    dst[d++] = (byte) (acc >>> bits);
+                }
+            }
+            return d;
+        }
+
+        private int accept(int c) {
+            final int v = c < 128 ? decodeTable[c] : INVALID;
+            final long i = index++;
+            if (v >= 0) {
+                if (padded) {
+                    throw illegalCharacter(c, i);
+                }
+                return v;
+            } else if (v == PADDING) {
+                padded = true;
+            } else if (v != SEPARATOR) {
+                throw illegalCharacter(c, i);
+            }
+            return v;
+        }
+
+        /**
+         * Verifies that the input ended on a character boundary, then resets
+         * the decoder.
+         *
+         * @throws IllegalArgumentException if the input was truncated
+         */
+        public void finish() {
+            final int remaining = bits;
+            reset();
+            checkComplete(remaining);
+        }
+
+        /**
+         * Discards any buffered state.
+         *
+         * @return this decoder
+         */
+        public Decoder reset() {
+            acc = 0;
+            bits = 0;
+            padded = false;
+            index = 0;
+            return this;
+        }
+    }
+}
@@ -18,8 +18,15 @@ package com.buck.commons.algorithms;
 
 import com.buck.commons.i18n.ResourceBundle;
 
+import java.nio.ByteOrder;
+
 /**
  * Utilities to convert primitive data types to and from byte arrays.
+ * <p/>
+ * The checked accessors fold both range tests into a single sign test,
+ * <code>(offset | (array.length - size - offset)) &lt; 0</code>, and delegate
+ * message formatting to an out of line helper, so that they stay small
+ * enough to be inlined by the JIT.
  *
  * @author Robert J. Buck
  */
@@ -62,6 +69,15 @@ public final class BinaryData {
         sizeOfLong = 8;
     }
 
+    /**
+     * The size of a double.
+     */
+    public static final int sizeOfDouble;
+
+    static {
+        sizeOfDouble = 8;
+    }
+
     /**
      * Store a byte primitive type at the indicated offset in the byte array.
      * Perform full range checks and throw an exception if the caller specifies
@@ -75,14 +91,10 @@ public final class BinaryData {
      *                                   sizeof a byte.
      */
     public static void storeByteAtOffset(byte[] array, int offset, byte value) throws IndexOutOfBoundsException {
-        if (!(offset < 0) && !(offset > array.length - sizeOfByte)) {
-            storeByteAtOffsetUnsafe(array, offset, value);
-        } else {
-            Object[] arguments = {array.length, offset};
-            String message = ResourceBundle.formatResourceBundleMessage(BinaryData.class,
-                    "BINARY_DATA_ARRAY_BOUNDS_WRITE_ERROR", arguments);
-            throw new IndexOutOfBoundsException(message);
+        if ((offset | (array.length - sizeOfByte - offset)) < 0) {
+            throw writeBoundsError(array.length, offset);
         }
+        storeByteAtOffsetUnsafe(array, offset, value);
     }
 
     /**
@@ -111,14 +123,10 @@ public final class BinaryData {
      *                                   sizeof a byte.
      */
     public static byte loadByteAtOffset(byte[] array, int offset) throws IndexOutOfBoundsException {
-        if (!(offset < 0) && !(offset > array.length - sizeOfByte)) {
-            return loadByteAtOffsetUnsafe(array, offset);
-        } else {
-            Object[] arguments = {array.length, offset};
-            String message = ResourceBundle.formatResourceBundleMessage(BinaryData.class,
-                    "BINARY_DATA_ARRAY_BOUNDS_READ_ERROR", arguments);
-            throw new IndexOutOfBoundsException(message);
+        if ((offset | (array.length - sizeOfByte - offset)) < 0) {
+            throw readBoundsError(array.length, offset);
         }
+        return loadByteAtOffsetUnsafe(array, offset);
     }
 
     /**
@@ -147,14 +155,10 @@ public final class BinaryData {
      *                                   sizeof a short.
      */
     public static void storeShortAtOffset(byte[] array, int offset, short value) throws IndexOutOfBoundsException {
-        if (!(offset < 0) && !(offset > array.length - sizeOfShort)) {
-            storeShortAtOffsetUnsafe(array, offset, value);
-        } else {
-            Object[] arguments = {array.length, offset};
-            String message = ResourceBundle.formatResourceBundleMessage(BinaryData.class,
-                    "BINARY_DATA_ARRAY_BOUNDS_WRITE_ERROR", arguments);
-            throw new IndexOutOfBoundsException(message);
+        if ((offset | (array.length - sizeOfShort - offset)) < 0) {
+            throw writeBoundsError(array.length, offset);
         }
+        storeShortAtOffsetUnsafe(array, offset, value);
     }
 
     /**
@@ -185,14 +189,10 @@ public final class BinaryData {
      *                                   sizeof a short.
      */
     public static short loadShortAtOffset(byte[] array, int offset) throws IndexOutOfBoundsException {
-        if (!(offset < 0) && !(offset > array.length - sizeOfShort)) {
-            return loadShortAtOffsetUnsafe(array, offset);
-        } else {
-            Object[] arguments = {array.length, offset};
-            String message = ResourceBundle.formatResourceBundleMessage(BinaryData.class,
-                    "BINARY_DATA_ARRAY_BOUNDS_READ_ERROR", arguments);
-            throw new IndexOutOfBoundsException(message);
+        if ((offset | (array.length - sizeOfShort - offset)) < 0) {
+            throw readBoundsError(array.length, offset);
         }
+        return loadShortAtOffsetUnsafe(array, offset);
     }
 
     /**
@@ -224,14 +224,10 @@ public final class BinaryData {
      *                                   sizeof a long.
      */
     public static void storeIntAtOffset(byte[] array, int offset, int value) throws IndexOutOfBoundsException {
-        if (!(offset < 0) && !(offset > array.length - sizeOfInt)) {
-            storeIntAtOffsetUnsafe(array, offset, value);
-        } else {
-            Object[] arguments = {array.length, offset};
-            String message = ResourceBundle.formatResourceBundleMessage(BinaryData.class,
-                    "BINARY_DATA_ARRAY_BOUNDS_WRITE_ERROR", arguments);
-            throw new IndexOutOfBoundsException(message);
+        if ((offset | (array.length - sizeOfInt - offset)) < 0) {
+            throw writeBoundsError(array.length, offset);
         }
+        storeIntAtOffsetUnsafe(array, offset, value);
     }
 
     /**
@@ -264,14 +260,10 @@ public final class BinaryData {
      *                                   sizeof a long.
      */
     public static int loadIntAtOffset(byte[] array, int offset) throws IndexOutOfBoundsException {
-        if (!(offset < 0) && !(offset > array.length - sizeOfInt)) {
-            return loadIntAtOffsetUnsafe(array, offset);
-        } else {
-            Object[] arguments = {array.length, offset};
-            String message = ResourceBundle.formatResourceBundleMessage(BinaryData.class,
-                    "BINARY_DATA_ARRAY_BOUNDS_READ_ERROR", arguments);
-            throw new IndexOutOfBoundsException(message);
+        if ((offset | (array.length - sizeOfInt - offset)) < 0) {
+            throw readBoundsError(array.length, offset);
         }
+        return loadIntAtOffsetUnsafe(array, offset);
     }
 
     /**
@@ -305,14 +297,10 @@ public final class BinaryData {
      *                                   sizeof a long.
      */
     public static void storeLongAtOffset(byte[] array, int offset, long value) throws IndexOutOfBoundsException {
-        if (!(offset < 0) && !(offset > array.length - sizeOfLong)) {
-            storeLongAtOffsetUnsafe(array, offset, value);
-        } else {
-            Object[] arguments = {array.length, offset};
-            String message = ResourceBundle.formatResourceBundleMessage(BinaryData.class,
-                    "BINARY_DATA_ARRAY_BOUNDS_WRITE_ERROR", arguments);
-            throw new IndexOutOfBoundsException(message);
+        if ((offset | (array.length - sizeOfLong - offset)) < 0) {
+            throw writeBoundsError(array.length, offset);
         }
+        storeLongAtOffsetUnsafe(array, offset, value);
     }
 
     /**
@@ -349,14 +337,10 @@ public final class BinaryData {
      *                                   sizeof a long.
      */
     public static long loadLongAtOffset(byte[] array, int offset) throws IndexOutOfBoundsException {
-        if (!(offset < 0) && !(offset > array.length - sizeOfLong)) {
-            return loadLongAtOffsetUnsafe(array, offset);
-        } else {
-            Object[] arguments = {array.length, offset};
-            String message = ResourceBundle.formatResourceBundleMessage(BinaryData.class,
-                    "BINARY_DATA_ARRAY_BOUNDS_READ_ERROR", arguments);
-            throw new IndexOutOfBoundsException(message);
+        if ((offset | (array.length - sizeOfLong - offset)) < 0) {
+            throw readBoundsError(array.length, offset);
         }
+        return loadLongAtOffsetUnsafe(array, offset);
     }
 
     /**
@@ -381,4 +365,506 @@ public final class BinaryData {
                         (array[offset + 7] & 0x00000000000000FFL)
         );
     }
+
+    /**
+     * Builds the exception reported when a scalar store falls outside of the
+     * array. The failure path is kept out of line so that the checked
+     * accessors remain small enough to be inlined at their call sites.
+     *
+     * @param length the length of the array
+     * @param offset the illegal offset
+     * @return the exception to throw
+     */
+    private static IndexOutOfBoundsException writeBoundsError(int length, int offset) {
+        return boundsError("BINARY_DATA_ARRAY_BOUNDS_WRITE_ERROR", length, offset);
+    }
+
+    /**
+     * Builds the exception reported when a scalar load falls outside of the
+     * array.
+     *
+     * @param length the length of the array
+     * @param offset the illegal offset
+     * @return the exception to throw
+     * @see #writeBoundsError(int, int)
+     */
+    private static IndexOutOfBoundsException readBoundsError(int length, int offset) {
+        return boundsError("BINARY_DATA_ARRAY_BOUNDS_READ_ERROR", length, offset);
+    }
+
+    /**
+     * Formats a bounds error message and wraps it in an exception.
+     *
+     * @param mnemonic  the resource bundle mnemonic of the message
+     * @param arguments formatting arguments
+     * @return the exception to throw
+     */
+    private static IndexOutOfBoundsException boundsError(String mnemonic, Object... arguments) {
+        String message = ResourceBundle.formatResourceBundleMessage(BinaryData.class, mnemonic, arguments);
+        return new IndexOutOfBoundsException(message);
+    }
+
+    /**
+     * Checks that a bulk transfer of <code>len</code> scalar values of the
+     * given size fits in both the byte array and the primitive array. The
+     * check is performed once per transfer rather than once per element.
+     *
+     * @param bytes     the length of the byte array
+     * @param offset    the offset into the byte array
+     * @param elements  the length of the primitive array
+     * @param index     the index into the primitive array
+     * @param len       the number of scalar values to transfer
+     * @param size      the size of each scalar value in bytes
+     * @param mnemonic  the resource bundle mnemonic reported upon failure
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    private static void checkBulkRange(int bytes, int offset, int elements, int index, int len, int size,
+                                       String mnemonic) throws IndexOutOfBoundsException {
+        if (offset < 0 || len < 0 || (long) len * size > bytes - offset) {
+            throw boundsError(mnemonic, bytes, offset, len);
+        }
+        if (index < 0 || index > elements - len) {
+            throw boundsError(mnemonic, elements, index, len);
+        }
+    }
+
+    /**
+     * Store a short primitive type at the indicated offset in the byte array
+     * in little-endian byte order. This method does no range checks.
+     */
+    @SuppressWarnings({"OctalInteger"})
+    private static void storeShortAtOffsetUnsafeLE(byte[] array, int offset, short value) {
+        array[offset] = (byte) (value & 0x00FF);
+        array[offset + 1] = (byte) (value >>> 010);
+    }
+
+    /**
+     * Load a short primitive type at the indicated offset in the byte array
+     * in little-endian byte order. This method does no range checks.
+     */
+    @SuppressWarnings({"OctalInteger"})
+    private static short loadShortAtOffsetUnsafeLE(byte[] array, int offset) {
+        return (short) ((array[offset + 1] & 0x00FF) << 010 |
+                (array[offset] & 0x00FF)
+        );
+    }
+
+    /**
+     * Store an int primitive type at the indicated offset in the byte array
+     * in little-endian byte order. This method does no range checks.
+     */
+    @SuppressWarnings({"OctalInteger"})
+    private static void storeIntAtOffsetUnsafeLE(byte[] array, int offset, int value) {
+        array[offset] = (byte) (value & 0x000000FF);
+        array[offset + 1] = (byte) (value >>> 010);
+        array[offset + 2] = (byte) (value >>> 020);
+        array[offset + 3] = (byte) (value >>> 030);
+    }
+
+    /**
+     * Load an int primitive type at the indicated offset in the byte array in
+     * little-endian byte order. This method does no range checks.
+     */
+    @SuppressWarnings({"OctalInteger"})
+    private static int loadIntAtOffsetUnsafeLE(byte[] array, int offset) {
+        return ((array[offset + 3] & 0x000000FF) << 030 |
+                (array[offset + 2] & 0x000000FF) << 020 |
+                (array[offset + 1] & 0x000000FF) << 010 |
+                (array[offset] & 0x000000FF)
+        );
+    }
+
+    /**
+     * Store a long primitive type at the indicated offset in the byte array in
+     * little-endian byte order. This method does no range checks.
+     */
+    @SuppressWarnings({"OctalInteger"})
+    private static void storeLongAtOffsetUnsafeLE(byte[] array, int offset, long value) {
+        array[offset] = (byte) (value & 0x00000000000000FFL);
+        array[offset + 1] = (byte) (value >>> 010);
+        array[offset + 2] = (byte) (value >>> 020);
+        array[offset + 3] = (byte) (value >>> 030);
+        array[offset + 4] = (byte) (value >>> 040);
+        array[offset + 5] = (byte) (value >>> 050);
+        array[offset + 6] = (byte) (value >>> 060);
+        array[offset + 7] = (byte) (value >>> 070);
+    }
+
+    /**
+     * Load a long primitive type at the indicated offset in the byte array in
+     * little-endian byte order. This method does no range checks.
+     */
+    @SuppressWarnings({"OctalInteger"})
+    private static long loadLongAtOffsetUnsafeLE(byte[] array, int offset) {
+        return (
+                (array[offset + 7] & 0x00000000000000FFL) << 070 |
+                        (array[offset + 6] & 0x00000000000000FFL) << 060 |
+                        (array[offset + 5] & 0x00000000000000FFL) << 050 |
+                        (array[offset + 4] & 0x00000000000000FFL) << 040 |
+                        (array[offset + 3] & 0x00000000000000FFL) << 030 |
+                        (array[offset + 2] & 0x00000000000000FFL) << 020 |
+                        (array[offset + 1] & 0x00000000000000FFL) << 010 |
+                        (array[offset] & 0x00000000000000FFL)
+        );
+    }
+
+    /**
+     * Store an array of short primitive types into the byte array in
+     * big-endian byte order, starting at the indicated offset.
+     *
+     * @param dst    the byte array to store the shorts into
+     * @param off    the offset at which to store the first short
+     * @param src    the shorts to store
+     * @param srcOff the index of the first short to store
+     * @param len    the number of shorts to store
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void storeShorts(byte[] dst, int off, short[] src, int srcOff, int len)
+            throws IndexOutOfBoundsException {
+        storeShorts(dst, off, src, srcOff, len, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Store an array of short primitive types into the byte array in the given
+     * byte order, starting at the indicated offset. Range checks are performed
+     * once for the whole transfer.
+     *
+     * @param dst    the byte array to store the shorts into
+     * @param off    the offset at which to store the first short
+     * @param src    the shorts to store
+     * @param srcOff the index of the first short to store
+     * @param len    the number of shorts to store
+     * @param order  the byte order of the stored shorts
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void storeShorts(byte[] dst, int off, short[] src, int srcOff, int len, ByteOrder order)
+            throws IndexOutOfBoundsException {
+        checkBulkRange(dst.length, off, src.length, srcOff, len, sizeOfShort,
+                "BINARY_DATA_BULK_BOUNDS_WRITE_ERROR");
+        final int end = srcOff + len;
+        if (order == ByteOrder.BIG_ENDIAN) {
+            for (int i = srcOff; i < end; i++, off += sizeOfShort) {
+                storeShortAtOffsetUnsafe(dst, off, src[i]);
+            }
+        } else {
+            for (int i = srcOff; i < end; i++, off += sizeOfShort) {
+                storeShortAtOffsetUnsafeLE(dst, off, src[i]);
+            }
+        }
+    }
+
+    /**
+     * Load an array of short primitive types from the byte array in big-endian
+     * byte order, starting at the indicated offset.
+     *
+     * @param src    the byte array to load the shorts from
+     * @param off    the offset from which to load the first short
+     * @param dst    the array to load the shorts into
+     * @param dstOff the index at which to store the first short
+     * @param len    the number of shorts to load
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void loadShorts(byte[] src, int off, short[] dst, int dstOff, int len)
+            throws IndexOutOfBoundsException {
+        loadShorts(src, off, dst, dstOff, len, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Load an array of short primitive types from the byte array in the given
+     * byte order, starting at the indicated offset. Range checks are performed
+     * once for the whole transfer.
+     *
+     * @param src    the byte array to load the shorts from
+     * @param off    the offset from which to load the first short
+     * @param dst    the array to load the shorts into
+     * @param dstOff the index at which to store the first short
+     * @param len    the number of shorts to load
+     * @param order  the byte order of the stored shorts
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void loadShorts(byte[] src, int off, short[] dst, int dstOff, int len, ByteOrder order)
+            throws IndexOutOfBoundsException {
+        checkBulkRange(src.length, off, dst.length, dstOff, len, sizeOfShort,
+                "BINARY_DATA_BULK_BOUNDS_READ_ERROR");
+        final int end = dstOff + len;
+        if (order == ByteOrder.BIG_ENDIAN) {
+            for (int i = dstOff; i < end; i++, off += sizeOfShort) {
+                dst[i] = loadShortAtOffsetUnsafe(src, off);
+            }
+        } else {
+            for (int i = dstOff; i < end; i++, off += sizeOfShort) {
+                dst[i] = loadShortAtOffsetUnsafeLE(src, off);
+            }
+        }
+    }
+
+    /**
+     * Store an array of int primitive types into the byte array in big-endian
+     * byte order, starting at the indicated offset.
+     *
+     * @param dst    the byte array to store the ints into
+     * @param off    the offset at which to store the first int
+     * @param src    the ints to store
+     * @param srcOff the index of the first int to store
+     * @param len    the number of ints to store
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void storeInts(byte[] dst, int off, int[] src, int srcOff, int len)
+            throws IndexOutOfBoundsException {
+        storeInts(dst, off, src, srcOff, len, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Store an array of int primitive types into the byte array in the given
+     * byte order, starting at the indicated offset. Range checks are performed
+     * once for the whole transfer.
+     *
+     * @param dst    the byte array to store the ints into
+     * @param off    the offset at which to store the first int
+     * @param src    the ints to store
+     * @param srcOff the index of the first int to store
+     * @param len    the number of ints to store
+     * @param order  the byte order of the stored ints
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void storeInts(byte[] dst, int off, int[] src, int srcOff, int len, ByteOrder order)
+            throws IndexOutOfBoundsException {
+        checkBulkRange(dst.length, off, src.length, srcOff, len, sizeOfInt,
+                "BINARY_DATA_BULK_BOUNDS_WRITE_ERROR");
+        final int end = srcOff + len;
+        if (order == ByteOrder.BIG_ENDIAN) {
+            for (int i = srcOff; i < end; i++, off += sizeOfInt) {
+                storeIntAtOffsetUnsafe(dst, off, src[i]);
+            }
+        } else {
+            for (int i = srcOff; i < end; i++, off += sizeOfInt) {
+                storeIntAtOffsetUnsafeLE(dst, off, src[i]);
+            }
+        }
+    }
+
+    /**
+     * Load an array of int primitive types from the byte array in big-endian
+     * byte order, starting at the indicated offset.
+     *
+     * @param src    the byte array to load the ints from
+     * @param off    the offset from which to load the first int
+     * @param dst    the array to load the ints into
+     * @param dstOff the index at which to store the first int
+     * @param len    the number of ints to load
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void loadInts(byte[] src, int off, int[] dst, int dstOff, int len)
+            throws IndexOutOfBoundsException {
+        loadInts(src, off, dst, dstOff, len, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Load an array of int primitive types from the byte array in the given
+     * byte order, starting at the indicated offset. Range checks are performed
+     * once for the whole transfer.
+     *
+     * @param src    the byte array to load the ints from
+     * @param off    the offset from which to load the first int
+     * @param dst    the array to load the ints into
+     * @param dstOff the index at which to store the first int
+     * @param len    the number of ints to load
+     * @param order  the byte order of the stored ints
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void loadInts(byte[] src, int off, int[] dst, int dstOff, int len, ByteOrder order)
+            throws IndexOutOfBoundsException {
+        checkBulkRange(src.length, off, dst.length, dstOff, len, sizeOfInt,
+                "BINARY_DATA_BULK_BOUNDS_READ_ERROR");
+        final int end = dstOff + len;
+        if (order == ByteOrder.BIG_ENDIAN) {
+            for (int i = dstOff; i < end; i++, off += sizeOfInt) {
+                dst[i] = loadIntAtOffsetUnsafe(src, off);
+            }
+        } else {
+            for (int i = dstOff; i < end; i++, off += sizeOfInt) {
+                dst[i] = loadIntAtOffsetUnsafeLE(src, off);
+            }
+        }
+    }
+
+    /**
+     * Store an array of long primitive types into the byte array in big-endian
+     * byte order, starting at the indicated offset.
+     *
+     * @param dst    the byte array to store the longs into
+     * @param off    the offset at which to store the first long
+     * @param src    the longs to store
+     * @param srcOff the index of the first long to store
+     * @param len    the number of longs to store
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void storeLongs(byte[] dst, int off, long[] src, int srcOff, int len)
+            throws IndexOutOfBoundsException {
+        storeLongs(dst, off, src, srcOff, len, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Store an array of long primitive types into the byte array in the given
+     * byte order, starting at the indicated offset. Range checks are performed
+     * once for the whole transfer.
+     *
+     * @param dst    the byte array to store the longs into
+     * @param off    the offset at which to store the first long
+     * @param src    the longs to store
+     * @param srcOff the index of the first long to store
+     * @param len    the number of longs to store
+     * @param order  the byte order of the stored longs
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void storeLongs(byte[] dst, int off, long[] src, int srcOff, int len, ByteOrder order)
+            throws IndexOutOfBoundsException {
+        checkBulkRange(dst.length, off, src.length, srcOff, len, sizeOfLong,
+                "BINARY_DATA_BULK_BOUNDS_WRITE_ERROR");
+        final int end = srcOff + len;
+        if (order == ByteOrder.BIG_ENDIAN) {
+            for (int i = srcOff; i < end; i++, off += sizeOfLong) {
+                storeLongAtOffsetUnsafe(dst, off, src[i]);
+            }
+        } else {
+            for (int i = srcOff; i < end; i++, off += sizeOfLong) {
+                storeLongAtOffsetUnsafeLE(dst, off, src[i]);
+            }
+        }
+    }
+
+    /**
+     * Load an array of long primitive types from the byte array in big-endian
+     * byte order, starting at the indicated offset.
+     *
+     * @param src    the byte array to load the longs from
+     * @param off    the offset from which to load the first long
+     * @param dst    the array to load the longs into
+     * @param dstOff the index at which to store the first long
+     * @param len    the number of longs to load
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void loadLongs(byte[] src, int off, long[] dst, int dstOff, int len)
+            throws IndexOutOfBoundsException {
+        loadLongs(src, off, dst, dstOff, len, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Load an array of long primitive types from the byte array in the given
+     * byte order, starting at the indicated offset. Range checks are performed
+     * once for the whole transfer.
+     *
+     * @param src    the byte array to load the longs from
+     * @param off    the offset from which to load the first long
+     * @param dst    the array to load the longs into
+     * @param dstOff the index at which to store the first long
+     * @param len    the number of longs to load
+     * @param order  the byte order of the stored longs
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void loadLongs(byte[] src, int off, long[] dst, int dstOff, int len, ByteOrder order)
+            throws IndexOutOfBoundsException {
+        checkBulkRange(src.length, off, dst.length, dstOff, len, sizeOfLong,
+                "BINARY_DATA_BULK_BOUNDS_READ_ERROR");
+        final int end = dstOff + len;
+        if (order == ByteOrder.BIG_ENDIAN) {
+            for (int i = dstOff; i < end; i++, off += sizeOfLong) {
+                dst[i] = loadLongAtOffsetUnsafe(src, off);
+            }
+        } else {
+            for (int i = dstOff; i < end; i++, off += sizeOfLong) {
+                dst[i] = loadLongAtOffsetUnsafeLE(src, off);
+            }
+        }
+    }
+
+    /**
+     * Store an array of double primitive types into the byte array in
+     * big-endian byte order, starting at the indicated offset.
+     *
+     * @param dst    the byte array to store the doubles into
+     * @param off    the offset at which to store the first double
+     * @param src    the doubles to store
+     * @param srcOff the index of the first double to store
+     * @param len    the number of doubles to store
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void storeDoubles(byte[] dst, int off, double[] src, int srcOff, int len)
+            throws IndexOutOfBoundsException {
+        storeDoubles(dst, off, src, srcOff, len, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Store an array of double primitive types into the byte array in the
+     * given byte order, starting at the indicated offset. Doubles are stored
+     * using their raw IEEE 754 bit layout, so NaN payloads are preserved.
+     *
+     * @param dst    the byte array to store the doubles into
+     * @param off    the offset at which to store the first double
+     * @param src    the doubles to store
+     * @param srcOff the index of the first double to store
+     * @param len    the number of doubles to store
+     * @param order  the byte order of the stored doubles
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void storeDoubles(byte[] dst, int off, double[] src, int srcOff, int len, ByteOrder order)
+            throws IndexOutOfBoundsException {
+        checkBulkRange(dst.length, off, src.length, srcOff, len, sizeOfDouble,
+                "BINARY_DATA_BULK_BOUNDS_WRITE_ERROR");
+        final int end = srcOff + len;
+        if (order == ByteOrder.BIG_ENDIAN) {
+            for (int i = srcOff; i < end; i++, off += sizeOfDouble) {
+                storeLongAtOffsetUnsafe(dst, off, Double.doubleToRawLongBits(src[i]));
+            }
+        } else {
+            for (int i = srcOff; i < end; i++, off += sizeOfDouble) {
+                storeLongAtOffsetUnsafeLE(dst, off, Double.doubleToRawLongBits(src[i]));
+            }
+        }
+    }
+
+    /**
+     * Load an array of double primitive types from the byte array in
+     * big-endian byte order, starting at the indicated offset.
+     *
+     * @param src    the byte array to load the doubles from
+     * @param off    the offset from which to load the first double
+     * @param dst    the array to load the doubles into
+     * @param dstOff the index at which to store the first double
+     * @param len    the number of doubles to load
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void loadDoubles(byte[] src, int off, double[] dst, int dstOff, int len)
+            throws IndexOutOfBoundsException {
+        loadDoubles(src, off, dst, dstOff, len, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Load an array of double primitive types from the byte array in the given
+     * byte order, starting at the indicated offset. Range checks are performed
+     * once for the whole transfer.
+     *
+     * @param src    the byte array to load the doubles from
+     * @param off    the offset from which to load the first double
+     * @param dst    the array to load the doubles into
+     * @param dstOff the index at which to store the first double
+     * @param len    the number of doubles to load
+     * @param order  the byte order of the stored doubles
+     * @throws IndexOutOfBoundsException if either range is illegal
+     */
+    public static void loadDoubles(byte[] src, int off, double[] dst, int dstOff, int len, ByteOrder order)
+            throws IndexOutOfBoundsException {
+        checkBulkRange(src.length, off, dst.length, dstOff, len, sizeOfDouble,
+                "BINARY_DATA_BULK_BOUNDS_READ_ERROR");
+        final int end = dstOff + len;
+        if (order == ByteOrder.BIG_ENDIAN) {
+            for (int i = dstOff; i < end; i++, off += sizeOfDouble) {
+                dst[i] = Double.longBitsToDouble(loadLongAtOffsetUnsafe(src, off));
+            }
+        } else {
+            for (int i = dstOff; i < end; i++, off += sizeOfDouble) {
+                dst[i] = Double.longBitsToDouble(loadLongAtOffsetUnsafeLE(src, off));
+            }
+        }
+    }
 }
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Packs integers into the smallest number of bits that can represent them.
+ * Values are treated as unsigned and are written least significant bit first,
+ * so that a packed sequence of <code>n</code> values at width <code>w</code>
+ * occupies exactly <code>ceil(n * w / 8)</code> bytes regardless of platform
+ * byte order.
+ * <p/>
+ * Bit widths from 0 to 32 inclusive are supported; a width of zero encodes a
+ * sequence of zeros in no space at all.
+ *
+ * @author Robert J. Buck
+ */
+public final class BitPacking {
+
+    /**
+     * The widest supported bit width.
+     */
+    public static final int MAX_BIT_WIDTH = 32;
+
+    /**
+     * Returns the number of bits required to represent the widest of the given
+     * values, treated as unsigned.
+     *
+     * @param src the values to examine
+     * @param off the index of the first value
+     * @param len the number of values
+     * @return the required bit width, between 0 and 32 inclusive
+     */
+    public static int bitWidth(int[] src, int off, int len) {
+        int or = 0;
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            or |= src[i];
+        }
+        return bitWidth(or);
+    }
+
+    /**
+     * Returns the number of bits required to represent the value, treated as
+     * unsigned.
+     *
+     * @param value the value to examine
+     * @return the required bit width, between 0 and 32 inclusive
+     */
+    public static int bitWidth(int value) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Returns the number of bytes occupied by <code>len</code> values packed
+     * at the given bit width.
+     *
+     * @param len      the number of values
+     * @param bitWidth the bit width
+     * @return the packed length in bytes
+     */
+    public static int packedLength(int len, int bitWidth) {
+        return (int) (((long) len * bitWidth + 7) >>> 3);
+    }
+
+    /**
+     * Packs values into a byte array. Bits above the bit width are discarded.
+     *
+     * @param src      the values to pack
+     * @param srcOff   the index of the first value
+     * @param len      the number of values
+     * @param bitWidth the number of bits per value
+     * @param dst      the byte array to pack into
+     * @param dstOff   the offset of the first packed byte
+     * @return the offset one past the last packed byte
+     * @throws IllegalArgumentException  if the bit width is illegal
+     * @throws IndexOutOfBoundsException if the packed values do not fit
+     */
+    public static int pack(int[] src, int srcOff, int len, int bitWidth, byte[] dst, int dstOff) {
+        checkBitWidth(bitWidth);
+        final int end = dstOff + packedLength(len, bitWidth);
+        if (dstOff < 0 || end > dst.length || end < dstOff) {
+            throw new IndexOutOfBoundsException();
+        }
+        final long mask = (1L << bitWidth) - 1;
+        long acc = 0;
+        int bits = 0;
+        int d = dstOff;
+        final int last = srcOff + len;
+        for (int i = srcOff; i < last; i++) {
+            acc |= (src[i] & mask) << bits;
+            bits += bitWidth;
+            while (bits >= 8) {
+                dst[d++] = (byte) acc;
+                acc >>>= 8;
+                bits -= 8;
+            }
+        }
+        if (bits > 0) {
+            dst[d++] = (byte) acc;
+        }
+        return d;
+    }
+
+    /**
+     * Unpacks values from a byte array.
+     *
+     * @param src      the byte array to unpack from
+     * @param srcOff   the offset of the first packed byte
+     * @param dst      the array to unpack values into
+     * @param dstOff   the index of the first value
+     * @param len      the number of values
+     * @param bitWidth the number of bits per value
+     * @return the offset one past the last packed byte consumed
+     * @throws IllegalArgumentException  if the bit width is illegal
+     * @throws IndexOutOfBoundsException if the packed values are truncated
+     */
+    public static int unpack(byte[] src, int srcOff, int[] dst, int dstOff, int len, int bitWidth) {
+        checkBitWidth(bitWidth);
+        final int end = srcOff + packedLength(len, bitWidth);
+        if (srcOff < 0 || end > src.length || end < srcOff) {
+            throw new IndexOutOfBoundsException();
+        }
+        final long mask = (1L << bitWidth) - 1;
+        long acc = 0;
+        int bits = 0;
+        int s = srcOff;
+        final int last = dstOff + len;
+        for (int i = dstOff; i < last; i++) {
+            while (bits < bitWidth) {
+                acc |= (src[s++] & 0xFFL) << bits;
+                bits += 8;
+            }
+            dst[i] = (int) (acc & mask);
+            acc >>>= bitWidth;
+            bits -= bitWidth;
+        }
+        return end;
+    }
+
+    /**
+     * Packs values into a buffer at its current position, advancing the
+     * position past the packed bytes.
+     *
+     * @param src      the values to pack
+     * @param srcOff   the index of the first value
+     * @param len      the number of values
+     * @param bitWidth the number of bits per value
+     * @param dst      the buffer to pack into
+     * @throws IllegalArgumentException if the bit width is illegal
+     * @throws BufferOverflowException  if the packed values do not fit
+     */
+    public static void pack(int[] src, int srcOff, int len, int bitWidth, ByteBuffer dst) {
+        checkBitWidth(bitWidth);
+        final int n = packedLength(len, bitWidth);
+        if (n > dst.remaining()) {
+            throw new BufferOverflowException();
+        }
+        if (dst.hasArray()) {
+            final int position = dst.position();
+            pack(src, srcOff, len, bitWidth, dst.array(), dst.arrayOffset() + position);
+            dst.position(position + n);
+            return;
+        }
+        final long mask = (1L << bitWidth) - 1;
+        long acc = 0;
+        int bits = 0;
+        final int last = srcOff + len;
+        for (int i = srcOff; i < last; i++) {
+            acc |= (src[i] & mask) << bits;
+            bits += bitWidth;
+            while (bits >= 8) {
+                dst.put((byte) acc);
+                acc >>>= 8;
+                bits -= 8;
+            }
+        }
+        if (bits > 0) {
+            dst.put((byte) acc);
+        }
+    }
+
+    /**
+     * Unpacks values from a buffer at its current position, advancing the
+     * position past the packed bytes.
+     *
+     * @param src      the buffer to unpack from
+     * @param dst      the array to unpack values into
+     * @param dstOff   the index of the first value
+     * @param len      the number of values
+     * @param bitWidth the number of bits per value
+     * @throws IllegalArgumentException if the bit width is illegal
+     * @throws BufferUnderflowException if the packed values are truncated
+     */
+    public static void unpack(ByteBuffer src, int[] dst, int dstOff, int len, int bitWidth) {
+        checkBitWidth(bitWidth);
+        final int n = packedLength(len, bitWidth);
+        if (n > src.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (src.hasArray()) {
+            final int position = src.position();
+            unpack(src.array(), src.arrayOffset() + position, dst, dstOff, len, bitWidth);
+            src.position(position + n);
+            return;
+        }
+        final long mask = (1L << bitWidth) - 1;
+        long acc = 0;
+        int bits = 0;
+        final int last = dstOff + len;
+        for (int i = dstOff; i < last; i++) {
+            while (bits < bitWidth) {
+                acc |= (src.get() & 0xFFL) << bits;
+                bits += 8;
+            }
+            dst[i] = (int) (acc & mask);
+            acc >>>= bitWidth;
+            bits -= bitWidth;
+        }
+    }
+
+    private static void checkBitWidth(int bitWidth) {
+        if (bitWidth < 0 || bitWidth > MAX_BIT_WIDTH) {
+            Object[] arguments = {bitWidth};
+            String message = ResourceBundle.formatResourceBundleMessage(BitPacking.class,
+                    "BIT_PACKING_ILLEGAL_WIDTH", arguments);
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
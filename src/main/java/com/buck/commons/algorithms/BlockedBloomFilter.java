@@ -0,0 +1,193 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * A cache line blocked Bloom filter (Putze, Sanders and Singler). The bit
+ * array is divided into 512 bit blocks, the size of a cache line, and all the
+ * bits of an element are set within a single block chosen by the high half of
+ * its hash. A lookup therefore costs one cache miss rather than
+ * <code>k</code>, at the price of a somewhat higher false positive rate for
+ * the same number of bits; to compensate the filter is sized with a fifth
+ * more bits than a {@link BloomFilter}.
+ *
+ * @author Robert J. Buck
+ */
+public final class BlockedBloomFilter extends MembershipFilter {
+
+    private static final int WORDS_PER_BLOCK = 8;
+    private static final int MAX_HASH_FUNCTIONS = 16;
+
+    private final LongBuffer words;
+    private final int blocks;
+    private final int hashFunctions;
+
+    /**
+     * Creates a blocked Bloom filter on the Java heap.
+     *
+     * @param expectedInsertions the expected number of elements
+     * @param falsePositiveRate  the desired false positive rate, between zero
+     *                           and one exclusive
+     * @throws IllegalArgumentException if the sizing is illegal
+     */
+    public BlockedBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        this(expectedInsertions, falsePositiveRate, false);
+    }
+
+    /**
+     * Creates a blocked Bloom filter.
+     *
+     * @param expectedInsertions the expected number of elements
+     * @param falsePositiveRate  the desired false positive rate, between zero
+     *                           and one exclusive
+     * @param direct             whether to hold the bits in a direct buffer
+     *                           rather than on the Java heap
+     * @throws IllegalArgumentException if the sizing is illegal
+     */
+    public BlockedBloomFilter(long expectedInsertions, double falsePositiveRate, boolean direct) {
+        checkSizing(expectedInsertions, falsePositiveRate);
+        final double m = 1.2 * -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        this.blocks = (int) Math.min((long) Math.ceil(m / (WORDS_PER_BLOCK * Long.SIZE)),
+                Integer.MAX_VALUE >>> 6);
+        this.words = allocateWords(blocks * WORDS_PER_BLOCK, direct);
+        final double bitsPerElement = (double) blocks * WORDS_PER_BLOCK * Long.SIZE / expectedInsertions;
+        this.hashFunctions = Math.max(1, Math.min(MAX_HASH_FUNCTIONS,
+                (int) Math.round(bitsPerElement * Math.log(2))));
+    }
+
+    private BlockedBloomFilter(LongBuffer words, int hashFunctions) {
+        this.words = words;
+        this.blocks = words.capacity() / WORDS_PER_BLOCK;
+        this.hashFunctions = hashFunctions;
+    }
+
+    /**
+     * Returns the number of hash functions, <code>k</code>.
+     *
+     * @return the number of bits set per element
+     */
+    public int hashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * Returns the size of the bit array.
+     *
+     * @return the number of bits
+     */
+    public long bitSize() {
+        return (long) words.capacity() * Long.SIZE;
+    }
+
+    @Override
+    public boolean add(long hash) {
+        final int base = block(hash);
+        final long mix = HashCode.fmix64(hash);
+        int a = (int) mix;
+        final int b = (int) (mix >>> 32) | 1;
+        boolean changed = false;
+        for (int i = 0; i < hashFunctions; i++) {
+            // the top nine bits select one of the 512 bits in the block
+            final int bit = a >>> 23;
+            final int index = base + (bit >>> 6);
+            final long word = words.get(index);
+            final long mask = 1L << bit;
+            if ((word & mask) == 0) {
+                words.put(index, word | mask);
+                changed = true;
+            }
+            a += b;
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean mightContain(long hash) {
+        final int base = block(hash);
+        final long mix = HashCode.fmix64(hash);
+        int a = (int) mix;
+        final int b = (int) (mix >>> 32) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            final int bit = a >>> 23;
+            if ((words.get(base + (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            a += b;
+        }
+        return true;
+    }
+
+    /**
+     * Maps the high half of the hash onto the first word of a block, using a
+     * multiply and shift rather than a division.
+     */
+    private int block(long hash) {
+        return (int) (((hash >>> 32) * blocks) >>> 32) * WORDS_PER_BLOCK;
+    }
+
+    @Override
+    public int serializedSize() {
+        return 8 + (words.capacity() << 3);
+    }
+
+    /**
+     * Serializes the filter at the buffer's position. The form is the number
+     * of hash functions and the number of words, each as an int, followed by
+     * the words.
+     *
+     * @param dst the buffer to write to
+     */
+    @Override
+    public void writeTo(ByteBuffer dst) {
+        dst.putInt(hashFunctions);
+        dst.putInt(words.capacity());
+        writeWords(words, dst);
+    }
+
+    /**
+     * Reads a filter serialized by {@link #writeTo(ByteBuffer)} onto the Java
+     * heap.
+     *
+     * @param src the buffer to read from
+     * @return the filter
+     * @throws IllegalArgumentException if the serialized form is malformed
+     */
+    public static BlockedBloomFilter readFrom(ByteBuffer src) {
+        return readFrom(src, false);
+    }
+
+    /**
+     * Reads a filter serialized by {@link #writeTo(ByteBuffer)}.
+     *
+     * @param src    the buffer to read from
+     * @param direct whether to hold the bits in a direct buffer
+     * @return the filter
+     * @throws IllegalArgumentException if the serialized form is malformed
+     */
+    public static BlockedBloomFilter readFrom(ByteBuffer src, boolean direct) {
+        final int hashFunctions = src.getInt();
+        final int n = src.getInt();
+        if (hashFunctions <= 0 || hashFunctions > MAX_HASH_FUNCTIONS
+                || n <= 0 || n % WORDS_PER_BLOCK != 0) {
+            throw malformed();
+        }
+        return new BlockedBloomFilter(readWords(src, n, direct), hashFunctions);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * A classic Bloom filter. Each element sets <code>k</code> bits of an
+ * <code>m</code> bit array, chosen by double hashing of the element's 64 bit
+ * hash (Kirsch and Mitzenmacher), and an element might be present only if all
+ * of its bits are set.
+ * <p/>
+ * For <code>n</code> expected insertions and a false positive rate
+ * <code>p</code> the filter uses <code>m = -n ln p / (ln 2)^2</code> bits and
+ * <code>k = (m / n) ln 2</code> hash functions; a one percent rate costs
+ * about 9.6 bits per element. Each probe touches a different cache line; see
+ * {@link BlockedBloomFilter} for a faster, slightly less accurate variant.
+ *
+ * @author Robert J. Buck
+ */
+public final class BloomFilter extends MembershipFilter {
+
+    private final LongBuffer words;
+    private final long bits;
+    private final int hashFunctions;
+
+    /**
+     * Creates a Bloom filter on the Java heap.
+     *
+     * @param expectedInsertions the expected number of elements
+     * @param falsePositiveRate  the desired false positive rate, between zero
+     *                           and one exclusive
+     * @throws IllegalArgumentException if the sizing is illegal
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        this(expectedInsertions, falsePositiveRate, false);
+    }
+
+    /**
+     * Creates a Bloom filter.
+     *
+     * @param expectedInsertions the expected number of elements
+     * @param falsePositiveRate  the desired false positive rate, between zero
+     *                           and one exclusive
+     * @param direct             whether to hold the bits in a direct buffer
+     *                           rather than on the Java heap
+     * @throws IllegalArgumentException if the sizing is illegal
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate, boolean direct) {
+        checkSizing(expectedInsertions, falsePositiveRate);
+        final double m = -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        final long n = Math.min((long) Math.ceil(m / Long.SIZE), Integer.MAX_VALUE >>> 3);
+        this.words = allocateWords((int) n, direct);
+        this.bits = n * Long.SIZE;
+        this.hashFunctions = Math.max(1, (int) Math.round(m / expectedInsertions * Math.log(2)));
+    }
+
+    private BloomFilter(LongBuffer words, int hashFunctions) {
+        this.words = words;
+        this.bits = (long) words.capacity() * Long.SIZE;
+        this.hashFunctions = hashFunctions;
+    }
+
+    /**
+     * Returns the number of hash functions, <code>k</code>.
+     *
+     * @return the number of bits set per element
+     */
+    public int hashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * Returns the size of the bit array, <code>m</code>.
+     *
+     * @return the number of bits
+     */
+    public long bitSize() {
+        return bits;
+    }
+
+    @Override
+    public boolean add(long hash) {
+        final long h2 = HashCode.fmix64(hash);
+        long combined = hash;
+        boolean changed = false;
+        for (int i = 0; i < hashFunctions; i++) {
+            final long bit = (combined & Long.MAX_VALUE) % bits;
+            final int index = (int) (bit >>> 6);
+            final long word = words.get(index);
+            final long mask = 1L << bit;
+            if ((word & mask) == 0) {
+                words.put(index, word | mask);
+                changed = true;
+            }
+            combined += h2;
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean mightContain(long hash) {
+        final long h2 = HashCode.fmix64(hash);
+        long combined = hash;
+        for (int i = 0; i < hashFunctions; i++) {
+            final long bit = (combined & Long.MAX_VALUE) % bits;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            combined += h2;
+        }
+        return true;
+    }
+
+    @Override
+    public int serializedSize() {
+        return 8 + (words.capacity() << 3);
+    }
+
+    /**
+     * Serializes the filter at the buffer's position. The form is the number
+     * of hash functions and the number of words, each as an int, followed by
+     * the words.
+     *
+     * @param dst the buffer to write to
+     */
+    @Override
+    public void writeTo(ByteBuffer dst) {
+        dst.putInt(hashFunctions);
+        dst.putInt(words.capacity());
+        writeWords(words, dst);
+    }
+
+    /**
+     * Reads a filter serialized by {@link #writeTo(ByteBuffer)} onto the Java
+     * heap.
+     *
+     * @param src the buffer to read from
+     * @return the filter
+     * @throws IllegalArgumentException if the serialized form is malformed
+     */
+    public static BloomFilter readFrom(ByteBuffer src) {
+        return readFrom(src, false);
+    }
+
+    /**
+     * Reads a filter serialized by {@link #writeTo(ByteBuffer)}.
+     *
+     * @param src    the buffer to read from
+     * @param direct whether to hold the bits in a direct buffer
+     * @return the filter
+     * @throws IllegalArgumentException if the serialized form is malformed
+     */
+    public static BloomFilter readFrom(ByteBuffer src, boolean direct) {
+        final int hashFunctions = src.getInt();
+        final int n = src.getInt();
+        if (hashFunctions <= 0 || n <= 0) {
+            throw malformed();
+        }
+        return new BloomFilter(readWords(src, n, direct), hashFunctions);
+    }
+}
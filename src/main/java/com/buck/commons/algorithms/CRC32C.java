@@ -0,0 +1,185 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.Checksum;
+
+/**
+ * Computes the CRC-32C (Castagnoli) checksum of a data stream, as used by
+ * iSCSI, SCTP, ext4 and many storage formats. CRC-32C detects more error
+ * patterns than the CRC-32 of <code>java.util.zip</code> and produces the
+ * same values as <code>java.util.zip.CRC32C</code>, which is not available
+ * on all supported platforms.
+ * <p/>
+ * The implementation is table driven and consumes eight bytes per step
+ * (slicing by eight), and it checksums <code>ByteBuffer</code> regions in
+ * place, whether heap or direct, without copying them.
+ *
+ * @author Robert J. Buck
+ */
+public final class CRC32C implements Checksum {
+
+    /**
+     * The reflected Castagnoli polynomial.
+     */
+    private static final int POLYNOMIAL = 0x82F63B78;
+
+    /**
+     * Eight 256 entry tables, back to back; table k gives the contribution of
+     * a byte followed by k zero bytes.
+     */
+    private static final int[] TABLE;
+
+    static {
+        TABLE = new int[8 * 256];
+        for (int n = 0; n < 256; n++) {
+            int c = n;
+            for (int k = 0; k < 8; k++) {
+                c = (c & 1) != 0 ? (c >>> 1) ^ POLYNOMIAL : c >>> 1;
+            }
+            TABLE[n] = c;
+        }
+        for (int n = 0; n < 256; n++) {
+            int c = TABLE[n];
+            for (int k = 1; k < 8; k++) {
+                c = (c >>> 8) ^ TABLE[c & 0xFF];
+                TABLE[k * 256 + n] = c;
+            }
+        }
+    }
+
+    /**
+     * The inverted running checksum.
+     */
+    private int crc = 0xFFFFFFFF;
+
+    /**
+     * Updates the checksum with a byte.
+     *
+     * @param b the byte
+     */
+    public void update(int b) {
+        crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+    }
+
+    /**
+     * Updates the checksum with an array of bytes.
+     *
+     * @param b the bytes
+     */
+    public void update(byte[] b) {
+        update(b, 0, b.length);
+    }
+
+    /**
+     * Updates the checksum with a byte array range.
+     *
+     * @param b   the bytes
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @throws ArrayIndexOutOfBoundsException if the range is outside the
+     *                                        array
+     */
+    public void update(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        int c = crc;
+        final int end = off + len;
+        int i = off;
+        for (; i <= end - 8; i += 8) {
+            final int lo = c ^ ((b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8
+                    | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24);
+            final int hi = (b[i + 4] & 0xFF) | (b[i + 5] & 0xFF) << 8
+                    | (b[i + 6] & 0xFF) << 16 | (b[i + 7] & 0xFF) << 24;
+            c = step(lo, hi);
+        }
+        for (; i < end; i++) {
+            c = (c >>> 8) ^ TABLE[(c ^ b[i]) & 0xFF];
+        }
+        crc = c;
+    }
+
+    /**
+     * Updates the checksum with the remaining bytes of a buffer, advancing
+     * its position to its limit.
+     *
+     * @param b the buffer
+     */
+    public void update(ByteBuffer b) {
+        final int position = b.position();
+        final int length = b.remaining();
+        update(b, position, length);
+        b.position(position + length);
+    }
+
+    /**
+     * Updates the checksum with a region of a buffer. The buffer's position
+     * is not changed.
+     *
+     * @param b      the buffer
+     * @param index  the index of the first byte
+     * @param length the number of bytes
+     * @throws IndexOutOfBoundsException if the region is outside the buffer's
+     *                                   limit
+     */
+    public void update(ByteBuffer b, int index, int length) {
+        if (index < 0 || length < 0 || index > b.limit() - length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (b.hasArray()) {
+            update(b.array(), b.arrayOffset() + index, length);
+            return;
+        }
+        final ByteBuffer le = b.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int c = crc;
+        final int end = index + length;
+        int i = index;
+        for (; i <= end - 8; i += 8) {
+            c = step(c ^ le.getInt(i), le.getInt(i + 4));
+        }
+        for (; i < end; i++) {
+            c = (c >>> 8) ^ TABLE[(c ^ le.get(i)) & 0xFF];
+        }
+        crc = c;
+    }
+
+    private static int step(int lo, int hi) {
+        return TABLE[7 * 256 + (lo & 0xFF)] ^ TABLE[6 * 256 + ((lo >>> 8) & 0xFF)]
+                ^ TABLE[5 * 256 + ((lo >>> 16) & 0xFF)] ^ TABLE[4 * 256 + (lo >>> 24)]
+                ^ TABLE[3 * 256 + (hi & 0xFF)] ^ TABLE[2 * 256 + ((hi >>> 8) & 0xFF)]
+                ^ TABLE[256 + ((hi >>> 16) & 0xFF)] ^ TABLE[hi >>> 24];
+    }
+
+    /**
+     * Returns the checksum value.
+     *
+     * @return the checksum, in the low 32 bits
+     */
+    public long getValue() {
+        return ~crc & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Resets the checksum to its initial value.
+     */
+    public void reset() {
+        crc = 0xFFFFFFFF;
+    }
+}
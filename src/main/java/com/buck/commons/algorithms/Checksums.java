@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * Applies {@link Checksum checksums}, such as {@link CRC32C} or
+ * <code>java.util.zip.Adler32</code>, to <code>ByteBuffer</code> regions.
+ * Heap buffers are checksummed in place through their backing array. Direct
+ * buffers are checksummed in place by {@link CRC32C}; other checksums only
+ * accept arrays, so direct buffers are passed to them through a small
+ * per-thread scratch array rather than copied whole.
+ *
+ * @author Robert J. Buck
+ */
+public final class Checksums {
+
+    private static final int SCRATCH_SIZE = 4096;
+
+    /**
+     * Thread specific scratch space for direct buffers.
+     */
+    private static final ThreadLocal<byte[]> tssScratch = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[SCRATCH_SIZE];
+        }
+    };
+
+    /**
+     * Updates a checksum with the remaining bytes of a buffer, advancing its
+     * position to its limit.
+     *
+     * @param checksum the checksum to update
+     * @param b        the buffer
+     */
+    public static void update(Checksum checksum, ByteBuffer b) {
+        final int position = b.position();
+        final int length = b.remaining();
+        update(checksum, b, position, length);
+        b.position(position + length);
+    }
+
+    /**
+     * Updates a checksum with a region of a buffer. The buffer's position is
+     * not changed.
+     *
+     * @param checksum the checksum to update
+     * @param b        the buffer
+     * @param index    the index of the first byte
+     * @param length   the number of bytes
+     * @throws IndexOutOfBoundsException if the region is outside the buffer's
+     *                                   limit
+     */
+    public static void update(Checksum checksum, ByteBuffer b, int index, int length) {
+        if (index < 0 || length < 0 || index > b.limit() - length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (checksum instanceof CRC32C) {
+            ((CRC32C) checksum).update(b, index, length);
+        } else if (b.hasArray()) {
+            checksum.update(b.array(), b.arrayOffset() + index, length);
+        } else {
+            final byte[] scratch = tssScratch.get();
+            final ByteBuffer source = b.duplicate();
+            source.limit(index + length).position(index);
+            while (source.hasRemaining()) {
+                final int n = Math.min(scratch.length, source.remaining());
+                source.get(scratch, 0, n);
+                checksum.update(scratch, 0, n);
+            }
+        }
+    }
+
+    /**
+     * Computes the CRC-32C of a region of a buffer.
+     *
+     * @param b      the buffer
+     * @param index  the index of the first byte
+     * @param length the number of bytes
+     * @return the checksum
+     */
+    public static int crc32c(ByteBuffer b, int index, int length) {
+        final CRC32C crc = new CRC32C();
+        crc.update(b, index, length);
+        return (int) crc.getValue();
+    }
+}
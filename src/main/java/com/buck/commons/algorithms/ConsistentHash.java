@@ -0,0 +1,91 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+/**
+ * Consistent hashing functions for routing keys to buckets, such as cache
+ * nodes. Unlike taking a hash modulo the bucket count, which remaps nearly
+ * every key whenever the count changes, these functions move only the keys
+ * that must move: growing from <code>n</code> to <code>n + 1</code> buckets
+ * remaps about <code>1 / (n + 1)</code> of the keys.
+ * <p/>
+ * Jump consistent hash needs no memory and balances keys almost perfectly,
+ * but buckets are numbered and may only be added or removed at the end.
+ * Rendezvous (highest random weight) hashing lets any node leave, at a cost
+ * linear in the number of nodes. For large, arbitrarily changing node sets
+ * see {@link ConsistentHashRing}.
+ *
+ * @author Robert J. Buck
+ */
+public final class ConsistentHash {
+
+    private static final long JUMP_MULTIPLIER = 2862933555777941757L;
+
+    /**
+     * Maps a key to a bucket using the jump consistent hash of Lamping and
+     * Veach. The key should itself be well distributed, for example the
+     * output of {@link HashCode#xxHash64(long, long)}.
+     *
+     * @param key     the key
+     * @param buckets the number of buckets
+     * @return the bucket, between zero inclusive and the number of buckets
+     *         exclusive
+     * @throws IllegalArgumentException if the number of buckets is not
+     *                                  positive
+     */
+    public static int jump(long key, int buckets) {
+        if (buckets <= 0) {
+            Object[] arguments = {buckets};
+            String message = ResourceBundle.formatResourceBundleMessage(ConsistentHash.class,
+                    "CONSISTENT_HASH_ILLEGAL_BUCKETS", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * JUMP_MULTIPLIER + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    /**
+     * Maps a key to one of a set of nodes using rendezvous hashing. Each node
+     * is scored by hashing the key with the node's identifier as the seed, and
+     * the highest scoring node wins. Removing a node therefore only remaps the
+     * keys that node owned.
+     *
+     * @param key   the key
+     * @param nodes the node identifiers, for example hashes of node names
+     * @return the index of the winning node, or -1 if there are no nodes
+     */
+    public static int rendezvous(long key, long[] nodes) {
+        int winner = -1;
+        long best = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            final long score = HashCode.xxHash64(key, nodes[i]);
+            if (winner < 0 || score > best) {
+                winner = i;
+                best = score;
+            }
+        }
+        return winner;
+    }
+}
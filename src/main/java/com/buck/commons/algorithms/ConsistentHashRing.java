@@ -0,0 +1,161 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A consistent hash ring with virtual nodes. Each node is placed on the ring
+ * at several points derived from its name, and a key is owned by the first
+ * point at or after the key's hash, wrapping around. Adding or removing a
+ * node therefore only remaps the keys falling between its points and their
+ * predecessors, and the virtual nodes even out the share each node owns.
+ * <p/>
+ * The ring points are held in a sorted <code>long[]</code> so that a lookup is
+ * a single binary search. Membership changes rebuild the ring and publish it
+ * atomically; lookups take no locks and may run concurrently with changes.
+ *
+ * @author Robert J. Buck
+ */
+public final class ConsistentHashRing<T> {
+
+    /**
+     * An immutable snapshot of the ring.
+     */
+    private static final class Ring {
+        final long[] points;
+        final Object[] owners;
+
+        Ring(long[] points, Object[] owners) {
+            this.points = points;
+            this.owners = owners;
+        }
+    }
+
+    private final int virtualNodes;
+    private final Map<String, T> members = new LinkedHashMap<String, T>();
+    private volatile Ring ring = new Ring(new long[0], new Object[0]);
+
+    /**
+     * Creates an empty ring.
+     *
+     * @param virtualNodes the number of points per node; one to two hundred
+     *                     keep the load within a few percent of even
+     * @throws IllegalArgumentException if the number of virtual nodes is not
+     *                                  positive
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            Object[] arguments = {virtualNodes};
+            String message = ResourceBundle.formatResourceBundleMessage(ConsistentHashRing.class,
+                    "CONSISTENT_HASH_ILLEGAL_VIRTUAL_NODES", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Adds a node, replacing any node of the same name.
+     *
+     * @param name the node name, from which its ring points are derived
+     * @param node the node
+     */
+    public synchronized void add(String name, T node) {
+        members.put(name, node);
+        rebuild();
+    }
+
+    /**
+     * Removes a node.
+     *
+     * @param name the node name
+     * @return the removed node, or null if there was no such node
+     */
+    public synchronized T remove(String name) {
+        final T node = members.remove(name);
+        if (node != null) {
+            rebuild();
+        }
+        return node;
+    }
+
+    /**
+     * Returns the number of nodes on the ring.
+     *
+     * @return the number of nodes
+     */
+    public synchronized int size() {
+        return members.size();
+    }
+
+    /**
+     * Returns the node owning a key.
+     *
+     * @param hash the hash of the key, for example from {@link
+     *             HashCode#xxHash64(CharSequence, long)}
+     * @return the owning node, or null if the ring is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long hash) {
+        final Ring r = ring;
+        final long[] points = r.points;
+        if (points.length == 0) {
+            return null;
+        }
+        int i = Arrays.binarySearch(points, hash);
+        if (i < 0) {
+            i = -i - 1;
+            if (i == points.length) {
+                i = 0;
+            }
+        }
+        return (T) r.owners[i];
+    }
+
+    private void rebuild() {
+        final int n = members.size() * virtualNodes;
+        final long[][] entries = new long[n][];
+        final Object[] nodes = new Object[members.size()];
+        final HashCode.Hasher hasher = HashCode.newHasher(0);
+        int e = 0;
+        int m = 0;
+        for (Map.Entry<String, T> member : members.entrySet()) {
+            for (int v = 0; v < virtualNodes; v++) {
+                final long point = hasher.reset().putChars(member.getKey()).putInt(v).hash();
+                entries[e++] = new long[]{point, m};
+            }
+            nodes[m++] = member.getValue();
+        }
+        Arrays.sort(entries, new Comparator<long[]>() {
+            public int compare(long[] a, long[] b) {
+                return a[0] < b[0] ? -1 : (a[0] == b[0] ? 0 : 1);
+            }
+        });
+        final long[] points = new long[n];
+        final Object[] owners = new Object[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = entries[i][0];
+            owners[i] = nodes[(int) entries[i][1]];
+        }
+        ring = new Ring(points, owners);
+    }
+}
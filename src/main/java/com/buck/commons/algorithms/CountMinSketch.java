@@ -0,0 +1,276 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.util.UUID;
+
+/**
+ * A Count-Min sketch (Cormode and Muthukrishnan) for estimating the frequency
+ * of elements in a stream. The sketch holds <code>d</code> rows of
+ * <code>w</code> counters; each element increments one counter per row, and
+ * its frequency is estimated by the smallest of its counters. Estimates never
+ * fall below the true frequency, and with <code>w = e / epsilon</code> and
+ * <code>d = ln(1 / delta)</code> they exceed it by more than <code>epsilon
+ * </code> times the total count with probability at most <code>delta</code>.
+ * <p/>
+ * Updates are conservative (Estan and Varghese): only the counters that are
+ * below the new estimate are raised, which leaves the guarantee intact while
+ * considerably reducing the overestimation of infrequent elements.
+ * <p/>
+ * Sketches of the same dimensions can be merged by adding counters, and
+ * serialize to compact byte arrays. Sketches are not thread safe.
+ *
+ * @author Robert J. Buck
+ */
+public final class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final long[] counters;
+    private final int[] scratch;
+    private long total;
+
+    /**
+     * Creates a sketch for the given error bounds.
+     *
+     * @param epsilon the error bound as a fraction of the total count
+     * @param delta   the probability of exceeding the error bound
+     * @throws IllegalArgumentException if either bound is not between zero
+     *                                  and one exclusive
+     */
+    public CountMinSketch(double epsilon, double delta) {
+        this(checkedDepth(epsilon, delta), (int) Math.ceil(Math.E / epsilon));
+    }
+
+    /**
+     * Creates a sketch of the given dimensions.
+     *
+     * @param depth the number of rows
+     * @param width the number of counters per row
+     * @throws IllegalArgumentException if either dimension is not positive or
+     *                                  the sketch would be too large
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth <= 0 || width <= 0 || (long) depth * width > Integer.MAX_VALUE >>> 3) {
+            Object[] arguments = {depth, width};
+            String message = ResourceBundle.formatResourceBundleMessage(CountMinSketch.class,
+                    "COUNT_MIN_ILLEGAL_DIMENSIONS", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        this.depth = depth;
+        this.width = width;
+        this.counters = new long[depth * width];
+        this.scratch = new int[depth];
+    }
+
+    private static int checkedDepth(double epsilon, double delta) {
+        if (!(epsilon > 0.0 && epsilon < 1.0 && delta > 0.0 && delta < 1.0)) {
+            Object[] arguments = {epsilon, delta};
+            String message = ResourceBundle.formatResourceBundleMessage(CountMinSketch.class,
+                    "COUNT_MIN_ILLEGAL_BOUNDS", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        return (int) Math.ceil(Math.log(1.0 / delta));
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the depth
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * Returns the number of counters per row.
+     *
+     * @return the width
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Returns the sum of all counts added.
+     *
+     * @return the total count
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Adds one occurrence of an element.
+     *
+     * @param hash the 64 bit hash of the element
+     */
+    public void add(long hash) {
+        add(hash, 1);
+    }
+
+    /**
+     * Adds occurrences of an element.
+     *
+     * @param hash  the 64 bit hash of the element
+     * @param count the number of occurrences, which must not be negative
+     */
+    public void add(long hash, long count) {
+        final int[] cells = scratch;
+        long min = Long.MAX_VALUE;
+        final long h2 = HashCode.fmix64(hash);
+        long combined = hash;
+        for (int row = 0, base = 0; row < depth; row++, base += width) {
+            final int cell = base + (int) (((combined >>> 32) * width) >>> 32);
+            cells[row] = cell;
+            if (counters[cell] < min) {
+                min = counters[cell];
+            }
+            combined += h2;
+        }
+        final long estimate = min + count;
+        for (int row = 0; row < depth; row++) {
+            if (counters[cells[row]] < estimate) {
+                counters[cells[row]] = estimate;
+            }
+        }
+        total += count;
+    }
+
+    /**
+     * Adds one occurrence of a character sequence.
+     *
+     * @param s the element
+     */
+    public void add(CharSequence s) {
+        add(HashCode.xxHash64(s, 0), 1);
+    }
+
+    /**
+     * Adds one occurrence of a UUID.
+     *
+     * @param uuid the element
+     */
+    public void add(UUID uuid) {
+        add(MembershipFilter.hash(uuid), 1);
+    }
+
+    /**
+     * Estimates the frequency of an element. The estimate is never below the
+     * true frequency.
+     *
+     * @param hash the 64 bit hash of the element
+     * @return the estimated frequency
+     */
+    public long estimate(long hash) {
+        long min = Long.MAX_VALUE;
+        final long h2 = HashCode.fmix64(hash);
+        long combined = hash;
+        for (int row = 0, base = 0; row < depth; row++, base += width) {
+            final long c = counters[base + (int) (((combined >>> 32) * width) >>> 32)];
+            if (c < min) {
+                min = c;
+            }
+            combined += h2;
+        }
+        return min;
+    }
+
+    /**
+     * Estimates the frequency of a character sequence.
+     *
+     * @param s the element
+     * @return the estimated frequency
+     */
+    public long estimate(CharSequence s) {
+        return estimate(HashCode.xxHash64(s, 0));
+    }
+
+    /**
+     * Estimates the frequency of a UUID.
+     *
+     * @param uuid the element
+     * @return the estimated frequency
+     */
+    public long estimate(UUID uuid) {
+        return estimate(MembershipFilter.hash(uuid));
+    }
+
+    /**
+     * Merges another sketch into this one by adding counters. The merged
+     * estimates remain upper bounds of the combined frequencies.
+     *
+     * @param that a sketch of the same dimensions
+     * @throws IllegalArgumentException if the dimensions differ
+     */
+    public void merge(CountMinSketch that) {
+        if (that.depth != depth || that.width != width) {
+            Object[] arguments = {depth, width, that.depth, that.width};
+            String message = ResourceBundle.formatResourceBundleMessage(CountMinSketch.class,
+                    "COUNT_MIN_INCOMPATIBLE_DIMENSIONS", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += that.counters[i];
+        }
+        total += that.total;
+    }
+
+    /**
+     * Serializes the sketch. The form is the depth and width as big-endian
+     * ints, followed by the total and the counters, row by row, as big-endian
+     * longs.
+     *
+     * @return the serialized sketch
+     */
+    public byte[] toByteArray() {
+        final byte[] b = new byte[2 * BinaryData.sizeOfInt + BinaryData.sizeOfLong * (1 + counters.length)];
+        BinaryData.storeIntAtOffset(b, 0, depth);
+        BinaryData.storeIntAtOffset(b, BinaryData.sizeOfInt, width);
+        BinaryData.storeLongAtOffset(b, 2 * BinaryData.sizeOfInt, total);
+        BinaryData.storeLongs(b, 2 * BinaryData.sizeOfInt + BinaryData.sizeOfLong, counters, 0, counters.length);
+        return b;
+    }
+
+    /**
+     * Reads a sketch serialized by {@link #toByteArray()}.
+     *
+     * @param b the serialized sketch
+     * @return the sketch
+     * @throws IllegalArgumentException  if the serialized form is malformed
+     * @throws IndexOutOfBoundsException if the serialized form is truncated
+     */
+    public static CountMinSketch fromByteArray(byte[] b) {
+        final int depth = BinaryData.loadIntAtOffset(b, 0);
+        final int width = BinaryData.loadIntAtOffset(b, BinaryData.sizeOfInt);
+        final long cells = (long) depth * width;
+        if (depth <= 0 || width <= 0
+                || cells != (b.length - 2 * BinaryData.sizeOfInt) / BinaryData.sizeOfLong - 1) {
+            Object[] arguments = {};
+            String message = ResourceBundle.formatResourceBundleMessage(CountMinSketch.class,
+                    "SKETCH_MALFORMED", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        final CountMinSketch sketch = new CountMinSketch(depth, width);
+        sketch.total = BinaryData.loadLongAtOffset(b, 2 * BinaryData.sizeOfInt);
+        BinaryData.loadLongs(b, 2 * BinaryData.sizeOfInt + BinaryData.sizeOfLong,
+                sketch.counters, 0, sketch.counters.length);
+        return sketch;
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.UUID;
+
+/**
+ * A cuckoo filter (Fan, Andersen, Kaminsky and Mitzenmacher). Each element is
+ * reduced to a 16 bit fingerprint stored in one of two candidate buckets of
+ * four slots; the second bucket is derived from the first and the
+ * fingerprint alone, so fingerprints can be relocated, cuckoo style, to make
+ * room. Unlike a Bloom filter, elements can be removed.
+ * <p/>
+ * A bucket occupies exactly one long, so a lookup reads two words and tests
+ * all four slots of each at once. The false positive rate is about
+ * <code>8 / 2^16</code>, roughly 0.012 percent, at 17 bits per element when
+ * the filter is 95 percent full. The filter is sized for the expected number
+ * of insertions; when it is full, {@link #add(long)} returns false.
+ *
+ * @author Robert J. Buck
+ */
+public final class CuckooFilter extends MembershipFilter {
+
+    /**
+     * The approximate false positive rate of a full filter.
+     */
+    public static final double FALSE_POSITIVE_RATE = 2.0 * 4 / (1 << 16);
+
+    private static final int SLOTS_PER_BUCKET = 4;
+    private static final double LOAD_FACTOR = 0.95;
+    private static final int MAX_KICKS = 500;
+
+    private static final long LANES = 0x0001000100010001L;
+    private static final long HIGH_BITS = 0x8000800080008000L;
+
+    private final LongBuffer buckets;
+    private final int mask;
+    private int count;
+    // a fingerprint evicted by a failed insertion, kept so it is not lost
+    private int victimIndex = -1;
+    private int victimFingerprint;
+    private long kickState = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Creates a cuckoo filter on the Java heap.
+     *
+     * @param expectedInsertions the expected number of elements
+     * @throws IllegalArgumentException if the sizing is illegal
+     */
+    public CuckooFilter(long expectedInsertions) {
+        this(expectedInsertions, false);
+    }
+
+    /**
+     * Creates a cuckoo filter.
+     *
+     * @param expectedInsertions the expected number of elements
+     * @param direct             whether to hold the buckets in a direct buffer
+     *                           rather than on the Java heap
+     * @throws IllegalArgumentException if the sizing is illegal
+     */
+    public CuckooFilter(long expectedInsertions, boolean direct) {
+        checkSizing(expectedInsertions, FALSE_POSITIVE_RATE);
+        final long needed = (long) Math.ceil(expectedInsertions / (SLOTS_PER_BUCKET * LOAD_FACTOR));
+        int n = 2;
+        while (n < needed && n < (1 << 27)) {
+            n <<= 1;
+        }
+        this.buckets = allocateWords(n, direct);
+        this.mask = n - 1;
+    }
+
+    private CuckooFilter(LongBuffer buckets) {
+        this.buckets = buckets;
+        this.mask = buckets.capacity() - 1;
+    }
+
+    /**
+     * Returns the number of elements in the filter.
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the number of elements the filter can hold.
+     *
+     * @return the number of fingerprint slots
+     */
+    public int capacity() {
+        return buckets.capacity() * SLOTS_PER_BUCKET;
+    }
+
+    /**
+     * Adds an element. Unlike a Bloom filter, adding an element twice stores
+     * it twice, so that it survives a single removal.
+     *
+     * @param hash the 64 bit hash of the element
+     * @return true if the element was added, false if the filter is full
+     */
+    @Override
+    public boolean add(long hash) {
+        if (victimIndex >= 0) {
+            return false;
+        }
+        int fingerprint = fingerprint(hash);
+        int i = (int) hash & mask;
+        if (insert(i, fingerprint) || insert(alternate(i, fingerprint), fingerprint)) {
+            count++;
+            return true;
+        }
+        if ((nextKick() & 1) != 0) {
+            i = alternate(i, fingerprint);
+        }
+        for (int kick = 0; kick < MAX_KICKS; kick++) {
+            final int shift = (int) (nextKick() & (SLOTS_PER_BUCKET - 1)) << 4;
+            final long bucket = buckets.get(i);
+            final int evicted = (int) (bucket >>> shift) & 0xFFFF;
+            buckets.put(i, bucket & ~(0xFFFFL << shift) | (long) fingerprint << shift);
+            fingerprint = evicted;
+            i = alternate(i, fingerprint);
+            if (insert(i, fingerprint)) {
+                count++;
+                return true;
+            }
+        }
+        victimIndex = i;
+        victimFingerprint = fingerprint;
+        count++;
+        return true;
+    }
+
+    @Override
+    public boolean mightContain(long hash) {
+        final int fingerprint = fingerprint(hash);
+        final int i1 = (int) hash & mask;
+        final int i2 = alternate(i1, fingerprint);
+        final long lanes = fingerprint * LANES;
+        if (hasZeroLane(buckets.get(i1) ^ lanes) || hasZeroLane(buckets.get(i2) ^ lanes)) {
+            return true;
+        }
+        return victimIndex >= 0 && victimFingerprint == fingerprint
+                && (victimIndex == i1 || victimIndex == i2);
+    }
+
+    /**
+     * Removes one occurrence of an element. Only elements that were added may
+     * be removed; removing any other element may remove an element sharing
+     * its fingerprint and cause a false negative.
+     *
+     * @param hash the 64 bit hash of the element
+     * @return true if a matching fingerprint was removed
+     */
+    public boolean remove(long hash) {
+        final int fingerprint = fingerprint(hash);
+        final int i1 = (int) hash & mask;
+        final int i2 = alternate(i1, fingerprint);
+        if (delete(i1, fingerprint) || delete(i2, fingerprint)) {
+            count--;
+            // a slot has been freed, which may make room for the victim
+            if (victimIndex >= 0 && (insert(victimIndex, victimFingerprint)
+                    || insert(alternate(victimIndex, victimFingerprint), victimFingerprint))) {
+                victimIndex = -1;
+            }
+            return true;
+        }
+        if (victimIndex >= 0 && victimFingerprint == fingerprint
+                && (victimIndex == i1 || victimIndex == i2)) {
+            victimIndex = -1;
+            count--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes one occurrence of a character sequence.
+     *
+     * @param s the element
+     * @return true if a matching fingerprint was removed
+     * @see #remove(long)
+     */
+    public boolean remove(CharSequence s) {
+        return remove(HashCode.xxHash64(s, 0));
+    }
+
+    /**
+     * Removes one occurrence of a UUID.
+     *
+     * @param uuid the element
+     * @return true if a matching fingerprint was removed
+     * @see #remove(long)
+     */
+    public boolean remove(UUID uuid) {
+        return remove(hash(uuid));
+    }
+
+    private boolean insert(int i, int fingerprint) {
+        final long bucket = buckets.get(i);
+        for (int shift = 0; shift < Long.SIZE; shift += 16) {
+            if (((bucket >>> shift) & 0xFFFF) == 0) {
+                buckets.put(i, bucket | (long) fingerprint << shift);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean delete(int i, int fingerprint) {
+        final long bucket = buckets.get(i);
+        for (int shift = 0; shift < Long.SIZE; shift += 16) {
+            if (((bucket >>> shift) & 0xFFFF) == fingerprint) {
+                buckets.put(i, bucket & ~(0xFFFFL << shift));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int alternate(int i, int fingerprint) {
+        return (i ^ (fingerprint * 0x5BD1E995)) & mask;
+    }
+
+    private long nextKick() {
+        long x = kickState;
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        kickState = x;
+        return x;
+    }
+
+    /**
+     * Takes the top 16 bits of the hash, remapping zero, which marks an empty
+     * slot.
+     */
+    private static int fingerprint(long hash) {
+        final int fingerprint = (int) (hash >>> 48);
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    private static boolean hasZeroLane(long x) {
+        return ((x - LANES) & ~x & HIGH_BITS) != 0;
+    }
+
+    @Override
+    public int serializedSize() {
+        return 16 + (buckets.capacity() << 3);
+    }
+
+    /**
+     * Serializes the filter at the buffer's position. The form is the number
+     * of buckets, the number of elements, the victim bucket (-1 if none) and
+     * the victim fingerprint, each as an int, followed by the buckets.
+     *
+     * @param dst the buffer to write to
+     */
+    @Override
+    public void writeTo(ByteBuffer dst) {
+        dst.putInt(buckets.capacity());
+        dst.putInt(count);
+        dst.putInt(victimIndex);
+        dst.putInt(victimFingerprint);
+        writeWords(buckets, dst);
+    }
+
+    /**
+     * Reads a filter serialized by {@link #writeTo(ByteBuffer)} onto the Java
+     * heap.
+     *
+     * @param src the buffer to read from
+     * @return the filter
+     * @throws IllegalArgumentException if the serialized form is malformed
+     */
+    public static CuckooFilter readFrom(ByteBuffer src) {
+        return readFrom(src, false);
+    }
+
+    /**
+     * Reads a filter serialized by {@link #writeTo(ByteBuffer)}.
+     *
+     * @param src    the buffer to read from
+     * @param direct whether to hold the buckets in a direct buffer
+     * @return the filter
+     * @throws IllegalArgumentException if the serialized form is malformed
+     */
+    public static CuckooFilter readFrom(ByteBuffer src, boolean direct) {
+        final int n = src.getInt();
+        final int count = src.getInt();
+        final int victimIndex = src.getInt();
+        final int victimFingerprint = src.getInt();
+        if (n < 2 || (n & (n - 1)) != 0 || count < 0 || victimIndex < -1 || victimIndex >= n
+                || (victimFingerprint & ~0xFFFF) != 0) {
+            throw malformed();
+        }
+        final CuckooFilter filter = new CuckooFilter(readWords(src, n, direct));
+        filter.count = count;
+        filter.victimIndex = victimIndex;
+        filter.victimFingerprint = victimFingerprint;
+        return filter;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Frame of reference integer compression. A block of values is encoded as its
+ * minimum followed by the offsets of each value from that minimum, bit packed
+ * at the width of the largest offset. Values clustered in a narrow range, such
+ * as timestamps within a window, therefore pack into a few bits each.
+ * <p/>
+ * The encoded form of a block is:
+ * <pre>
+ *   zigzag varint   minimum
+ *   byte            bit width
+ *   bytes           packed offsets (see {@link BitPacking})
+ * </pre>
+ * The number of values is not recorded; callers must supply it when decoding.
+ *
+ * @author Robert J. Buck
+ */
+public final class FrameOfReference {
+
+    /**
+     * Returns the maximum number of bytes needed to encode a block.
+     *
+     * @param len the number of values in the block
+     * @return the worst case encoded length in bytes
+     */
+    public static int maxEncodedLength(int len) {
+        return VarInt.MAX_VARINT_SIZE + 1 + BitPacking.packedLength(len, BitPacking.MAX_BIT_WIDTH);
+    }
+
+    /**
+     * Encodes a block of values at the buffer's position.
+     *
+     * @param src the values to encode
+     * @param off the index of the first value
+     * @param len the number of values
+     * @param dst the buffer to encode into
+     * @throws java.nio.BufferOverflowException
+     *          if the buffer has insufficient space
+     */
+    public static void encode(int[] src, int off, int len, ByteBuffer dst) {
+        final int end = off + len;
+        int min = len > 0 ? src[off] : 0;
+        for (int i = off + 1; i < end; i++) {
+            if (src[i] < min) {
+                min = src[i];
+            }
+        }
+        final int[] offsets = new int[len];
+        int or = 0;
+        for (int i = 0; i < len; i++) {
+            offsets[i] = src[off + i] - min;
+            or |= offsets[i];
+        }
+        final int bitWidth = BitPacking.bitWidth(or);
+        VarInt.writeSignedVarInt(dst, min);
+        dst.put((byte) bitWidth);
+        BitPacking.pack(offsets, 0, len, bitWidth, dst);
+    }
+
+    /**
+     * Decodes a block of values at the buffer's position.
+     *
+     * @param src the buffer to decode from
+     * @param dst the array to decode values into
+     * @param off the index of the first value
+     * @param len the number of values in the block
+     * @throws java.nio.BufferUnderflowException
+     *          if the block is truncated
+     */
+    public static void decode(ByteBuffer src, int[] dst, int off, int len) {
+        final int min = VarInt.readSignedVarInt(src);
+        final int bitWidth = src.get() & 0xFF;
+        BitPacking.unpack(src, dst, off, len, bitWidth);
+        if (min != 0) {
+            final int end = off + len;
+            for (int i = off; i < end; i++) {
+                dst[i] += min;
+            }
+        }
+    }
+}
@@ -16,9 +16,27 @@
 
 package com.buck.commons.algorithms;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  * Extends hash code support for core Java types that do not support it, namely
  * array-types.
+ * <p/>
+ * Besides the polynomial hash used by <code>java.lang.String</code>, this
+ * class provides fast non-cryptographic hash functions with good
+ * distribution: xxHash (32 and 64 bit), MurmurHash3 (x86 32 bit and x64 128
+ * bit) and wyhash (final version 4). Each reads its input little-endian, a
+ * word at a time, and produces the same values as the reference
+ * implementations. Inputs may be byte arrays, the remaining bytes of a
+ * <code>ByteBuffer</code> (positions are not changed), character sequences
+ * viewed either as UTF-16LE or as UTF-8, or a single long viewed as eight
+ * little-endian bytes.
+ * <p/>
+ * For hash tables holding keys chosen by untrusted parties, whose keys could
+ * otherwise be crafted to collide, the keyed SipHash and HalfSipHash
+ * functions are provided, either with an explicit key or with a random key
+ * drawn from {@link SystemEntropy} once per process.
  *
  * @author Robert J. Buck
  */
@@ -57,4 +75,1291 @@ public final class HashCode {
         }
         return h;
     }
+
+    // xxHash32 primes
+    private static final int XXH32_P1 = 0x9E3779B1;
+    private static final int XXH32_P2 = 0x85EBCA77;
+    private static final int XXH32_P3 = 0xC2B2AE3D;
+    private static final int XXH32_P4 = 0x27D4EB2F;
+    private static final int XXH32_P5 = 0x165667B1;
+
+    // xxHash64 primes
+    private static final long XXH64_P1 = 0x9E3779B185EBCA87L;
+    private static final long XXH64_P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long XXH64_P3 = 0x165667B19E3779F9L;
+    private static final long XXH64_P4 = 0x85EBCA77C2B2AE63L;
+    private static final long XXH64_P5 = 0x27D4EB2F165667C5L;
+
+    // MurmurHash3 constants
+    private static final int MURMUR3_32_C1 = 0xCC9E2D51;
+    private static final int MURMUR3_32_C2 = 0x1B873593;
+    private static final long MURMUR3_128_C1 = 0x87C37B91114253D5L;
+    private static final long MURMUR3_128_C2 = 0x4CF5AD432745937FL;
+
+    // wyhash default secret
+    private static final long WY_S0 = 0xA0761D6478BD642FL;
+    private static final long WY_S1 = 0xE7037ED1A0B428DBL;
+    private static final long WY_S2 = 0x8EBC6AF09C88C6E3L;
+    private static final long WY_S3 = 0x589965CC75374CC3L;
+
+    /**
+     * Thread specific scratch space holding an encoding of a character
+     * sequence, with a little-endian view of it and its length.
+     */
+    private static final class Scratch {
+        byte[] bytes;
+        ByteBuffer buffer;
+        int length;
+
+        /**
+         * Ensures the scratch holds at least n bytes, returning its array.
+         */
+        byte[] reserve(int n) {
+            if (bytes == null || bytes.length < n) {
+                bytes = new byte[Math.max(n, 256)];
+                buffer = wrap(bytes);
+            }
+            return bytes;
+        }
+    }
+
+    private static final ThreadLocal<Scratch> tssScratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    /**
+     * Views a byte array little-endian, so that the hash kernels read each
+     * word with a single load.
+     */
+    private static ByteBuffer wrap(byte[] b) {
+        return ByteBuffer.wrap(b).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Returns the buffer, or a little-endian view of it if it is big-endian.
+     */
+    private static ByteBuffer littleEndian(ByteBuffer b) {
+        return b.order() == ByteOrder.LITTLE_ENDIAN ? b : b.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Encodes the character sequence as UTF-16LE into thread specific scratch
+     * space.
+     *
+     * @param s the characters to encode
+     * @return the scratch holding the encoding
+     */
+    private static Scratch utf16(CharSequence s) {
+        final int n = s.length();
+        final Scratch scratch = tssScratch.get();
+        final byte[] dst = scratch.reserve(n << 1);
+        for (int i = 0, d = 0; i < n; i++, d += 2) {
+            final char c = s.charAt(i);
+            dst[d] = (byte) c;
+            dst[d + 1] = (byte) (c >>> 8);
+        }
+        scratch.length = n << 1;
+        return scratch;
+    }
+
+    /**
+     * Encodes the character sequence as UTF-8 into thread specific scratch
+     * space. Unpaired surrogates are encoded as '?', as String.getBytes does.
+     *
+     * @param s the characters to encode
+     * @return the scratch holding the encoding
+     */
+    private static Scratch utf8(CharSequence s) {
+        final int n = s.length();
+        final Scratch scratch = tssScratch.get();
+        final byte[] dst = scratch.reserve(n * 3);
+        int d = 0;
+        for (int i = 0; i < n; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                dst[d++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[d++] = (byte) (0xC0 | (c >> 6));
+                dst[d++] = (byte) (0x80 | (c & 0x3F));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                final char low = i + 1 < n ? s.charAt(i + 1) : 0;
+                if (Character.isHighSurrogate(c) && Character.isLowSurrogate(low)) {
+                    final int cp = Character.toCodePoint(c, low);
+                    dst[d++] = (byte) (0xF0 | (cp >> 18));
+                    dst[d++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    dst[d++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    dst[d++] = (byte) (0x80 | (cp & 0x3F));
+                    i++;
+                } else {
+                    dst[d++] = '?';
+                }
+            } else {
+                dst[d++] = (byte) (0xE0 | (c >> 12));
+                dst[d++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[d++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        scratch.length = d;
+        return scratch;
+    }
+
+    private static void checkRange(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /**
+     * Computes the 32 bit xxHash of a byte array range.
+     *
+     * @param b    the bytes to hash
+     * @param off  the offset of the first byte
+     * @param len  the number of bytes to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static int xxHash32(byte[] b, int off, int len, int seed) {
+        checkRange(b, off, len);
+        return xxHash32(wrap(b), off, len, seed);
+    }
+
+    /**
+     * Computes the 32 bit xxHash of the remaining bytes of a buffer.
+     *
+     * @param b    the bytes to hash; the position is not changed
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static int xxHash32(ByteBuffer b, int seed) {
+        return xxHash32(littleEndian(b), b.position(), b.remaining(), seed);
+    }
+
+    /**
+     * Computes the 32 bit xxHash of the UTF-16LE encoding of the characters.
+     *
+     * @param s    the characters to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static int xxHash32(CharSequence s, int seed) {
+        final Scratch scratch = utf16(s);
+        return xxHash32(scratch.buffer, 0, scratch.length, seed);
+    }
+
+    /**
+     * Computes the 32 bit xxHash of the UTF-8 encoding of the characters.
+     *
+     * @param s    the characters to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static int xxHash32Utf8(CharSequence s, int seed) {
+        final Scratch scratch = utf8(s);
+        return xxHash32(scratch.buffer, 0, scratch.length, seed);
+    }
+
+    /**
+     * Computes the 32 bit xxHash of the eight little-endian bytes of a long.
+     *
+     * @param v    the value to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static int xxHash32(long v, int seed) {
+        int h = seed + XXH32_P5 + 8;
+        h += (int) v * XXH32_P3;
+        h = Integer.rotateLeft(h, 17) * XXH32_P4;
+        h += (int) (v >>> 32) * XXH32_P3;
+        h = Integer.rotateLeft(h, 17) * XXH32_P4;
+        return xxHash32Avalanche(h);
+    }
+
+    private static int xxHash32(ByteBuffer in, int off, int len, int seed) {
+        final int end = off + len;
+        int i = off;
+        int h;
+        if (len >= 16) {
+            int v1 = seed + XXH32_P1 + XXH32_P2;
+            int v2 = seed + XXH32_P2;
+            int v3 = seed;
+            int v4 = seed - XXH32_P1;
+            final int limit = end - 16;
+            do {
+                v1 = Integer.rotateLeft(v1 + in.getInt(i) * XXH32_P2, 13) * XXH32_P1;
+                v2 = Integer.rotateLeft(v2 + in.getInt(i + 4) * XXH32_P2, 13) * XXH32_P1;
+                v3 = Integer.rotateLeft(v3 + in.getInt(i + 8) * XXH32_P2, 13) * XXH32_P1;
+                v4 = Integer.rotateLeft(v4 + in.getInt(i + 12) * XXH32_P2, 13) * XXH32_P1;
+                i += 16;
+            } while (i <= limit);
+            h = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7)
+                    + Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+        } else {
+            h = seed + XXH32_P5;
+        }
+        h += len;
+        for (; i <= end - 4; i += 4) {
+            h += in.getInt(i) * XXH32_P3;
+            h = Integer.rotateLeft(h, 17) * XXH32_P4;
+        }
+        for (; i < end; i++) {
+            h += (in.get(i) & 0xFF) * XXH32_P5;
+            h = Integer.rotateLeft(h, 11) * XXH32_P1;
+        }
+        return xxHash32Avalanche(h);
+    }
+
+    private static int xxHash32Avalanche(int h) {
+        h ^= h >>> 15;
+        h *= XXH32_P2;
+        h ^= h >>> 13;
+        h *= XXH32_P3;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Computes the 64 bit xxHash of a byte array range.
+     *
+     * @param b    the bytes to hash
+     * @param off  the offset of the first byte
+     * @param len  the number of bytes to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static long xxHash64(byte[] b, int off, int len, long seed) {
+        checkRange(b, off, len);
+        return xxHash64(wrap(b), off, len, seed);
+    }
+
+    /**
+     * Computes the 64 bit xxHash of the remaining bytes of a buffer.
+     *
+     * @param b    the bytes to hash; the position is not changed
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static long xxHash64(ByteBuffer b, long seed) {
+        return xxHash64(littleEndian(b), b.position(), b.remaining(), seed);
+    }
+
+    /**
+     * Computes the 64 bit xxHash of the UTF-16LE encoding of the characters.
+     *
+     * @param s    the characters to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static long xxHash64(CharSequence s, long seed) {
+        final Scratch scratch = utf16(s);
+        return xxHash64(scratch.buffer, 0, scratch.length, seed);
+    }
+
+    /**
+     * Computes the 64 bit xxHash of the UTF-8 encoding of the characters.
+     *
+     * @param s    the characters to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static long xxHash64Utf8(CharSequence s, long seed) {
+        final Scratch scratch = utf8(s);
+        return xxHash64(scratch.buffer, 0, scratch.length, seed);
+    }
+
+    /**
+     * Computes the 64 bit xxHash of the eight little-endian bytes of a long.
+     *
+     * @param v    the value to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static long xxHash64(long v, long seed) {
+        long h = seed + XXH64_P5 + 8;
+        h ^= xxHash64Round(0, v);
+        h = Long.rotateLeft(h, 27) * XXH64_P1 + XXH64_P4;
+        return xxHash64Avalanche(h);
+    }
+
+    private static long xxHash64(ByteBuffer in, int off, int len, long seed) {
+        final int end = off + len;
+        int i = off;
+        long h;
+        if (len >= 32) {
+            long v1 = seed + XXH64_P1 + XXH64_P2;
+            long v2 = seed + XXH64_P2;
+            long v3 = seed;
+            long v4 = seed - XXH64_P1;
+            final int limit = end - 32;
+            do {
+                v1 = xxHash64Round(v1, in.getLong(i));
+                v2 = xxHash64Round(v2, in.getLong(i + 8));
+                v3 = xxHash64Round(v3, in.getLong(i + 16));
+                v4 = xxHash64Round(v4, in.getLong(i + 24));
+                i += 32;
+            } while (i <= limit);
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                    + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = xxHash64Merge(h, v1);
+            h = xxHash64Merge(h, v2);
+            h = xxHash64Merge(h, v3);
+            h = xxHash64Merge(h, v4);
+        } else {
+            h = seed + XXH64_P5;
+        }
+        h += len;
+        for (; i <= end - 8; i += 8) {
+            h ^= xxHash64Round(0, in.getLong(i));
+            h = Long.rotateLeft(h, 27) * XXH64_P1 + XXH64_P4;
+        }
+        if (i <= end - 4) {
+            h ^= (in.getInt(i) & 0xFFFFFFFFL) * XXH64_P1;
+            h = Long.rotateLeft(h, 23) * XXH64_P2 + XXH64_P3;
+            i += 4;
+        }
+        for (; i < end; i++) {
+            h ^= (in.get(i) & 0xFF) * XXH64_P5;
+            h = Long.rotateLeft(h, 11) * XXH64_P1;
+        }
+        return xxHash64Avalanche(h);
+    }
+
+    private static long xxHash64Round(long acc, long input) {
+        acc += input * XXH64_P2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * XXH64_P1;
+    }
+
+    private static long xxHash64Merge(long h, long v) {
+        h ^= xxHash64Round(0, v);
+        return h * XXH64_P1 + XXH64_P4;
+    }
+
+    private static long xxHash64Avalanche(long h) {
+        h ^= h >>> 33;
+        h *= XXH64_P2;
+        h ^= h >>> 29;
+        h *= XXH64_P3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    /**
+     * Computes the 32 bit (x86) MurmurHash3 of a byte array range.
+     *
+     * @param b    the bytes to hash
+     * @param off  the offset of the first byte
+     * @param len  the number of bytes to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static int murmurHash3_32(byte[] b, int off, int len, int seed) {
+        checkRange(b, off, len);
+        return murmurHash3_32(wrap(b), off, len, seed);
+    }
+
+    /**
+     * Computes the 32 bit (x86) MurmurHash3 of the remaining bytes of a
+     * buffer.
+     *
+     * @param b    the bytes to hash; the position is not changed
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static int murmurHash3_32(ByteBuffer b, int seed) {
+        return murmurHash3_32(littleEndian(b), b.position(), b.remaining(), seed);
+    }
+
+    /**
+     * Computes the 32 bit (x86) MurmurHash3 of the UTF-16LE encoding of the
+     * characters.
+     *
+     * @param s    the characters to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static int murmurHash3_32(CharSequence s, int seed) {
+        final Scratch scratch = utf16(s);
+        return murmurHash3_32(scratch.buffer, 0, scratch.length, seed);
+    }
+
+    /**
+     * Computes the 32 bit (x86) MurmurHash3 of the UTF-8 encoding of the
+     * characters.
+     *
+     * @param s    the characters to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static int murmurHash3_32Utf8(CharSequence s, int seed) {
+        final Scratch scratch = utf8(s);
+        return murmurHash3_32(scratch.buffer, 0, scratch.length, seed);
+    }
+
+    /**
+     * Computes the 32 bit (x86) MurmurHash3 of the eight little-endian bytes
+     * of a long.
+     *
+     * @param v    the value to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static int murmurHash3_32(long v, int seed) {
+        int h = murmurHash3_32Mix(seed, (int) v);
+        h = murmurHash3_32Mix(h, (int) (v >>> 32));
+        return fmix32(h ^ 8);
+    }
+
+    private static int murmurHash3_32(ByteBuffer in, int off, int len, int seed) {
+        final int end = off + len;
+        int h = seed;
+        int i = off;
+        for (; i <= end - 4; i += 4) {
+            h = murmurHash3_32Mix(h, in.getInt(i));
+        }
+        final int rem = end - i;
+        if (rem > 0) {
+            int k = 0;
+            if (rem >= 3) {
+                k ^= (in.get(i + 2) & 0xFF) << 16;
+            }
+            if (rem >= 2) {
+                k ^= (in.get(i + 1) & 0xFF) << 8;
+            }
+            k ^= (in.get(i) & 0xFF);
+            k *= MURMUR3_32_C1;
+            k = Integer.rotateLeft(k, 15);
+            k *= MURMUR3_32_C2;
+            h ^= k;
+        }
+        return fmix32(h ^ len);
+    }
+
+    private static int murmurHash3_32Mix(int h, int k) {
+        k *= MURMUR3_32_C1;
+        k = Integer.rotateLeft(k, 15);
+        k *= MURMUR3_32_C2;
+        h ^= k;
+        h = Integer.rotateLeft(h, 13);
+        return h * 5 + 0xE6546B64;
+    }
+
+    /**
+     * The MurmurHash3 32 bit finalizer; a fast bijective mixing function.
+     *
+     * @param h the value to mix
+     * @return the mixed value
+     */
+    public static int fmix32(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Computes the 128 bit (x64) MurmurHash3 of a byte array range. Both
+     * halves of the state are initialized with the seed; the reference
+     * implementation takes an unsigned 32 bit seed, which is matched by
+     * passing a seed between zero and 2^32 - 1.
+     *
+     * @param b      the bytes to hash
+     * @param off    the offset of the first byte
+     * @param len    the number of bytes to hash
+     * @param seed   the seed value
+     * @param result receives the low half of the hash in element zero and the
+     *               high half in element one
+     * @return the low 64 bits of the hash
+     */
+    public static long murmurHash3_128(byte[] b, int off, int len, long seed, long[] result) {
+        checkRange(b, off, len);
+        return murmurHash3_128(wrap(b), off, len, seed, result);
+    }
+
+    /**
+     * Computes the 128 bit (x64) MurmurHash3 of the remaining bytes of a
+     * buffer.
+     *
+     * @param b      the bytes to hash; the position is not changed
+     * @param seed   the seed value
+     * @param result receives the two halves of the hash
+     * @return the low 64 bits of the hash
+     */
+    public static long murmurHash3_128(ByteBuffer b, long seed, long[] result) {
+        return murmurHash3_128(littleEndian(b), b.position(), b.remaining(), seed, result);
+    }
+
+    /**
+     * Computes the 128 bit (x64) MurmurHash3 of the UTF-16LE encoding of the
+     * characters.
+     *
+     * @param s      the characters to hash
+     * @param seed   the seed value
+     * @param result receives the two halves of the hash
+     * @return the low 64 bits of the hash
+     */
+    public static long murmurHash3_128(CharSequence s, long seed, long[] result) {
+        final Scratch scratch = utf16(s);
+        return murmurHash3_128(scratch.buffer, 0, scratch.length, seed, result);
+    }
+
+    /**
+     * Computes the 128 bit (x64) MurmurHash3 of the UTF-8 encoding of the
+     * characters.
+     *
+     * @param s      the characters to hash
+     * @param seed   the seed value
+     * @param result receives the two halves of the hash
+     * @return the low 64 bits of the hash
+     */
+    public static long murmurHash3_128Utf8(CharSequence s, long seed, long[] result) {
+        final Scratch scratch = utf8(s);
+        return murmurHash3_128(scratch.buffer, 0, scratch.length, seed, result);
+    }
+
+    /**
+     * Computes the 128 bit (x64) MurmurHash3 of the eight little-endian bytes
+     * of a long.
+     *
+     * @param v      the value to hash
+     * @param seed   the seed value
+     * @param result receives the two halves of the hash
+     * @return the low 64 bits of the hash
+     */
+    public static long murmurHash3_128(long v, long seed, long[] result) {
+        return murmurHash3_128Finish(seed ^ murmurHash3_128MixK1(v), seed, 8, result);
+    }
+
+    private static long murmurHash3_128(ByteBuffer in, int off, int len, long seed, long[] result) {
+        final int end = off + len;
+        long h1 = seed;
+        long h2 = seed;
+        int i = off;
+        for (; i <= end - 16; i += 16) {
+            h1 ^= murmurHash3_128MixK1(in.getLong(i));
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52DCE729;
+            h2 ^= murmurHash3_128MixK2(in.getLong(i + 8));
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495AB5;
+        }
+        final int rem = end - i;
+        if (rem > 8) {
+            long k2 = 0;
+            for (int j = rem - 1; j >= 8; j--) {
+                k2 = (k2 << 8) | (in.get(i + j) & 0xFF);
+            }
+            h2 ^= murmurHash3_128MixK2(k2);
+        }
+        if (rem > 0) {
+            long k1 = 0;
+            for (int j = Math.min(rem, 8) - 1; j >= 0; j--) {
+                k1 = (k1 << 8) | (in.get(i + j) & 0xFF);
+            }
+            h1 ^= murmurHash3_128MixK1(k1);
+        }
+        return murmurHash3_128Finish(h1, h2, len, result);
+    }
+
+    private static long murmurHash3_128MixK1(long k1) {
+        k1 *= MURMUR3_128_C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * MURMUR3_128_C2;
+    }
+
+    private static long murmurHash3_128MixK2(long k2) {
+        k2 *= MURMUR3_128_C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * MURMUR3_128_C1;
+    }
+
+    private static long murmurHash3_128Finish(long h1, long h2, int len, long[] result) {
+        h1 ^= len;
+        h2 ^= len;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        if (result != null) {
+            result[0] = h1;
+            result[1] = h2;
+        }
+        return h1;
+    }
+
+    /**
+     * The MurmurHash3 64 bit finalizer; a fast bijective mixing function.
+     *
+     * @param k the value to mix
+     * @return the mixed value
+     */
+    public static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * Computes the wyhash of a byte array range.
+     *
+     * @param b    the bytes to hash
+     * @param off  the offset of the first byte
+     * @param len  the number of bytes to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static long wyHash(byte[] b, int off, int len, long seed) {
+        checkRange(b, off, len);
+        return wyHash(wrap(b), off, len, seed);
+    }
+
+    /**
+     * Computes the wyhash of the remaining bytes of a buffer.
+     *
+     * @param b    the bytes to hash; the position is not changed
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static long wyHash(ByteBuffer b, long seed) {
+        return wyHash(littleEndian(b), b.position(), b.remaining(), seed);
+    }
+
+    /**
+     * Computes the wyhash of the UTF-16LE encoding of the characters.
+     *
+     * @param s    the characters to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static long wyHash(CharSequence s, long seed) {
+        final Scratch scratch = utf16(s);
+        return wyHash(scratch.buffer, 0, scratch.length, seed);
+    }
+
+    /**
+     * Computes the wyhash of the UTF-8 encoding of the characters.
+     *
+     * @param s    the characters to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static long wyHashUtf8(CharSequence s, long seed) {
+        final Scratch scratch = utf8(s);
+        return wyHash(scratch.buffer, 0, scratch.length, seed);
+    }
+
+    /**
+     * Computes the wyhash of the eight little-endian bytes of a long.
+     *
+     * @param v    the value to hash
+     * @param seed the seed value
+     * @return the hash
+     */
+    public static long wyHash(long v, long seed) {
+        seed ^= wyMix(seed ^ WY_S0, WY_S1);
+        final long lo = v & 0xFFFFFFFFL;
+        final long hi = v >>> 32;
+        return wyFinish((lo << 32 | hi) ^ WY_S1, (hi << 32 | lo) ^ seed, 8);
+    }
+
+    private static long wyHash(ByteBuffer in, int off, int len, long seed) {
+        seed ^= wyMix(seed ^ WY_S0, WY_S1);
+        long a;
+        long b;
+        if (len <= 16) {
+            if (len >= 4) {
+                final int shift = (len >>> 3) << 2;
+                a = (in.getInt(off) & 0xFFFFFFFFL) << 32 | (in.getInt(off + shift) & 0xFFFFFFFFL);
+                b = (in.getInt(off + len - 4) & 0xFFFFFFFFL) << 32 | (in.getInt(off + len - 4 - shift) & 0xFFFFFFFFL);
+            } else if (len > 0) {
+                a = (long) (in.get(off) & 0xFF) << 16 | (long) (in.get(off + (len >>> 1) & 0xFF)) << 8
+                        | (in.get(off + len - 1) & 0xFF);
+                b = 0;
+            } else {
+                a = 0;
+                b = 0;
+            }
+        } else {
+            int p = off;
+            int i = len;
+            if (i > 48) {
+                long see1 = seed;
+                long see2 = seed;
+                do {
+                    seed = wyMix(in.getLong(p) ^ WY_S1, in.getLong(p + 8) ^ seed);
+                    see1 = wyMix(in.getLong(p + 16) ^ WY_S2, in.getLong(p + 24) ^ see1);
+                    see2 = wyMix(in.getLong(p + 32) ^ WY_S3, in.getLong(p + 40) ^ see2);
+                    p += 48;
+                    i -= 48;
+                } while (i > 48);
+                seed ^= see1 ^ see2;
+            }
+            while (i > 16) {
+                seed = wyMix(in.getLong(p) ^ WY_S1, in.getLong(p + 8) ^ seed);
+                i -= 16;
+                p += 16;
+            }
+            a = in.getLong(p + i - 16);
+            b = in.getLong(p + i - 8);
+        }
+        return wyFinish(a ^ WY_S1, b ^ seed, len);
+    }
+
+    private static long wyFinish(long a, long b, long len) {
+        final long lo = a * b;
+        final long hi = multiplyHighUnsigned(a, b);
+        return wyMix(lo ^ WY_S0 ^ len, hi ^ WY_S1);
+    }
+
+    private static long wyMix(long a, long b) {
+        return a * b ^ multiplyHighUnsigned(a, b);
+    }
+
+    /**
+     * Returns the high 64 bits of the unsigned 128 bit product of the
+     * arguments.
+     */
+    private static long multiplyHighUnsigned(long a, long b) {
+        final long aLo = a & 0xFFFFFFFFL;
+        final long aHi = a >>> 32;
+        final long bLo = b & 0xFFFFFFFFL;
+        final long bHi = b >>> 32;
+        final long t = aHi * bLo + ((aLo * bLo) >>> 32);
+        final long w = (t & 0xFFFFFFFFL) + aLo * bHi;
+        return aHi * bHi + (t >>> 32) + (w >>> 32);
+    }
+
+    /**
+     * Per-process SipHash keys, drawn from system entropy on first use so that
+     * hash values cannot be predicted from outside the process.
+     */
+    private static final class SipKeys {
+        static final long K0;
+        static final long K1;
+        static final int HALF_K0;
+        static final int HALF_K1;
+
+        static {
+            final byte[] e0 = SystemEntropy.getSystemEntropy();
+            final byte[] e1 = SystemEntropy.getSystemEntropy();
+            K0 = BinaryData.loadLongAtOffset(e0, 0);
+            K1 = BinaryData.loadLongAtOffset(e0, 8);
+            HALF_K0 = BinaryData.loadIntAtOffset(e1, 0);
+            HALF_K1 = BinaryData.loadIntAtOffset(e1, 4);
+        }
+    }
+
+    /**
+     * Computes the SipHash-2-4 of a byte array range. SipHash is a keyed hash
+     * function: without the 128 bit key an attacker cannot find inputs that
+     * collide, which protects hash tables holding externally supplied keys
+     * from hash flooding.
+     *
+     * @param b   the bytes to hash
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @param k0  the first half of the key, as the little-endian long of key
+     *            bytes 0 to 7
+     * @param k1  the second half of the key, key bytes 8 to 15
+     * @return the hash
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    public static long sipHash24(byte[] b, int off, int len, long k0, long k1) {
+        checkRange(b, off, len);
+        return sipHash(wrap(b), off, len, k0, k1, 2, 4);
+    }
+
+    /**
+     * Computes the SipHash-2-4 of a character sequence viewed as UTF-16LE.
+     *
+     * @param s  the characters to hash
+     * @param k0 the first half of the key
+     * @param k1 the second half of the key
+     * @return the hash
+     */
+    public static long sipHash24(CharSequence s, long k0, long k1) {
+        final Scratch scratch = utf16(s);
+        return sipHash(scratch.buffer, 0, scratch.length, k0, k1, 2, 4);
+    }
+
+    /**
+     * Computes the SipHash-2-4 of a byte array range using the per-process
+     * random key.
+     *
+     * @param b   the bytes to hash
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @return the hash
+     */
+    public static long sipHash24(byte[] b, int off, int len) {
+        return sipHash24(b, off, len, SipKeys.K0, SipKeys.K1);
+    }
+
+    /**
+     * Computes the SipHash-2-4 of a character sequence viewed as UTF-16LE
+     * using the per-process random key.
+     *
+     * @param s the characters to hash
+     * @return the hash
+     */
+    public static long sipHash24(CharSequence s) {
+        return sipHash24(s, SipKeys.K0, SipKeys.K1);
+    }
+
+    /**
+     * Computes the SipHash-1-3 of a byte array range. With one compression
+     * and three finalization rounds it is about twice as fast as SipHash-2-4
+     * and remains adequate for hash table flooding protection.
+     *
+     * @param b   the bytes to hash
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @param k0  the first half of the key
+     * @param k1  the second half of the key
+     * @return the hash
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    public static long sipHash13(byte[] b, int off, int len, long k0, long k1) {
+        checkRange(b, off, len);
+        return sipHash(wrap(b), off, len, k0, k1, 1, 3);
+    }
+
+    /**
+     * Computes the SipHash-1-3 of a character sequence viewed as UTF-16LE.
+     *
+     * @param s  the characters to hash
+     * @param k0 the first half of the key
+     * @param k1 the second half of the key
+     * @return the hash
+     */
+    public static long sipHash13(CharSequence s, long k0, long k1) {
+        final Scratch scratch = utf16(s);
+        return sipHash(scratch.buffer, 0, scratch.length, k0, k1, 1, 3);
+    }
+
+    /**
+     * Computes the SipHash-1-3 of a byte array range using the per-process
+     * random key.
+     *
+     * @param b   the bytes to hash
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @return the hash
+     */
+    public static long sipHash13(byte[] b, int off, int len) {
+        return sipHash13(b, off, len, SipKeys.K0, SipKeys.K1);
+    }
+
+    /**
+     * Computes the SipHash-1-3 of a character sequence viewed as UTF-16LE
+     * using the per-process random key.
+     *
+     * @param s the characters to hash
+     * @return the hash
+     */
+    public static long sipHash13(CharSequence s) {
+        return sipHash13(s, SipKeys.K0, SipKeys.K1);
+    }
+
+    private static long sipHash(ByteBuffer in, int off, int len, long k0, long k1,
+                                    int compressionRounds, int finalizationRounds) {
+        long v0 = k0 ^ 0x736F6D6570736575L;
+        long v1 = k1 ^ 0x646F72616E646F6DL;
+        long v2 = k0 ^ 0x6C7967656E657261L;
+        long v3 = k1 ^ 0x7465646279746573L;
+        final int end = off + len;
+        int i = off;
+        for (; i <= end - 8; i += 8) {
+            final long m = in.getLong(i);
+            v3 ^= m;
+            for (int r = 0; r < compressionRounds; r++) {
+                v0 += v1;
+                v1 = Long.rotateLeft(v1, 13) ^ v0;
+                v0 = Long.rotateLeft(v0, 32);
+                v2 += v3;
+                v3 = Long.rotateLeft(v3, 16) ^ v2;
+                v0 += v3;
+                v3 = Long.rotateLeft(v3, 21) ^ v0;
+                v2 += v1;
+                v1 = Long.rotateLeft(v1, 17) ^ v2;
+                v2 = Long.rotateLeft(v2, 32);
+            }
+            v0 ^= m;
+        }
+        long m = (long) len << 56;
+        for (int shift = 0; i < end; i++, shift += 8) {
+            m |= (long) (in.get(i) & 0xFF) << shift;
+        }
+        v3 ^= m;
+        for (int r = 0; r < compressionRounds; r++) {
+            v0 += v1;
+            v1 = Long.rotateLeft(v1, 13) ^ v0;
+            v0 = Long.rotateLeft(v0, 32);
+            v2 += v3;
+            v3 = Long.rotateLeft(v3, 16) ^ v2;
+            v0 += v3;
+            v3 = Long.rotateLeft(v3, 21) ^ v0;
+            v2 += v1;
+            v1 = Long.rotateLeft(v1, 17) ^ v2;
+            v2 = Long.rotateLeft(v2, 32);
+        }
+        v0 ^= m;
+        v2 ^= 0xFF;
+        for (int r = 0; r < finalizationRounds; r++) {
+            v0 += v1;
+            v1 = Long.rotateLeft(v1, 13) ^ v0;
+            v0 = Long.rotateLeft(v0, 32);
+            v2 += v3;
+            v3 = Long.rotateLeft(v3, 16) ^ v2;
+            v0 += v3;
+            v3 = Long.rotateLeft(v3, 21) ^ v0;
+            v2 += v1;
+            v1 = Long.rotateLeft(v1, 17) ^ v2;
+            v2 = Long.rotateLeft(v2, 32);
+        }
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    /**
+     * Computes the 32 bit HalfSipHash-2-4 of a byte array range. HalfSipHash
+     * works on 32 bit words with a 64 bit key; it is faster than SipHash
+     * where 64 bit arithmetic is slow, but its smaller state makes it only
+     * suitable for hash tables.
+     *
+     * @param b   the bytes to hash
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @param k0  the first half of the key, as the little-endian int of key
+     *            bytes 0 to 3
+     * @param k1  the second half of the key, key bytes 4 to 7
+     * @return the hash
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    public static int halfSipHash24(byte[] b, int off, int len, int k0, int k1) {
+        checkRange(b, off, len);
+        return halfSipHash(wrap(b), off, len, k0, k1, 2, 4);
+    }
+
+    /**
+     * Computes the 32 bit HalfSipHash-2-4 of a character sequence viewed as
+     * UTF-16LE.
+     *
+     * @param s  the characters to hash
+     * @param k0 the first half of the key
+     * @param k1 the second half of the key
+     * @return the hash
+     */
+    public static int halfSipHash24(CharSequence s, int k0, int k1) {
+        final Scratch scratch = utf16(s);
+        return halfSipHash(scratch.buffer, 0, scratch.length, k0, k1, 2, 4);
+    }
+
+    /**
+     * Computes the 32 bit HalfSipHash-2-4 of a byte array range using the
+     * per-process random key.
+     *
+     * @param b   the bytes to hash
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @return the hash
+     */
+    public static int halfSipHash24(byte[] b, int off, int len) {
+        return halfSipHash24(b, off, len, SipKeys.HALF_K0, SipKeys.HALF_K1);
+    }
+
+    /**
+     * Computes the 32 bit HalfSipHash-2-4 of a character sequence viewed as
+     * UTF-16LE using the per-process random key.
+     *
+     * @param s the characters to hash
+     * @return the hash
+     */
+    public static int halfSipHash24(CharSequence s) {
+        return halfSipHash24(s, SipKeys.HALF_K0, SipKeys.HALF_K1);
+    }
+
+    /**
+     * Computes the 32 bit HalfSipHash-1-3 of a byte array range.
+     *
+     * @param b   the bytes to hash
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @param k0  the first half of the key
+     * @param k1  the second half of the key
+     * @return the hash
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    public static int halfSipHash13(byte[] b, int off, int len, int k0, int k1) {
+        checkRange(b, off, len);
+        return halfSipHash(wrap(b), off, len, k0, k1, 1, 3);
+    }
+
+    /**
+     * Computes the 32 bit HalfSipHash-1-3 of a character sequence viewed as
+     * UTF-16LE.
+     *
+     * @param s  the characters to hash
+     * @param k0 the first half of the key
+     * @param k1 the second half of the key
+     * @return the hash
+     */
+    public static int halfSipHash13(CharSequence s, int k0, int k1) {
+        final Scratch scratch = utf16(s);
+        return halfSipHash(scratch.buffer, 0, scratch.length, k0, k1, 1, 3);
+    }
+
+    /**
+     * Computes the 32 bit HalfSipHash-1-3 of a byte array range using the
+     * per-process random key.
+     *
+     * @param b   the bytes to hash
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @return the hash
+     */
+    public static int halfSipHash13(byte[] b, int off, int len) {
+        return halfSipHash13(b, off, len, SipKeys.HALF_K0, SipKeys.HALF_K1);
+    }
+
+    /**
+     * Computes the 32 bit HalfSipHash-1-3 of a character sequence viewed as
+     * UTF-16LE using the per-process random key.
+     *
+     * @param s the characters to hash
+     * @return the hash
+     */
+    public static int halfSipHash13(CharSequence s) {
+        return halfSipHash13(s, SipKeys.HALF_K0, SipKeys.HALF_K1);
+    }
+
+    private static int halfSipHash(ByteBuffer in, int off, int len, int k0, int k1,
+                                       int compressionRounds, int finalizationRounds) {
+        int v0 = k0;
+        int v1 = k1;
+        int v2 = k0 ^ 0x6C796765;
+        int v3 = k1 ^ 0x74656462;
+        final int end = off + len;
+        int i = off;
+        for (; i <= end - 4; i += 4) {
+            final int m = in.getInt(i);
+            v3 ^= m;
+            for (int r = 0; r < compressionRounds; r++) {
+                v0 += v1;
+                v1 = Integer.rotateLeft(v1, 5) ^ v0;
+                v0 = Integer.rotateLeft(v0, 16);
+                v2 += v3;
+                v3 = Integer.rotateLeft(v3, 8) ^ v2;
+                v0 += v3;
+                v3 = Integer.rotateLeft(v3, 7) ^ v0;
+                v2 += v1;
+                v1 = Integer.rotateLeft(v1, 13) ^ v2;
+                v2 = Integer.rotateLeft(v2, 16);
+            }
+            v0 ^= m;
+        }
+        int m = len << 24;
+        for (int shift = 0; i < end; i++, shift += 8) {
+            m |= (in.get(i) & 0xFF) << shift;
+        }
+        v3 ^= m;
+        for (int r = 0; r < compressionRounds; r++) {
+            v0 += v1;
+            v1 = Integer.rotateLeft(v1, 5) ^ v0;
+            v0 = Integer.rotateLeft(v0, 16);
+            v2 += v3;
+            v3 = Integer.rotateLeft(v3, 8) ^ v2;
+            v0 += v3;
+            v3 = Integer.rotateLeft(v3, 7) ^ v0;
+            v2 += v1;
+            v1 = Integer.rotateLeft(v1, 13) ^ v2;
+            v2 = Integer.rotateLeft(v2, 16);
+        }
+        v0 ^= m;
+        v2 ^= 0xFF;
+        for (int r = 0; r < finalizationRounds; r++) {
+            v0 += v1;
+            v1 = Integer.rotateLeft(v1, 5) ^ v0;
+            v0 = Integer.rotateLeft(v0, 16);
+            v2 += v3;
+            v3 = Integer.rotateLeft(v3, 8) ^ v2;
+            v0 += v3;
+            v3 = Integer.rotateLeft(v3, 7) ^ v0;
+            v2 += v1;
+            v1 = Integer.rotateLeft(v1, 13) ^ v2;
+            v2 = Integer.rotateLeft(v2, 16);
+        }
+        return v1 ^ v3;
+    }
+
+    /**
+     * Creates a streaming hasher for composite keys.
+     *
+     * @param seed the seed value
+     * @return a new hasher
+     * @see Hasher
+     */
+    public static Hasher newHasher(long seed) {
+        return new Hasher(seed);
+    }
+
+    /**
+     * An incremental 64 bit hasher for keys made of several parts. The parts
+     * are fed in one at a time, without first being converted to strings or
+     * gathered into an array, and a hasher may be reset and reused so that
+     * hashing allocates nothing.
+     * <p/>
+     * Each part is folded into the state using the xxHash64 input rounds, and
+     * the result is finished with the xxHash64 avalanche, so every bit of
+     * input affects every bit of the hash. Variable length parts are prefixed
+     * with their length, so that <code>("ab", "c")</code> and
+     * <code>("a", "bc")</code> hash differently.
+     * <p/>
+     * Instances are not thread safe.
+     *
+     * @author Robert J. Buck
+     */
+    public static final class Hasher {
+        private final long seed;
+        private long h;
+        private long length;
+
+        private Hasher(long seed) {
+            this.seed = seed;
+            reset();
+        }
+
+        /**
+         * Discards all parts fed so far, returning the hasher to its initial
+         * state.
+         *
+         * @return this hasher
+         */
+        public Hasher reset() {
+            h = seed + XXH64_P5;
+            length = 0;
+            return this;
+        }
+
+        /**
+         * Feeds a long.
+         *
+         * @param v the value
+         * @return this hasher
+         */
+        public Hasher putLong(long v) {
+            h ^= xxHash64Round(0, v);
+            h = Long.rotateLeft(h, 27) * XXH64_P1 + XXH64_P4;
+            length += 8;
+            return this;
+        }
+
+        /**
+         * Feeds an int.
+         *
+         * @param v the value
+         * @return this hasher
+         */
+        public Hasher putInt(int v) {
+            h ^= (v & 0xFFFFFFFFL) * XXH64_P1;
+            h = Long.rotateLeft(h, 23) * XXH64_P2 + XXH64_P3;
+            length += 4;
+            return this;
+        }
+
+        /**
+         * Feeds a single char. Unlike {@link #putChars(CharSequence)} no
+         * length is recorded, which lets callers feed transformed characters,
+         * such as case folded ones, after their own length prefix.
+         *
+         * @param c the char
+         * @return this hasher
+         */
+        public Hasher putChar(char c) {
+            h ^= c * XXH64_P5;
+            h = Long.rotateLeft(h, 11) * XXH64_P1;
+            length += 2;
+            return this;
+        }
+
+        /**
+         * Feeds a character sequence, preceded by its length.
+         *
+         * @param s the characters
+         * @return this hasher
+         */
+        public Hasher putChars(CharSequence s) {
+            final int n = s.length();
+            putInt(n);
+            int i = 0;
+            for (; i <= n - 4; i += 4) {
+                putLong(s.charAt(i) | (long) s.charAt(i + 1) << 16
+                        | (long) s.charAt(i + 2) << 32 | (long) s.charAt(i + 3) << 48);
+            }
+            for (; i < n; i++) {
+                putChar(s.charAt(i));
+            }
+            return this;
+        }
+
+        /**
+         * Feeds a byte array, preceded by its length.
+         *
+         * @param b the bytes
+         * @return this hasher
+         */
+        public Hasher putBytes(byte[] b) {
+            return putBytes(b, 0, b.length);
+        }
+
+        /**
+         * Feeds a byte array range, preceded by its length.
+         *
+         * @param b   the bytes
+         * @param off the offset of the first byte
+         * @param len the number of bytes
+         * @return this hasher
+         * @throws IndexOutOfBoundsException if the range is outside the array
+         */
+        public Hasher putBytes(byte[] b, int off, int len) {
+            checkRange(b, off, len);
+            putInt(len);
+            final int end = off + len;
+            int i = off;
+            final ByteBuffer in = wrap(b);
+            for (; i <= end - 8; i += 8) {
+                putLong(in.getLong(i));
+            }
+            if (i <= end - 4) {
+                putInt(in.getInt(i));
+                i += 4;
+            }
+            for (; i < end; i++) {
+                h ^= (b[i] & 0xFF) * XXH64_P5;
+                h = Long.rotateLeft(h, 11) * XXH64_P1;
+                length++;
+            }
+            return this;
+        }
+
+        /**
+         * Returns the hash of the parts fed so far. The hasher is not reset,
+         * so further parts may be fed after calling this method.
+         *
+         * @return the 64 bit hash
+         */
+        public long hash() {
+            return xxHash64Avalanche(h + length);
+        }
+    }
 }
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * A HyperLogLog++ distinct value sketch. The sketch estimates the number of
+ * distinct elements added to it using <code>2^p</code> small registers, with
+ * a relative standard error of about <code>1.04 / sqrt(2^p)</code>; at the
+ * default precision of 14 that is 0.8 percent in 16 kilobytes, whatever the
+ * number of elements.
+ * <p/>
+ * As in HyperLogLog++ (Heule, Nunkesser and Hall), elements are identified by
+ * a 64 bit hash, and a sketch starts out sparse: it records the exact
+ * register updates of a much finer precision (<code>2^25</code> registers) in
+ * a sorted list and counts them with linear counting, which is both smaller
+ * and more accurate for small cardinalities. Once the list would outgrow the
+ * dense registers it is converted. In place of the empirical bias correction
+ * tables of HyperLogLog++, dense estimates use the improved estimator of
+ * Ertl, which is unbiased over the whole range without tables.
+ * <p/>
+ * Sketches of the same precision can be merged, and serialize to compact
+ * byte arrays.
+ *
+ * @author Robert J. Buck
+ */
+public final class HyperLogLog {
+
+    /**
+     * The smallest supported precision.
+     */
+    public static final int MIN_PRECISION = 4;
+
+    /**
+     * The largest supported precision.
+     */
+    public static final int MAX_PRECISION = 18;
+
+    /**
+     * The default precision.
+     */
+    public static final int DEFAULT_PRECISION = 14;
+
+    private static final int SPARSE_PRECISION = 25;
+    private static final int RHO_BITS = 6;
+    private static final int RHO_MASK = (1 << RHO_BITS) - 1;
+    private static final int REGISTER_BITS = 6;
+
+    private static final byte SPARSE = 1;
+    private static final byte DENSE = 2;
+
+    private final int precision;
+    private byte[] registers;
+    private int[] sparse;
+    private int sparseSize;
+
+    /**
+     * Creates an empty sketch at the default precision.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param precision the number of index bits, <code>p</code>
+     * @throws IllegalArgumentException if the precision is not between {@link
+     *                                  #MIN_PRECISION} and {@link
+     *                                  #MAX_PRECISION} inclusive
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            Object[] arguments = {precision, MIN_PRECISION, MAX_PRECISION};
+            String message = ResourceBundle.formatResourceBundleMessage(HyperLogLog.class,
+                    "HYPERLOGLOG_ILLEGAL_PRECISION", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        this.precision = precision;
+        this.sparse = new int[8];
+    }
+
+    /**
+     * Returns the precision of the sketch.
+     *
+     * @return the number of index bits
+     */
+    public int precision() {
+        return precision;
+    }
+
+    /**
+     * Returns whether the sketch is still in its sparse representation.
+     *
+     * @return true if sparse
+     */
+    public boolean isSparse() {
+        return registers == null;
+    }
+
+    /**
+     * Adds an element.
+     *
+     * @param hash the 64 bit hash of the element
+     */
+    public void add(long hash) {
+        if (registers == null) {
+            final int index = (int) (hash >>> (Long.SIZE - SPARSE_PRECISION));
+            final int rho = Long.numberOfLeadingZeros(hash << SPARSE_PRECISION | 1L << (SPARSE_PRECISION - 1)) + 1;
+            addSparse(index << RHO_BITS | rho);
+        } else {
+            final int index = (int) (hash >>> (Long.SIZE - precision));
+            final int rho = Long.numberOfLeadingZeros(hash << precision | 1L << (precision - 1)) + 1;
+            if (rho > registers[index]) {
+                registers[index] = (byte) rho;
+            }
+        }
+    }
+
+    /**
+     * Adds a character sequence.
+     *
+     * @param s the element
+     */
+    public void add(CharSequence s) {
+        add(HashCode.xxHash64(s, 0));
+    }
+
+    /**
+     * Adds a UUID.
+     *
+     * @param uuid the element
+     */
+    public void add(UUID uuid) {
+        add(MembershipFilter.hash(uuid));
+    }
+
+    /**
+     * Estimates the number of distinct elements added.
+     *
+     * @return the estimated cardinality
+     */
+    public long cardinality() {
+        if (registers == null) {
+            final double m = 1 << SPARSE_PRECISION;
+            return Math.round(m * Math.log(m / (m - sparseSize)));
+        }
+        final int m = 1 << precision;
+        final int q = Long.SIZE - precision;
+        final int[] counts = new int[q + 2];
+        for (byte r : registers) {
+            counts[r]++;
+        }
+        double z = m * tau(1.0 - (double) counts[q + 1] / m);
+        for (int k = q; k >= 1; k--) {
+            z = 0.5 * (z + counts[k]);
+        }
+        z += m * sigma((double) counts[0] / m);
+        return Math.round(m / (2.0 * Math.log(2)) * m / z);
+    }
+
+    /**
+     * Merges another sketch into this one, so that this sketch estimates the
+     * cardinality of the union.
+     *
+     * @param that a sketch of the same precision
+     * @throws IllegalArgumentException if the precisions differ
+     */
+    public void merge(HyperLogLog that) {
+        if (that.precision != precision) {
+            Object[] arguments = {precision, that.precision};
+            String message = ResourceBundle.formatResourceBundleMessage(HyperLogLog.class,
+                    "HYPERLOGLOG_INCOMPATIBLE_PRECISION", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        if (that.registers == null) {
+            for (int i = 0; i < that.sparseSize; i++) {
+                if (registers == null) {
+                    addSparse(that.sparse[i]);
+                } else {
+                    addDense(that.sparse[i]);
+                }
+            }
+        } else {
+            if (registers == null) {
+                toDense();
+            }
+            for (int i = 0; i < registers.length; i++) {
+                if (that.registers[i] > registers[i]) {
+                    registers[i] = that.registers[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Serializes the sketch. The form is a representation tag byte (1 for
+     * sparse, 2 for dense) and the precision byte, followed by the entry count
+     * and the sorted entries as big-endian ints if sparse, or by the
+     * registers bit packed at six bits each if dense.
+     *
+     * @return the serialized sketch
+     */
+    public byte[] toByteArray() {
+        if (registers == null) {
+            final byte[] b = new byte[2 + BinaryData.sizeOfInt * (1 + sparseSize)];
+            b[0] = SPARSE;
+            b[1] = (byte) precision;
+            BinaryData.storeIntAtOffset(b, 2, sparseSize);
+            BinaryData.storeInts(b, 2 + BinaryData.sizeOfInt, sparse, 0, sparseSize);
+            return b;
+        }
+        final int m = registers.length;
+        final int[] values = new int[m];
+        for (int i = 0; i < m; i++) {
+            values[i] = registers[i];
+        }
+        final byte[] b = new byte[2 + BitPacking.packedLength(m, REGISTER_BITS)];
+        b[0] = DENSE;
+        b[1] = (byte) precision;
+        BitPacking.pack(values, 0, m, REGISTER_BITS, b, 2);
+        return b;
+    }
+
+    /**
+     * Reads a sketch serialized by {@link #toByteArray()}.
+     *
+     * @param b the serialized sketch
+     * @return the sketch
+     * @throws IllegalArgumentException  if the serialized form is malformed
+     * @throws IndexOutOfBoundsException if the serialized form is truncated
+     */
+    public static HyperLogLog fromByteArray(byte[] b) {
+        final byte tag = BinaryData.loadByteAtOffset(b, 0);
+        final int precision = BinaryData.loadByteAtOffset(b, 1);
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw malformed();
+        }
+        final HyperLogLog sketch = new HyperLogLog(precision);
+        if (tag == SPARSE) {
+            final int n = BinaryData.loadIntAtOffset(b, 2);
+            if (n < 0 || n > sketch.sparseLimit()) {
+                throw malformed();
+            }
+            final int[] entries = new int[Math.max(n, 8)];
+            BinaryData.loadInts(b, 2 + BinaryData.sizeOfInt, entries, 0, n);
+            for (int i = 0; i < n; i++) {
+                if (entries[i] < 0 || (i > 0 && entries[i] >>> RHO_BITS <= entries[i - 1] >>> RHO_BITS)) {
+                    throw malformed();
+                }
+            }
+            sketch.sparse = entries;
+            sketch.sparseSize = n;
+        } else if (tag == DENSE) {
+            final int m = 1 << precision;
+            final int[] values = new int[m];
+            BitPacking.unpack(b, 2, values, 0, m, REGISTER_BITS);
+            final int max = Long.SIZE - precision + 1;
+            sketch.registers = new byte[m];
+            for (int i = 0; i < m; i++) {
+                if (values[i] > max) {
+                    throw malformed();
+                }
+                sketch.registers[i] = (byte) values[i];
+            }
+            sketch.sparse = null;
+        } else {
+            throw malformed();
+        }
+        return sketch;
+    }
+
+    /**
+     * Records a sparse entry, keeping the list sorted by index and only the
+     * largest rho for each index.
+     */
+    private void addSparse(int entry) {
+        final int index = entry >>> RHO_BITS;
+        int lo = 0;
+        int hi = sparseSize - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int midIndex = sparse[mid] >>> RHO_BITS;
+            if (midIndex < index) {
+                lo = mid + 1;
+            } else if (midIndex > index) {
+                hi = mid - 1;
+            } else {
+                if ((entry & RHO_MASK) > (sparse[mid] & RHO_MASK)) {
+                    sparse[mid] = entry;
+                }
+                return;
+            }
+        }
+        if (sparseSize == sparseLimit()) {
+            toDense();
+            addDense(entry);
+            return;
+        }
+        if (sparseSize == sparse.length) {
+            sparse = Arrays.copyOf(sparse, sparseSize * 2);
+        }
+        System.arraycopy(sparse, lo, sparse, lo + 1, sparseSize - lo);
+        sparse[lo] = entry;
+        sparseSize++;
+    }
+
+    /**
+     * Folds a sparse entry into the dense registers.
+     */
+    private void addDense(int entry) {
+        final int sparseIndex = entry >>> RHO_BITS;
+        final int shift = SPARSE_PRECISION - precision;
+        final int index = sparseIndex >>> shift;
+        final int low = sparseIndex & ((1 << shift) - 1);
+        final int rho = low != 0
+                ? Integer.numberOfLeadingZeros(low) - (Integer.SIZE - shift) + 1
+                : shift + (entry & RHO_MASK);
+        if (rho > registers[index]) {
+            registers[index] = (byte) rho;
+        }
+    }
+
+    private void toDense() {
+        registers = new byte[1 << precision];
+        for (int i = 0; i < sparseSize; i++) {
+            addDense(sparse[i]);
+        }
+        sparse = null;
+        sparseSize = 0;
+    }
+
+    /**
+     * The sparse list is abandoned once it would take more memory than the
+     * registers.
+     */
+    private int sparseLimit() {
+        return (1 << precision) / BinaryData.sizeOfInt;
+    }
+
+    private static double sigma(double x) {
+        if (x == 1.0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double y = 1.0;
+        double z = x;
+        double previous;
+        do {
+            x *= x;
+            previous = z;
+            z += x * y;
+            y += y;
+        } while (z != previous);
+        return z;
+    }
+
+    private static double tau(double x) {
+        if (x == 0.0 || x == 1.0) {
+            return 0.0;
+        }
+        double y = 1.0;
+        double z = 1.0 - x;
+        double previous;
+        do {
+            x = Math.sqrt(x);
+            previous = z;
+            y *= 0.5;
+            z -= (1.0 - x) * (1.0 - x) * y;
+        } while (z != previous);
+        return z / 3.0;
+    }
+
+    private static IllegalArgumentException malformed() {
+        Object[] arguments = {};
+        String message = ResourceBundle.formatResourceBundleMessage(HyperLogLog.class,
+                "SKETCH_MALFORMED", arguments);
+        return new IllegalArgumentException(message);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.UUID;
+
+/**
+ * A probabilistic set membership filter. A filter answers whether an element
+ * might have been added: a negative answer is always correct, while a
+ * positive answer is wrong with a small, configurable probability. Checking a
+ * filter before an expensive existence check therefore skips almost all
+ * lookups of absent keys.
+ * <p/>
+ * Elements are identified by a 64 bit hash; overloads hash character
+ * sequences, byte arrays and UUIDs with {@link HashCode#xxHash64}. The filter
+ * state is a sequence of longs held either in a <code>long[]</code> or, to
+ * keep large filters off the Java heap, in a direct <code>ByteBuffer</code>.
+ * Filters serialize to and from a <code>ByteBuffer</code>.
+ * <p/>
+ * Filters are not thread safe.
+ *
+ * @author Robert J. Buck
+ */
+public abstract class MembershipFilter {
+
+    /**
+     * Adds an element.
+     *
+     * @param hash the 64 bit hash of the element
+     * @return true if the filter changed, false if the element was probably
+     *         already present or could not be added
+     */
+    public abstract boolean add(long hash);
+
+    /**
+     * Tests whether an element might have been added.
+     *
+     * @param hash the 64 bit hash of the element
+     * @return false if the element was definitely not added, true if it
+     *         probably was
+     */
+    public abstract boolean mightContain(long hash);
+
+    /**
+     * Returns the number of bytes written by {@link #writeTo(ByteBuffer)}.
+     *
+     * @return the serialized size in bytes
+     */
+    public abstract int serializedSize();
+
+    /**
+     * Serializes the filter at the buffer's position.
+     *
+     * @param dst the buffer to write to
+     * @throws java.nio.BufferOverflowException
+     *          if the buffer has insufficient space
+     */
+    public abstract void writeTo(ByteBuffer dst);
+
+    /**
+     * Adds a character sequence.
+     *
+     * @param s the element
+     * @return true if the filter changed
+     * @see #add(long)
+     */
+    public boolean add(CharSequence s) {
+        return add(HashCode.xxHash64(s, 0));
+    }
+
+    /**
+     * Adds the bytes of an array range.
+     *
+     * @param b   the element bytes
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @return true if the filter changed
+     * @see #add(long)
+     */
+    public boolean add(byte[] b, int off, int len) {
+        return add(HashCode.xxHash64(b, off, len, 0));
+    }
+
+    /**
+     * Adds a UUID.
+     *
+     * @param uuid the element
+     * @return true if the filter changed
+     * @see #add(long)
+     */
+    public boolean add(UUID uuid) {
+        return add(hash(uuid));
+    }
+
+    /**
+     * Tests whether a character sequence might have been added.
+     *
+     * @param s the element
+     * @return false if the element was definitely not added
+     */
+    public boolean mightContain(CharSequence s) {
+        return mightContain(HashCode.xxHash64(s, 0));
+    }
+
+    /**
+     * Tests whether the bytes of an array range might have been added.
+     *
+     * @param b   the element bytes
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @return false if the element was definitely not added
+     */
+    public boolean mightContain(byte[] b, int off, int len) {
+        return mightContain(HashCode.xxHash64(b, off, len, 0));
+    }
+
+    /**
+     * Tests whether a UUID might have been added.
+     *
+     * @param uuid the element
+     * @return false if the element was definitely not added
+     */
+    public boolean mightContain(UUID uuid) {
+        return mightContain(hash(uuid));
+    }
+
+    static long hash(UUID uuid) {
+        return HashCode.xxHash64(uuid.getLeastSignificantBits(), uuid.getMostSignificantBits());
+    }
+
+    static LongBuffer allocateWords(int n, boolean direct) {
+        if (direct) {
+            return ByteBuffer.allocateDirect(n << 3).order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+        return LongBuffer.wrap(new long[n]);
+    }
+
+    static void writeWords(LongBuffer words, ByteBuffer dst) {
+        final int n = words.capacity();
+        for (int i = 0; i < n; i++) {
+            dst.putLong(words.get(i));
+        }
+    }
+
+    static LongBuffer readWords(ByteBuffer src, int n, boolean direct) {
+        if (n < 0 || n > src.remaining() >>> 3) {
+            throw malformed();
+        }
+        final LongBuffer words = allocateWords(n, direct);
+        for (int i = 0; i < n; i++) {
+            words.put(i, src.getLong());
+        }
+        return words;
+    }
+
+    static void checkSizing(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || !(falsePositiveRate > 0.0 && falsePositiveRate < 1.0)) {
+            Object[] arguments = {expectedInsertions, falsePositiveRate};
+            String message = ResourceBundle.formatResourceBundleMessage(MembershipFilter.class,
+                    "MEMBERSHIP_FILTER_ILLEGAL_SIZING", arguments);
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    static IllegalArgumentException malformed() {
+        Object[] arguments = {};
+        String message = ResourceBundle.formatResourceBundleMessage(MembershipFilter.class,
+                "MEMBERSHIP_FILTER_MALFORMED", arguments);
+        return new IllegalArgumentException(message);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Patched frame of reference (PFor) integer compression. Like {@link
+ * FrameOfReference}, values are stored as bit packed offsets from the block
+ * minimum, but the bit width is chosen to minimize the block size rather than
+ * to fit the largest offset. Offsets that do not fit are recorded as
+ * exceptions whose high bits are patched in after unpacking, so a few outliers
+ * do not inflate the width of the whole block.
+ * <p/>
+ * Values are encoded in blocks of {@link #BLOCK_SIZE}; the final block may be
+ * shorter. The encoded form of each block is:
+ * <pre>
+ *   zigzag varint   minimum
+ *   byte            bit width b
+ *   byte            exception count x
+ *   byte            exception width (only present if x &gt; 0)
+ *   bytes           low b bits of each offset, bit packed
+ *   x bytes         exception positions within the block
+ *   bytes           high bits of each exception, bit packed
+ * </pre>
+ * The number of values is not recorded; callers must supply it when decoding.
+ *
+ * @author Robert J. Buck
+ */
+public final class PatchedFrameOfReference {
+
+    /**
+     * The number of values per encoded block.
+     */
+    public static final int BLOCK_SIZE = 128;
+
+    /**
+     * Returns the maximum number of bytes needed to encode the values.
+     *
+     * @param len the number of values
+     * @return the worst case encoded length in bytes
+     */
+    public static int maxEncodedLength(int len) {
+        final int blocks = (len + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        return blocks * (VarInt.MAX_VARINT_SIZE + 3) + BitPacking.packedLength(len, BitPacking.MAX_BIT_WIDTH);
+    }
+
+    /**
+     * Encodes values at the buffer's position.
+     *
+     * @param src the values to encode
+     * @param off the index of the first value
+     * @param len the number of values
+     * @param dst the buffer to encode into
+     * @throws java.nio.BufferOverflowException
+     *          if the buffer has insufficient space
+     */
+    public static void encode(int[] src, int off, int len, ByteBuffer dst) {
+        final int[] offsets = new int[BLOCK_SIZE];
+        final int[] high = new int[BLOCK_SIZE];
+        for (int i = 0; i < len; i += BLOCK_SIZE) {
+            encodeBlock(src, off + i, Math.min(BLOCK_SIZE, len - i), dst, offsets, high);
+        }
+    }
+
+    /**
+     * Decodes values at the buffer's position.
+     *
+     * @param src the buffer to decode from
+     * @param dst the array to decode values into
+     * @param off the index of the first value
+     * @param len the number of values
+     * @throws java.nio.BufferUnderflowException
+     *          if the encoding is truncated
+     */
+    public static void decode(ByteBuffer src, int[] dst, int off, int len) {
+        int[] positions = null;
+        int[] high = null;
+        for (int i = 0; i < len; i += BLOCK_SIZE) {
+            final int n = Math.min(BLOCK_SIZE, len - i);
+            final int base = off + i;
+            final int min = VarInt.readSignedVarInt(src);
+            final int bitWidth = src.get() & 0xFF;
+            final int exceptions = src.get() & 0xFF;
+            final int exceptionWidth = exceptions > 0 ? src.get() & 0xFF : 0;
+            BitPacking.unpack(src, dst, base, n, bitWidth);
+            if (exceptions > 0) {
+                if (positions == null) {
+                    positions = new int[BLOCK_SIZE];
+                    high = new int[BLOCK_SIZE];
+                }
+                for (int j = 0; j < exceptions; j++) {
+                    positions[j] = src.get() & 0xFF;
+                }
+                BitPacking.unpack(src, high, 0, exceptions, exceptionWidth);
+                for (int j = 0; j < exceptions; j++) {
+                    dst[base + positions[j]] |= high[j] << bitWidth;
+                }
+            }
+            if (min != 0) {
+                final int end = base + n;
+                for (int j = base; j < end; j++) {
+                    dst[j] += min;
+                }
+            }
+        }
+    }
+
+    private static void encodeBlock(int[] src, int off, int n, ByteBuffer dst, int[] offsets, int[] high) {
+        final int end = off + n;
+        int min = src[off];
+        for (int i = off + 1; i < end; i++) {
+            if (src[i] < min) {
+                min = src[i];
+            }
+        }
+        // histogram of the bit widths of the offsets
+        final int[] counts = new int[BitPacking.MAX_BIT_WIDTH + 1];
+        for (int i = 0; i < n; i++) {
+            offsets[i] = src[off + i] - min;
+            counts[BitPacking.bitWidth(offsets[i])]++;
+        }
+        int maxWidth = BitPacking.MAX_BIT_WIDTH;
+        while (maxWidth > 0 && counts[maxWidth] == 0) {
+            maxWidth--;
+        }
+        // choose the width yielding the smallest block
+        int bitWidth = maxWidth;
+        int exceptions = 0;
+        int bestCost = BitPacking.packedLength(n, maxWidth);
+        int candidateExceptions = 0;
+        for (int b = maxWidth - 1; b >= 0; b--) {
+            candidateExceptions += counts[b + 1];
+            final int cost = BitPacking.packedLength(n, b) + 1 + candidateExceptions
+                    + BitPacking.packedLength(candidateExceptions, maxWidth - b);
+            if (cost < bestCost) {
+                bestCost = cost;
+                bitWidth = b;
+                exceptions = candidateExceptions;
+            }
+        }
+        VarInt.writeSignedVarInt(dst, min);
+        dst.put((byte) bitWidth);
+        dst.put((byte) exceptions);
+        if (exceptions > 0) {
+            dst.put((byte) (maxWidth - bitWidth));
+        }
+        BitPacking.pack(offsets, 0, n, bitWidth, dst);
+        if (exceptions > 0) {
+            int x = 0;
+            for (int i = 0; i < n; i++) {
+                if ((offsets[i] >>> bitWidth) != 0) {
+                    dst.put((byte) i);
+                    high[x++] = offsets[i] >>> bitWidth;
+                }
+            }
+            BitPacking.pack(high, 0, exceptions, maxWidth - bitWidth, dst);
+        }
+    }
+}
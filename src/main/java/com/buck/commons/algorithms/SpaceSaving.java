@@ -0,0 +1,355 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+/**
+ * A SpaceSaving heavy hitters sketch (Metwally, Agrawal and El Abbadi). The
+ * sketch monitors at most <code>k</code> elements with a counter each. A
+ * monitored element's counter is incremented; an unmonitored element replaces
+ * the element with the smallest counter and inherits its count, which is
+ * remembered as the new counter's maximum overestimation. Every element whose
+ * frequency exceeds <code>total / k</code> is guaranteed to be monitored.
+ * <p/>
+ * Elements are identified by a 64 bit key, typically a hash from {@link
+ * HashCode}; callers that need the original elements of the top keys keep
+ * them alongside. The counters live in parallel arrays, ordered as a binary
+ * min-heap by count and indexed by an open addressing table, so that each
+ * update costs <code>O(log k)</code> and allocates nothing.
+ * <p/>
+ * Sketches serialize to compact byte arrays and are not thread safe.
+ *
+ * @author Robert J. Buck
+ */
+public final class SpaceSaving {
+
+    private final int capacity;
+    private final long[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    // heap[i] is the counter at heap position i; position[c] is its inverse
+    private final int[] heap;
+    private final int[] position;
+    // open addressing table of counter index + 1, zero marking a free slot
+    private final int[] table;
+    private final int mask;
+    private int size;
+    private long total;
+
+    /**
+     * Creates a sketch monitoring up to <code>capacity</code> elements.
+     *
+     * @param capacity the number of counters, <code>k</code>
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 28) {
+            Object[] arguments = {capacity};
+            String message = ResourceBundle.formatResourceBundleMessage(SpaceSaving.class,
+                    "SPACE_SAVING_ILLEGAL_CAPACITY", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        this.capacity = capacity;
+        this.keys = new long[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.heap = new int[capacity];
+        this.position = new int[capacity];
+        int n = 2;
+        while (n < capacity * 2) {
+            n <<= 1;
+        }
+        this.table = new int[n];
+        this.mask = n - 1;
+    }
+
+    /**
+     * Returns the maximum number of monitored elements.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of monitored elements.
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the sum of all counts offered.
+     *
+     * @return the total count
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Offers one occurrence of an element.
+     *
+     * @param key the element's key
+     */
+    public void offer(long key) {
+        offer(key, 1);
+    }
+
+    /**
+     * Offers occurrences of an element.
+     *
+     * @param key   the element's key
+     * @param count the number of occurrences, which must be positive
+     */
+    public void offer(long key, long count) {
+        total += count;
+        int c = find(key);
+        if (c < 0 && size < capacity) {
+            c = size++;
+            keys[c] = key;
+            counts[c] = count;
+            errors[c] = 0;
+            heap[c] = c;
+            siftUp(c);
+            insert(key, c);
+            return;
+        }
+        if (c < 0) {
+            // replace the element with the smallest count
+            c = heap[0];
+            remove(keys[c]);
+            errors[c] = counts[c];
+            keys[c] = key;
+            insert(key, c);
+        }
+        counts[c] += count;
+        siftDown(position[c]);
+    }
+
+    /**
+     * Offers one occurrence of a character sequence, keyed by its 64 bit
+     * xxHash.
+     *
+     * @param s the element
+     */
+    public void offer(CharSequence s) {
+        offer(HashCode.xxHash64(s, 0), 1);
+    }
+
+    /**
+     * Returns the estimated frequency of an element. For a monitored element
+     * this overestimates the true frequency by at most {@link #error(long)};
+     * for an unmonitored element zero is returned, though its true frequency
+     * may be up to the smallest monitored count.
+     *
+     * @param key the element's key
+     * @return the estimated frequency
+     */
+    public long count(long key) {
+        final int c = find(key);
+        return c < 0 ? 0 : counts[c];
+    }
+
+    /**
+     * Returns the maximum overestimation of a monitored element's count.
+     *
+     * @param key the element's key
+     * @return the maximum error, or zero if the element is not monitored
+     */
+    public long error(long key) {
+        final int c = find(key);
+        return c < 0 ? 0 : errors[c];
+    }
+
+    /**
+     * Returns the keys of the most frequent elements.
+     *
+     * @param n the maximum number of keys to return
+     * @return the keys, in descending order of count
+     */
+    public long[] top(int n) {
+        final int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        // a partial selection sort is enough for small n
+        final int m = Math.min(n, size);
+        for (int i = 0; i < m; i++) {
+            int best = i;
+            for (int j = i + 1; j < size; j++) {
+                if (counts[order[j]] > counts[order[best]]) {
+                    best = j;
+                }
+            }
+            final int t = order[i];
+            order[i] = order[best];
+            order[best] = t;
+        }
+        final long[] result = new long[m];
+        for (int i = 0; i < m; i++) {
+            result[i] = keys[order[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Serializes the sketch. The form is the capacity and the number of
+     * monitored elements as big-endian ints, followed by the total and then
+     * the key, count and error of each monitored element, as big-endian
+     * longs.
+     *
+     * @return the serialized sketch
+     */
+    public byte[] toByteArray() {
+        final int header = 2 * BinaryData.sizeOfInt + BinaryData.sizeOfLong;
+        final int stride = size * BinaryData.sizeOfLong;
+        final byte[] b = new byte[header + 3 * stride];
+        BinaryData.storeIntAtOffset(b, 0, capacity);
+        BinaryData.storeIntAtOffset(b, BinaryData.sizeOfInt, size);
+        BinaryData.storeLongAtOffset(b, 2 * BinaryData.sizeOfInt, total);
+        BinaryData.storeLongs(b, header, keys, 0, size);
+        BinaryData.storeLongs(b, header + stride, counts, 0, size);
+        BinaryData.storeLongs(b, header + 2 * stride, errors, 0, size);
+        return b;
+    }
+
+    /**
+     * Reads a sketch serialized by {@link #toByteArray()}.
+     *
+     * @param b the serialized sketch
+     * @return the sketch
+     * @throws IllegalArgumentException  if the serialized form is malformed
+     * @throws IndexOutOfBoundsException if the serialized form is truncated
+     */
+    public static SpaceSaving fromByteArray(byte[] b) {
+        final int capacity = BinaryData.loadIntAtOffset(b, 0);
+        final int size = BinaryData.loadIntAtOffset(b, BinaryData.sizeOfInt);
+        if (capacity <= 0 || size < 0 || size > capacity) {
+            Object[] arguments = {};
+            String message = ResourceBundle.formatResourceBundleMessage(SpaceSaving.class,
+                    "SKETCH_MALFORMED", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        final SpaceSaving sketch = new SpaceSaving(capacity);
+        final int header = 2 * BinaryData.sizeOfInt + BinaryData.sizeOfLong;
+        final int stride = size * BinaryData.sizeOfLong;
+        final long[] keys = new long[size];
+        final long[] counts = new long[size];
+        final long[] errors = new long[size];
+        BinaryData.loadLongs(b, header, keys, 0, size);
+        BinaryData.loadLongs(b, header + stride, counts, 0, size);
+        BinaryData.loadLongs(b, header + 2 * stride, errors, 0, size);
+        for (int i = 0; i < size; i++) {
+            final int c = sketch.size++;
+            sketch.keys[c] = keys[i];
+            sketch.counts[c] = counts[i];
+            sketch.errors[c] = errors[i];
+            sketch.heap[c] = c;
+            sketch.position[c] = c;
+            sketch.siftUp(c);
+            sketch.insert(keys[i], c);
+        }
+        sketch.total = BinaryData.loadLongAtOffset(b, 2 * BinaryData.sizeOfInt);
+        return sketch;
+    }
+
+    private void siftUp(int i) {
+        final int c = heap[i];
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[c]) {
+                break;
+            }
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = c;
+        position[c] = i;
+    }
+
+    private void siftDown(int i) {
+        final int c = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[c] <= counts[heap[child]]) {
+                break;
+            }
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = c;
+        position[c] = i;
+    }
+
+    private int slot(long key) {
+        return (int) HashCode.fmix64(key) & mask;
+    }
+
+    private int find(long key) {
+        for (int s = slot(key); ; s = (s + 1) & mask) {
+            final int e = table[s];
+            if (e == 0) {
+                return -1;
+            }
+            if (keys[e - 1] == key) {
+                return e - 1;
+            }
+        }
+    }
+
+    private void insert(long key, int c) {
+        int s = slot(key);
+        while (table[s] != 0) {
+            s = (s + 1) & mask;
+        }
+        table[s] = c + 1;
+    }
+
+    /**
+     * Removes a key from the table, shifting back the entries that follow it
+     * in its probe sequence so that no tombstones are needed.
+     */
+    private void remove(long key) {
+        int s = slot(key);
+        while (keys[table[s] - 1] != key) {
+            s = (s + 1) & mask;
+        }
+        int hole = s;
+        for (s = (s + 1) & mask; table[s] != 0; s = (s + 1) & mask) {
+            final int home = slot(keys[table[s] - 1]);
+            // move the entry if its home does not lie cyclically in (hole, s]
+            if (((s - home) & mask) >= ((s - hole) & mask)) {
+                table[hole] = table[s];
+                hole = s;
+            }
+        }
+        table[hole] = 0;
+    }
+}
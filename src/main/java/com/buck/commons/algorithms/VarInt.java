@@ -0,0 +1,324 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Variable length integer encoding. Each byte carries seven bits of the value,
+ * least significant group first, with the high bit set on every byte but the
+ * last. Small magnitudes therefore occupy fewer bytes; an int occupies at most
+ * five bytes and a long at most ten.
+ * <p/>
+ * Signed values are first mapped through the zigzag transform, which
+ * interleaves negative and positive numbers (0, -1, 1, -2, 2, ...) so that
+ * small negative numbers are encoded as compactly as small positive ones.
+ *
+ * @author Robert J. Buck
+ */
+public final class VarInt {
+
+    /**
+     * The maximum number of bytes occupied by an encoded int.
+     */
+    public static final int MAX_VARINT_SIZE = 5;
+
+    /**
+     * The maximum number of bytes occupied by an encoded long.
+     */
+    public static final int MAX_VARLONG_SIZE = 10;
+
+    /**
+     * Maps a signed int onto an unsigned int such that values of small
+     * magnitude map to small values.
+     *
+     * @param n the signed value
+     * @return the zigzag encoded value
+     */
+    public static int zigZagEncode(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    /**
+     * Reverses the zigzag transform.
+     *
+     * @param n the zigzag encoded value
+     * @return the signed value
+     */
+    public static int zigZagDecode(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    /**
+     * Maps a signed long onto an unsigned long such that values of small
+     * magnitude map to small values.
+     *
+     * @param n the signed value
+     * @return the zigzag encoded value
+     */
+    public static long zigZagEncode(long n) {
+        return (n << 1) ^ (n >> 63);
+    }
+
+    /**
+     * Reverses the zigzag transform.
+     *
+     * @param n the zigzag encoded value
+     * @return the signed value
+     */
+    public static long zigZagDecode(long n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    /**
+     * Returns the number of bytes needed to encode the value, treated as
+     * unsigned.
+     *
+     * @param value the value to encode
+     * @return the encoded size in bytes
+     */
+    public static int sizeOfVarInt(int value) {
+        return (31 - Integer.numberOfLeadingZeros(value | 1)) / 7 + 1;
+    }
+
+    /**
+     * Returns the number of bytes needed to encode the value, treated as
+     * unsigned.
+     *
+     * @param value the value to encode
+     * @return the encoded size in bytes
+     */
+    public static int sizeOfVarLong(long value) {
+        return (63 - Long.numberOfLeadingZeros(value | 1)) / 7 + 1;
+    }
+
+    /**
+     * Writes an unsigned variable length int at the buffer's position.
+     *
+     * @param dst   the buffer to write to
+     * @param value the value to write, treated as unsigned
+     * @throws java.nio.BufferOverflowException
+     *          if the buffer has insufficient space
+     */
+    public static void writeVarInt(ByteBuffer dst, int value) {
+        while ((value & ~0x7F) != 0) {
+            dst.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        dst.put((byte) value);
+    }
+
+    /**
+     * Writes an unsigned variable length int into the byte array.
+     *
+     * @param dst   the array to write to
+     * @param off   the offset at which to write the first byte
+     * @param value the value to write, treated as unsigned
+     * @return the offset one past the last byte written
+     * @throws ArrayIndexOutOfBoundsException if the array has insufficient
+     *                                        space
+     */
+    public static int writeVarInt(byte[] dst, int off, int value) {
+        while ((value & ~0x7F) != 0) {
+            dst[off++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        dst[off++] = (byte) value;
+        return off;
+    }
+
+    /**
+     * Writes a signed variable length int at the buffer's position using the
+     * zigzag transform.
+     *
+     * @param dst   the buffer to write to
+     * @param value the signed value to write
+     */
+    public static void writeSignedVarInt(ByteBuffer dst, int value) {
+        writeVarInt(dst, zigZagEncode(value));
+    }
+
+    /**
+     * Reads an unsigned variable length int at the buffer's position.
+     *
+     * @param src the buffer to read from
+     * @return the decoded value
+     * @throws IllegalArgumentException if the encoding exceeds five bytes
+     * @throws java.nio.BufferUnderflowException
+     *                                  if the encoding is truncated
+     */
+    public static int readVarInt(ByteBuffer src) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final byte b = src.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw malformed();
+    }
+
+    /**
+     * Reads a signed, zigzag encoded, variable length int at the buffer's
+     * position.
+     *
+     * @param src the buffer to read from
+     * @return the decoded value
+     */
+    public static int readSignedVarInt(ByteBuffer src) {
+        return zigZagDecode(readVarInt(src));
+    }
+
+    /**
+     * Writes an unsigned variable length long at the buffer's position.
+     *
+     * @param dst   the buffer to write to
+     * @param value the value to write, treated as unsigned
+     */
+    public static void writeVarLong(ByteBuffer dst, long value) {
+        while ((value & ~0x7FL) != 0) {
+            dst.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        dst.put((byte) value);
+    }
+
+    /**
+     * Writes a signed variable length long at the buffer's position using the
+     * zigzag transform.
+     *
+     * @param dst   the buffer to write to
+     * @param value the signed value to write
+     */
+    public static void writeSignedVarLong(ByteBuffer dst, long value) {
+        writeVarLong(dst, zigZagEncode(value));
+    }
+
+    /**
+     * Reads an unsigned variable length long at the buffer's position.
+     *
+     * @param src the buffer to read from
+     * @return the decoded value
+     * @throws IllegalArgumentException if the encoding exceeds ten bytes
+     */
+    public static long readVarLong(ByteBuffer src) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            final byte b = src.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw malformed();
+    }
+
+    /**
+     * Reads a signed, zigzag encoded, variable length long at the buffer's
+     * position.
+     *
+     * @param src the buffer to read from
+     * @return the decoded value
+     */
+    public static long readSignedVarLong(ByteBuffer src) {
+        return zigZagDecode(readVarLong(src));
+    }
+
+    /**
+     * Delta encodes a sequence of ints. Each value is written as the zigzag
+     * variable length encoding of its difference from the preceding value, so
+     * sorted or slowly varying sequences encode to roughly one byte per value.
+     *
+     * @param dst the buffer to write to
+     * @param src the values to encode
+     * @param off the index of the first value
+     * @param len the number of values
+     */
+    public static void writeDeltas(ByteBuffer dst, int[] src, int off, int len) {
+        int previous = 0;
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            final int value = src[i];
+            writeVarInt(dst, zigZagEncode(value - previous));
+            previous = value;
+        }
+    }
+
+    /**
+     * Decodes a sequence of ints written by {@link #writeDeltas}.
+     *
+     * @param src the buffer to read from
+     * @param dst the array to decode values into
+     * @param off the index of the first value
+     * @param len the number of values
+     */
+    public static void readDeltas(ByteBuffer src, int[] dst, int off, int len) {
+        int previous = 0;
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            previous += zigZagDecode(readVarInt(src));
+            dst[i] = previous;
+        }
+    }
+
+    /**
+     * Delta encodes a sequence of longs, such as timestamps.
+     *
+     * @param dst the buffer to write to
+     * @param src the values to encode
+     * @param off the index of the first value
+     * @param len the number of values
+     * @see #writeDeltas(java.nio.ByteBuffer, int[], int, int)
+     */
+    public static void writeDeltas(ByteBuffer dst, long[] src, int off, int len) {
+        long previous = 0;
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            final long value = src[i];
+            writeVarLong(dst, zigZagEncode(value - previous));
+            previous = value;
+        }
+    }
+
+    /**
+     * Decodes a sequence of longs written by {@link #writeDeltas(java.nio.ByteBuffer,
+     * long[], int, int)}.
+     *
+     * @param src the buffer to read from
+     * @param dst the array to decode values into
+     * @param off the index of the first value
+     * @param len the number of values
+     */
+    public static void readDeltas(ByteBuffer src, long[] dst, int off, int len) {
+        long previous = 0;
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            previous += zigZagDecode(readVarLong(src));
+            dst[i] = previous;
+        }
+    }
+
+    private static IllegalArgumentException malformed() {
+        Object[] arguments = {};
+        String message = ResourceBundle.formatResourceBundleMessage(VarInt.class,
+                "VARINT_MALFORMED", arguments);
+        return new IllegalArgumentException(message);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.collections;
+
+import com.buck.commons.algorithms.HashCode;
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sizing and hashing shared by the open addressing hash tables.
+ *
+ * @author Robert J. Buck
+ */
+final class HashTables {
+
+    /**
+     * The largest supported table length.
+     */
+    static final int MAX_CAPACITY = 1 << 30;
+
+    /**
+     * Tables are resized when more than three quarters full.
+     */
+    static final float LOAD_FACTOR = 0.75f;
+
+    private static final AtomicLong seeds = new AtomicLong(System.nanoTime());
+
+    /**
+     * Returns a seed for a new table. Every table mixes its own seed into its
+     * hashes, so tables differ in iteration order; copying one table into
+     * another by iteration then cannot produce the long probe clusters that
+     * arise when the two share a slot order.
+     */
+    static long nextSeed() {
+        return HashCode.fmix64(seeds.addAndGet(0x9E3779B97F4A7C15L));
+    }
+
+    /**
+     * Returns the power of two table length holding the expected number of
+     * entries without resizing.
+     */
+    static int tableSizeFor(int expected) {
+        if (expected < 0 || expected > MAX_CAPACITY) {
+            Object[] arguments = {expected};
+            String message = ResourceBundle.formatResourceBundleMessage(HashTables.class,
+                    "COLLECTIONS_ILLEGAL_CAPACITY", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        final long needed = (long) Math.ceil(expected / (double) LOAD_FACTOR);
+        int n = 4;
+        while (n < needed && n < MAX_CAPACITY) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of entries a table of the given length holds before
+     * it must grow.
+     */
+    static int resizeThreshold(int tableLength) {
+        return (int) (tableLength * LOAD_FACTOR);
+    }
+
+    /**
+     * Returns the length to grow a full table to.
+     */
+    static int grow(int tableLength) {
+        if (tableLength >= MAX_CAPACITY) {
+            Object[] arguments = {tableLength};
+            String message = ResourceBundle.formatResourceBundleMessage(HashTables.class,
+                    "COLLECTIONS_CAPACITY_EXCEEDED", arguments);
+            throw new IllegalStateException(message);
+        }
+        return tableLength << 1;
+    }
+
+    static int mix(long key, long seed) {
+        return (int) HashCode.fmix64(key ^ seed);
+    }
+
+    static int mix(int key, long seed) {
+        return HashCode.fmix32(key ^ (int) seed);
+    }
+
+    static NullPointerException nullValue() {
+        Object[] arguments = {};
+        String message = ResourceBundle.formatResourceBundleMessage(HashTables.class,
+                "COLLECTIONS_NULL_VALUE", arguments);
+        return new NullPointerException(message);
+    }
+}
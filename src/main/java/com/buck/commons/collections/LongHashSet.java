@@ -0,0 +1,283 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.collections;
+
+import java.util.Arrays;
+
+/**
+ * A hash set of longs, stored without boxing. Elements live in a single array
+ * and collisions are resolved by linear probing, so an element costs about
+ * 11 bytes at the average load, against some 50 bytes for a
+ * <code>HashSet&lt;Long&gt;</code>.
+ * <p/>
+ * Hashing, probing and removal work as in {@link LongLongHashMap}. Sets are
+ * not thread safe.
+ *
+ * @author Robert J. Buck
+ */
+public class LongHashSet {
+
+    private final long seed = HashTables.nextSeed();
+    private long[] keys;
+    private int mask;
+    private int threshold;
+    private int size;
+    private boolean hasZeroKey;
+
+    /**
+     * Creates an empty set.
+     */
+    public LongHashSet() {
+        this(8);
+    }
+
+    /**
+     * Creates an empty set that holds the expected number of elements without
+     * resizing.
+     *
+     * @param expectedSize the expected number of elements
+     * @throws IllegalArgumentException if the expected size is negative or too
+     *                                  large
+     */
+    public LongHashSet(int expectedSize) {
+        allocate(HashTables.tableSizeFor(expectedSize));
+    }
+
+    private void allocate(int length) {
+        keys = new long[length];
+        mask = length - 1;
+        threshold = HashTables.resizeThreshold(length);
+    }
+
+    /**
+     * Returns the number of elements.
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the set is empty.
+     *
+     * @return true if there are no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns whether the set contains an element.
+     *
+     * @param key the element
+     * @return true if the element is present
+     */
+    public boolean contains(long key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        final long[] keys = this.keys;
+        for (int i = HashTables.mix(key, seed) & mask; ; i = (i + 1) & mask) {
+            final long k = keys[i];
+            if (k == key) {
+                return true;
+            }
+            if (k == 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Adds an element.
+     *
+     * @param key the element
+     * @return true if the element was not already present
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            if (hasZeroKey) {
+                return false;
+            }
+            hasZeroKey = true;
+            size++;
+            return true;
+        }
+        final long[] keys = this.keys;
+        int i = HashTables.mix(key, seed) & mask;
+        for (long k; (k = keys[i]) != 0; i = (i + 1) & mask) {
+            if (k == key) {
+                return false;
+            }
+        }
+        keys[i] = key;
+        if (++size > threshold) {
+            rehash(HashTables.grow(keys.length));
+        }
+        return true;
+    }
+
+    /**
+     * Removes an element.
+     *
+     * @param key the element
+     * @return true if the element was present
+     */
+    public boolean remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return false;
+            }
+            hasZeroKey = false;
+            size--;
+            return true;
+        }
+        final long[] keys = this.keys;
+        for (int i = HashTables.mix(key, seed) & mask; ; i = (i + 1) & mask) {
+            final long k = keys[i];
+            if (k == key) {
+                shiftBack(i);
+                size--;
+                return true;
+            }
+            if (k == 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Removes all elements, keeping the allocated table.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    /**
+     * Grows the table, if necessary, so that it holds the given number of
+     * elements without further resizing.
+     *
+     * @param expectedSize the number of elements
+     * @throws IllegalArgumentException if the expected size is too large
+     */
+    public void ensureCapacity(int expectedSize) {
+        if (expectedSize > threshold) {
+            rehash(HashTables.tableSizeFor(expectedSize));
+        }
+    }
+
+    /**
+     * Returns the elements in table order.
+     *
+     * @return a new array of the elements
+     */
+    public long[] toArray() {
+        final long[] result = new long[size];
+        int j = 0;
+        if (hasZeroKey) {
+            result[j++] = 0;
+        }
+        for (long k : keys) {
+            if (k != 0) {
+                result[j++] = k;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a cursor over the elements. The set must not be modified while
+     * the cursor is in use.
+     *
+     * @return a cursor positioned before the first element
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Iterates over the elements of the set without boxing.
+     */
+    public final class Cursor {
+        private int index = hasZeroKey ? -2 : -1;
+
+        private Cursor() {
+        }
+
+        /**
+         * Advances to the next element.
+         *
+         * @return false if there are no more elements
+         */
+        public boolean next() {
+            if (index == -2) {
+                index = -1;
+                return true;
+            }
+            while (++index < keys.length) {
+                if (keys[index] != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the current element.
+         *
+         * @return the element
+         */
+        public long key() {
+            return index < 0 ? 0 : keys[index];
+        }
+    }
+
+    /**
+     * Empties slot <code>i</code>, moving back any later elements of the probe
+     * run that would otherwise become unreachable.
+     */
+    private void shiftBack(int i) {
+        final long[] keys = this.keys;
+        int hole = i;
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            final int home = HashTables.mix(keys[j], seed) & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                hole = j;
+            }
+        }
+        keys[hole] = 0;
+    }
+
+    private void rehash(int length) {
+        final long[] oldKeys = keys;
+        allocate(length);
+        final long[] keys = this.keys;
+        for (long key : oldKeys) {
+            if (key != 0) {
+                int i = HashTables.mix(key, seed) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+            }
+        }
+    }
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.collections;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from long keys to long values, stored without boxing. Keys and
+ * values live in two parallel arrays and collisions are resolved by linear
+ * probing, so an entry costs about 21 bytes at the average load, against
+ * some 60 to 80 bytes for a <code>HashMap&lt;Long, Long&gt;</code>, and
+ * lookups touch one or two cache lines.
+ * <p/>
+ * Keys are spread with the MurmurHash3 finalizer, xored with a seed chosen
+ * per map, so clustered keys such as sequential identifiers do not cluster
+ * in the table, and copying one map into another does not degrade into long
+ * probe sequences. Removal shifts later entries back rather than leaving
+ * tombstones, so lookups do not slow down as entries come and go. The key
+ * zero marks an empty slot and is held outside the table.
+ * <p/>
+ * An absent key reads as the map's no entry value, zero unless specified.
+ * Maps are not thread safe.
+ *
+ * @author Robert J. Buck
+ */
+public class LongLongHashMap {
+
+    private final long seed = HashTables.nextSeed();
+    private final long noEntryValue;
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int threshold;
+    private int size;
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    /**
+     * Creates an empty map.
+     */
+    public LongLongHashMap() {
+        this(8);
+    }
+
+    /**
+     * Creates an empty map that holds the expected number of entries without
+     * resizing.
+     *
+     * @param expectedSize the expected number of entries
+     * @throws IllegalArgumentException if the expected size is negative or too
+     *                                  large
+     */
+    public LongLongHashMap(int expectedSize) {
+        this(expectedSize, 0L);
+    }
+
+    /**
+     * Creates an empty map that holds the expected number of entries without
+     * resizing.
+     *
+     * @param expectedSize the expected number of entries
+     * @param noEntryValue the value returned for absent keys
+     * @throws IllegalArgumentException if the expected size is negative or too
+     *                                  large
+     */
+    public LongLongHashMap(int expectedSize, long noEntryValue) {
+        this.noEntryValue = noEntryValue;
+        allocate(HashTables.tableSizeFor(expectedSize));
+    }
+
+    private void allocate(int length) {
+        keys = new long[length];
+        values = new long[length];
+        mask = length - 1;
+        threshold = HashTables.resizeThreshold(length);
+    }
+
+    /**
+     * Returns the value returned for absent keys.
+     *
+     * @return the no entry value
+     */
+    public long getNoEntryValue() {
+        return noEntryValue;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the map is empty.
+     *
+     * @return true if there are no entries
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns whether the map contains a key.
+     *
+     * @param key the key
+     * @return true if the key is present
+     */
+    public boolean containsKey(long key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key the key
+     * @return the value, or the no entry value if the key is absent
+     */
+    public long get(long key) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : noEntryValue;
+        }
+        final long[] keys = this.keys;
+        for (int i = HashTables.mix(key, seed) & mask; ; i = (i + 1) & mask) {
+            final long k = keys[i];
+            if (k == key) {
+                return values[i];
+            }
+            if (k == 0) {
+                return noEntryValue;
+            }
+        }
+    }
+
+    /**
+     * Associates a value with a key.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the previous value, or the no entry value if the key was absent
+     */
+    public long put(long key, long value) {
+        if (key == 0) {
+            final long previous = hasZeroKey ? zeroValue : noEntryValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return previous;
+        }
+        final long[] keys = this.keys;
+        int i = HashTables.mix(key, seed) & mask;
+        for (long k; (k = keys[i]) != 0; i = (i + 1) & mask) {
+            if (k == key) {
+                final long previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) {
+            rehash(HashTables.grow(keys.length));
+        }
+        return noEntryValue;
+    }
+
+    /**
+     * Adds to the value of a key, treating an absent key as having the no
+     * entry value.
+     *
+     * @param key   the key
+     * @param delta the amount to add
+     * @return the new value
+     */
+    public long addTo(long key, long delta) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                zeroValue = noEntryValue;
+                size++;
+            }
+            return zeroValue += delta;
+        }
+        final long[] keys = this.keys;
+        int i = HashTables.mix(key, seed) & mask;
+        for (long k; (k = keys[i]) != 0; i = (i + 1) & mask) {
+            if (k == key) {
+                return values[i] += delta;
+            }
+        }
+        final long value = noEntryValue + delta;
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) {
+            rehash(HashTables.grow(keys.length));
+        }
+        return value;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key the key
+     * @return the removed value, or the no entry value if the key was absent
+     */
+    public long remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return noEntryValue;
+            }
+            hasZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+        final int i = indexOf(key);
+        if (i < 0) {
+            return noEntryValue;
+        }
+        final long previous = values[i];
+        shiftBack(i);
+        size--;
+        return previous;
+    }
+
+    /**
+     * Removes all entries, keeping the allocated table.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    /**
+     * Grows the table, if necessary, so that it holds the given number of
+     * entries without further resizing.
+     *
+     * @param expectedSize the number of entries
+     * @throws IllegalArgumentException if the expected size is too large
+     */
+    public void ensureCapacity(int expectedSize) {
+        if (expectedSize > threshold) {
+            rehash(HashTables.tableSizeFor(expectedSize));
+        }
+    }
+
+    /**
+     * Returns the keys in table order.
+     *
+     * @return a new array of the keys
+     */
+    public long[] keys() {
+        final long[] result = new long[size];
+        int j = 0;
+        if (hasZeroKey) {
+            result[j++] = 0;
+        }
+        for (long k : keys) {
+            if (k != 0) {
+                result[j++] = k;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a cursor over the entries. The map must not be modified while
+     * the cursor is in use, other than through {@link Cursor#setValue(long)}.
+     *
+     * @return a cursor positioned before the first entry
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Iterates over the entries of the map without boxing.
+     */
+    public final class Cursor {
+        private int index = hasZeroKey ? -2 : -1;
+
+        private Cursor() {
+        }
+
+        /**
+         * Advances to the next entry.
+         *
+         * @return false if there are no more entries
+         */
+        public boolean next() {
+            if (index == -2) {
+                index = -1;
+                return true;
+            }
+            while (++index < keys.length) {
+                if (keys[index] != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the key of the current entry.
+         *
+         * @return the key
+         */
+        public long key() {
+            return index < 0 ? 0 : keys[index];
+        }
+
+        /**
+         * Returns the value of the current entry.
+         *
+         * @return the value
+         */
+        public long value() {
+            return index < 0 ? zeroValue : values[index];
+        }
+
+        /**
+         * Replaces the value of the current entry.
+         *
+         * @param value the new value
+         */
+        public void setValue(long value) {
+            if (index < 0) {
+                zeroValue = value;
+            } else {
+                values[index] = value;
+            }
+        }
+    }
+
+    private int indexOf(long key) {
+        final long[] keys = this.keys;
+        for (int i = HashTables.mix(key, seed) & mask; ; i = (i + 1) & mask) {
+            final long k = keys[i];
+            if (k == key) {
+                return i;
+            }
+            if (k == 0) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Empties slot <code>i</code>, moving back any later entries of the probe
+     * run that would otherwise become unreachable.
+     */
+    private void shiftBack(int i) {
+        final long[] keys = this.keys;
+        int hole = i;
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            final int home = HashTables.mix(keys[j], seed) & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = 0;
+    }
+
+    private void rehash(int length) {
+        final long[] oldKeys = keys;
+        final long[] oldValues = values;
+        allocate(length);
+        final long[] keys = this.keys;
+        for (int j = 0; j < oldKeys.length; j++) {
+            final long key = oldKeys[j];
+            if (key != 0) {
+                int i = HashTables.mix(key, seed) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
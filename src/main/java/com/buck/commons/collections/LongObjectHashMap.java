@@ -0,0 +1,358 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.collections;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from long keys to object values, with unboxed keys. Keys and
+ * values live in two parallel arrays and collisions are resolved by linear
+ * probing; compared with a <code>HashMap&lt;Long, V&gt;</code> this saves the
+ * key object and the entry object, some 50 bytes per entry.
+ * <p/>
+ * Hashing, probing and removal work as in {@link LongLongHashMap}. Null
+ * values are not permitted, so that <code>get</code> returning null
+ * unambiguously means the key is absent. Maps are not thread safe.
+ *
+ * @param <V> the value type
+ * @author Robert J. Buck
+ */
+public class LongObjectHashMap<V> {
+
+    private final long seed = HashTables.nextSeed();
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int threshold;
+    private int size;
+    private boolean hasZeroKey;
+    private Object zeroValue;
+
+    /**
+     * Creates an empty map.
+     */
+    public LongObjectHashMap() {
+        this(8);
+    }
+
+    /**
+     * Creates an empty map that holds the expected number of entries without
+     * resizing.
+     *
+     * @param expectedSize the expected number of entries
+     * @throws IllegalArgumentException if the expected size is negative or too
+     *                                  large
+     */
+    public LongObjectHashMap(int expectedSize) {
+        allocate(HashTables.tableSizeFor(expectedSize));
+    }
+
+    private void allocate(int length) {
+        keys = new long[length];
+        values = new Object[length];
+        mask = length - 1;
+        threshold = HashTables.resizeThreshold(length);
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the map is empty.
+     *
+     * @return true if there are no entries
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns whether the map contains a key.
+     *
+     * @param key the key
+     * @return true if the key is present
+     */
+    public boolean containsKey(long key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key the key
+     * @return the value, or null if the key is absent
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return (V) zeroValue;
+        }
+        final long[] keys = this.keys;
+        for (int i = HashTables.mix(key, seed) & mask; ; i = (i + 1) & mask) {
+            final long k = keys[i];
+            if (k == key) {
+                return (V) values[i];
+            }
+            if (k == 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Associates a value with a key.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the previous value, or null if the key was absent
+     * @throws NullPointerException if the value is null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw HashTables.nullValue();
+        }
+        if (key == 0) {
+            final Object previous = zeroValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return (V) previous;
+        }
+        final long[] keys = this.keys;
+        int i = HashTables.mix(key, seed) & mask;
+        for (long k; (k = keys[i]) != 0; i = (i + 1) & mask) {
+            if (k == key) {
+                final Object previous = values[i];
+                values[i] = value;
+                return (V) previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) {
+            rehash(HashTables.grow(keys.length));
+        }
+        return null;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key the key
+     * @return the removed value, or null if the key was absent
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return null;
+            }
+            final Object previous = zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            size--;
+            return (V) previous;
+        }
+        final int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        final Object previous = values[i];
+        shiftBack(i);
+        size--;
+        return (V) previous;
+    }
+
+    /**
+     * Removes all entries, keeping the allocated table.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, null);
+        hasZeroKey = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    /**
+     * Grows the table, if necessary, so that it holds the given number of
+     * entries without further resizing.
+     *
+     * @param expectedSize the number of entries
+     * @throws IllegalArgumentException if the expected size is too large
+     */
+    public void ensureCapacity(int expectedSize) {
+        if (expectedSize > threshold) {
+            rehash(HashTables.tableSizeFor(expectedSize));
+        }
+    }
+
+    /**
+     * Returns the keys in table order.
+     *
+     * @return a new array of the keys
+     */
+    public long[] keys() {
+        final long[] result = new long[size];
+        int j = 0;
+        if (hasZeroKey) {
+            result[j++] = 0;
+        }
+        for (long k : keys) {
+            if (k != 0) {
+                result[j++] = k;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a cursor over the entries. The map must not be modified while
+     * the cursor is in use, other than through {@link Cursor#setValue}.
+     *
+     * @return a cursor positioned before the first entry
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Iterates over the entries of the map without boxing the keys.
+     */
+    public final class Cursor {
+        private int index = hasZeroKey ? -2 : -1;
+
+        private Cursor() {
+        }
+
+        /**
+         * Advances to the next entry.
+         *
+         * @return false if there are no more entries
+         */
+        public boolean next() {
+            if (index == -2) {
+                index = -1;
+                return true;
+            }
+            while (++index < keys.length) {
+                if (keys[index] != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the key of the current entry.
+         *
+         * @return the key
+         */
+        public long key() {
+            return index < 0 ? 0 : keys[index];
+        }
+
+        /**
+         * Returns the value of the current entry.
+         *
+         * @return the value
+         */
+        @SuppressWarnings("unchecked")
+        public V value() {
+            return (V) (index < 0 ? zeroValue : values[index]);
+        }
+
+        /**
+         * Replaces the value of the current entry.
+         *
+         * @param value the new value
+         * @throws NullPointerException if the value is null
+         */
+        public void setValue(V value) {
+            if (value == null) {
+                throw HashTables.nullValue();
+            }
+            if (index < 0) {
+                zeroValue = value;
+            } else {
+                values[index] = value;
+            }
+        }
+    }
+
+    private int indexOf(long key) {
+        final long[] keys = this.keys;
+        for (int i = HashTables.mix(key, seed) & mask; ; i = (i + 1) & mask) {
+            final long k = keys[i];
+            if (k == key) {
+                return i;
+            }
+            if (k == 0) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Empties slot <code>i</code>, moving back any later entries of the probe
+     * run that would otherwise become unreachable.
+     */
+    private void shiftBack(int i) {
+        final long[] keys = this.keys;
+        int hole = i;
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            final int home = HashTables.mix(keys[j], seed) & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = null;
+    }
+
+    private void rehash(int length) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        allocate(length);
+        final long[] keys = this.keys;
+        for (int j = 0; j < oldKeys.length; j++) {
+            final long key = oldKeys[j];
+            if (key != 0) {
+                int i = HashTables.mix(key, seed) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,606 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.collections;
+
+import com.buck.commons.algorithms.HashCode;
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A hash index from long keys to fixed width values, stored outside the Java
+ * heap. Entries occupy slots of <code>8 + valueWidth</code> bytes in direct or
+ * memory mapped buffers, so an index of hundreds of millions of entries adds
+ * nothing to the heap the garbage collector must trace.
+ * <p/>
+ * The table is a fixed size open addressing table with linear probing and
+ * backward shift deletion, like {@link LongLongHashMap}; its capacity is set
+ * when it is created and puts beyond it fail rather than resize. The slots are
+ * split across buffers of at most 1 GB, so tables larger than 2 GB are
+ * supported.
+ * <p/>
+ * Access is guarded by a read-write lock: readers share the read lock and
+ * proceed concurrently, while writers are serialized by the write lock.
+ * <p/>
+ * An index created on a file persists there: the file is mapped read-write
+ * and holds a small header followed by the slots, all little endian. Changes
+ * reach the file when the operating system writes back the mapped pages, or
+ * on {@link #force()}. The mappings are released when the index is garbage
+ * collected.
+ *
+ * @author Robert J. Buck
+ */
+public class OffHeapLongHashIndex {
+
+    /**
+     * The largest supported value width in bytes.
+     */
+    public static final int MAX_VALUE_WIDTH = 1024;
+
+    private static final int MAGIC = 0x4C484958;
+    private static final int FLAG_ZERO_KEY = 1;
+    private static final int SEGMENT_SHIFT_LIMIT = 30;
+    private static final long MAX_SLOTS = 1L << 40;
+
+    private final ByteBuffer header;
+    private final ByteBuffer[] segments;
+    private final int valueWidth;
+    private final int slotSize;
+    private final long slots;
+    private final long mask;
+    private final long threshold;
+    private final long seed;
+    private final int segmentShift;
+    private final long segmentMask;
+    private final boolean mapped;
+    private long size;
+    private boolean hasZeroKey;
+
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    private OffHeapLongHashIndex(ByteBuffer header, ByteBuffer[] segments, int valueWidth, long slots,
+                                 int segmentShift, boolean mapped) {
+        this.header = header;
+        this.segments = segments;
+        this.valueWidth = valueWidth;
+        this.slotSize = 8 + valueWidth;
+        this.slots = slots;
+        this.mask = slots - 1;
+        this.threshold = (long) (slots * HashTables.LOAD_FACTOR);
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+        this.mapped = mapped;
+        this.seed = header.getLong(16);
+        this.size = header.getLong(24);
+        this.hasZeroKey = (header.getInt(32) & FLAG_ZERO_KEY) != 0;
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+    }
+
+    /**
+     * Creates an empty index in direct buffers.
+     *
+     * @param expectedSize the number of entries the index must hold
+     * @param valueWidth   the width of each value in bytes
+     * @return the index
+     * @throws IllegalArgumentException if the expected size or value width is
+     *                                  out of range
+     */
+    public static OffHeapLongHashIndex allocateDirect(long expectedSize, int valueWidth) {
+        final long slots = slotsFor(expectedSize, valueWidth);
+        final int shift = segmentShift(slots, valueWidth);
+        final ByteBuffer header = ByteBuffer.allocateDirect(headerSize(valueWidth)).order(ByteOrder.LITTLE_ENDIAN);
+        initHeader(header, valueWidth, slots);
+        final ByteBuffer[] segments = new ByteBuffer[(int) (slots >>> shift)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect((8 + valueWidth) << shift).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new OffHeapLongHashIndex(header, segments, valueWidth, slots, shift, false);
+    }
+
+    /**
+     * Creates an empty index persisted in a file, replacing any existing
+     * content.
+     *
+     * @param file         the file to create
+     * @param expectedSize the number of entries the index must hold
+     * @param valueWidth   the width of each value in bytes
+     * @return the index
+     * @throws IOException              if the file cannot be created or mapped
+     * @throws IllegalArgumentException if the expected size or value width is
+     *                                  out of range
+     */
+    public static OffHeapLongHashIndex create(File file, long expectedSize, int valueWidth) throws IOException {
+        final long slots = slotsFor(expectedSize, valueWidth);
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            raf.setLength(headerSize(valueWidth) + slots * (8 + valueWidth));
+            final ByteBuffer header = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                    headerSize(valueWidth)).order(ByteOrder.LITTLE_ENDIAN);
+            initHeader(header, valueWidth, slots);
+            return map(raf.getChannel(), header, valueWidth, slots);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Opens an index previously created in a file.
+     *
+     * @param file the file holding the index
+     * @return the index
+     * @throws IOException if the file cannot be mapped or does not hold a
+     *                     valid index
+     */
+    public static OffHeapLongHashIndex open(File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final FileChannel channel = raf.getChannel();
+            if (channel.size() < 40) {
+                throw malformed(file);
+            }
+            final ByteBuffer prefix = channel.map(FileChannel.MapMode.READ_ONLY, 0, 40).order(ByteOrder.LITTLE_ENDIAN);
+            final int valueWidth = prefix.getInt(4);
+            final long slots = prefix.getLong(8);
+            if (prefix.getInt(0) != MAGIC || valueWidth < 0 || valueWidth > MAX_VALUE_WIDTH
+                    || slots < 4 || slots > MAX_SLOTS || Long.bitCount(slots) != 1
+                    || channel.size() != headerSize(valueWidth) + slots * (8 + valueWidth)) {
+                throw malformed(file);
+            }
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    headerSize(valueWidth)).order(ByteOrder.LITTLE_ENDIAN);
+            final long size = header.getLong(24);
+            if (size < 0 || size > (long) (slots * HashTables.LOAD_FACTOR)) {
+                throw malformed(file);
+            }
+            return map(channel, header, valueWidth, slots);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static OffHeapLongHashIndex map(FileChannel channel, ByteBuffer header, int valueWidth, long slots)
+            throws IOException {
+        final int shift = segmentShift(slots, valueWidth);
+        final long segmentBytes = (long) (8 + valueWidth) << shift;
+        final ByteBuffer[] segments = new ByteBuffer[(int) (slots >>> shift)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, headerSize(valueWidth) + i * segmentBytes,
+                    segmentBytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new OffHeapLongHashIndex(header, segments, valueWidth, slots, shift, true);
+    }
+
+    /**
+     * Returns the width of each value in bytes.
+     *
+     * @return the value width
+     */
+    public int getValueWidth() {
+        return valueWidth;
+    }
+
+    /**
+     * Returns the number of entries the index can hold.
+     *
+     * @return the capacity
+     */
+    public long capacity() {
+        return threshold;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries
+     */
+    public long size() {
+        readLock.lock();
+        try {
+            return size;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether the index is empty.
+     *
+     * @return true if there are no entries
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns whether the index contains a key.
+     *
+     * @param key the key
+     * @return true if the key is present
+     */
+    public boolean containsKey(long key) {
+        readLock.lock();
+        try {
+            return key == 0 ? hasZeroKey : indexOf(key) >= 0;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Copies the value of a key into an array.
+     *
+     * @param key the key
+     * @param dst the array to copy the value into
+     * @param off the offset in the array
+     * @return false if the key is absent, in which case the array is unchanged
+     * @throws IndexOutOfBoundsException if the array cannot hold the value
+     */
+    public boolean get(long key, byte[] dst, int off) {
+        checkValueRange(dst, off);
+        readLock.lock();
+        try {
+            final long slot = key == 0 ? (hasZeroKey ? -2 : -1) : indexOf(key);
+            if (slot == -1) {
+                return false;
+            }
+            final ByteBuffer buffer = slot == -2 ? header : segments[segment(slot)];
+            final int position = slot == -2 ? 40 : offset(slot) + 8;
+            for (int i = 0; i < valueWidth; i++) {
+                dst[off + i] = buffer.get(position + i);
+            }
+            return true;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns a value held as a long in the first eight bytes of the value.
+     *
+     * @param key          the key
+     * @param noEntryValue the value to return if the key is absent
+     * @return the value, or the no entry value if the key is absent
+     * @throws IllegalStateException if the value width is less than eight
+     */
+    public long getLong(long key, long noEntryValue) {
+        checkLongWidth();
+        readLock.lock();
+        try {
+            if (key == 0) {
+                return hasZeroKey ? header.getLong(40) : noEntryValue;
+            }
+            final long slot = indexOf(key);
+            return slot < 0 ? noEntryValue : segments[segment(slot)].getLong(offset(slot) + 8);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Associates a value with a key.
+     *
+     * @param key the key
+     * @param src the array holding the value
+     * @param off the offset of the value in the array
+     * @return true if the key was absent
+     * @throws IndexOutOfBoundsException if the array does not hold a value
+     * @throws IllegalStateException     if the key is absent and the index is
+     *                                   full
+     */
+    public boolean put(long key, byte[] src, int off) {
+        checkValueRange(src, off);
+        writeLock.lock();
+        try {
+            final long slot = insert(key);
+            final ByteBuffer buffer = slot == -2 ? header : segments[segment(slot)];
+            final int position = slot == -2 ? 40 : offset(slot) + 8;
+            for (int i = 0; i < valueWidth; i++) {
+                buffer.put(position + i, src[off + i]);
+            }
+            return publish(key, slot);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Associates a value with a key, held as a long in the first eight bytes
+     * of the value.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return true if the key was absent
+     * @throws IllegalStateException if the value width is less than eight, or
+     *                               if the key is absent and the index is full
+     */
+    public boolean putLong(long key, long value) {
+        checkLongWidth();
+        writeLock.lock();
+        try {
+            final long slot = insert(key);
+            if (slot == -2) {
+                header.putLong(40, value);
+            } else {
+                segments[segment(slot)].putLong(offset(slot) + 8, value);
+            }
+            return publish(key, slot);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key the key
+     * @return true if the key was present
+     */
+    public boolean remove(long key) {
+        writeLock.lock();
+        try {
+            if (key == 0) {
+                if (!hasZeroKey) {
+                    return false;
+                }
+                hasZeroKey = false;
+                header.putInt(32, 0);
+                setSize(size - 1);
+                return true;
+            }
+            final long slot = indexOf(key);
+            if (slot < 0) {
+                return false;
+            }
+            shiftBack(slot);
+            setSize(size - 1);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        writeLock.lock();
+        try {
+            for (long slot = 0; slot < slots; slot++) {
+                setKey(slot, 0);
+            }
+            hasZeroKey = false;
+            header.putInt(32, 0);
+            setSize(0);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes any changes to a file backed index through to the storage device.
+     * Does nothing for an index in direct buffers.
+     */
+    public void force() {
+        if (mapped) {
+            readLock.lock();
+            try {
+                for (ByteBuffer segment : segments) {
+                    ((MappedByteBuffer) segment).force();
+                }
+                ((MappedByteBuffer) header).force();
+            } finally {
+                readLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Finds the slot for a key, claiming an empty one if the key is absent
+     * but leaving the key unwritten until {@link #publish} stores it, so that
+     * a full index fails before anything is written.
+     *
+     * @return the slot, or -2 for the zero key
+     */
+    private long insert(long key) {
+        if (key == 0) {
+            if (!hasZeroKey && size >= threshold) {
+                throw full();
+            }
+            return -2;
+        }
+        long slot = HashCode.fmix64(key ^ seed) & mask;
+        for (long k; (k = keyAt(slot)) != 0; slot = (slot + 1) & mask) {
+            if (k == key) {
+                return slot;
+            }
+        }
+        if (size >= threshold) {
+            throw full();
+        }
+        return slot;
+    }
+
+    /**
+     * Writes the key of an entry whose value has been stored.
+     *
+     * @return true if the entry is new
+     */
+    private boolean publish(long key, long slot) {
+        if (slot == -2) {
+            if (hasZeroKey) {
+                return false;
+            }
+            hasZeroKey = true;
+            header.putInt(32, FLAG_ZERO_KEY);
+        } else {
+            if (keyAt(slot) == key) {
+                return false;
+            }
+            setKey(slot, key);
+        }
+        setSize(size + 1);
+        return true;
+    }
+
+    private long indexOf(long key) {
+        long slot = HashCode.fmix64(key ^ seed) & mask;
+        // bounded as a safeguard; the load factor leaves an empty slot
+        for (long n = 0; n < slots; n++, slot = (slot + 1) & mask) {
+            final long k = keyAt(slot);
+            if (k == key) {
+                return slot;
+            }
+            if (k == 0) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Empties a slot, moving back any later entries of the probe run that
+     * would otherwise become unreachable.
+     */
+    private void shiftBack(long slot) {
+        long hole = slot;
+        for (long j = (slot + 1) & mask; ; j = (j + 1) & mask) {
+            final long k = keyAt(j);
+            if (k == 0) {
+                break;
+            }
+            final long home = HashCode.fmix64(k ^ seed) & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                final ByteBuffer from = segments[segment(j)];
+                final ByteBuffer to = segments[segment(hole)];
+                final int fromOffset = offset(j) + 8;
+                final int toOffset = offset(hole) + 8;
+                for (int i = 0; i < valueWidth; i++) {
+                    to.put(toOffset + i, from.get(fromOffset + i));
+                }
+                setKey(hole, k);
+                hole = j;
+            }
+        }
+        setKey(hole, 0);
+    }
+
+    private long keyAt(long slot) {
+        return segments[segment(slot)].getLong(offset(slot));
+    }
+
+    private void setKey(long slot, long key) {
+        segments[segment(slot)].putLong(offset(slot), key);
+    }
+
+    private void setSize(long size) {
+        this.size = size;
+        header.putLong(24, size);
+    }
+
+    private int segment(long slot) {
+        return (int) (slot >>> segmentShift);
+    }
+
+    private int offset(long slot) {
+        return (int) (slot & segmentMask) * slotSize;
+    }
+
+    private void checkValueRange(byte[] array, int off) {
+        if (off < 0 || off > array.length - valueWidth) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private void checkLongWidth() {
+        if (valueWidth < 8) {
+            Object[] arguments = {valueWidth};
+            String message = ResourceBundle.formatResourceBundleMessage(OffHeapLongHashIndex.class,
+                    "OFF_HEAP_INDEX_NARROW_VALUE", arguments);
+            throw new IllegalStateException(message);
+        }
+    }
+
+    private IllegalStateException full() {
+        Object[] arguments = {capacity()};
+        String message = ResourceBundle.formatResourceBundleMessage(OffHeapLongHashIndex.class,
+                "OFF_HEAP_INDEX_FULL", arguments);
+        return new IllegalStateException(message);
+    }
+
+    private static IOException malformed(File file) {
+        Object[] arguments = {file.getPath()};
+        String message = ResourceBundle.formatResourceBundleMessage(OffHeapLongHashIndex.class,
+                "OFF_HEAP_INDEX_MALFORMED", arguments);
+        return new IOException(message);
+    }
+
+    private static long slotsFor(long expectedSize, int valueWidth) {
+        if (valueWidth < 0 || valueWidth > MAX_VALUE_WIDTH) {
+            Object[] arguments = {valueWidth, MAX_VALUE_WIDTH};
+            String message = ResourceBundle.formatResourceBundleMessage(OffHeapLongHashIndex.class,
+                    "OFF_HEAP_INDEX_ILLEGAL_VALUE_WIDTH", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        final long maxSize = (long) (MAX_SLOTS * HashTables.LOAD_FACTOR);
+        if (expectedSize < 0 || expectedSize > maxSize) {
+            Object[] arguments = {expectedSize, maxSize};
+            String message = ResourceBundle.formatResourceBundleMessage(OffHeapLongHashIndex.class,
+                    "OFF_HEAP_INDEX_ILLEGAL_SIZE", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        final long needed = (long) Math.ceil(expectedSize / (double) HashTables.LOAD_FACTOR);
+        long slots = 4;
+        while (slots < needed) {
+            slots <<= 1;
+        }
+        return slots;
+    }
+
+    /**
+     * Returns the log2 of the slots per segment: as many as fit in 1 GB, but
+     * no more than the table holds.
+     */
+    private static int segmentShift(long slots, int valueWidth) {
+        final int slotBits = 32 - Integer.numberOfLeadingZeros(8 + valueWidth - 1);
+        return Math.min(Long.numberOfTrailingZeros(slots), SEGMENT_SHIFT_LIMIT - slotBits);
+    }
+
+    private static int headerSize(int valueWidth) {
+        return (40 + valueWidth + 7) & ~7;
+    }
+
+    private static void initHeader(ByteBuffer header, int valueWidth, long slots) {
+        header.putInt(0, MAGIC);
+        header.putInt(4, valueWidth);
+        header.putLong(8, slots);
+        header.putLong(16, HashTables.nextSeed());
+        header.putLong(24, 0);
+        header.putInt(32, 0);
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import com.buck.commons.algorithms.VarInt;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * A byte buffer input stream that implements {@link DataInput}, reading each
+ * primitive with a single access to the underlying buffer rather than a byte
+ * at a time through <code>read()</code>, as a <code>DataInputStream</code>
+ * would. It also reads the variable length integers written by {@link
+ * VarInt}.
+ * <p/>
+ * Multi-byte primitives are read in the buffer's byte order; the
+ * <code>DataInput</code> contract of big endian order holds for buffers in
+ * their default order. Like its superclass, the stream is not synchronized.
+ *
+ * @author Robert J. Buck
+ */
+public class ByteBufferDataInputStream extends UnsynchronizedByteBufferInputStream implements DataInput {
+
+    private static final ThreadLocal<ByteBufferDataInputStream> LOCAL =
+            new ThreadLocal<ByteBufferDataInputStream>() {
+                @Override
+                protected ByteBufferDataInputStream initialValue() {
+                    return new ByteBufferDataInputStream(ByteBuffer.allocate(0));
+                }
+            };
+
+    /**
+     * Creates a stream reading the remaining bytes of a buffer.
+     *
+     * @param b the buffer to read
+     */
+    public ByteBufferDataInputStream(ByteBuffer b) {
+        super(b);
+    }
+
+    /**
+     * Returns the calling thread's data stream, reset to read the remaining
+     * bytes of a buffer. The same stream is returned by every call on the
+     * thread, so it must not be used once the thread calls again.
+     *
+     * @param b the buffer to read
+     * @return the thread's stream
+     */
+    public static ByteBufferDataInputStream forCurrentThread(ByteBuffer b) {
+        return LOCAL.get().reset(b);
+    }
+
+    @Override
+    public ByteBufferDataInputStream reset(ByteBuffer b) {
+        resetImpl(b);
+        return this;
+    }
+
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        if ((off < 0) || (off > b.length) || (len < 0) || ((off + len) > b.length) || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException();
+        }
+        require(len);
+        buffer.get(b, off, len);
+        advanced(len);
+    }
+
+    public int skipBytes(int n) {
+        return (int) skipImpl(n);
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public byte readByte() throws IOException {
+        require(1);
+        final byte value = buffer.get();
+        advanced(1);
+        return value;
+    }
+
+    public int readUnsignedByte() throws IOException {
+        return readByte() & 0xFF;
+    }
+
+    public short readShort() throws IOException {
+        require(2);
+        final short value = buffer.getShort();
+        advanced(2);
+        return value;
+    }
+
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xFFFF;
+    }
+
+    public char readChar() throws IOException {
+        require(2);
+        final char value = buffer.getChar();
+        advanced(2);
+        return value;
+    }
+
+    public int readInt() throws IOException {
+        require(4);
+        final int value = buffer.getInt();
+        advanced(4);
+        return value;
+    }
+
+    public long readLong() throws IOException {
+        require(8);
+        final long value = buffer.getLong();
+        advanced(8);
+        return value;
+    }
+
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * Reads a line of text terminated by a line feed, a carriage return, or a
+     * carriage return followed by a line feed. Each byte is converted to a
+     * character without any decoding.
+     *
+     * @return the line, without its terminator, or null at the end of the
+     *         stream
+     */
+    public String readLine() {
+        if (!buffer.hasRemaining()) {
+            return null;
+        }
+        final StringBuilder line = new StringBuilder();
+        while (buffer.hasRemaining()) {
+            final int c = buffer.get() & 0xFF;
+            advanced(1);
+            if (c == '\n') {
+                break;
+            }
+            if (c == '\r') {
+                if (buffer.hasRemaining() && buffer.get(buffer.position()) == '\n') {
+                    buffer.get();
+                    advanced(1);
+                }
+                break;
+            }
+            line.append((char) c);
+        }
+        return line.toString();
+    }
+
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+
+    /**
+     * Reads an unsigned variable length int.
+     *
+     * @return the value
+     * @throws EOFException             if the encoding is truncated
+     * @throws IllegalArgumentException if the encoding is malformed
+     * @see VarInt#readVarInt(java.nio.ByteBuffer)
+     */
+    public int readVarInt() throws IOException {
+        final int start = buffer.position();
+        try {
+            final int value = VarInt.readVarInt(buffer);
+            advanced(buffer.position() - start);
+            return value;
+        } catch (BufferUnderflowException e) {
+            buffer.position(start);
+            throw new EOFException();
+        }
+    }
+
+    /**
+     * Reads a signed, zigzag encoded, variable length int.
+     *
+     * @return the value
+     * @throws EOFException if the encoding is truncated
+     */
+    public int readSignedVarInt() throws IOException {
+        return VarInt.zigZagDecode(readVarInt());
+    }
+
+    /**
+     * Reads an unsigned variable length long.
+     *
+     * @return the value
+     * @throws EOFException             if the encoding is truncated
+     * @throws IllegalArgumentException if the encoding is malformed
+     * @see VarInt#readVarLong(java.nio.ByteBuffer)
+     */
+    public long readVarLong() throws IOException {
+        final int start = buffer.position();
+        try {
+            final long value = VarInt.readVarLong(buffer);
+            advanced(buffer.position() - start);
+            return value;
+        } catch (BufferUnderflowException e) {
+            buffer.position(start);
+            throw new EOFException();
+        }
+    }
+
+    /**
+     * Reads a signed, zigzag encoded, variable length long.
+     *
+     * @return the value
+     * @throws EOFException if the encoding is truncated
+     */
+    public long readSignedVarLong() throws IOException {
+        return VarInt.zigZagDecode(readVarLong());
+    }
+
+    private void require(int n) throws EOFException {
+        if (buffer.remaining() < n) {
+            throw new EOFException();
+        }
+    }
+
+    /**
+     * Accounts for bytes consumed directly from the buffer.
+     */
+    private void advanced(int n) {
+        position += n;
+        // invalidate
+        if (mark != -1 && position >= limit) {
+            mark = -1;
+        }
+    }
+}
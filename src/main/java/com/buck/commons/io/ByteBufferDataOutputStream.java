@@ -0,0 +1,220 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import com.buck.commons.algorithms.VarInt;
+
+import java.io.DataOutput;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+
+/**
+ * A byte buffer output stream that implements {@link DataOutput}. Each
+ * primitive is written with one capacity check and a single put to the
+ * backing buffer, rather than byte by byte through <code>write(int)</code> as
+ * a <code>DataOutputStream</code> would. It also writes the variable length
+ * integers read by {@link ByteBufferDataInputStream}.
+ * <p/>
+ * Multi-byte primitives are written in the buffer's byte order; the
+ * <code>DataOutput</code> contract of big endian order holds for buffers in
+ * their default order.
+ *
+ * @author Robert J. Buck
+ */
+public class ByteBufferDataOutputStream extends ByteBufferOutputStream implements DataOutput {
+
+    /**
+     * Creates a stream initially sized at 32 that can grow.
+     */
+    public ByteBufferDataOutputStream() {
+        super();
+    }
+
+    /**
+     * Creates a stream of the given size that can grow.
+     *
+     * @param size the size of the buffer to initially allocate
+     */
+    public ByteBufferDataOutputStream(int size) {
+        super(size);
+    }
+
+    /**
+     * Creates a stream backed by the given buffer.
+     *
+     * @param backing the backing buffer to stream content to
+     * @param grow    If 'grow' is true, then the referenced ByteBuffer may
+     *                change when the buffer is grown
+     */
+    public ByteBufferDataOutputStream(ByteBuffer backing, boolean grow) {
+        super(backing, grow);
+    }
+
+    /**
+     * Creates a growing stream whose buffers are acquired from, and released
+     * to, a pool.
+     *
+     * @param pool the pool supplying buffers
+     * @param size the size of the buffer to initially acquire
+     */
+    public ByteBufferDataOutputStream(ByteBufferPool pool, int size) {
+        super(pool, size);
+    }
+
+    public void writeBoolean(boolean v) {
+        write(v ? 1 : 0);
+    }
+
+    public void writeByte(int v) {
+        write(v);
+    }
+
+    public void writeShort(int v) {
+        ensureRemaining(2);
+        buffer.putShort((short) v);
+    }
+
+    public void writeChar(int v) {
+        ensureRemaining(2);
+        buffer.putChar((char) v);
+    }
+
+    public void writeInt(int v) {
+        ensureRemaining(4);
+        buffer.putInt(v);
+    }
+
+    public void writeLong(long v) {
+        ensureRemaining(8);
+        buffer.putLong(v);
+    }
+
+    public void writeFloat(float v) {
+        writeInt(Float.floatToIntBits(v));
+    }
+
+    public void writeDouble(double v) {
+        writeLong(Double.doubleToLongBits(v));
+    }
+
+    /**
+     * Writes the low byte of each character of a string.
+     *
+     * @param s the string
+     */
+    public void writeBytes(String s) {
+        final int len = s.length();
+        ensureRemaining(len);
+        final ByteBuffer buffer = this.buffer;
+        for (int i = 0; i < len; i++) {
+            buffer.put((byte) s.charAt(i));
+        }
+    }
+
+    /**
+     * Writes each character of a string as two bytes.
+     *
+     * @param s the string
+     */
+    public void writeChars(String s) {
+        final int len = s.length();
+        ensureRemaining(len * 2);
+        final ByteBuffer buffer = this.buffer;
+        for (int i = 0; i < len; i++) {
+            buffer.putChar(s.charAt(i));
+        }
+    }
+
+    /**
+     * Writes a string in the modified UTF-8 encoding of {@link DataOutput},
+     * preceded by its encoded length as an unsigned short.
+     *
+     * @param s the string
+     * @throws UTFDataFormatException if the encoding exceeds 65535 bytes
+     */
+    public void writeUTF(String s) throws UTFDataFormatException {
+        final int len = s.length();
+        int utfLength = len;
+        for (int i = 0; i < len; i++) {
+            final char c = s.charAt(i);
+            if (c >= 0x800) {
+                utfLength += 2;
+            } else if (c >= 0x80 || c == 0) {
+                utfLength++;
+            }
+        }
+        if (utfLength > 65535) {
+            throw new UTFDataFormatException();
+        }
+        ensureRemaining(2 + utfLength);
+        final ByteBuffer buffer = this.buffer;
+        buffer.putShort((short) utfLength);
+        for (int i = 0; i < len; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80 && c != 0) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * Writes an unsigned variable length int.
+     *
+     * @param v the value, treated as unsigned
+     * @see VarInt#writeVarInt(java.nio.ByteBuffer, int)
+     */
+    public void writeVarInt(int v) {
+        ensureRemaining(VarInt.sizeOfVarInt(v));
+        VarInt.writeVarInt(buffer, v);
+    }
+
+    /**
+     * Writes a signed variable length int using the zigzag transform.
+     *
+     * @param v the value
+     */
+    public void writeSignedVarInt(int v) {
+        writeVarInt(VarInt.zigZagEncode(v));
+    }
+
+    /**
+     * Writes an unsigned variable length long.
+     *
+     * @param v the value, treated as unsigned
+     * @see VarInt#writeVarLong(java.nio.ByteBuffer, long)
+     */
+    public void writeVarLong(long v) {
+        ensureRemaining(VarInt.sizeOfVarLong(v));
+        VarInt.writeVarLong(buffer, v);
+    }
+
+    /**
+     * Writes a signed variable length long using the zigzag transform.
+     *
+     * @param v the value
+     */
+    public void writeSignedVarLong(long v) {
+        writeVarLong(VarInt.zigZagEncode(v));
+    }
+}
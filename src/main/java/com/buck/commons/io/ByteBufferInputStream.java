@@ -23,12 +23,30 @@ import java.nio.ByteBuffer;
 /**
  * Implements an alternative class to ByteArrayInputStream, but for
  * ByteBuffers.
+ * <p/>
+ * Like ByteArrayInputStream, the stream's methods are synchronized. Streams
+ * confined to a single thread can avoid the monitor operation per call by
+ * using {@link UnsynchronizedByteBufferInputStream}, which shares this
+ * class's implementation.
+ * <p/>
+ * A stream may be reused for another buffer by {@link #reset(ByteBuffer)},
+ * so that decoding a sequence of messages need not allocate a stream per
+ * message.
  *
  * @author Robert J. Buck
  */
 public class ByteBufferInputStream extends InputStream {
 
-    private final ByteBuffer buffer;
+    /**
+     * The buffer read from.
+     */
+    protected ByteBuffer buffer;
+
+    /**
+     * The buffer position at which the stream starts; stream positions are
+     * relative to it.
+     */
+    protected int origin;
 
     /**
      * Invariants: mark <= position <= limit
@@ -68,12 +86,10 @@ public class ByteBufferInputStream extends InputStream {
      * the last byte within <code>buf</code> that can ever be read  from the
      * input stream buffer.
      */
-    protected final int count;
+    protected int count;
 
     public ByteBufferInputStream(ByteBuffer b) {
-        this.buffer = b;
-        this.position = 0;
-        this.count = b.remaining();
+        resetImpl(b);
     }
 
     /**
@@ -94,6 +110,68 @@ public class ByteBufferInputStream extends InputStream {
      * passed to the constructor (or 0 if the offset was not supplied).
      */
     public synchronized void mark(int readLimit) {
+        markImpl(readLimit);
+    }
+
+    /**
+     * Resets the buffer to the marked position.
+     */
+    public synchronized void reset() throws IOException {
+        resetImpl();
+    }
+
+    /**
+     * Resets the stream to read the remaining bytes of another buffer, as if
+     * newly constructed over it.
+     *
+     * @param b the buffer to read
+     * @return this stream
+     */
+    public synchronized ByteBufferInputStream reset(ByteBuffer b) {
+        resetImpl(b);
+        return this;
+    }
+
+    public synchronized int read() throws IOException {
+        return readImpl();
+    }
+
+    public synchronized int read(byte b[], int off, int len) throws IOException {
+        return readImpl(b, off, len);
+    }
+
+    /**
+     * Skips <code>n</code> bytes hashCode input from this input stream. Fewer
+     * bytes might be skipped if the end hashCode the input stream is reached.
+     * The actual number <code>k</code> hashCode bytes to be skipped is equal to
+     * the smaller hashCode <code>n</code> and  <code>count-index</code>. The
+     * value <code>k</code> is added into <code>index</code> and <code>k</code>
+     * is returned.
+     *
+     * @param n the number hashCode bytes to be skipped.
+     * @return the actual number hashCode bytes skipped.
+     */
+    public synchronized long skip(long n) throws IOException {
+        return skipImpl(n);
+    }
+
+    /**
+     * Returns the number hashCode bytes that can be read from this input stream
+     * without blocking. The value returned is <code>count&nbsp;- index</code>,
+     * which is the number hashCode bytes remaining to be read from the input
+     * buffer.
+     *
+     * @return the number hashCode bytes that can be read from the input stream
+     *         without blocking.
+     */
+    public synchronized int available() throws IOException {
+        return availableImpl();
+    }
+
+    /**
+     * Implements {@link #mark}, without synchronization.
+     */
+    protected final void markImpl(int readLimit) {
         if ((readLimit > buffer.remaining()) || (readLimit < 0)) {
             throw new IllegalArgumentException();
         }
@@ -102,20 +180,34 @@ public class ByteBufferInputStream extends InputStream {
     }
 
     /**
-     * Resets the buffer to the marked position.
+     * Implements {@link #reset}, without synchronization.
      */
-    public synchronized void reset() throws IOException {
+    protected final void resetImpl() {
         if (mark == -1) {
             position = 0;
-            buffer.position(position);
         } else {
             position = mark;
-            buffer.position(mark);
             mark = -1;
         }
+        buffer.position(origin + position);
     }
 
-    public synchronized int read() throws IOException {
+    /**
+     * Implements {@link #reset(ByteBuffer)}, without synchronization.
+     */
+    protected final void resetImpl(ByteBuffer b) {
+        buffer = b;
+        origin = b.position();
+        count = b.remaining();
+        position = 0;
+        mark = 0;
+        limit = -1;
+    }
+
+    /**
+     * Implements {@link #read()}, without synchronization.
+     */
+    protected final int readImpl() {
         if (buffer.hasRemaining()) {
             int bv = buffer.get() & 0xFF;
             position++;
@@ -128,7 +220,10 @@ public class ByteBufferInputStream extends InputStream {
         return -1;
     }
 
-    public synchronized int read(byte b[], int off, int len) throws IOException {
+    /**
+     * Implements {@link #read(byte[], int, int)}, without synchronization.
+     */
+    protected final int readImpl(byte b[], int off, int len) {
         if (b == null) {
             throw new NullPointerException();
         } else if ((off < 0) || (off > b.length) || (len < 0) ||
@@ -155,17 +250,9 @@ public class ByteBufferInputStream extends InputStream {
     }
 
     /**
-     * Skips <code>n</code> bytes hashCode input from this input stream. Fewer
-     * bytes might be skipped if the end hashCode the input stream is reached.
-     * The actual number <code>k</code> hashCode bytes to be skipped is equal to
-     * the smaller hashCode <code>n</code> and  <code>count-index</code>. The
-     * value <code>k</code> is added into <code>index</code> and <code>k</code>
-     * is returned.
-     *
-     * @param n the number hashCode bytes to be skipped.
-     * @return the actual number hashCode bytes skipped.
+     * Implements {@link #skip}, without synchronization.
      */
-    public synchronized long skip(long n) throws IOException {
+    protected final long skipImpl(long n) {
         if (position + n > count) {
             n = count - position;
         }
@@ -177,20 +264,14 @@ public class ByteBufferInputStream extends InputStream {
         if (mark != -1 && position >= limit) {
             mark = -1;
         }
-        buffer.position(position);
+        buffer.position(origin + position);
         return n;
     }
 
     /**
-     * Returns the number hashCode bytes that can be read from this input stream
-     * without blocking. The value returned is <code>count&nbsp;- index</code>,
-     * which is the number hashCode bytes remaining to be read from the input
-     * buffer.
-     *
-     * @return the number hashCode bytes that can be read from the input stream
-     *         without blocking.
+     * Implements {@link #available}, without synchronization.
      */
-    public synchronized int available() throws IOException {
+    protected final int availableImpl() {
         return buffer.remaining();
     }
 
@@ -25,9 +25,15 @@ import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
 
 /**
  * Wraps {@link ByteBuffer ByteBuffers} so it can be accessed as an {@link
@@ -38,7 +44,15 @@ import java.nio.charset.Charset;
  * <p/>
  * <code>ByteBufferOutputStream</code> can optionally grow to meet the needed
  * size. If the optional growth setting is off (default), yet growth is needed,
- * then {@link BufferOverflowException} is thrown.
+ * then {@link BufferOverflowException} is thrown. A growing stream multiplies
+ * its capacity by a growth factor, two by default, so writing n bytes copies
+ * O(n) bytes in total however small the writes; growth never exceeds a
+ * maximum size, beyond which <code>BufferOverflowException</code> is thrown.
+ * <p/>
+ * A stream may allocate direct buffers, which channels write to sockets and
+ * files without first copying into a temporary direct buffer, or borrow its
+ * buffers from a {@link ByteBufferPool}, returning them when the stream grows,
+ * is reset or is closed.
  *
  * @author Robert J. Buck
  */
@@ -59,16 +73,47 @@ public class ByteBufferOutputStream extends OutputStream {
      */
     protected ByteBuffer buffer;
 
+    /**
+     * The default factor by which a growing buffer's capacity is multiplied.
+     */
+    public static final float DEFAULT_GROWTH_FACTOR = 2.0f;
+
+    /**
+     * The default maximum size of a growing buffer; some virtual machines
+     * reserve header words in arrays, so larger arrays may fail to allocate.
+     */
+    public static final int DEFAULT_MAX_SIZE = Integer.MAX_VALUE - 8;
+
     /**
      * Whether or not this can grow.
      */
     protected final boolean grow;
 
+    /**
+     * The factor by which the capacity is multiplied when the buffer grows.
+     */
+    private final float growthFactor;
+
+    /**
+     * The capacity beyond which the buffer will not grow.
+     */
+    private final int maxSize;
+
+    /**
+     * The pool supplying buffers, or null if buffers are allocated.
+     */
+    private final ByteBufferPool pool;
+
+    /**
+     * The initial capacity, restored when a pooled stream is reset.
+     */
+    private final int initialSize;
+
     /**
      * Creates an OutputStream initially sized at 32 that can grow.
      */
     public ByteBufferOutputStream() {
-        this(1);
+        this(32);
     }
 
     /**
@@ -91,6 +136,32 @@ public class ByteBufferOutputStream extends OutputStream {
         this(ByteBuffer.allocate(size), grow);
     }
 
+    /**
+     * Creates an OutputStream of the given size, optionally backed by a direct
+     * buffer. A growing direct stream grows into direct buffers.
+     *
+     * @param size   the size of the buffer to initially allocate
+     * @param grow   If 'grow' is true, then the referenced ByteBuffer may change
+     *               when the buffer is grown
+     * @param direct whether to allocate a direct buffer
+     */
+    public ByteBufferOutputStream(int size, boolean grow, boolean direct) {
+        this(direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size), grow);
+    }
+
+    /**
+     * Creates a growing OutputStream whose buffers are acquired from, and
+     * released to, a pool. The buffer is released when the stream grows past
+     * it and when the stream is closed; resetting the stream also releases a
+     * grown buffer in exchange for one of the initial size.
+     *
+     * @param pool the pool supplying buffers
+     * @param size the size of the buffer to initially acquire
+     */
+    public ByteBufferOutputStream(ByteBufferPool pool, int size) {
+        this(pool.acquire(size), true, DEFAULT_GROWTH_FACTOR, DEFAULT_MAX_SIZE, pool);
+    }
+
     /**
      * Creates an OutputStream with the given backing array that cannot grow.
      *
@@ -133,8 +204,89 @@ public class ByteBufferOutputStream extends OutputStream {
      *                change when the backing array is grown
      */
     public ByteBufferOutputStream(ByteBuffer backing, boolean grow) {
+        this(backing, grow, DEFAULT_GROWTH_FACTOR, DEFAULT_MAX_SIZE, null);
+    }
+
+    /**
+     * Creates an OutputStream of the given initial size that grows by the given
+     * factor, up to the given maximum size.
+     *
+     * @param size         the size of the buffer to initially allocate
+     * @param growthFactor the factor by which the capacity is multiplied when
+     *                     the buffer grows; must be greater than one
+     * @param maxSize      the capacity beyond which the buffer will not grow
+     * @throws IllegalArgumentException if the growth factor is not greater
+     *                                  than one, or the maximum size is less
+     *                                  than the initial size
+     */
+    public ByteBufferOutputStream(int size, float growthFactor, int maxSize) {
+        this(ByteBuffer.allocate(checkGrowthPolicy(size, growthFactor, maxSize)), true, growthFactor, maxSize, null);
+    }
+
+    private ByteBufferOutputStream(ByteBuffer backing, boolean grow, float growthFactor, int maxSize,
+                                   ByteBufferPool pool) {
         this.buffer = backing;
         this.grow = grow;
+        this.growthFactor = growthFactor;
+        this.maxSize = maxSize;
+        this.pool = pool;
+        this.initialSize = backing.capacity();
+    }
+
+    /**
+     * Validates a growth policy.
+     *
+     * @return the initial size
+     */
+    private static int checkGrowthPolicy(int size, float growthFactor, int maxSize) {
+        if (!(growthFactor > 1.0f)) {
+            Object[] arguments = {growthFactor};
+            String message = ResourceBundle.formatResourceBundleMessage(
+                    ByteBufferOutputStream.class, "BBOS_GROWTH_FACTOR_ILLEGAL", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        if (maxSize < size) {
+            Object[] arguments = {maxSize, size};
+            String message = ResourceBundle.formatResourceBundleMessage(
+                    ByteBufferOutputStream.class, "BBOS_MAX_SIZE_ILLEGAL", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the factor by which the capacity is multiplied when the buffer
+     * grows.
+     *
+     * @return the growth factor
+     */
+    public float getGrowthFactor() {
+        return growthFactor;
+    }
+
+    /**
+     * Returns the capacity beyond which the buffer will not grow.
+     *
+     * @return the maximum size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Grows the buffer, if necessary and if growth is enabled, so that it can
+     * hold at least the given number of bytes in total without growing again.
+     * Callers about to write a known amount can thereby avoid intermediate
+     * copies. A stream that cannot grow is unaffected; writes beyond its
+     * capacity throw <code>BufferOverflowException</code> as before.
+     *
+     * @param minCapacity the desired minimum capacity
+     * @throws BufferOverflowException if the capacity exceeds the maximum size
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (grow && minCapacity > buffer.capacity()) {
+            resize(minCapacity);
+        }
     }
 
     /**
@@ -146,6 +298,21 @@ public class ByteBufferOutputStream extends OutputStream {
         return buffer;
     }
 
+    /**
+     * Returns a read-only view of the bytes written, positioned at the first
+     * and limited at the last, sharing the backing buffer. If the stream is
+     * direct the view can be handed to a channel, which writes it without an
+     * intermediate copy. The view is valid until the stream next grows, is
+     * reset or is closed.
+     *
+     * @return a view of the content
+     */
+    public ByteBuffer asReadOnlyBuffer() {
+        final ByteBuffer view = buffer.asReadOnlyBuffer().order(buffer.order());
+        view.flip();
+        return view;
+    }
+
     /**
      * Sets the backing buffer.
      *
@@ -197,14 +364,62 @@ public class ByteBufferOutputStream extends OutputStream {
     }
 
     /**
-     * Grows the buffer to accommodate the given size.
+     * Ensures that the given number of bytes can be written to the buffer,
+     * growing it if necessary. Subclasses writing directly to the buffer call
+     * this first, so that a write either completes or writes nothing.
      *
-     * @param len the amount to grow the buffer by
+     * @param len the number of bytes about to be written
+     * @throws BufferOverflowException if the buffer cannot grow to hold them
+     */
+    protected void ensureRemaining(int len) {
+        if (len > buffer.remaining()) {
+            if (!grow) {
+                throw new BufferOverflowException();
+            }
+            grow(len);
+        }
+    }
+
+    /**
+     * Grows the buffer to accommodate the given number of additional bytes.
+     *
+     * @param len the number of bytes about to be written
      */
     private void grow(int len) {
-        ByteBuffer newBuffer = ByteBuffer.allocate(buffer.capacity() + len);
+        final long needed = (long) buffer.position() + len;
+        if (needed > maxSize) {
+            throw new BufferOverflowException();
+        }
+        resize((int) needed);
+    }
+
+    /**
+     * Replaces the buffer with a larger one holding the written bytes; the new
+     * capacity is the larger of the needed capacity and the current capacity
+     * times the growth factor, but no more than the maximum size.
+     *
+     * @param needed the minimum capacity
+     */
+    private void resize(int needed) {
+        if (needed > maxSize) {
+            throw new BufferOverflowException();
+        }
+        final long scaled = (long) (buffer.capacity() * (double) growthFactor);
+        final int capacity = (int) Math.max(needed, Math.min(scaled, maxSize));
+        final ByteBuffer newBuffer;
+        if (pool != null) {
+            newBuffer = pool.acquire(capacity);
+        } else if (buffer.isDirect()) {
+            newBuffer = ByteBuffer.allocateDirect(capacity);
+        } else {
+            newBuffer = ByteBuffer.allocate(capacity);
+        }
+        newBuffer.order(buffer.order());
         buffer.flip();
         newBuffer.put(buffer);
+        if (pool != null) {
+            pool.release(buffer);
+        }
         buffer = newBuffer;
     }
 
@@ -255,6 +470,145 @@ public class ByteBufferOutputStream extends OutputStream {
         buffer.put(b, off, len);
     }
 
+    /**
+     * Writes a character sequence encoded as UTF-8, without an intermediate
+     * byte array. Unpaired surrogates are written as '?', as
+     * <code>String.getBytes</code> writes them.
+     *
+     * @param cs the characters to write
+     * @throws BufferOverflowException if the buffer cannot grow to hold the
+     *                                 encoding, in which case nothing is
+     *                                 written
+     */
+    public void writeUtf8(CharSequence cs) {
+        final int len = cs.length();
+        int utf8Length = len;
+        for (int i = 0; i < len; i++) {
+            final char c = cs.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    utf8Length++;
+                } else if (Character.isHighSurrogate(c) && i + 1 < len
+                        && Character.isLowSurrogate(cs.charAt(i + 1))) {
+                    // four bytes for the pair
+                    utf8Length += 2;
+                    i++;
+                } else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+                    // replaced by '?'
+                } else {
+                    utf8Length += 2;
+                }
+            }
+        }
+        ensureRemaining(utf8Length);
+        final ByteBuffer buffer = this.buffer;
+        if (utf8Length == len) {
+            writeAscii(cs, buffer, len);
+            return;
+        }
+        for (int i = 0; i < len; i++) {
+            final char c = cs.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len
+                    && Character.isLowSurrogate(cs.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, cs.charAt(++i));
+                buffer.put((byte) (0xF0 | (cp >> 18)));
+                buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * Writes a character sequence as US-ASCII, one byte per character.
+     * Characters outside ASCII are written as '?'.
+     *
+     * @param cs the characters to write
+     * @throws BufferOverflowException if the buffer cannot grow to hold the
+     *                                 characters, in which case nothing is
+     *                                 written
+     */
+    public void writeAscii(CharSequence cs) {
+        final int len = cs.length();
+        ensureRemaining(len);
+        writeAscii(cs, buffer, len);
+    }
+
+    /**
+     * Writes characters one byte each into a buffer known to have room,
+     * directly into the backing array if there is one.
+     */
+    private static void writeAscii(CharSequence cs, ByteBuffer buffer, int len) {
+        if (buffer.hasArray()) {
+            final byte[] array = buffer.array();
+            final int offset = buffer.arrayOffset() + buffer.position();
+            for (int i = 0; i < len; i++) {
+                final char c = cs.charAt(i);
+                array[offset + i] = c < 0x80 ? (byte) c : (byte) '?';
+            }
+            buffer.position(buffer.position() + len);
+        } else {
+            for (int i = 0; i < len; i++) {
+                final char c = cs.charAt(i);
+                buffer.put(c < 0x80 ? (byte) c : (byte) '?');
+            }
+        }
+    }
+
+    /**
+     * Writes a character sequence encoded by the given encoder, directly into
+     * the buffer. The encoder is reset before use, and its actions for
+     * malformed and unmappable input apply.
+     *
+     * @param cs      the characters to write
+     * @param encoder the encoder to use
+     * @throws CharacterCodingException if the encoder reports an error, in
+     *                                  which case nothing is written
+     * @throws BufferOverflowException  if the buffer cannot grow to hold the
+     *                                  encoding, in which case nothing is
+     *                                  written
+     */
+    public void writeChars(CharSequence cs, CharsetEncoder encoder) throws CharacterCodingException {
+        final int start = buffer.position();
+        final CharBuffer in = CharBuffer.wrap(cs);
+        encoder.reset();
+        boolean flushing = false;
+        for (; ; ) {
+            final CoderResult result = flushing ? encoder.flush(buffer) : encoder.encode(in, buffer, true);
+            if (result.isUnderflow()) {
+                if (flushing) {
+                    return;
+                }
+                flushing = true;
+            } else if (result.isOverflow()) {
+                if (!grow) {
+                    buffer.position(start);
+                    throw new BufferOverflowException();
+                }
+                try {
+                    grow((int) Math.ceil((in.remaining() + 1) * encoder.maxBytesPerChar()));
+                } catch (BufferOverflowException e) {
+                    buffer.position(start);
+                    throw e;
+                }
+            } else {
+                buffer.position(start);
+                result.throwException();
+            }
+        }
+    }
+
     /**
      * Writes the complete contents hashCode this byte array output stream to
      * the specified output stream argument, as if by calling the output
@@ -264,24 +618,108 @@ public class ByteBufferOutputStream extends OutputStream {
      * @throws IOException if an I/O error occurs.
      */
     public void writeTo(OutputStream out) throws IOException {
-        final int limit = buffer.limit();
-        final int position = buffer.position();
-        final WritableByteChannel channel = Channels.newChannel(out);
-        buffer.flip();
-        channel.write(buffer);
-        buffer.limit(limit);
-        buffer.position(position);
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+            return;
+        }
+        final ByteBuffer view = buffer.duplicate();
+        view.flip();
+        final byte[] scratch = new byte[Math.min(view.remaining(), 8192)];
+        while (view.hasRemaining()) {
+            final int n = Math.min(scratch.length, view.remaining());
+            view.get(scratch, 0, n);
+            out.write(scratch, 0, n);
+        }
+    }
+
+    /**
+     * Writes the complete contents of this stream to a channel, repeating the
+     * write until the channel has accepted all of it. A direct stream is
+     * written without any intermediate copy. The contents are left in place.
+     * <p/>
+     * A non-blocking channel that is not ready is written to repeatedly until
+     * it accepts the data; such channels are better served by writing {@link
+     * #asReadOnlyBuffer()} as they become ready.
+     *
+     * @param channel the channel to write to
+     * @return the number of bytes written
+     * @throws IOException if an I/O error occurs
+     */
+    public int writeTo(WritableByteChannel channel) throws IOException {
+        final ByteBuffer view = buffer.duplicate();
+        view.flip();
+        final int size = view.remaining();
+        while (view.hasRemaining()) {
+            channel.write(view);
+        }
+        return size;
+    }
+
+    /**
+     * Writes the complete contents of several streams to a channel with
+     * gathering writes, in order, repeating until the channel has accepted all
+     * of it. A header and a body held in separate streams, for example, are
+     * thereby sent without being consolidated. The contents are left in place.
+     *
+     * @param channel the channel to write to
+     * @param streams the streams whose contents to write
+     * @return the number of bytes written
+     * @throws IOException if an I/O error occurs
+     */
+    public static long writeTo(GatheringByteChannel channel, ByteBufferOutputStream... streams) throws IOException {
+        final ByteBuffer[] views = new ByteBuffer[streams.length];
+        long size = 0;
+        for (int i = 0; i < streams.length; i++) {
+            views[i] = streams[i].buffer.duplicate();
+            views[i].flip();
+            size += views[i].remaining();
+        }
+        long written = 0;
+        int first = 0;
+        while (written < size) {
+            written += channel.write(views, first, views.length - first);
+            while (first < views.length && !views[first].hasRemaining()) {
+                first++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Writes the complete contents of this stream to a file at the given
+     * position, without changing the file's position. A direct stream is
+     * written without any intermediate copy. The contents are left in place.
+     *
+     * @param channel  the file to write to
+     * @param position the file position at which to write
+     * @return the number of bytes written
+     * @throws IOException if an I/O error occurs
+     */
+    public int transferTo(FileChannel channel, long position) throws IOException {
+        final ByteBuffer view = buffer.duplicate();
+        view.flip();
+        final int size = view.remaining();
+        while (view.hasRemaining()) {
+            channel.write(view, position + view.position());
+        }
+        return size;
     }
 
     /**
      * Resets the <code>count</code> field hashCode this byte buffer output
      * stream to zero, so that all currently accumulated output in the output
      * stream is discarded. The output stream can be used again, reusing the
-     * already allocated buffer space.
+     * already allocated buffer space; a pooled stream that has grown returns
+     * its buffer to the pool in exchange for one of the initial size.
      *
      * @see java.nio.ByteBuffer#position
      */
     public void reset() {
+        if (pool != null && buffer.capacity() > initialSize) {
+            final ByteOrder order = buffer.order();
+            pool.release(buffer);
+            buffer = pool.acquire(initialSize).order(order);
+        }
         buffer.clear();
     }
 
@@ -322,29 +760,25 @@ public class ByteBufferOutputStream extends OutputStream {
      * @return String translated from the buffer's contents.
      */
     public String toString() {
-        String csn = Charset.defaultCharset().name();
-        try {
-            return toString(csn);
-        } catch (UnsupportedEncodingException e) {
-            if (logger.isDebugEnabled()) {
-                Object[] arguments = {csn};
-                String message = ResourceBundle.formatResourceBundleMessage(
-                        ByteBufferOutputStream.class, "BBOS_UNSUPPORTED_CSN", arguments);
-                logger.debug(message);
-            }
-        }
-        try {
-            csn = "ISO-8859-1";
-            return toString(csn);
-        } catch (UnsupportedEncodingException e) {
-            Object[] arguments = {e.toString()};
-            String message = ResourceBundle.formatResourceBundleMessage(
-                    ByteBufferOutputStream.class, "BBOS_ISO88591_UNAVAILABLE", arguments);
-            logger.error(message);
-            // If we can not find ISO-8859-1 (a required encoding) then things
-            // are seriously wrong with the JDK installation.
-            throw new InternalError(message);
+        return toString(Charset.defaultCharset());
+    }
+
+    /**
+     * Converts the buffer's contents into a string, translating bytes into
+     * characters according to the given charset. Heap buffers are decoded in
+     * place; direct buffers are decoded from a view, without first copying the
+     * content into an array.
+     *
+     * @param charset the charset to decode with
+     * @return String translated from the buffer's contents.
+     */
+    public String toString(Charset charset) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset(), buffer.position(), charset);
         }
+        final ByteBuffer view = buffer.duplicate();
+        view.flip();
+        return charset.decode(view).toString();
     }
 
     /**
@@ -365,10 +799,16 @@ public class ByteBufferOutputStream extends OutputStream {
     }
 
     /**
-     * Closing a <tt>ByteBufferOutputStream</tt> has no effect. The methods in
-     * this class can be called after the stream has been closed without
-     * generating an <tt>IOException</tt>.
+     * Closing a <tt>ByteBufferOutputStream</tt> has no effect, unless its
+     * buffers are pooled, in which case the buffer returns to the pool and the
+     * content is discarded. The methods in this class can be called after the
+     * stream has been closed without generating an <tt>IOException</tt>.
      */
     public void close() throws IOException {
+        if (pool != null && buffer.capacity() > 0) {
+            final ByteOrder order = buffer.order();
+            pool.release(buffer);
+            buffer = ByteBuffer.allocate(0).order(order);
+        }
     }
 }
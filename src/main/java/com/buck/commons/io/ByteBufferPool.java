@@ -0,0 +1,49 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A source of byte buffers that may recycle buffers returned to it.
+ * Allocating, and in particular zeroing, large or direct buffers is costly;
+ * a pool amortizes that cost across the streams that borrow from it.
+ * <p/>
+ * Implementations must be thread safe. A buffer must not be used after it
+ * has been released.
+ *
+ * @author Robert J. Buck
+ */
+public interface ByteBufferPool {
+
+    /**
+     * Returns a cleared buffer of at least the given capacity. Its content is
+     * unspecified.
+     *
+     * @param capacity the minimum capacity
+     * @return the buffer
+     */
+    ByteBuffer acquire(int capacity);
+
+    /**
+     * Returns a buffer to the pool. The pool may recycle the buffer or discard
+     * it.
+     *
+     * @param buffer the buffer, previously acquired from this pool
+     */
+    void release(ByteBuffer buffer);
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock free byte ring buffer over a direct buffer, passing bytes from a
+ * single producer thread to a single consumer thread.
+ * <p/>
+ * The producer appends with the <code>write</code> methods; the bytes become
+ * visible to the consumer only when {@link #publish()} is called, so that a
+ * batch of writes costs a single ordered store. The consumer drains with the
+ * <code>read</code> methods or directly to a channel with {@link
+ * #writeTo(WritableByteChannel)}, releasing the space it read once per call.
+ * Each side caches the other's sequence and rereads it only when the cached
+ * value no longer satisfies a request, and the sequences are padded onto
+ * separate cache lines.
+ * <p/>
+ * The methods never block; {@link ByteRingBufferOutputStream} and {@link
+ * ByteRingBufferInputStream} adapt the buffer to blocking streams.
+ *
+ * @author Robert J. Buck
+ * @see MpscByteRingBuffer
+ */
+public class ByteRingBuffer {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long PARK_NANOS = 1000L;
+
+    /**
+     * The consumer sequence; its cache holds the last tail the consumer
+     * observed.
+     */
+    final Sequence head = new Sequence();
+    /**
+     * The published producer sequence; its cache holds the last head the
+     * producer observed, and its pending value the end of the unpublished
+     * writes.
+     */
+    final Sequence tail = new Sequence();
+    final ByteBuffer buffer;
+    private final int mask;
+    private final ByteBuffer readView;
+    private final ByteBuffer writeView;
+    private volatile boolean closed;
+
+    /**
+     * Creates a ring buffer.
+     *
+     * @param capacity the capacity in bytes, a power of two
+     * @throws IllegalArgumentException if the capacity is not a positive
+     *                                  power of two
+     */
+    public ByteRingBuffer(int capacity) {
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+            Object[] arguments = {capacity};
+            String message = ResourceBundle.formatResourceBundleMessage(ByteRingBuffer.class,
+                    "RING_ILLEGAL_CAPACITY", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+        this.mask = capacity - 1;
+        this.readView = buffer.duplicate();
+        this.writeView = buffer.duplicate();
+    }
+
+    /**
+     * Returns the capacity in bytes.
+     *
+     * @return the capacity
+     */
+    public final int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the number of published bytes available to the consumer.
+     *
+     * @return the number of readable bytes
+     */
+    public final int available() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * Writes as many bytes as fit without publishing them. Called by the
+     * producer only.
+     *
+     * @param b   the bytes
+     * @param off the start offset in the bytes
+     * @param len the number of bytes to write
+     * @return the number of bytes written, which may be fewer than requested
+     */
+    public int write(byte[] b, int off, int len) {
+        if ((off < 0) || (off > b.length) || (len < 0) || ((off + len) > b.length) || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException();
+        }
+        final int n = Math.min(len, free(len));
+        if (n > 0) {
+            put(writeView, tail.pending, b, off, n);
+            tail.pending += n;
+        }
+        return n;
+    }
+
+    /**
+     * Writes as many of the remaining bytes of a buffer as fit without
+     * publishing them. Called by the producer only.
+     *
+     * @param src the buffer to copy from
+     * @return the number of bytes written, which may be fewer than remain
+     */
+    public int write(ByteBuffer src) {
+        final int n = Math.min(src.remaining(), free(src.remaining()));
+        if (n > 0) {
+            put(writeView, tail.pending, src, n);
+            tail.pending += n;
+        }
+        return n;
+    }
+
+    /**
+     * Publishes the bytes written since the last call to the consumer.
+     * Called by the producer only.
+     */
+    public void publish() {
+        if (tail.pending != tail.get()) {
+            tail.lazySet(tail.pending);
+        }
+    }
+
+    /**
+     * Publishes any unpublished bytes and marks the end of the stream; the
+     * consumer may read the remaining bytes. Called by the producer.
+     */
+    public void close() {
+        publish();
+        closed = true;
+    }
+
+    /**
+     * Returns whether the producer has closed the buffer.
+     *
+     * @return true if closed
+     */
+    public final boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Reads as many published bytes as are available, up to the requested
+     * length. Called by the consumer only.
+     *
+     * @param b   the destination
+     * @param off the start offset in the destination
+     * @param len the maximum number of bytes to read
+     * @return the number of bytes read, possibly zero
+     */
+    public final int read(byte[] b, int off, int len) {
+        if ((off < 0) || (off > b.length) || (len < 0) || ((off + len) > b.length) || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException();
+        }
+        final int n = Math.min(len, readable(len));
+        if (n > 0) {
+            final long start = head.get();
+            final int index = (int) start & mask;
+            final int first = Math.min(n, capacity() - index);
+            readView.limit(index + first).position(index);
+            readView.get(b, off, first);
+            if (n > first) {
+                readView.limit(n - first).position(0);
+                readView.get(b, off + first, n - first);
+            }
+            head.lazySet(start + n);
+        }
+        return n;
+    }
+
+    /**
+     * Reads as many published bytes as are available and fit in a buffer.
+     * Called by the consumer only.
+     *
+     * @param dst the buffer to copy into
+     * @return the number of bytes read, possibly zero
+     */
+    public final int read(ByteBuffer dst) {
+        final int n = Math.min(dst.remaining(), readable(dst.remaining()));
+        if (n > 0) {
+            final long start = head.get();
+            final int index = (int) start & mask;
+            final int first = Math.min(n, capacity() - index);
+            readView.limit(index + first).position(index);
+            dst.put(readView);
+            if (n > first) {
+                readView.limit(n - first).position(0);
+                dst.put(readView);
+            }
+            head.lazySet(start + n);
+        }
+        return n;
+    }
+
+    /**
+     * Writes the published bytes directly from the ring to a channel,
+     * without an intermediate copy, until they are drained or the channel
+     * accepts no more. Called by the consumer only.
+     *
+     * @param channel the channel to write to
+     * @return the number of bytes written, possibly zero
+     * @throws IOException if an I/O error occurs
+     */
+    public final int writeTo(WritableByteChannel channel) throws IOException {
+        final long start = head.get();
+        final int n = readable(Integer.MAX_VALUE);
+        int written = 0;
+        try {
+            while (written < n) {
+                final int index = (int) (start + written) & mask;
+                final int length = Math.min(n - written, capacity() - index);
+                readView.limit(index + length).position(index);
+                final int count = channel.write(readView);
+                written += count;
+                if (count < length) {
+                    break;
+                }
+            }
+        } finally {
+            if (written > 0) {
+                head.lazySet(start + written);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Returns the free space seen by the producer, rereading the consumer
+     * sequence only if the cached value leaves less than wanted.
+     */
+    private int free(int wanted) {
+        long free = capacity() - (tail.pending - tail.cache);
+        if (free < wanted) {
+            tail.cache = head.get();
+            free = capacity() - (tail.pending - tail.cache);
+        }
+        return (int) free;
+    }
+
+    /**
+     * Returns the bytes readable by the consumer, rereading the producer
+     * sequence only if the cached value leaves less than wanted.
+     */
+    private int readable(int wanted) {
+        long readable = head.cache - head.get();
+        if (readable < wanted) {
+            head.cache = tail.get();
+            readable = head.cache - head.get();
+        }
+        return (int) readable;
+    }
+
+    /**
+     * Copies bytes into the ring at a sequence, wrapping at the end.
+     */
+    final void put(ByteBuffer view, long sequence, byte[] b, int off, int len) {
+        final int index = (int) sequence & mask;
+        final int first = Math.min(len, capacity() - index);
+        view.position(index);
+        view.put(b, off, first);
+        if (len > first) {
+            view.position(0);
+            view.put(b, off + first, len - first);
+        }
+    }
+
+    /**
+     * Copies the next bytes of a buffer into the ring at a sequence,
+     * wrapping at the end.
+     */
+    final void put(ByteBuffer view, long sequence, ByteBuffer src, int len) {
+        final int index = (int) sequence & mask;
+        final int first = Math.min(len, capacity() - index);
+        final int limit = src.limit();
+        view.position(index);
+        src.limit(src.position() + first);
+        view.put(src);
+        if (len > first) {
+            view.position(0);
+            src.limit(src.position() + len - first);
+            view.put(src);
+        }
+        src.limit(limit);
+    }
+
+    /**
+     * Waits progressively longer, spinning, then yielding, then parking.
+     *
+     * @param count the number of times the caller has waited so far
+     * @return the incremented count
+     */
+    static int idle(int count) {
+        if (count < SPIN_TRIES) {
+            // spin
+        } else if (count < YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return count + 1;
+    }
+
+    /**
+     * A sequence padded to a cache line of its own, which also carries the
+     * owning side's private cached state. Subclass fields are laid out after
+     * the inherited value, so the padding separates it from whatever object
+     * follows.
+     */
+    @SuppressWarnings("serial")
+    static final class Sequence extends AtomicLong {
+        long cache;
+        long pending;
+        long p1, p2, p3, p4, p5, p6;
+    }
+}
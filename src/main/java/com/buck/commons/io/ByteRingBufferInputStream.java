@@ -0,0 +1,126 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream reading from a ring buffer as its consumer, waiting for
+ * the producer while the ring is empty. The stream ends when the producer
+ * has closed the ring and its bytes are drained.
+ * <p/>
+ * Like {@link UnsynchronizedByteBufferInputStream}, the stream is not
+ * synchronized; it must be read by the ring's single consumer thread.
+ *
+ * @author Robert J. Buck
+ */
+public class ByteRingBufferInputStream extends InputStream {
+
+    private final ByteRingBuffer ring;
+    private final byte[] single = new byte[1];
+
+    /**
+     * Creates a stream reading from a ring buffer.
+     *
+     * @param ring the ring buffer
+     */
+    public ByteRingBufferInputStream(ByteRingBuffer ring) {
+        this.ring = ring;
+    }
+
+    /**
+     * Returns the ring buffer read from.
+     *
+     * @return the ring buffer
+     */
+    public ByteRingBuffer getRingBuffer() {
+        return ring;
+    }
+
+    public int read() throws IOException {
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            if ((off < 0) || (off > b.length)) {
+                throw new IndexOutOfBoundsException();
+            }
+            return 0;
+        }
+        int count = 0;
+        while (true) {
+            final int n = ring.read(b, off, len);
+            if (n > 0) {
+                return n;
+            }
+            // the producer publishes before it closes, so read once more
+            if (ring.isClosed()) {
+                final int last = ring.read(b, off, len);
+                return last > 0 ? last : -1;
+            }
+            count = ByteRingBuffer.idle(count);
+        }
+    }
+
+    /**
+     * Reads into a buffer, waiting until at least one byte is available.
+     *
+     * @param dst the buffer to copy into
+     * @return the number of bytes read, or -1 at the end of the stream
+     * @throws IOException never
+     */
+    public int read(ByteBuffer dst) throws IOException {
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        int count = 0;
+        while (true) {
+            final int n = ring.read(dst);
+            if (n > 0) {
+                return n;
+            }
+            if (ring.isClosed()) {
+                final int last = ring.read(dst);
+                return last > 0 ? last : -1;
+            }
+            count = ByteRingBuffer.idle(count);
+        }
+    }
+
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        final byte[] scratch = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            final int count = ring.read(scratch, 0, (int) Math.min(n - skipped, scratch.length));
+            if (count == 0) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    public int available() throws IOException {
+        return ring.available();
+    }
+}
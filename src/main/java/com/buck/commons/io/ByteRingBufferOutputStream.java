@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An output stream writing into a ring buffer as its producer, waiting for
+ * the consumer while the ring is full.
+ * <p/>
+ * Written bytes are published on {@link #flush()}, on {@link #close()} and
+ * whenever the stream must wait for space, so a producer should flush after
+ * each batch of records. Closing the stream closes the ring, ending the
+ * consumer's stream once it drains. Over an {@link MpscByteRingBuffer} each
+ * write is published as a whole record.
+ *
+ * @author Robert J. Buck
+ */
+public class ByteRingBufferOutputStream extends OutputStream {
+
+    private final ByteRingBuffer ring;
+    private final byte[] single = new byte[1];
+
+    /**
+     * Creates a stream writing into a ring buffer.
+     *
+     * @param ring the ring buffer
+     */
+    public ByteRingBufferOutputStream(ByteRingBuffer ring) {
+        this.ring = ring;
+    }
+
+    /**
+     * Returns the ring buffer written into.
+     *
+     * @return the ring buffer
+     */
+    public ByteRingBuffer getRingBuffer() {
+        return ring;
+    }
+
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        int count = 0;
+        while (len > 0) {
+            final int n = ring.write(b, off, len);
+            if (n == 0) {
+                ring.publish();
+                count = ByteRingBuffer.idle(count);
+                ensureOpen();
+            } else {
+                off += n;
+                len -= n;
+                count = 0;
+            }
+        }
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer, waiting while the ring is full.
+     *
+     * @param src the buffer to copy from
+     * @throws IOException if the ring is closed
+     */
+    public void write(ByteBuffer src) throws IOException {
+        ensureOpen();
+        int count = 0;
+        while (src.hasRemaining()) {
+            if (ring.write(src) == 0) {
+                ring.publish();
+                count = ByteRingBuffer.idle(count);
+                ensureOpen();
+            } else {
+                count = 0;
+            }
+        }
+    }
+
+    public void flush() throws IOException {
+        ring.publish();
+    }
+
+    public void close() throws IOException {
+        ring.close();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (ring.isClosed()) {
+            Object[] arguments = {};
+            String message = ResourceBundle.formatResourceBundleMessage(ByteRingBufferOutputStream.class,
+                    "RING_CLOSED", arguments);
+            throw new IOException(message);
+        }
+    }
+}
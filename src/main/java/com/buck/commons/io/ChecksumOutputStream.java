@@ -0,0 +1,129 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import com.buck.commons.algorithms.Checksums;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * An output stream that maintains a checksum of the data written through it,
+ * updated incrementally as each write passes to the underlying stream. This
+ * removes the need for a second pass, and a copy, over a completed frame.
+ * <p/>
+ * Unlike <code>java.util.zip.CheckedOutputStream</code>, buffers can be
+ * written directly; when the underlying stream is a {@link
+ * ByteBufferOutputStream} they are neither copied into an intermediate array
+ * nor written a byte at a time.
+ *
+ * @author Robert J. Buck
+ */
+public class ChecksumOutputStream extends FilterOutputStream {
+
+    private final Checksum checksum;
+
+    /**
+     * Scratch space for copying direct buffers to a plain output stream,
+     * allocated on first use.
+     */
+    private byte[] scratch;
+
+    /**
+     * Creates a checksumming stream.
+     *
+     * @param out      the underlying stream
+     * @param checksum the checksum to update, for example a {@link
+     *                 com.buck.commons.algorithms.CRC32C}
+     */
+    public ChecksumOutputStream(OutputStream out, Checksum checksum) {
+        super(out);
+        this.checksum = checksum;
+    }
+
+    /**
+     * Returns the checksum of the data written so far.
+     *
+     * @return the checksum
+     */
+    public Checksum getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Writes a byte.
+     *
+     * @param b the byte
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        checksum.update(b);
+    }
+
+    /**
+     * Writes <code>len</code> bytes from the specified byte array starting at
+     * offset <code>off</code>.
+     *
+     * @param b   the data
+     * @param off the start offset in the data
+     * @param len the number of bytes to write
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        checksum.update(b, off, len);
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer, advancing its position to its
+     * limit.
+     *
+     * @param src the buffer to write
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(ByteBuffer src) throws IOException {
+        final int position = src.position();
+        final int length = src.remaining();
+        if (out instanceof ByteBufferOutputStream) {
+            ((ByteBufferOutputStream) out).write(src);
+        } else if (src.hasArray()) {
+            out.write(src.array(), src.arrayOffset() + position, length);
+        } else {
+            // each chunk is copied once, then both written and checksummed
+            if (scratch == null) {
+                scratch = new byte[4096];
+            }
+            final ByteBuffer source = src.duplicate();
+            while (source.hasRemaining()) {
+                final int n = Math.min(scratch.length, source.remaining());
+                source.get(scratch, 0, n);
+                out.write(scratch, 0, n);
+                checksum.update(scratch, 0, n);
+            }
+            src.position(position + length);
+            return;
+        }
+        Checksums.update(checksum, src, position, length);
+        src.position(position + length);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of equally sized buffers, such as the segments of a {@link
+ * SegmentedByteBufferOutputStream}. At most a fixed number of released
+ * buffers are retained; requests for more than the buffer size are served by
+ * fresh, unpooled buffers.
+ *
+ * @author Robert J. Buck
+ */
+public class FixedSizeByteBufferPool implements ByteBufferPool {
+
+    private final int bufferSize;
+    private final boolean direct;
+    private final int maxRetained;
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<ByteBuffer>();
+
+    /**
+     * Creates a pool.
+     *
+     * @param bufferSize  the capacity of each pooled buffer
+     * @param direct      whether to allocate direct buffers
+     * @param maxRetained the maximum number of released buffers retained
+     * @throws IllegalArgumentException if the buffer size is not positive or
+     *                                  the retained count is negative
+     */
+    public FixedSizeByteBufferPool(int bufferSize, boolean direct, int maxRetained) {
+        if (bufferSize <= 0 || maxRetained < 0) {
+            Object[] arguments = {bufferSize, maxRetained};
+            String message = ResourceBundle.formatResourceBundleMessage(FixedSizeByteBufferPool.class,
+                    "POOL_ILLEGAL_SIZING", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        this.bufferSize = bufferSize;
+        this.direct = direct;
+        this.maxRetained = maxRetained;
+    }
+
+    /**
+     * Returns the capacity of each pooled buffer.
+     *
+     * @return the buffer size
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Returns whether the pool allocates direct buffers.
+     *
+     * @return true if buffers are direct
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Returns the number of released buffers currently retained.
+     *
+     * @return the number of idle buffers
+     */
+    public synchronized int getRetainedCount() {
+        return free.size();
+    }
+
+    public ByteBuffer acquire(int capacity) {
+        if (capacity <= bufferSize) {
+            final ByteBuffer buffer;
+            synchronized (this) {
+                buffer = free.pollFirst();
+            }
+            if (buffer != null) {
+                buffer.clear();
+                return buffer.order(ByteOrder.BIG_ENDIAN);
+            }
+            capacity = bufferSize;
+        }
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() == bufferSize && buffer.isDirect() == direct) {
+            synchronized (this) {
+                if (free.size() < maxRetained) {
+                    free.addFirst(buffer);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends to a file through memory mapped segments, as {@link
+ * ByteBufferOutputStream} writes into a buffer. A write is a copy into the
+ * page cache, with no system call; when a segment fills, the next is mapped,
+ * extending the file by a whole segment at a time. On close the file is
+ * truncated to the bytes actually written.
+ * <p/>
+ * Written bytes become durable when the mapped pages are forced to the
+ * storage device. {@link #sync(long)} implements group commit for a write
+ * ahead log: a thread that has appended a record waits until the log is
+ * durable up to the record's end, and a single force serves every thread
+ * whose records it covers, so that the cost of forcing is shared across
+ * concurrent committers.
+ * <p/>
+ * Writes are synchronized. After a crash the file may end in a zero filled
+ * tail up to the end of the last segment; records must therefore be self
+ * delimiting.
+ *
+ * @author Robert J. Buck
+ */
+public class MappedByteBufferOutputStream extends OutputStream {
+
+    /**
+     * The default segment size, 64 MB.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final Object forceLock = new Object();
+    /**
+     * Filled segments not yet forced; the current segment is forced by every
+     * sync.
+     */
+    private final List<MappedByteBuffer> unforced = new ArrayList<MappedByteBuffer>();
+    private MappedByteBuffer segment;
+    private long position;
+    private volatile long durable;
+    private boolean closed;
+
+    /**
+     * Creates a stream appending to a file with the default segment size.
+     *
+     * @param file the file to append to; it is created if absent
+     * @throws IOException if the file cannot be opened
+     */
+    public MappedByteBufferOutputStream(File file) throws IOException {
+        this(file, DEFAULT_SEGMENT_SIZE, true);
+    }
+
+    /**
+     * Creates a stream writing to a file.
+     *
+     * @param file        the file to write to; it is created if absent
+     * @param segmentSize the number of bytes mapped at a time
+     * @param append      whether to append to the existing content, rather
+     *                    than truncating it
+     * @throws IOException              if the file cannot be opened
+     * @throws IllegalArgumentException if the segment size is not positive
+     */
+    public MappedByteBufferOutputStream(File file, int segmentSize, boolean append) throws IOException {
+        if (segmentSize <= 0) {
+            Object[] arguments = {segmentSize};
+            String message = ResourceBundle.formatResourceBundleMessage(MappedByteBufferOutputStream.class,
+                    "MAPPED_ILLEGAL_SEGMENT_SIZE", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        this.file = new RandomAccessFile(file, "rw");
+        this.channel = this.file.getChannel();
+        this.segmentSize = segmentSize;
+        if (!append) {
+            channel.truncate(0);
+        }
+        this.position = channel.size();
+        this.durable = position;
+    }
+
+    /**
+     * Returns the number of bytes in the file, including those written by
+     * this stream; this is the position at which the next byte is appended.
+     *
+     * @return the file position
+     */
+    public synchronized long position() {
+        return position;
+    }
+
+    /**
+     * Returns the position up to which the file is known to be durable.
+     *
+     * @return the durable file position
+     */
+    public long durablePosition() {
+        return durable;
+    }
+
+    public synchronized void write(int b) throws IOException {
+        ensureSegment();
+        segment.put((byte) b);
+        position++;
+    }
+
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if ((off < 0) || (off > b.length) || (len < 0) || ((off + len) > b.length) || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            ensureSegment();
+            final int n = Math.min(len, segment.remaining());
+            segment.put(b, off, n);
+            off += n;
+            len -= n;
+            position += n;
+        }
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer.
+     *
+     * @param src the buffer to copy from
+     * @throws IOException if the stream is closed or a segment cannot be
+     *                     mapped
+     */
+    public synchronized void write(ByteBuffer src) throws IOException {
+        final int end = src.limit();
+        while (src.hasRemaining()) {
+            ensureSegment();
+            final int n = Math.min(src.remaining(), segment.remaining());
+            src.limit(src.position() + n);
+            segment.put(src);
+            src.limit(end);
+            position += n;
+        }
+    }
+
+    /**
+     * Waits until the file is durable up to the given position, forcing it
+     * if no other thread already has. Concurrent callers are served by a
+     * single force where its coverage permits.
+     *
+     * @param position the position up to which the file must be durable,
+     *                 typically the {@link #position()} after a record was
+     *                 written
+     * @throws IOException if an I/O error occurs
+     */
+    public void sync(long position) throws IOException {
+        if (durable >= position) {
+            return;
+        }
+        synchronized (forceLock) {
+            if (durable >= position) {
+                return;
+            }
+            final long target;
+            final MappedByteBuffer[] pending;
+            synchronized (this) {
+                target = this.position;
+                if (segment != null) {
+                    unforced.add(segment);
+                }
+                pending = unforced.toArray(new MappedByteBuffer[unforced.size()]);
+                unforced.clear();
+            }
+            for (MappedByteBuffer buffer : pending) {
+                buffer.force();
+            }
+            durable = target;
+        }
+    }
+
+    /**
+     * Forces everything written so far to the storage device.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void force() throws IOException {
+        sync(position());
+    }
+
+    /**
+     * Forces everything written, truncates the file to the bytes written and
+     * closes it.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+        }
+        force();
+        synchronized (this) {
+            closed = true;
+            segment = null;
+            unforced.clear();
+            channel.truncate(position);
+            file.close();
+        }
+    }
+
+    /**
+     * Maps the next segment if the current one is full.
+     */
+    private void ensureSegment() throws IOException {
+        if (segment != null && segment.hasRemaining()) {
+            return;
+        }
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        if (segment != null && durable < position) {
+            unforced.add(segment);
+        }
+        // segments are aligned to multiples of their size
+        final long start = position - position % segmentSize;
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, start, segmentSize);
+        segment.position((int) (position - start));
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads a file through memory mapped windows, in the manner of a {@link
+ * ByteBufferInputStream} over each window in turn. Reads are served from the
+ * page cache without the copy into a user buffer that a
+ * <code>FileInputStream</code> makes, and files of any size are supported: a
+ * window, {@link #DEFAULT_WINDOW_SIZE} bytes by default and aligned to a
+ * multiple of its size, is mapped at a time and slides forward as it is
+ * consumed.
+ * <p/>
+ * The stream can be read as an <code>InputStream</code>, as a {@link
+ * DataInput}, or as a {@link ReadableByteChannel}. Multi-byte primitives are
+ * read in the stream's byte order, big endian by default, including those
+ * straddling two windows. When prefetching is enabled each window is loaded
+ * into memory as it is mapped, which is the nearest the platform comes to
+ * advising the kernel of sequential access.
+ * <p/>
+ * Streams are not thread safe.
+ *
+ * @author Robert J. Buck
+ */
+public class MappedFileInputStream extends InputStream implements DataInput, ReadableByteChannel {
+
+    /**
+     * The default window size, 64 MB.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private final boolean prefetch;
+    private ByteOrder order = ByteOrder.BIG_ENDIAN;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long mark;
+
+    /**
+     * Opens a file with the default window size and no prefetching.
+     *
+     * @param file the file to read
+     * @throws IOException if the file cannot be opened
+     */
+    public MappedFileInputStream(File file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE, false);
+    }
+
+    /**
+     * Opens a file.
+     *
+     * @param file       the file to read
+     * @param windowSize the number of bytes mapped at a time
+     * @param prefetch   whether to load each window into memory as it is
+     *                   mapped
+     * @throws IOException              if the file cannot be opened
+     * @throws IllegalArgumentException if the window size is not positive
+     */
+    public MappedFileInputStream(File file, int windowSize, boolean prefetch) throws IOException {
+        if (windowSize <= 0) {
+            Object[] arguments = {windowSize};
+            String message = ResourceBundle.formatResourceBundleMessage(MappedFileInputStream.class,
+                    "MAPPED_ILLEGAL_WINDOW_SIZE", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Returns the byte order in which primitives are read.
+     *
+     * @return the byte order
+     */
+    public ByteOrder order() {
+        return order;
+    }
+
+    /**
+     * Sets the byte order in which primitives are read.
+     *
+     * @param order the byte order
+     * @return this stream
+     */
+    public MappedFileInputStream order(ByteOrder order) {
+        this.order = order;
+        if (window != null) {
+            window.order(order);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the size of the file.
+     *
+     * @return the file size in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the position of the next byte to be read.
+     *
+     * @return the file position
+     */
+    public long position() {
+        return window == null ? windowStart : windowStart + window.position();
+    }
+
+    /**
+     * Moves to a position in the file. Positions beyond the end of the file
+     * are clamped to the end.
+     *
+     * @param position the file position
+     * @return this stream
+     */
+    public MappedFileInputStream position(long position) {
+        position = Math.max(0, Math.min(position, size));
+        if (window != null && position >= windowStart && position <= windowStart + window.limit()) {
+            window.position((int) (position - windowStart));
+        } else {
+            window = null;
+            windowStart = position;
+        }
+        return this;
+    }
+
+    /**
+     * Tests if this stream supports mark/reset; it always does.
+     *
+     * @return true
+     */
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * Marks the current position. The mark remains valid however many bytes
+     * are read.
+     *
+     * @param readLimit ignored
+     */
+    public void mark(int readLimit) {
+        mark = position();
+    }
+
+    /**
+     * Resets the stream to the marked position, or to the beginning if no mark
+     * has been set.
+     */
+    public void reset() {
+        position(mark);
+    }
+
+    public int read() throws IOException {
+        if (!ensureWindow()) {
+            return -1;
+        }
+        return window.get() & 0xFF;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        if ((off < 0) || (off > b.length) || (len < 0) || ((off + len) > b.length) || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (read < len && ensureWindow()) {
+            final int n = Math.min(len - read, window.remaining());
+            window.get(b, off + read, n);
+            read += n;
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    /**
+     * Reads bytes into a buffer, from at most one window.
+     *
+     * @param dst the buffer to read into
+     * @return the number of bytes read, or -1 at the end of the file
+     * @throws IOException if the stream is closed or an I/O error occurs
+     */
+    public int read(ByteBuffer dst) throws IOException {
+        if (!ensureWindow()) {
+            return dst.hasRemaining() ? -1 : 0;
+        }
+        final int n = Math.min(dst.remaining(), window.remaining());
+        final int limit = window.limit();
+        window.limit(window.position() + n);
+        dst.put(window);
+        window.limit(limit);
+        return n;
+    }
+
+    /**
+     * Skips up to <code>n</code> bytes; fewer are skipped only at the end of
+     * the file.
+     *
+     * @param n the number of bytes to skip
+     * @return the number of bytes skipped
+     */
+    public long skip(long n) {
+        if (n <= 0) {
+            return 0;
+        }
+        final long position = position();
+        position(position + n);
+        return position() - position;
+    }
+
+    /**
+     * Returns the number of bytes remaining in the file, or
+     * <code>Integer.MAX_VALUE</code> if more remain.
+     *
+     * @return the number of bytes that can be read without blocking
+     */
+    public int available() {
+        return (int) Math.min(size - position(), Integer.MAX_VALUE);
+    }
+
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Closes the file. Windows already mapped are released when they are
+     * garbage collected.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void close() throws IOException {
+        window = null;
+        file.close();
+    }
+
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        if (len > size - position()) {
+            throw new EOFException();
+        }
+        read(b, off, len);
+    }
+
+    public int skipBytes(int n) {
+        return (int) skip(n);
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public byte readByte() throws IOException {
+        final int b = read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return (byte) b;
+    }
+
+    public int readUnsignedByte() throws IOException {
+        return readByte() & 0xFF;
+    }
+
+    public short readShort() throws IOException {
+        if (ensureWindow() && window.remaining() >= 2) {
+            return window.getShort();
+        }
+        return (short) readStraddling(2);
+    }
+
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xFFFF;
+    }
+
+    public char readChar() throws IOException {
+        return (char) readShort();
+    }
+
+    public int readInt() throws IOException {
+        if (ensureWindow() && window.remaining() >= 4) {
+            return window.getInt();
+        }
+        return (int) readStraddling(4);
+    }
+
+    public long readLong() throws IOException {
+        if (ensureWindow() && window.remaining() >= 8) {
+            return window.getLong();
+        }
+        return readStraddling(8);
+    }
+
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * Reads a line of text terminated by a line feed, a carriage return, or a
+     * carriage return followed by a line feed. Each byte is converted to a
+     * character without any decoding.
+     *
+     * @return the line, without its terminator, or null at the end of the
+     *         file
+     * @throws IOException if an I/O error occurs
+     */
+    public String readLine() throws IOException {
+        int c = read();
+        if (c < 0) {
+            return null;
+        }
+        final StringBuilder line = new StringBuilder();
+        while (c >= 0 && c != '\n') {
+            if (c == '\r') {
+                final long position = position();
+                if (read() != '\n') {
+                    position(position);
+                }
+                break;
+            }
+            line.append((char) c);
+            c = read();
+        }
+        return line.toString();
+    }
+
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+
+    /**
+     * Assembles a primitive whose bytes straddle two windows.
+     */
+    private long readStraddling(int n) throws IOException {
+        if (size - position() < n) {
+            throw new EOFException();
+        }
+        long value = 0;
+        if (order == ByteOrder.BIG_ENDIAN) {
+            for (int i = 0; i < n; i++) {
+                value = (value << 8) | read();
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                value |= (long) read() << (8 * i);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Maps the window holding the current position, if the current window has
+     * been consumed.
+     *
+     * @return false at the end of the file
+     */
+    private boolean ensureWindow() throws IOException {
+        if (window != null && window.hasRemaining()) {
+            return true;
+        }
+        final long position = position();
+        if (position >= size) {
+            return false;
+        }
+        if (!channel.isOpen()) {
+            throw new ClosedChannelException();
+        }
+        // windows are aligned to multiples of their size
+        final long start = position - position % windowSize;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+        window.order(order);
+        windowStart = start;
+        if (prefetch) {
+            window.load();
+        }
+        window.position((int) (position - start));
+        return true;
+    }
+}
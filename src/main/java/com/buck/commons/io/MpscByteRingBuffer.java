@@ -0,0 +1,197 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock free byte ring buffer passing records from multiple producer
+ * threads to a single consumer thread.
+ * <p/>
+ * Each write is a record written whole or not at all, and is published
+ * as soon as it is copied: a producer claims space by advancing a shared
+ * claim sequence, copies its record, then waits for the producers that
+ * claimed before it to publish before publishing its own, so that the
+ * consumer sees records complete and in claim order. A producer stalled
+ * between claiming and publishing therefore delays the records after it.
+ * Records of different producers never interleave, but a record split
+ * across several writes may be interleaved with others.
+ * <p/>
+ * Any producer may close the ring. Closing refuses later writes and waits
+ * for records already claimed to be published, so no accepted record is
+ * lost behind the end of the consumer's stream.
+ *
+ * @author Robert J. Buck
+ */
+public class MpscByteRingBuffer extends ByteRingBuffer {
+
+    /**
+     * Set in the claim sequence once the ring is closed to new claims.
+     */
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    /**
+     * The end of the space claimed by producers, shared by all of them, with
+     * the {@link #CLOSED} bit set once closing has begun.
+     */
+    private final PaddedAtomicLong claim = new PaddedAtomicLong();
+    private final ThreadLocal<ByteBuffer> views = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return buffer.duplicate();
+        }
+    };
+
+    /**
+     * Creates a ring buffer.
+     *
+     * @param capacity the capacity in bytes, a power of two
+     * @throws IllegalArgumentException if the capacity is not a positive
+     *                                  power of two
+     */
+    public MpscByteRingBuffer(int capacity) {
+        super(capacity);
+    }
+
+    /**
+     * Writes and publishes a record if it fits. May be called by any thread.
+     *
+     * @param b   the bytes
+     * @param off the start offset in the bytes
+     * @param len the number of bytes in the record
+     * @return the number of bytes written, either zero or the length; zero
+     *         once the ring is closed
+     * @throws IllegalArgumentException if the record is larger than the
+     *                                  capacity
+     */
+    @Override
+    public int write(byte[] b, int off, int len) {
+        if ((off < 0) || (off > b.length) || (len < 0) || ((off + len) > b.length) || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException();
+        }
+        final long start = claim(len);
+        if (start < 0) {
+            return 0;
+        }
+        put(views.get(), start, b, off, len);
+        commit(start, len);
+        return len;
+    }
+
+    /**
+     * Writes and publishes the remaining bytes of a buffer as a record if
+     * they fit. May be called by any thread.
+     *
+     * @param src the buffer to copy from
+     * @return the number of bytes written, either zero or those remaining;
+     *         zero once the ring is closed
+     * @throws IllegalArgumentException if the record is larger than the
+     *                                  capacity
+     */
+    @Override
+    public int write(ByteBuffer src) {
+        final int len = src.remaining();
+        final long start = claim(len);
+        if (start < 0) {
+            return 0;
+        }
+        put(views.get(), start, src, len);
+        commit(start, len);
+        return len;
+    }
+
+    /**
+     * Does nothing, as every write is published.
+     */
+    @Override
+    public void publish() {
+    }
+
+    /**
+     * Closes the ring to further writes, which then return zero, and waits
+     * for the records already claimed by other producers to be published,
+     * so that the consumer sees every accepted record before the end of the
+     * stream. May be called by any producer.
+     */
+    @Override
+    public void close() {
+        long end;
+        while (true) {
+            final long current = claim.get();
+            end = current & ~CLOSED;
+            if ((current & CLOSED) != 0 || claim.compareAndSet(current, current | CLOSED)) {
+                break;
+            }
+        }
+        int count = 0;
+        while (tail.get() != end) {
+            count = idle(count);
+        }
+        super.close();
+    }
+
+    /**
+     * Claims space for a record.
+     *
+     * @return the sequence at which the record starts, or -1 if it does not
+     *         fit or the ring is closed
+     */
+    private long claim(int len) {
+        if (len > capacity()) {
+            Object[] arguments = {len, capacity()};
+            String message = ResourceBundle.formatResourceBundleMessage(MpscByteRingBuffer.class,
+                    "RING_RECORD_TOO_LARGE", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        if (len == 0) {
+            return -1;
+        }
+        while (true) {
+            final long start = claim.get();
+            // the closed bit makes the sequence negative, failing the claim
+            if (start < 0 || start + len - head.get() > capacity()) {
+                return -1;
+            }
+            if (claim.compareAndSet(start, start + len)) {
+                return start;
+            }
+        }
+    }
+
+    /**
+     * Publishes a record once the records claimed before it are published.
+     */
+    private void commit(long start, int len) {
+        int count = 0;
+        while (tail.get() != start) {
+            count = idle(count);
+        }
+        tail.lazySet(start + len);
+    }
+
+    /**
+     * A sequence padded to a cache line of its own, so that producers
+     * contending on it do not disturb the neighbouring sequences.
+     */
+    @SuppressWarnings("serial")
+    private static final class PaddedAtomicLong extends AtomicLong {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
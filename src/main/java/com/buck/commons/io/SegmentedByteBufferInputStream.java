@@ -0,0 +1,177 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a sequence of buffers as one stream, as {@link ByteBufferInputStream}
+ * reads a single buffer. The buffers are neither copied nor consolidated,
+ * and their positions are left untouched; the stream reads from duplicates.
+ * <p/>
+ * Streams are not thread safe.
+ *
+ * @author Robert J. Buck
+ * @see SegmentedByteBufferOutputStream#toInputStream()
+ */
+public class SegmentedByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer[] buffers;
+    private final int[] starts;
+    private int index;
+    private int markIndex;
+    private int markPosition;
+    private long remaining;
+
+    /**
+     * Creates a stream reading the remaining bytes of each buffer in turn.
+     *
+     * @param buffers the buffers to read
+     */
+    public SegmentedByteBufferInputStream(ByteBuffer[] buffers) {
+        this.buffers = new ByteBuffer[buffers.length];
+        this.starts = new int[buffers.length];
+        for (int i = 0; i < buffers.length; i++) {
+            this.buffers[i] = buffers[i].duplicate();
+            this.starts[i] = buffers[i].position();
+            remaining += buffers[i].remaining();
+        }
+        this.markPosition = buffers.length > 0 ? starts[0] : 0;
+    }
+
+    /**
+     * Tests if this stream supports mark/reset; it always does.
+     *
+     * @return true
+     */
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * Marks the current position. The mark remains valid however many bytes
+     * are read.
+     *
+     * @param readLimit ignored
+     */
+    public void mark(int readLimit) {
+        advance();
+        markIndex = index;
+        markPosition = index < buffers.length ? buffers[index].position() : 0;
+    }
+
+    /**
+     * Resets the stream to the marked position, or to the beginning if no mark
+     * has been set.
+     */
+    public void reset() {
+        for (int i = Math.min(index, buffers.length - 1); i > markIndex; i--) {
+            remaining += buffers[i].position() - starts[i];
+            buffers[i].position(starts[i]);
+        }
+        if (markIndex < buffers.length) {
+            remaining += buffers[markIndex].position() - markPosition;
+            buffers[markIndex].position(markPosition);
+        }
+        index = markIndex;
+    }
+
+    public int read() {
+        if (!advance()) {
+            return -1;
+        }
+        remaining--;
+        return buffers[index].get() & 0xFF;
+    }
+
+    public int read(byte[] b, int off, int len) {
+        if ((off < 0) || (off > b.length) || (len < 0) || ((off + len) > b.length) || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (read < len && advance()) {
+            final ByteBuffer buffer = buffers[index];
+            final int n = Math.min(len - read, buffer.remaining());
+            buffer.get(b, off + read, n);
+            read += n;
+        }
+        remaining -= read;
+        return read == 0 ? -1 : read;
+    }
+
+    /**
+     * Skips up to <code>n</code> bytes.
+     *
+     * @param n the number of bytes to skip
+     * @return the number of bytes skipped
+     */
+    public long skip(long n) {
+        long skipped = 0;
+        while (skipped < n && advance()) {
+            final ByteBuffer buffer = buffers[index];
+            final int k = (int) Math.min(n - skipped, buffer.remaining());
+            buffer.position(buffer.position() + k);
+            skipped += k;
+        }
+        remaining -= skipped;
+        return skipped;
+    }
+
+    /**
+     * Returns the number of bytes remaining, or <code>Integer.MAX_VALUE</code>
+     * if more remain.
+     *
+     * @return the number of bytes that can be read without blocking
+     */
+    public int available() {
+        return (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the number of bytes remaining.
+     *
+     * @return the number of unread bytes
+     */
+    public long remaining() {
+        return remaining;
+    }
+
+    /**
+     * Closing a <tt>SegmentedByteBufferInputStream</tt> has no effect.
+     */
+    public void close() {
+    }
+
+    /**
+     * Moves to the first buffer with bytes remaining.
+     *
+     * @return false at the end of the stream
+     */
+    private boolean advance() {
+        while (index < buffers.length) {
+            if (buffers[index].hasRemaining()) {
+                return true;
+            }
+            index++;
+        }
+        return false;
+    }
+}
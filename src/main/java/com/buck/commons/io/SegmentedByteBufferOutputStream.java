@@ -0,0 +1,300 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * An output stream that collects data in a list of fixed size segments
+ * rather than one contiguous buffer. When a segment fills, another is
+ * acquired from a {@link ByteBufferPool}; nothing written is ever copied
+ * again, so peak memory stays at the payload size plus one segment however
+ * large the payload grows.
+ * <p/>
+ * The content is exposed as an array of buffers, ready for a gathering
+ * write, or read back through a {@link SegmentedByteBufferInputStream}.
+ * Those views share the segments, so they become invalid when the stream is
+ * reset or closed and the segments return to the pool.
+ * <p/>
+ * Streams are not thread safe.
+ *
+ * @author Robert J. Buck
+ */
+public class SegmentedByteBufferOutputStream extends OutputStream {
+
+    /**
+     * The default segment size.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024;
+
+    private final ByteBufferPool pool;
+    private final int segmentSize;
+    private ByteBuffer[] segments = new ByteBuffer[8];
+    private int count;
+    private ByteBuffer current;
+    private long size;
+
+    /**
+     * Creates a stream with segments of the default size, freshly allocated
+     * on the heap.
+     */
+    public SegmentedByteBufferOutputStream() {
+        this(DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a stream with segments of the given size, freshly allocated on
+     * the heap.
+     *
+     * @param segmentSize the capacity of each segment
+     * @throws IllegalArgumentException if the segment size is not positive
+     */
+    public SegmentedByteBufferOutputStream(int segmentSize) {
+        this(new FixedSizeByteBufferPool(checkSegmentSize(segmentSize), false, 0), segmentSize);
+    }
+
+    /**
+     * Creates a stream whose segments are acquired from, and released to, a
+     * pool.
+     *
+     * @param pool        the pool supplying segments
+     * @param segmentSize the capacity requested for each segment
+     * @throws IllegalArgumentException if the segment size is not positive
+     */
+    public SegmentedByteBufferOutputStream(ByteBufferPool pool, int segmentSize) {
+        this.pool = pool;
+        this.segmentSize = checkSegmentSize(segmentSize);
+    }
+
+    /**
+     * Returns the number of bytes written.
+     *
+     * @return the size of the content
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Writes a byte.
+     *
+     * @param b the byte
+     */
+    public void write(int b) {
+        if (current == null || !current.hasRemaining()) {
+            addSegment();
+        }
+        current.put((byte) b);
+        size++;
+    }
+
+    /**
+     * Writes <code>len</code> bytes from the array starting at offset
+     * <code>off</code>.
+     *
+     * @param b   the data
+     * @param off the start offset in the data
+     * @param len the number of bytes to write
+     */
+    public void write(byte[] b, int off, int len) {
+        if ((off < 0) || (off > b.length) || (len < 0) || ((off + len) > b.length) || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            if (current == null || !current.hasRemaining()) {
+                addSegment();
+            }
+            final int n = Math.min(len, current.remaining());
+            current.put(b, off, n);
+            off += n;
+            len -= n;
+            size += n;
+        }
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer.
+     *
+     * @param src the buffer to copy from
+     */
+    public void write(ByteBuffer src) {
+        final int end = src.limit();
+        while (src.hasRemaining()) {
+            if (current == null || !current.hasRemaining()) {
+                addSegment();
+            }
+            final int n = Math.min(src.remaining(), current.remaining());
+            src.limit(src.position() + n);
+            current.put(src);
+            src.limit(end);
+            size += n;
+        }
+    }
+
+    /**
+     * Returns read-only views of the content, one per segment, each positioned
+     * at its first byte and limited at its last. The views share the segments;
+     * they are valid until the stream is reset or closed.
+     *
+     * @return the content as a sequence of buffers
+     */
+    public ByteBuffer[] getBuffers() {
+        final ByteBuffer[] result = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            final ByteBuffer view = segments[i].asReadOnlyBuffer();
+            view.flip();
+            result[i] = view;
+        }
+        return result;
+    }
+
+    /**
+     * Returns an input stream reading the content without copying it. The
+     * input stream is valid until this stream is reset or closed.
+     *
+     * @return an input stream over the content
+     */
+    public SegmentedByteBufferInputStream toInputStream() {
+        return new SegmentedByteBufferInputStream(getBuffers());
+    }
+
+    /**
+     * Writes the content to a channel with gathering writes, repeating until
+     * all of it has been written. The content is left in place.
+     *
+     * @param channel the channel to write to
+     * @return the number of bytes written
+     * @throws IOException if an I/O error occurs
+     */
+    public long writeTo(GatheringByteChannel channel) throws IOException {
+        final ByteBuffer[] buffers = getBuffers();
+        long written = 0;
+        int first = 0;
+        while (written < size) {
+            written += channel.write(buffers, first, buffers.length - first);
+            while (first < buffers.length && !buffers[first].hasRemaining()) {
+                first++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Writes the content to an output stream. The content is left in place.
+     *
+     * @param out the output stream to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        byte[] scratch = null;
+        for (int i = 0; i < count; i++) {
+            final ByteBuffer segment = segments[i];
+            if (segment.hasArray()) {
+                out.write(segment.array(), segment.arrayOffset(), segment.position());
+            } else {
+                if (scratch == null) {
+                    scratch = new byte[Math.min(segmentSize, 8192)];
+                }
+                final ByteBuffer view = segment.duplicate();
+                view.flip();
+                while (view.hasRemaining()) {
+                    final int n = Math.min(scratch.length, view.remaining());
+                    view.get(scratch, 0, n);
+                    out.write(scratch, 0, n);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the content into a newly allocated byte array.
+     *
+     * @return the content
+     * @throws OutOfMemoryError if the content exceeds the maximum array size
+     */
+    public byte[] toByteArray() {
+        if (size > Integer.MAX_VALUE) {
+            throw new OutOfMemoryError();
+        }
+        final byte[] out = new byte[(int) size];
+        int off = 0;
+        for (int i = 0; i < count; i++) {
+            final ByteBuffer view = segments[i].duplicate();
+            view.flip();
+            final int n = view.remaining();
+            view.get(out, off, n);
+            off += n;
+        }
+        return out;
+    }
+
+    /**
+     * Discards the content, keeping the first segment and returning the others
+     * to the pool.
+     */
+    public void reset() {
+        for (int i = 1; i < count; i++) {
+            pool.release(segments[i]);
+            segments[i] = null;
+        }
+        if (count > 0) {
+            current = segments[0];
+            current.clear();
+            count = 1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Discards the content and returns all segments to the pool. The stream
+     * remains usable; further writes acquire new segments.
+     */
+    public void close() {
+        for (int i = 0; i < count; i++) {
+            pool.release(segments[i]);
+            segments[i] = null;
+        }
+        current = null;
+        count = 0;
+        size = 0;
+    }
+
+    private void addSegment() {
+        if (count == segments.length) {
+            final ByteBuffer[] grown = new ByteBuffer[count * 2];
+            System.arraycopy(segments, 0, grown, 0, count);
+            segments = grown;
+        }
+        current = pool.acquire(segmentSize);
+        segments[count++] = current;
+    }
+
+    private static int checkSegmentSize(int segmentSize) {
+        if (segmentSize <= 0) {
+            Object[] arguments = {segmentSize};
+            String message = ResourceBundle.formatResourceBundleMessage(SegmentedByteBufferOutputStream.class,
+                    "SEGMENTED_ILLEGAL_SEGMENT_SIZE", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        return segmentSize;
+    }
+}
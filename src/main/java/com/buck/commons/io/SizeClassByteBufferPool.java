@@ -0,0 +1,147 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import com.buck.commons.i18n.ResourceBundle;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of buffers in power of two size classes, suited to streams whose
+ * buffers vary in size, such as a growing {@link ByteBufferOutputStream}. A
+ * request is served from the smallest class that satisfies it, so a buffer
+ * wastes at most half its capacity; each class retains a bounded number of
+ * released buffers. Requests beyond the largest class are served by fresh,
+ * unpooled buffers.
+ *
+ * @author Robert J. Buck
+ */
+public class SizeClassByteBufferPool implements ByteBufferPool {
+
+    private static final int MAX_CLASS_SIZE = 1 << 30;
+
+    private final int minShift;
+    private final int maxShift;
+    private final boolean direct;
+    private final int maxRetainedPerClass;
+    private final List<ArrayDeque<ByteBuffer>> free;
+
+    /**
+     * Creates a pool.
+     *
+     * @param minSize             the capacity of the smallest class, rounded up
+     *                            to a power of two
+     * @param maxSize             the capacity of the largest class, rounded up
+     *                            to a power of two
+     * @param maxRetainedPerClass the maximum number of released buffers
+     *                            retained in each class
+     * @param direct              whether to allocate direct buffers
+     * @throws IllegalArgumentException if the sizes are not positive, out of
+     *                                  order or larger than 2^30, or the
+     *                                  retained count is negative
+     */
+    public SizeClassByteBufferPool(int minSize, int maxSize, int maxRetainedPerClass, boolean direct) {
+        if (minSize <= 0 || maxSize < minSize || maxSize > MAX_CLASS_SIZE || maxRetainedPerClass < 0) {
+            Object[] arguments = {minSize, maxSize, maxRetainedPerClass};
+            String message = ResourceBundle.formatResourceBundleMessage(SizeClassByteBufferPool.class,
+                    "POOL_ILLEGAL_SIZE_CLASSES", arguments);
+            throw new IllegalArgumentException(message);
+        }
+        this.minShift = shiftFor(minSize);
+        this.maxShift = shiftFor(maxSize);
+        this.direct = direct;
+        this.maxRetainedPerClass = maxRetainedPerClass;
+        this.free = new ArrayList<ArrayDeque<ByteBuffer>>(maxShift - minShift + 1);
+        for (int shift = minShift; shift <= maxShift; shift++) {
+            free.add(new ArrayDeque<ByteBuffer>());
+        }
+    }
+
+    /**
+     * Returns whether the pool allocates direct buffers.
+     *
+     * @return true if buffers are direct
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Returns the number of released buffers currently retained, across all
+     * classes.
+     *
+     * @return the number of idle buffers
+     */
+    public int getRetainedCount() {
+        int count = 0;
+        for (ArrayDeque<ByteBuffer> deque : free) {
+            synchronized (deque) {
+                count += deque.size();
+            }
+        }
+        return count;
+    }
+
+    public ByteBuffer acquire(int capacity) {
+        final int shift = Math.max(minShift, shiftFor(capacity));
+        if (shift > maxShift) {
+            return allocate(capacity);
+        }
+        final ArrayDeque<ByteBuffer> deque = free.get(shift - minShift);
+        final ByteBuffer buffer;
+        synchronized (deque) {
+            buffer = deque.pollFirst();
+        }
+        if (buffer != null) {
+            buffer.clear();
+            return buffer.order(ByteOrder.BIG_ENDIAN);
+        }
+        return allocate(1 << shift);
+    }
+
+    public void release(ByteBuffer buffer) {
+        final int capacity = buffer.capacity();
+        if (Integer.bitCount(capacity) != 1 || buffer.isDirect() != direct || buffer.isReadOnly()) {
+            return;
+        }
+        final int shift = shiftFor(capacity);
+        if (shift < minShift || shift > maxShift) {
+            return;
+        }
+        final ArrayDeque<ByteBuffer> deque = free.get(shift - minShift);
+        synchronized (deque) {
+            if (deque.size() < maxRetainedPerClass) {
+                deque.addFirst(buffer);
+            }
+        }
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Returns the log2 of the smallest power of two at least the given size.
+     */
+    private static int shiftFor(int size) {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link ByteBufferInputStream} whose methods are not synchronized. It has
+ * the same semantics, but a stream must be confined to one thread at a time;
+ * in exchange, reading a byte costs no monitor operation, which matters to
+ * decoders that read a message a byte at a time.
+ * <p/>
+ * {@link #forCurrentThread(ByteBuffer)} returns a stream owned by the
+ * calling thread and reset onto a buffer, so that a decoder handling one
+ * message after another allocates no stream at all.
+ *
+ * @author Robert J. Buck
+ */
+public class UnsynchronizedByteBufferInputStream extends ByteBufferInputStream {
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private static final ThreadLocal<UnsynchronizedByteBufferInputStream> LOCAL =
+            new ThreadLocal<UnsynchronizedByteBufferInputStream>() {
+                @Override
+                protected UnsynchronizedByteBufferInputStream initialValue() {
+                    return new UnsynchronizedByteBufferInputStream(EMPTY);
+                }
+            };
+
+    /**
+     * Returns the calling thread's stream, reset to read the remaining bytes
+     * of a buffer. The same stream is returned by every call on the thread,
+     * so it must not be used once the thread calls again, as a nested
+     * decoder would.
+     *
+     * @param b the buffer to read
+     * @return the thread's stream
+     */
+    public static UnsynchronizedByteBufferInputStream forCurrentThread(ByteBuffer b) {
+        return LOCAL.get().reset(b);
+    }
+
+    /**
+     * Creates a stream reading the remaining bytes of a buffer.
+     *
+     * @param b the buffer to read
+     */
+    public UnsynchronizedByteBufferInputStream(ByteBuffer b) {
+        super(b);
+    }
+
+    @Override
+    public void mark(int readLimit) {
+        markImpl(readLimit);
+    }
+
+    @Override
+    public void reset() {
+        resetImpl();
+    }
+
+    @Override
+    public UnsynchronizedByteBufferInputStream reset(ByteBuffer b) {
+        resetImpl(b);
+        return this;
+    }
+
+    @Override
+    public int read() {
+        return readImpl();
+    }
+
+    @Override
+    public int read(byte b[], int off, int len) {
+        return readImpl(b, off, len);
+    }
+
+    @Override
+    public long skip(long n) {
+        return skipImpl(n);
+    }
+
+    @Override
+    public int available() {
+        return availableImpl();
+    }
+}
@@ -35,6 +35,13 @@ public class URN implements Comparable<URN> {
     // hash defaults to zero
     private int hash;
 
+    private static final ThreadLocal<HashCode.Hasher> tssHasher = new ThreadLocal<HashCode.Hasher>() {
+        @Override
+        protected HashCode.Hasher initialValue() {
+            return HashCode.newHasher(0);
+        }
+    };
+
     private static long lowMask(String chars) {
         int n = chars.length();
         long m = 0;
@@ -460,16 +467,30 @@ public class URN implements Comparable<URN> {
      * for the benefit hashCode hash-based collections.
      * <p/>
      * Note that the hash code returned by this method is not equal to the hash
-     * code for the string returned by the toString method.
+     * code for the string returned by the toString method. Like {@link
+     * #equals(Object)}, it ignores case.
      *
      * @return the hash code for the URN.
      */
     public int hashCode() {
         int h = hash;
         if (h == 0) {
-            h = HashCode.hashCode(pre, nid, nss);
+            final HashCode.Hasher hasher = tssHasher.get().reset();
+            hashIgnoringCase(hasher, pre);
+            hashIgnoringCase(hasher, nid);
+            hashIgnoringCase(hasher, nss);
+            final long h64 = hasher.hash();
+            h = (int) (h64 ^ (h64 >>> 32));
             hash = h;
         }
         return h;
     }
+
+    private static void hashIgnoringCase(HashCode.Hasher hasher, String s) {
+        final int n = s.length();
+        hasher.putInt(n);
+        for (int i = 0; i < n; i++) {
+            hasher.putChar((char) toLower(s.charAt(i)));
+        }
+    }
 }
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import com.buck.commons.io.ByteBufferOutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests the BaseEncoding class.
+ *
+ * @author Robert J. Buck
+ */
+public class BaseEncodingTestCase {
+
+    private static byte[] ascii(String s) throws UnsupportedEncodingException {
+        return s.getBytes("US-ASCII");
+    }
+
+    /**
+     * RFC 4648 section 10 test vectors.
+     */
+    @Test
+    public void testVectors() throws UnsupportedEncodingException {
+        final String[] input = {"", "f", "fo", "foo", "foob", "fooba", "foobar"};
+        final String[] base64 = {"", "Zg==", "Zm8=", "Zm9v", "Zm9vYg==", "Zm9vYmE=", "Zm9vYmFy"};
+        final String[] base32 = {"", "MY======", "MZXQ====", "MZXW6===", "MZXW6YQ=", "MZXW6YTB", "MZXW6YTBOI======"};
+        final String[] hex = {"", "66", "666f", "666f6f", "666f6f62", "666f6f6261", "666f6f626172"};
+        for (int i = 0; i < input.length; i++) {
+            final byte[] bytes = ascii(input[i]);
+            Assert.assertEquals(base64[i], BaseEncoding.BASE64.encode(bytes));
+            Assert.assertEquals(base32[i], BaseEncoding.BASE32.encode(bytes));
+            Assert.assertEquals(hex[i], BaseEncoding.HEX.encode(bytes));
+            Assert.assertEquals(base64[i].length(), BaseEncoding.BASE64.encodedLength(bytes.length));
+            Assert.assertEquals(input[i], new String(BaseEncoding.BASE64.decode(base64[i]), "US-ASCII"));
+            Assert.assertEquals(input[i], new String(BaseEncoding.BASE32.decode(base32[i]), "US-ASCII"));
+            Assert.assertEquals(input[i], new String(BaseEncoding.HEX.decode(hex[i].toUpperCase()), "US-ASCII"));
+            // padding is optional when decoding
+            Assert.assertEquals(input[i], new String(BaseEncoding.BASE64.decode(base64[i].replace("=", "")), "US-ASCII"));
+        }
+        Assert.assertEquals("-_8=", BaseEncoding.BASE64_URL.encode(new byte[]{(byte) 0xFB, (byte) 0xFF}));
+        Assert.assertEquals("+/8=", BaseEncoding.BASE64.encode(new byte[]{(byte) 0xFB, (byte) 0xFF}));
+    }
+
+    @Test
+    public void testCrockford() {
+        final byte[] bytes = {0, 1, 2, 3, 4, (byte) 0xFF};
+        final String encoded = BaseEncoding.BASE32_CROCKFORD.encode(bytes);
+        Assert.assertEquals(-1, encoded.indexOf('='));
+        Assert.assertArrayEquals(bytes, BaseEncoding.BASE32_CROCKFORD.decode(encoded));
+        Assert.assertArrayEquals(bytes, BaseEncoding.BASE32_CROCKFORD.decode(encoded.toLowerCase()));
+        Assert.assertArrayEquals(bytes, BaseEncoding.BASE32_CROCKFORD.decode(
+                encoded.substring(0, 4) + "-" + encoded.substring(4)));
+        Assert.assertArrayEquals(BaseEncoding.BASE32_CROCKFORD.decode("01"), BaseEncoding.BASE32_CROCKFORD.decode("oL"));
+    }
+
+    @Test
+    public void testIllegalInput() {
+        final String[] illegal = {"Zm9v!", "Zg==Zg==", "Z", "Zm9vY"};
+        for (String s : illegal) {
+            boolean caught = false;
+            try {
+                BaseEncoding.BASE64.decode(s);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(s, caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                BaseEncoding.HEX.decode("abc");
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() {
+        final Random rng = new Random();
+        final BaseEncoding[] encodings = {
+                BaseEncoding.HEX, BaseEncoding.BASE32, BaseEncoding.BASE32_CROCKFORD,
+                BaseEncoding.BASE64, BaseEncoding.BASE64_URL
+        };
+        for (BaseEncoding encoding : encodings) {
+            for (int len = 0; len < 70; len++) {
+                final byte[] src = new byte[len];
+                rng.nextBytes(src);
+
+                // byte arrays
+                final byte[] text = new byte[encoding.encodedLength(len) + 2];
+                Assert.assertEquals(text.length - 1, encoding.encode(src, 0, len, text, 1));
+                final byte[] decoded = new byte[encoding.maxDecodedLength(text.length - 2)];
+                Assert.assertEquals(len, encoding.decode(text, 1, text.length - 2, decoded, 0));
+                Assert.assertArrayEquals(src, Arrays.copyOf(decoded, len));
+
+                // direct buffers use the streaming path
+                final ByteBuffer in = ByteBuffer.allocateDirect(len);
+                in.put(src).flip();
+                final ByteBuffer out = ByteBuffer.allocateDirect(encoding.encodedLength(len));
+                encoding.encode(in, out);
+                Assert.assertFalse(out.hasRemaining());
+                out.flip();
+                for (int i = 0; i < out.limit(); i++) {
+                    Assert.assertEquals(text[i + 1], out.get(i));
+                }
+                final ByteBuffer back = ByteBuffer.allocate(len);
+                encoding.decode(out, back);
+                Assert.assertArrayEquals(src, back.array());
+
+                // output streams
+                final ByteBufferOutputStream bbos = new ByteBufferOutputStream();
+                encoding.encode(src, 0, len, bbos);
+                Assert.assertEquals(encoding.encode(src), bbos.toString());
+                final ByteBufferOutputStream decodedStream = new ByteBufferOutputStream(1);
+                decodedStream.write(7);
+                encoding.decode(text, 1, text.length - 2, decodedStream);
+                Assert.assertEquals(len + 1, decodedStream.size());
+                Assert.assertArrayEquals(src, Arrays.copyOfRange(decodedStream.toByteArray(), 1, len + 1));
+
+                // direct streams take the buffer path
+                final ByteBufferOutputStream direct = new ByteBufferOutputStream(1, true, true);
+                encoding.encode(src, 0, len, direct);
+                Assert.assertEquals(encoding.encode(src), direct.toString());
+                final ByteBufferOutputStream directDecoded = new ByteBufferOutputStream(1, true, true);
+                encoding.decode(text, 1, text.length - 2, directDecoded);
+                Assert.assertArrayEquals(src, directDecoded.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void testFixedSizeStreams() throws UnsupportedEncodingException {
+        final byte[] src = {1, 2, 3, 4, 5};
+        final ByteBufferOutputStream small = new ByteBufferOutputStream(new byte[7]);
+        boolean caught = false;
+        try {
+            BaseEncoding.BASE64.encode(src, 0, src.length, small);
+        } catch (BufferOverflowException e) {
+            caught = true;
+        }
+        Assert.assertTrue(caught);
+        Assert.assertEquals(0, small.size());
+
+        // padding makes the decoded bound loose, so a stream of the exact size suffices
+        final byte[] text = ascii("AQIDBAU=");
+        final ByteBufferOutputStream exact = new ByteBufferOutputStream(new byte[5]);
+        BaseEncoding.BASE64.decode(text, 0, text.length, exact);
+        Assert.assertArrayEquals(src, exact.toByteArray());
+
+        caught = false;
+        try {
+            BaseEncoding.BASE64.decode(ascii("AQ!D"), 0, 4, new ByteBufferOutputStream());
+        } catch (IllegalArgumentException e) {
+            caught = true;
+        }
+        Assert.assertTrue(caught);
+    }
+
+    @Test
+    public void testStreaming() {
+        final Random rng = new Random();
+        final byte[] src = new byte[10007];
+        rng.nextBytes(src);
+        final BaseEncoding encoding = BaseEncoding.BASE64;
+        final BaseEncoding.Encoder encoder = encoding.newEncoder();
+        final ByteBuffer in = ByteBuffer.wrap(src);
+        final ByteBuffer text = ByteBuffer.allocate(encoding.encodedLength(src.length));
+        final ByteBuffer window = ByteBuffer.allocate(7);
+        while (in.hasRemaining()) {
+            encoder.update(in, window);
+            window.flip();
+            text.put(window);
+            window.clear();
+        }
+        encoder.finish(text);
+        Assert.assertFalse(text.hasRemaining());
+        text.flip();
+
+        final BaseEncoding.Decoder decoder = encoding.newDecoder();
+        final ByteBuffer out = ByteBuffer.allocate(src.length);
+        final ByteBuffer small = ByteBuffer.allocate(3);
+        while (text.hasRemaining()) {
+            decoder.update(text, small);
+            small.flip();
+            out.put(small);
+            small.clear();
+        }
+        decoder.finish();
+        Assert.assertArrayEquals(src, out.array());
+    }
+
+    @Test
+    public void testBase64Perf() {
+        final byte[] src = new byte[32];
+        new Random().nextBytes(src);
+        final byte[] text = new byte[BaseEncoding.BASE64.encodedLength(src.length)];
+        final byte[] dst = new byte[src.length];
+        final long s = System.currentTimeMillis();
+        for (int i = 0; i < 1000000; i++) {
+            BaseEncoding.BASE64.encode(src, 0, src.length, text, 0);
+            BaseEncoding.BASE64.decode(text, 0, text.length, dst, 0);
+        }
+        final long e = System.currentTimeMillis();
+        System.out.println("BaseEncoding Base64 32 byte round trip Perf: " + (e - s));
+    }
+}
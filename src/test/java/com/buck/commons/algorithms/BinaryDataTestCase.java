@@ -19,6 +19,8 @@ package com.buck.commons.algorithms;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Random;
 
 /**
@@ -257,6 +259,156 @@ public final class BinaryDataTestCase {
         }
     }
 
+    /**
+     * Test bulk conversions against ByteBuffer in both byte orders.
+     */
+    @Test
+    public void testBulkOperations() {
+        final Random rng = new Random();
+        final int n = 257;
+        final ByteOrder[] orders = {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN};
+        for (ByteOrder order : orders) {
+            {
+                short[] src = new short[n];
+                for (int i = 0; i < n; i++) {
+                    src[i] = (short) rng.nextInt();
+                }
+                byte[] array = new byte[3 + n * BinaryData.sizeOfShort];
+                BinaryData.storeShorts(array, 3, src, 0, n, order);
+                ByteBuffer bb = ByteBuffer.wrap(array, 3, n * BinaryData.sizeOfShort).order(order);
+                for (int i = 0; i < n; i++) {
+                    Assert.assertEquals(src[i], bb.getShort());
+                }
+                short[] dst = new short[n + 1];
+                BinaryData.loadShorts(array, 3, dst, 1, n, order);
+                for (int i = 0; i < n; i++) {
+                    Assert.assertEquals(src[i], dst[i + 1]);
+                }
+            }
+            {
+                int[] src = new int[n];
+                for (int i = 0; i < n; i++) {
+                    src[i] = rng.nextInt();
+                }
+                byte[] array = new byte[3 + n * BinaryData.sizeOfInt];
+                BinaryData.storeInts(array, 3, src, 0, n, order);
+                ByteBuffer bb = ByteBuffer.wrap(array, 3, n * BinaryData.sizeOfInt).order(order);
+                for (int i = 0; i < n; i++) {
+                    Assert.assertEquals(src[i], bb.getInt());
+                }
+                int[] dst = new int[n + 1];
+                BinaryData.loadInts(array, 3, dst, 1, n, order);
+                for (int i = 0; i < n; i++) {
+                    Assert.assertEquals(src[i], dst[i + 1]);
+                }
+            }
+            {
+                long[] src = new long[n];
+                for (int i = 0; i < n; i++) {
+                    src[i] = rng.nextLong();
+                }
+                byte[] array = new byte[3 + n * BinaryData.sizeOfLong];
+                BinaryData.storeLongs(array, 3, src, 0, n, order);
+                ByteBuffer bb = ByteBuffer.wrap(array, 3, n * BinaryData.sizeOfLong).order(order);
+                for (int i = 0; i < n; i++) {
+                    Assert.assertEquals(src[i], bb.getLong());
+                }
+                long[] dst = new long[n + 1];
+                BinaryData.loadLongs(array, 3, dst, 1, n, order);
+                for (int i = 0; i < n; i++) {
+                    Assert.assertEquals(src[i], dst[i + 1]);
+                }
+            }
+            {
+                double[] src = new double[n];
+                for (int i = 0; i < n; i++) {
+                    src[i] = rng.nextGaussian();
+                }
+                src[0] = Double.NaN;
+                byte[] array = new byte[3 + n * BinaryData.sizeOfDouble];
+                BinaryData.storeDoubles(array, 3, src, 0, n, order);
+                ByteBuffer bb = ByteBuffer.wrap(array, 3, n * BinaryData.sizeOfDouble).order(order);
+                for (int i = 0; i < n; i++) {
+                    Assert.assertEquals(Double.doubleToRawLongBits(src[i]), Double.doubleToRawLongBits(bb.getDouble()));
+                }
+                double[] dst = new double[n + 1];
+                BinaryData.loadDoubles(array, 3, dst, 1, n, order);
+                for (int i = 0; i < n; i++) {
+                    Assert.assertEquals(Double.doubleToRawLongBits(src[i]), Double.doubleToRawLongBits(dst[i + 1]));
+                }
+            }
+        }
+        {
+            // the default byte order agrees with the scalar accessors
+            long[] src = {0x0102030405060708L, -1L};
+            byte[] array = new byte[16];
+            BinaryData.storeLongs(array, 0, src, 0, 2);
+            Assert.assertEquals(src[0], BinaryData.loadLongAtOffset(array, 0));
+            Assert.assertEquals(src[1], BinaryData.loadLongAtOffset(array, 8));
+        }
+        {
+            boolean caught = false;
+            try {
+                BinaryData.storeLongs(new byte[15], 0, new long[2], 0, 2);
+            } catch (IndexOutOfBoundsException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                BinaryData.storeInts(new byte[16], -1, new int[2], 0, 2);
+            } catch (IndexOutOfBoundsException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                BinaryData.loadInts(new byte[16], 0, new int[2], 1, 2);
+            } catch (IndexOutOfBoundsException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                BinaryData.loadShorts(new byte[16], 0, new short[2], 0, -1);
+            } catch (IndexOutOfBoundsException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                BinaryData.loadDoubles(new byte[16], 0, new double[4], 0, 4);
+            } catch (IndexOutOfBoundsException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testBinaryDataPerf() {
+        final byte[] array = new byte[4096];
+        long sum = 0;
+        final long s = System.currentTimeMillis();
+        for (int i = 0; i < 10000; i++) {
+            for (int offset = 0; offset < array.length; offset += BinaryData.sizeOfLong) {
+                BinaryData.storeLongAtOffset(array, offset, offset + i);
+                sum += BinaryData.loadLongAtOffset(array, offset);
+            }
+        }
+        final long e = System.currentTimeMillis();
+        Assert.assertTrue(sum != 0);
+        System.out.println("BinaryData checked accessor Perf: " + (e - s));
+    }
+
     private void doLongTest(long start, long end) {
         byte[] array = {0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00};
         int offset = 1;
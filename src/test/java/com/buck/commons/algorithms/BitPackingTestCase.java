@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Tests the BitPacking class.
+ *
+ * @author Robert J. Buck
+ */
+public class BitPackingTestCase {
+
+    @Test
+    public void testBitWidth() {
+        Assert.assertEquals(0, BitPacking.bitWidth(0));
+        Assert.assertEquals(1, BitPacking.bitWidth(1));
+        Assert.assertEquals(8, BitPacking.bitWidth(255));
+        Assert.assertEquals(32, BitPacking.bitWidth(-1));
+        Assert.assertEquals(3, BitPacking.bitWidth(new int[]{1, 2, 4}, 0, 3));
+        Assert.assertEquals(0, BitPacking.packedLength(100, 0));
+        Assert.assertEquals(2, BitPacking.packedLength(3, 5));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        final Random rng = new Random();
+        final int n = 131;
+        for (int bitWidth = 0; bitWidth <= BitPacking.MAX_BIT_WIDTH; bitWidth++) {
+            final int[] src = new int[n];
+            for (int i = 0; i < n; i++) {
+                src[i] = bitWidth == 0 ? 0 : rng.nextInt() >>> (32 - bitWidth);
+            }
+            final byte[] packed = new byte[1 + BitPacking.packedLength(n, bitWidth)];
+            Assert.assertEquals(packed.length, BitPacking.pack(src, 0, n, bitWidth, packed, 1));
+            final int[] dst = new int[n];
+            Assert.assertEquals(packed.length, BitPacking.unpack(packed, 1, dst, 0, n, bitWidth));
+            for (int i = 0; i < n; i++) {
+                Assert.assertEquals("width " + bitWidth, src[i], dst[i]);
+            }
+
+            final ByteBuffer[] buffers = {ByteBuffer.allocate(packed.length), ByteBuffer.allocateDirect(packed.length)};
+            for (ByteBuffer bb : buffers) {
+                bb.put((byte) 0);
+                BitPacking.pack(src, 0, n, bitWidth, bb);
+                Assert.assertFalse(bb.hasRemaining());
+                bb.flip();
+                bb.get();
+                final int[] out = new int[n];
+                BitPacking.unpack(bb, out, 0, n, bitWidth);
+                Assert.assertFalse(bb.hasRemaining());
+                for (int i = 0; i < n; i++) {
+                    Assert.assertEquals("width " + bitWidth, src[i], out[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIllegalArguments() {
+        {
+            boolean caught = false;
+            try {
+                BitPacking.pack(new int[1], 0, 1, 33, new byte[8], 0);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                BitPacking.pack(new int[8], 0, 8, 8, new byte[7], 0);
+            } catch (IndexOutOfBoundsException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                BitPacking.unpack(new byte[7], 0, new int[8], 0, 8, 8);
+            } catch (IndexOutOfBoundsException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testUnpackPerf() {
+        final int n = 1 << 16;
+        final int bitWidth = 11;
+        final int[] src = new int[n];
+        final Random rng = new Random();
+        for (int i = 0; i < n; i++) {
+            src[i] = rng.nextInt(1 << bitWidth);
+        }
+        final byte[] packed = new byte[BitPacking.packedLength(n, bitWidth)];
+        BitPacking.pack(src, 0, n, bitWidth, packed, 0);
+        final int[] dst = new int[n];
+        final long s = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            BitPacking.unpack(packed, 0, dst, 0, n, bitWidth);
+        }
+        final long e = System.currentTimeMillis();
+        System.out.println("BitPacking unpack Perf (65M ints): " + (e - s));
+    }
+}
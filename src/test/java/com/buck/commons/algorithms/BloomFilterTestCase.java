@@ -0,0 +1,128 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Tests the BloomFilter class.
+ *
+ * @author Robert J. Buck
+ */
+public class BloomFilterTestCase {
+
+    private static final int N = 100000;
+
+    private static void checkFilter(BloomFilter filter, double falsePositiveRate) {
+        for (int i = 0; i < N; i++) {
+            Assert.assertTrue(filter.mightContain("urn:key:" + i));
+        }
+        int falsePositives = 0;
+        for (int i = N; i < 2 * N; i++) {
+            if (filter.mightContain("urn:key:" + i)) {
+                falsePositives++;
+            }
+        }
+        Assert.assertTrue(falsePositives < N * falsePositiveRate * 1.5);
+    }
+
+    @Test
+    public void testFilter() {
+        for (double p : new double[]{0.05, 0.01, 0.001}) {
+            for (boolean direct : new boolean[]{false, true}) {
+                final BloomFilter filter = new BloomFilter(N, p, direct);
+                for (int i = 0; i < N; i++) {
+                    filter.add("urn:key:" + i);
+                }
+                Assert.assertFalse(filter.add("urn:key:0"));
+                checkFilter(filter, p);
+
+                final ByteBuffer buffer = ByteBuffer.allocate(filter.serializedSize());
+                filter.writeTo(buffer);
+                Assert.assertFalse(buffer.hasRemaining());
+                buffer.flip();
+                final BloomFilter copy = BloomFilter.readFrom(buffer, !direct);
+                Assert.assertEquals(filter.hashFunctions(), copy.hashFunctions());
+                Assert.assertEquals(filter.bitSize(), copy.bitSize());
+                checkFilter(copy, p);
+            }
+        }
+        final BloomFilter filter = new BloomFilter(1000, 0.01);
+        final UUID uuid = UUID.randomUUID();
+        final byte[] bytes = {1, 2, 3, 4, 5};
+        Assert.assertFalse(filter.mightContain(uuid));
+        Assert.assertTrue(filter.add(uuid));
+        Assert.assertTrue(filter.mightContain(uuid));
+        Assert.assertTrue(filter.add(bytes, 1, 3));
+        Assert.assertTrue(filter.mightContain(bytes, 1, 3));
+        {
+            boolean caught = false;
+            try {
+                new BloomFilter(0, 0.01);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                new BloomFilter(1000, 1.0);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                final ByteBuffer buffer = ByteBuffer.allocate(16);
+                buffer.putInt(3).putInt(1 << 20).flip();
+                BloomFilter.readFrom(buffer);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testBloomFilterPerf() {
+        final int n = 1 << 22;
+        final BloomFilter filter = new BloomFilter(n, 0.01);
+        long s = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) {
+            filter.add(HashCode.xxHash64(i, 0));
+        }
+        long e = System.currentTimeMillis();
+        System.out.println("BloomFilter add Perf (4M): " + (e - s));
+        int hits = 0;
+        s = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) {
+            if (filter.mightContain(HashCode.xxHash64(i + n, 0))) {
+                hits++;
+            }
+        }
+        e = System.currentTimeMillis();
+        System.out.println("BloomFilter negative lookup Perf (4M): " + (e - s) + ", false positives: " + hits);
+        Assert.assertTrue(hits < n / 50);
+    }
+}
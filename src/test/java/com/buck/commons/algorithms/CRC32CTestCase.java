@@ -0,0 +1,146 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * Tests the CRC32C class.
+ *
+ * @author Robert J. Buck
+ */
+public class CRC32CTestCase {
+
+    private static long crc32c(byte[] b) {
+        final CRC32C crc = new CRC32C();
+        crc.update(b);
+        return crc.getValue();
+    }
+
+    @Test
+    public void testVectors() throws UnsupportedEncodingException {
+        Assert.assertEquals(0L, crc32c(new byte[0]));
+        Assert.assertEquals(0xE3069283L, crc32c("123456789".getBytes("US-ASCII")));
+        // RFC 3720, appendix B.4
+        final byte[] b = new byte[32];
+        Assert.assertEquals(0x8A9136AAL, crc32c(b));
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) 0xFF;
+        }
+        Assert.assertEquals(0x62A8AB43L, crc32c(b));
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) i;
+        }
+        Assert.assertEquals(0x46DD794EL, crc32c(b));
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) (31 - i);
+        }
+        Assert.assertEquals(0x113FDB5CL, crc32c(b));
+    }
+
+    @Test
+    public void testUpdates() {
+        final Random rng = new Random();
+        for (int len = 0; len < 300; len++) {
+            final byte[] b = new byte[len];
+            rng.nextBytes(b);
+            final long expected = crc32c(b);
+            final CRC32C crc = new CRC32C();
+            for (byte x : b) {
+                crc.update(x);
+            }
+            Assert.assertEquals(expected, crc.getValue());
+            crc.reset();
+            final int split = rng.nextInt(len + 1);
+            crc.update(b, 0, split);
+            crc.update(b, split, len - split);
+            Assert.assertEquals(expected, crc.getValue());
+
+            final ByteBuffer direct = ByteBuffer.allocateDirect(len + 3);
+            direct.put(new byte[3]).put(b).flip().position(3);
+            crc.reset();
+            crc.update(direct, 3, len);
+            Assert.assertEquals(expected, crc.getValue());
+            Assert.assertEquals(3, direct.position());
+            crc.reset();
+            crc.update(direct);
+            Assert.assertEquals(expected, crc.getValue());
+            Assert.assertFalse(direct.hasRemaining());
+
+            final ByteBuffer heap = ByteBuffer.wrap(new byte[len + 3], 3, len).slice();
+            heap.put(b).flip();
+            crc.reset();
+            crc.update(heap);
+            Assert.assertEquals(expected, crc.getValue());
+        }
+        {
+            boolean caught = false;
+            try {
+                new CRC32C().update(ByteBuffer.allocateDirect(4), 2, 3);
+            } catch (IndexOutOfBoundsException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testCRC32CPerf() {
+        final byte[] b = new byte[1 << 20];
+        new Random().nextBytes(b);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(b.length);
+        direct.put(b).flip();
+        long sum = 0;
+        {
+            final CRC32C crc = new CRC32C();
+            final long s = System.currentTimeMillis();
+            for (int i = 0; i < 256; i++) {
+                crc.update(b, 0, b.length);
+            }
+            final long e = System.currentTimeMillis();
+            sum += crc.getValue();
+            System.out.println("CRC32C array Perf (256MB): " + (e - s));
+        }
+        {
+            final CRC32C crc = new CRC32C();
+            final long s = System.currentTimeMillis();
+            for (int i = 0; i < 256; i++) {
+                crc.update(direct, 0, b.length);
+            }
+            final long e = System.currentTimeMillis();
+            sum += crc.getValue();
+            System.out.println("CRC32C direct buffer Perf (256MB): " + (e - s));
+        }
+        {
+            final CRC32 crc = new CRC32();
+            final long s = System.currentTimeMillis();
+            for (int i = 0; i < 256; i++) {
+                crc.update(b, 0, b.length);
+            }
+            final long e = System.currentTimeMillis();
+            sum += crc.getValue();
+            System.out.println("CRC32 (java.util.zip) array Perf (256MB): " + (e - s));
+        }
+        Assert.assertTrue(sum != 0);
+    }
+}
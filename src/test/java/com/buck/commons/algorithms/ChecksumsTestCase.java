@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * Tests the Checksums class.
+ *
+ * @author Robert J. Buck
+ */
+public class ChecksumsTestCase {
+
+    @Test
+    public void testRegions() {
+        final Random rng = new Random();
+        final byte[] b = new byte[10000];
+        rng.nextBytes(b);
+        final ByteBuffer heap = ByteBuffer.wrap(b);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(b.length);
+        direct.put(b).clear();
+        final Checksum[] checksums = {new Adler32(), new CRC32(), new CRC32C()};
+        for (Checksum checksum : checksums) {
+            for (int k = 0; k < 20; k++) {
+                final int index = rng.nextInt(b.length);
+                final int length = rng.nextInt(b.length - index + 1);
+                checksum.reset();
+                checksum.update(b, index, length);
+                final long expected = checksum.getValue();
+                for (ByteBuffer buffer : new ByteBuffer[]{heap, direct}) {
+                    checksum.reset();
+                    Checksums.update(checksum, buffer, index, length);
+                    Assert.assertEquals(expected, checksum.getValue());
+                    Assert.assertEquals(0, buffer.position());
+
+                    buffer.limit(index + length).position(index);
+                    checksum.reset();
+                    Checksums.update(checksum, buffer);
+                    Assert.assertEquals(expected, checksum.getValue());
+                    Assert.assertEquals(index + length, buffer.position());
+                    buffer.clear();
+                }
+            }
+        }
+        final CRC32C crc = new CRC32C();
+        crc.update(b, 5, 100);
+        Assert.assertEquals((int) crc.getValue(), Checksums.crc32c(direct, 5, 100));
+        {
+            boolean caught = false;
+            try {
+                Checksums.update(new Adler32(), direct, b.length, 1);
+            } catch (IndexOutOfBoundsException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests the ConsistentHashRing class.
+ *
+ * @author Robert J. Buck
+ */
+public class ConsistentHashRingTestCase {
+
+    private static final int KEYS = 100000;
+
+    @Test
+    public void testRing() {
+        final ConsistentHashRing<Integer> ring = new ConsistentHashRing<Integer>(160);
+        Assert.assertNull(ring.get(42));
+        for (int i = 0; i < 10; i++) {
+            ring.add("node-" + i, i);
+        }
+        Assert.assertEquals(10, ring.size());
+        final int[] owners = new int[KEYS];
+        final Map<Integer, Integer> counts = new HashMap<Integer, Integer>();
+        for (int k = 0; k < KEYS; k++) {
+            owners[k] = ring.get(HashCode.xxHash64(k, 0));
+            final Integer c = counts.get(owners[k]);
+            counts.put(owners[k], c == null ? 1 : c + 1);
+        }
+        Assert.assertEquals(10, counts.size());
+        for (int count : counts.values()) {
+            Assert.assertTrue(Math.abs(count - KEYS / 10) < KEYS / 10 / 4);
+        }
+        // removing a node only remaps the keys it owned
+        Assert.assertEquals(Integer.valueOf(3), ring.remove("node-3"));
+        Assert.assertNull(ring.remove("node-3"));
+        for (int k = 0; k < KEYS; k++) {
+            final int owner = ring.get(HashCode.xxHash64(k, 0));
+            Assert.assertTrue(owner != 3);
+            if (owners[k] != 3) {
+                Assert.assertEquals(owners[k], owner);
+            }
+        }
+        // adding it back restores the original assignment
+        ring.add("node-3", 3);
+        for (int k = 0; k < KEYS; k++) {
+            Assert.assertEquals(owners[k], ring.get(HashCode.xxHash64(k, 0)).intValue());
+        }
+        {
+            boolean caught = false;
+            try {
+                new ConsistentHashRing<Integer>(0);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testRingPerf() {
+        final ConsistentHashRing<Integer> ring = new ConsistentHashRing<Integer>(160);
+        for (int i = 0; i < 64; i++) {
+            ring.add("node-" + i, i);
+        }
+        int moved = 0;
+        final int[] owners = new int[KEYS];
+        for (int k = 0; k < KEYS; k++) {
+            owners[k] = ring.get(HashCode.xxHash64(k, 0));
+        }
+        ring.add("node-64", 64);
+        for (int k = 0; k < KEYS; k++) {
+            if (ring.get(HashCode.xxHash64(k, 0)) != owners[k]) {
+                moved++;
+            }
+        }
+        Assert.assertTrue(moved < KEYS / 65 * 2);
+        System.out.println("ConsistentHashRing 64->65 remapped: " + moved);
+        long sum = 0;
+        final long s = System.currentTimeMillis();
+        for (int k = 0; k < 10000000; k++) {
+            sum += ring.get(k * 0x9E3779B97F4A7C15L);
+        }
+        final long e = System.currentTimeMillis();
+        System.out.println("ConsistentHashRing get Perf (10M, 64 nodes): " + (e - s));
+        Assert.assertTrue(sum > 0);
+    }
+}
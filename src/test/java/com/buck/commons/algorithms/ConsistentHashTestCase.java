@@ -0,0 +1,129 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the ConsistentHash class.
+ *
+ * @author Robert J. Buck
+ */
+public class ConsistentHashTestCase {
+
+    private static final int KEYS = 100000;
+
+    @Test
+    public void testJump() {
+        // values from the reference implementation
+        Assert.assertEquals(0, ConsistentHash.jump(0, 1));
+        Assert.assertEquals(0, ConsistentHash.jump(0, 100));
+        Assert.assertEquals(6, ConsistentHash.jump(1, 10));
+        Assert.assertEquals(3, ConsistentHash.jump(0xDEADBEEFL, 5));
+        Assert.assertEquals(313, ConsistentHash.jump(-1L, 1000));
+        Assert.assertEquals(1234790967, ConsistentHash.jump(123456789L, Integer.MAX_VALUE));
+        final int[] counts = new int[10];
+        for (int k = 0; k < KEYS; k++) {
+            counts[ConsistentHash.jump(HashCode.xxHash64(k, 0), counts.length)]++;
+        }
+        for (int count : counts) {
+            Assert.assertTrue(Math.abs(count - KEYS / counts.length) < KEYS / counts.length / 10);
+        }
+        {
+            boolean caught = false;
+            try {
+                ConsistentHash.jump(1, 0);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testRendezvous() {
+        Assert.assertEquals(-1, ConsistentHash.rendezvous(1, new long[0]));
+        final long[] nodes = new long[10];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = HashCode.xxHash64("node-" + i, 0);
+        }
+        final long[] fewer = new long[nodes.length - 1];
+        System.arraycopy(nodes, 0, fewer, 0, 3);
+        System.arraycopy(nodes, 4, fewer, 3, fewer.length - 3);
+        final int[] counts = new int[nodes.length];
+        for (int k = 0; k < KEYS; k++) {
+            final long key = HashCode.xxHash64(k, 0);
+            final int owner = ConsistentHash.rendezvous(key, nodes);
+            counts[owner]++;
+            // removing node 3 only remaps the keys it owned
+            final int after = ConsistentHash.rendezvous(key, fewer);
+            if (owner != 3) {
+                Assert.assertEquals(nodes[owner], fewer[after]);
+            }
+        }
+        for (int count : counts) {
+            Assert.assertTrue(Math.abs(count - KEYS / counts.length) < KEYS / counts.length / 10);
+        }
+    }
+
+    @Test
+    public void testRebalancingCostPerf() {
+        for (int n = 1; n < 64; n *= 2) {
+            int moved = 0;
+            int modMoved = 0;
+            for (int k = 0; k < KEYS; k++) {
+                final long key = HashCode.xxHash64(k, 0);
+                final int before = ConsistentHash.jump(key, n);
+                final int after = ConsistentHash.jump(key, n + 1);
+                if (before != after) {
+                    Assert.assertEquals(n, after);
+                    moved++;
+                }
+                if ((key & Long.MAX_VALUE) % n != (key & Long.MAX_VALUE) % (n + 1)) {
+                    modMoved++;
+                }
+            }
+            final double expected = (double) KEYS / (n + 1);
+            Assert.assertTrue(Math.abs(moved - expected) < expected / 10);
+            System.out.println("ConsistentHash jump " + n + "->" + (n + 1) + " remapped: " + moved
+                    + " (modulo: " + modMoved + ")");
+        }
+        final long[] nodes = new long[64];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = i;
+        }
+        long sum = 0;
+        {
+            final long s = System.currentTimeMillis();
+            for (int k = 0; k < 10000000; k++) {
+                sum += ConsistentHash.jump(k * 0x9E3779B97F4A7C15L, 64);
+            }
+            final long e = System.currentTimeMillis();
+            System.out.println("ConsistentHash jump Perf (10M, 64 buckets): " + (e - s));
+        }
+        {
+            final long s = System.currentTimeMillis();
+            for (int k = 0; k < 1000000; k++) {
+                sum += ConsistentHash.rendezvous(k, nodes);
+            }
+            final long e = System.currentTimeMillis();
+            System.out.println("ConsistentHash rendezvous Perf (1M, 64 nodes): " + (e - s));
+        }
+        Assert.assertTrue(sum > 0);
+    }
+}
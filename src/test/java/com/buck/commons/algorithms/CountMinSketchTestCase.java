@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests the CountMinSketch class.
+ *
+ * @author Robert J. Buck
+ */
+public class CountMinSketchTestCase {
+
+    @Test
+    public void testEstimates() {
+        final double epsilon = 0.001;
+        final CountMinSketch sketch = new CountMinSketch(epsilon, 0.01);
+        Assert.assertEquals(5, sketch.depth());
+        Assert.assertEquals(2719, sketch.width());
+        // a skewed stream: element i occurs about 100000 / (i + 1) times
+        final Random rng = new Random(42);
+        final int n = 10000;
+        final long[] truth = new long[n];
+        for (int k = 0; k < 1000000; k++) {
+            final int i = (int) Math.min(n - 1, Math.floor(Math.exp(rng.nextDouble() * Math.log(n))) - 1);
+            truth[i]++;
+            sketch.add(HashCode.xxHash64(i, 0));
+        }
+        Assert.assertEquals(1000000, sketch.total());
+        int exceeded = 0;
+        for (int i = 0; i < n; i++) {
+            final long estimate = sketch.estimate(HashCode.xxHash64(i, 0));
+            Assert.assertTrue(estimate >= truth[i]);
+            if (estimate - truth[i] > epsilon * sketch.total()) {
+                exceeded++;
+            }
+        }
+        Assert.assertTrue(exceeded < n / 100);
+
+        final CountMinSketch copy = CountMinSketch.fromByteArray(sketch.toByteArray());
+        Assert.assertEquals(sketch.total(), copy.total());
+        for (int i = 0; i < n; i++) {
+            Assert.assertEquals(sketch.estimate(HashCode.xxHash64(i, 0)), copy.estimate(HashCode.xxHash64(i, 0)));
+        }
+        copy.merge(sketch);
+        Assert.assertEquals(2 * sketch.total(), copy.total());
+        for (int i = 0; i < n; i++) {
+            Assert.assertTrue(copy.estimate(HashCode.xxHash64(i, 0)) >= 2 * truth[i]);
+        }
+
+        final CountMinSketch strings = new CountMinSketch(4, 1024);
+        strings.add("urn:a:b");
+        strings.add("urn:a:b");
+        Assert.assertEquals(2, strings.estimate("urn:a:b"));
+        {
+            boolean caught = false;
+            try {
+                strings.merge(sketch);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                new CountMinSketch(0.0, 0.01);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                CountMinSketch.fromByteArray(new byte[20]);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testCountMinSketchPerf() {
+        final CountMinSketch sketch = new CountMinSketch(0.0001, 0.001);
+        final long s = System.currentTimeMillis();
+        for (int i = 0; i < 10000000; i++) {
+            sketch.add(HashCode.xxHash64(i & 0xFFFF, 0));
+        }
+        final long e = System.currentTimeMillis();
+        System.out.println("CountMinSketch add Perf (10M): " + (e - s));
+        Assert.assertTrue(sketch.estimate(HashCode.xxHash64(7, 0)) >= 10000000 / 0x10000);
+    }
+}
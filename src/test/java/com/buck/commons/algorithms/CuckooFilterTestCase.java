@@ -0,0 +1,156 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Tests the CuckooFilter class.
+ *
+ * @author Robert J. Buck
+ */
+public class CuckooFilterTestCase {
+
+    private static final int N = 100000;
+
+    private static void checkFilter(CuckooFilter filter, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Assert.assertTrue(filter.mightContain("urn:key:" + i));
+        }
+        int falsePositives = 0;
+        for (int i = N; i < 2 * N; i++) {
+            if (filter.mightContain("urn:key:" + i)) {
+                falsePositives++;
+            }
+        }
+        Assert.assertTrue(falsePositives < N * CuckooFilter.FALSE_POSITIVE_RATE * 2);
+    }
+
+    @Test
+    public void testFilter() {
+        for (boolean direct : new boolean[]{false, true}) {
+            final CuckooFilter filter = new CuckooFilter(N, direct);
+            for (int i = 0; i < N; i++) {
+                Assert.assertTrue(filter.add("urn:key:" + i));
+            }
+            Assert.assertEquals(N, filter.size());
+            checkFilter(filter, 0, N);
+
+            final ByteBuffer buffer = ByteBuffer.allocate(filter.serializedSize());
+            filter.writeTo(buffer);
+            Assert.assertFalse(buffer.hasRemaining());
+            buffer.flip();
+            final CuckooFilter copy = CuckooFilter.readFrom(buffer, !direct);
+            Assert.assertEquals(N, copy.size());
+            Assert.assertEquals(filter.capacity(), copy.capacity());
+            checkFilter(copy, 0, N);
+
+            for (int i = 0; i < N / 2; i++) {
+                Assert.assertTrue(filter.remove("urn:key:" + i));
+            }
+            Assert.assertEquals(N / 2, filter.size());
+            checkFilter(filter, N / 2, N);
+            int remaining = 0;
+            for (int i = 0; i < N / 2; i++) {
+                if (filter.mightContain("urn:key:" + i)) {
+                    remaining++;
+                }
+            }
+            Assert.assertTrue(remaining < N * CuckooFilter.FALSE_POSITIVE_RATE * 2);
+        }
+        final CuckooFilter filter = new CuckooFilter(1000);
+        final UUID uuid = UUID.randomUUID();
+        Assert.assertFalse(filter.mightContain(uuid));
+        Assert.assertTrue(filter.add(uuid));
+        Assert.assertTrue(filter.add(uuid));
+        Assert.assertTrue(filter.remove(uuid));
+        Assert.assertTrue(filter.mightContain(uuid));
+        Assert.assertTrue(filter.remove(uuid));
+        Assert.assertFalse(filter.mightContain(uuid));
+        Assert.assertFalse(filter.remove(uuid));
+        {
+            boolean caught = false;
+            try {
+                new CuckooFilter(-1);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                final ByteBuffer buffer = ByteBuffer.allocate(16);
+                buffer.putInt(3).putInt(0).putInt(-1).putInt(0).flip();
+                CuckooFilter.readFrom(buffer);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testOverflow() {
+        final CuckooFilter filter = new CuckooFilter(100);
+        int added = 0;
+        for (int i = 0; i < 10 * filter.capacity(); i++) {
+            if (!filter.add(HashCode.xxHash64(i, 0))) {
+                break;
+            }
+            added++;
+        }
+        Assert.assertTrue(added > filter.capacity() * 0.9);
+        Assert.assertTrue(added <= filter.capacity() + 1);
+        Assert.assertEquals(added, filter.size());
+        for (int i = 0; i < added; i++) {
+            Assert.assertTrue(filter.mightContain(HashCode.xxHash64(i, 0)));
+        }
+        // removing elements makes room again
+        for (int i = 0; i < added; i++) {
+            Assert.assertTrue(filter.remove(HashCode.xxHash64(i, 0)));
+        }
+        Assert.assertEquals(0, filter.size());
+        Assert.assertTrue(filter.add(HashCode.xxHash64(0, 0)));
+    }
+
+    @Test
+    public void testCuckooFilterPerf() {
+        final int n = 1 << 22;
+        final CuckooFilter filter = new CuckooFilter(n);
+        long s = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) {
+            filter.add(HashCode.xxHash64(i, 0));
+        }
+        long e = System.currentTimeMillis();
+        System.out.println("CuckooFilter add Perf (4M): " + (e - s));
+        int hits = 0;
+        s = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) {
+            if (filter.mightContain(HashCode.xxHash64(i + n, 0))) {
+                hits++;
+            }
+        }
+        e = System.currentTimeMillis();
+        System.out.println("CuckooFilter negative lookup Perf (4M): " + (e - s) + ", false positives: " + hits);
+        Assert.assertTrue(hits < n / 1000);
+    }
+}
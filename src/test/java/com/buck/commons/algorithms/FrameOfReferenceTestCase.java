@@ -0,0 +1,88 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Tests the FrameOfReference class.
+ *
+ * @author Robert J. Buck
+ */
+public class FrameOfReferenceTestCase {
+
+    private void assertRoundTrip(int[] src, ByteBuffer bb) {
+        bb.clear();
+        FrameOfReference.encode(src, 0, src.length, bb);
+        bb.flip();
+        final int[] dst = new int[src.length + 2];
+        FrameOfReference.decode(bb, dst, 1, src.length);
+        Assert.assertFalse(bb.hasRemaining());
+        for (int i = 0; i < src.length; i++) {
+            Assert.assertEquals(src[i], dst[i + 1]);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() {
+        final Random rng = new Random();
+        final int n = 500;
+        final ByteBuffer[] buffers = {
+                ByteBuffer.allocate(FrameOfReference.maxEncodedLength(n)),
+                ByteBuffer.allocateDirect(FrameOfReference.maxEncodedLength(n))
+        };
+        for (ByteBuffer bb : buffers) {
+            assertRoundTrip(new int[0], bb);
+            assertRoundTrip(new int[]{42, 42, 42}, bb);
+            assertRoundTrip(new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1}, bb);
+
+            final int[] timestamps = new int[n];
+            final int base = rng.nextInt();
+            for (int i = 0; i < n; i++) {
+                timestamps[i] = base + rng.nextInt(4096);
+            }
+            assertRoundTrip(timestamps, bb);
+            // 12 bits per value plus a small header
+            Assert.assertTrue(bb.limit() <= 8 + BitPacking.packedLength(n, 12));
+        }
+    }
+
+    @Test
+    public void testDecodePerf() {
+        final int n = 1 << 16;
+        final int[] src = new int[n];
+        final Random rng = new Random();
+        for (int i = 0; i < n; i++) {
+            src[i] = 1000000 + rng.nextInt(1 << 10);
+        }
+        final ByteBuffer bb = ByteBuffer.allocate(FrameOfReference.maxEncodedLength(n));
+        FrameOfReference.encode(src, 0, n, bb);
+        bb.flip();
+        final int[] dst = new int[n];
+        final long s = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            bb.rewind();
+            FrameOfReference.decode(bb, dst, 0, n);
+        }
+        final long e = System.currentTimeMillis();
+        System.out.println("FrameOfReference decode Perf (65M ints): " + (e - s));
+    }
+}
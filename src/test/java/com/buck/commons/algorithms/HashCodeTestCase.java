@@ -19,6 +19,11 @@ package com.buck.commons.algorithms;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
 /**
  * Tests the HashCode class.
  *
@@ -36,4 +41,248 @@ public class HashCodeTestCase {
         Assert.assertEquals("Concatenated HashCode Identical to Constituent (Ellipsis)", s3.hashCode(), HashCode.hashCode(s0, s1));
         Assert.assertEquals("Concatenated HashCode Identical to Constituent (Array)", s3.hashCode(), HashCode.hashCode(sa));
     }
+
+    private static final String FOX = "The quick brown fox jumps over the lazy dog";
+
+    @Test
+    public void testReferenceVectors() throws UnsupportedEncodingException {
+        final byte[] empty = {};
+        final byte[] fox = FOX.getBytes("US-ASCII");
+        Assert.assertEquals(0x02CC5D05, HashCode.xxHash32(empty, 0, 0, 0));
+        Assert.assertEquals(0xE85EA4DE, HashCode.xxHash32(fox, 0, fox.length, 0));
+        Assert.assertEquals(0x4C29BB74, HashCode.xxHash32(fox, 0, fox.length, 42));
+        Assert.assertEquals(0xEF46DB3751D8E999L, HashCode.xxHash64(empty, 0, 0, 0));
+        Assert.assertEquals(0x0B242D361FDA71BCL, HashCode.xxHash64(fox, 0, fox.length, 0));
+        Assert.assertEquals(0xAA9F288A8BAA3D3FL, HashCode.xxHash64(fox, 0, fox.length, 42));
+        Assert.assertEquals(0, HashCode.murmurHash3_32(empty, 0, 0, 0));
+        Assert.assertEquals(0x2E4FF723, HashCode.murmurHash3_32(fox, 0, fox.length, 0));
+        Assert.assertEquals(0x347CA102, HashCode.murmurHash3_32(fox, 0, fox.length, 42));
+        final long[] result = new long[2];
+        Assert.assertEquals(0xE34BBC7BBC071B6CL, HashCode.murmurHash3_128(fox, 0, fox.length, 0, result));
+        Assert.assertEquals(0xE34BBC7BBC071B6CL, result[0]);
+        Assert.assertEquals(0x7A433CA9C49A9347L, result[1]);
+        Assert.assertEquals(0x0409638EE2BDE459L, HashCode.wyHash(empty, 0, 0, 0));
+        Assert.assertEquals(0x6303B3BADE45A571L, HashCode.wyHash(fox, 0, fox.length, 0));
+        Assert.assertEquals(0x4F0E75ED5D33843DL, HashCode.wyHash(fox, 0, fox.length, 42));
+    }
+
+    @Test
+    public void testViews() throws UnsupportedEncodingException {
+        final Random rng = new Random();
+        for (int len = 0; len < 100; len++) {
+            final long seed = rng.nextLong();
+            final byte[] b = new byte[len];
+            rng.nextBytes(b);
+            final ByteBuffer heap = ByteBuffer.wrap(b);
+            final ByteBuffer direct = ByteBuffer.allocateDirect(len + 1).order(ByteOrder.LITTLE_ENDIAN);
+            direct.put((byte) 0).put(b).flip();
+            direct.position(1);
+            Assert.assertEquals(HashCode.xxHash32(b, 0, len, (int) seed), HashCode.xxHash32(heap, (int) seed));
+            Assert.assertEquals(HashCode.xxHash32(b, 0, len, (int) seed), HashCode.xxHash32(direct, (int) seed));
+            Assert.assertEquals(HashCode.xxHash64(b, 0, len, seed), HashCode.xxHash64(heap, seed));
+            Assert.assertEquals(HashCode.xxHash64(b, 0, len, seed), HashCode.xxHash64(direct, seed));
+            Assert.assertEquals(HashCode.murmurHash3_32(b, 0, len, (int) seed), HashCode.murmurHash3_32(direct, (int) seed));
+            Assert.assertEquals(HashCode.murmurHash3_128(b, 0, len, seed, null), HashCode.murmurHash3_128(heap, seed, null));
+            Assert.assertEquals(HashCode.wyHash(b, 0, len, seed), HashCode.wyHash(direct, seed));
+            Assert.assertEquals(1, direct.position());
+
+            final char[] ca = new char[len];
+            for (int i = 0; i < len; i++) {
+                ca[i] = (char) rng.nextInt(0xD800);
+            }
+            final String s = new String(ca) + "\uD83D\uDE00";
+            final byte[] utf16 = s.getBytes("UTF-16LE");
+            final byte[] utf8 = s.getBytes("UTF-8");
+            Assert.assertEquals(HashCode.xxHash32(utf16, 0, utf16.length, 7), HashCode.xxHash32(s, 7));
+            Assert.assertEquals(HashCode.xxHash64(utf16, 0, utf16.length, seed), HashCode.xxHash64(s, seed));
+            Assert.assertEquals(HashCode.murmurHash3_32(utf16, 0, utf16.length, 7), HashCode.murmurHash3_32(s, 7));
+            Assert.assertEquals(HashCode.murmurHash3_128(utf16, 0, utf16.length, seed, null), HashCode.murmurHash3_128(s, seed, null));
+            Assert.assertEquals(HashCode.wyHash(utf16, 0, utf16.length, seed), HashCode.wyHash(s, seed));
+            Assert.assertEquals(HashCode.xxHash32(utf8, 0, utf8.length, 7), HashCode.xxHash32Utf8(s, 7));
+            Assert.assertEquals(HashCode.xxHash64(utf8, 0, utf8.length, seed), HashCode.xxHash64Utf8(s, seed));
+            Assert.assertEquals(HashCode.murmurHash3_32(utf8, 0, utf8.length, 7), HashCode.murmurHash3_32Utf8(s, 7));
+            Assert.assertEquals(HashCode.murmurHash3_128(utf8, 0, utf8.length, seed, null), HashCode.murmurHash3_128Utf8(s, seed, null));
+            Assert.assertEquals(HashCode.wyHash(utf8, 0, utf8.length, seed), HashCode.wyHashUtf8(s, seed));
+
+            final long v = rng.nextLong();
+            final byte[] lb = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(v).array();
+            Assert.assertEquals(HashCode.xxHash32(lb, 0, 8, (int) seed), HashCode.xxHash32(v, (int) seed));
+            Assert.assertEquals(HashCode.xxHash64(lb, 0, 8, seed), HashCode.xxHash64(v, seed));
+            Assert.assertEquals(HashCode.murmurHash3_32(lb, 0, 8, (int) seed), HashCode.murmurHash3_32(v, (int) seed));
+            Assert.assertEquals(HashCode.murmurHash3_128(lb, 0, 8, seed, null), HashCode.murmurHash3_128(v, seed, null));
+            Assert.assertEquals(HashCode.wyHash(lb, 0, 8, seed), HashCode.wyHash(v, seed));
+        }
+        {
+            boolean caught = false;
+            try {
+                HashCode.xxHash64(new byte[4], 2, 4, 0);
+            } catch (IndexOutOfBoundsException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testHashPerf() {
+        final byte[] b = new byte[1 << 20];
+        new Random().nextBytes(b);
+        long h = 0;
+        {
+            final long s = System.currentTimeMillis();
+            for (int i = 0; i < 256; i++) {
+                h += HashCode.xxHash64(b, 0, b.length, i);
+            }
+            final long e = System.currentTimeMillis();
+            System.out.println("HashCode xxHash64 Perf (256MB): " + (e - s));
+        }
+        {
+            final long s = System.currentTimeMillis();
+            for (int i = 0; i < 256; i++) {
+                h += HashCode.murmurHash3_128(b, 0, b.length, i, null);
+            }
+            final long e = System.currentTimeMillis();
+            System.out.println("HashCode murmurHash3_128 Perf (256MB): " + (e - s));
+        }
+        {
+            final long s = System.currentTimeMillis();
+            for (int i = 0; i < 256; i++) {
+                h += HashCode.wyHash(b, 0, b.length, i);
+            }
+            final long e = System.currentTimeMillis();
+            System.out.println("HashCode wyHash Perf (256MB): " + (e - s));
+        }
+        Assert.assertTrue(h != 0);
+    }
+
+    @Test
+    public void testHasher() {
+        final HashCode.Hasher hasher = HashCode.newHasher(0);
+        final long h = hasher.putLong(42L).putInt(7).putChars("urn:nid:nss").putBytes(new byte[]{1, 2, 3}).hash();
+        Assert.assertEquals(h, hasher.hash());
+        Assert.assertEquals(h, hasher.reset().putLong(42L).putInt(7).putChars("urn:nid:nss").putBytes(new byte[]{1, 2, 3}).hash());
+        Assert.assertEquals(h, HashCode.newHasher(0).putLong(42L).putInt(7).putChars(new StringBuilder("urn:nid:nss"))
+                .putBytes(new byte[]{9, 1, 2, 3, 9}, 1, 3).hash());
+        Assert.assertTrue(h != HashCode.newHasher(1).putLong(42L).putInt(7).putChars("urn:nid:nss").putBytes(new byte[]{1, 2, 3}).hash());
+        Assert.assertTrue(h != hasher.reset().putInt(7).putLong(42L).putChars("urn:nid:nss").putBytes(new byte[]{1, 2, 3}).hash());
+        Assert.assertTrue(hasher.reset().putChars("ab").putChars("c").hash() != hasher.reset().putChars("a").putChars("bc").hash());
+        Assert.assertTrue(hasher.reset().putBytes(new byte[0]).hash() != hasher.reset().hash());
+        // single bit changes in any part flip about half the output bits
+        final Random rng = new Random();
+        for (int bit = 0; bit < 64; bit++) {
+            final long v = rng.nextLong();
+            final long a = hasher.reset().putLong(v).putChars("key").hash();
+            final long b = hasher.reset().putLong(v ^ (1L << bit)).putChars("key").hash();
+            final int flipped = Long.bitCount(a ^ b);
+            Assert.assertTrue(flipped > 8 && flipped < 56);
+        }
+        {
+            boolean caught = false;
+            try {
+                hasher.putBytes(new byte[4], 3, 2);
+            } catch (IndexOutOfBoundsException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testHasherPerf() {
+        final HashCode.Hasher hasher = HashCode.newHasher(0);
+        final String[] parts = {"urn", "silly", "blammo=default,chunky=jif,peanut=butter"};
+        long h = 0;
+        {
+            final long s = System.currentTimeMillis();
+            for (int i = 0; i < 4000000; i++) {
+                h += hasher.reset().putLong(i).putInt(i).putChars(parts[i % 3]).hash();
+            }
+            final long e = System.currentTimeMillis();
+            System.out.println("HashCode Hasher Perf: " + (e - s));
+        }
+        {
+            final long s = System.currentTimeMillis();
+            for (int i = 0; i < 4000000; i++) {
+                h += HashCode.hashCode(Long.toString(i), Integer.toString(i), parts[i % 3]);
+            }
+            final long e = System.currentTimeMillis();
+            System.out.println("HashCode String... Perf: " + (e - s));
+        }
+        Assert.assertTrue(h != 0);
+    }
+
+    @Test
+    public void testSipHash() throws UnsupportedEncodingException {
+        // vectors from the reference implementations, key bytes 00..0f
+        final long k0 = 0x0706050403020100L;
+        final long k1 = 0x0F0E0D0C0B0A0908L;
+        final byte[] m = new byte[15];
+        for (int i = 0; i < m.length; i++) {
+            m[i] = (byte) i;
+        }
+        Assert.assertEquals(0x726FDB47DD0E0E31L, HashCode.sipHash24(m, 0, 0, k0, k1));
+        Assert.assertEquals(0xA129CA6149BE45E5L, HashCode.sipHash24(m, 0, 15, k0, k1));
+        Assert.assertEquals(0xABAC0158050FC4DCL, HashCode.sipHash13(m, 0, 0, k0, k1));
+        Assert.assertEquals(0x5B9F35A9, HashCode.halfSipHash24(m, 0, 0, 0x03020100, 0x07060504));
+        Assert.assertEquals(0xB85A4727, HashCode.halfSipHash24(m, 0, 1, 0x03020100, 0x07060504));
+
+        final String s = "urn:silly:blammo=default";
+        final byte[] utf16 = s.getBytes("UTF-16LE");
+        Assert.assertEquals(HashCode.sipHash24(utf16, 0, utf16.length, k0, k1), HashCode.sipHash24(s, k0, k1));
+        Assert.assertEquals(HashCode.sipHash13(utf16, 0, utf16.length, k0, k1), HashCode.sipHash13(s, k0, k1));
+        Assert.assertEquals(HashCode.halfSipHash24(utf16, 0, utf16.length, 1, 2), HashCode.halfSipHash24(s, 1, 2));
+        Assert.assertEquals(HashCode.halfSipHash13(utf16, 0, utf16.length, 1, 2), HashCode.halfSipHash13(s, 1, 2));
+        Assert.assertTrue(HashCode.sipHash24(s, k0, k1) != HashCode.sipHash24(s, k0, k1 + 1));
+
+        // the per-process key is stable within the process and not zero
+        Assert.assertEquals(HashCode.sipHash24(s), HashCode.sipHash24(s));
+        Assert.assertEquals(HashCode.sipHash24(utf16, 0, utf16.length), HashCode.sipHash24(s));
+        Assert.assertEquals(HashCode.sipHash13(utf16, 0, utf16.length), HashCode.sipHash13(s));
+        Assert.assertEquals(HashCode.halfSipHash24(utf16, 0, utf16.length), HashCode.halfSipHash24(s));
+        Assert.assertEquals(HashCode.halfSipHash13(utf16, 0, utf16.length), HashCode.halfSipHash13(s));
+        Assert.assertTrue(HashCode.sipHash24(s) != HashCode.sipHash24(s, 0, 0));
+        {
+            boolean caught = false;
+            try {
+                HashCode.sipHash24(m, 10, 10);
+            } catch (IndexOutOfBoundsException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testSipHashPerf() {
+        final String[] keys = new String[1024];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "urn:key:" + i;
+        }
+        long h = 0;
+        {
+            final long s = System.currentTimeMillis();
+            for (int i = 0; i < 10000000; i++) {
+                h += HashCode.sipHash24(keys[i & 1023]);
+            }
+            final long e = System.currentTimeMillis();
+            System.out.println("HashCode sipHash24 Perf (10M keys): " + (e - s));
+        }
+        {
+            final long s = System.currentTimeMillis();
+            for (int i = 0; i < 10000000; i++) {
+                h += HashCode.sipHash13(keys[i & 1023]);
+            }
+            final long e = System.currentTimeMillis();
+            System.out.println("HashCode sipHash13 Perf (10M keys): " + (e - s));
+        }
+        {
+            final long s = System.currentTimeMillis();
+            for (int i = 0; i < 10000000; i++) {
+                h += HashCode.halfSipHash13(keys[i & 1023]);
+            }
+            final long e = System.currentTimeMillis();
+            System.out.println("HashCode halfSipHash13 Perf (10M keys): " + (e - s));
+        }
+        Assert.assertTrue(h != 0);
+    }
 }
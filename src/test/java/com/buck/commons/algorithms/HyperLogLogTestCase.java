@@ -0,0 +1,126 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.UUID;
+
+/**
+ * Tests the HyperLogLog class.
+ *
+ * @author Robert J. Buck
+ */
+public class HyperLogLogTestCase {
+
+    private static void assertEstimate(long expected, long actual, double tolerance) {
+        Assert.assertTrue(expected + " ~ " + actual,
+                Math.abs(actual - expected) <= Math.max(1.0, expected * tolerance));
+    }
+
+    @Test
+    public void testCardinality() {
+        for (int p = HyperLogLog.MIN_PRECISION + 6; p <= HyperLogLog.MAX_PRECISION; p += 4) {
+            final HyperLogLog sketch = new HyperLogLog(p);
+            // three standard errors
+            final double tolerance = 3 * 1.04 / Math.sqrt(1 << p);
+            Assert.assertEquals(0, sketch.cardinality());
+            int n = 0;
+            for (int target = 1; target <= 1000000; target *= 10) {
+                while (n < target) {
+                    sketch.add("urn:key:" + n++);
+                }
+                // duplicates do not count
+                sketch.add("urn:key:0");
+                assertEstimate(n, sketch.cardinality(), tolerance);
+                final HyperLogLog copy = HyperLogLog.fromByteArray(sketch.toByteArray());
+                Assert.assertEquals(sketch.isSparse(), copy.isSparse());
+                Assert.assertEquals(sketch.cardinality(), copy.cardinality());
+            }
+            Assert.assertFalse(sketch.isSparse());
+        }
+        final HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            sketch.add(UUID.randomUUID());
+        }
+        Assert.assertTrue(sketch.isSparse());
+        Assert.assertEquals(100, sketch.cardinality());
+        Assert.assertTrue(sketch.toByteArray().length < 500);
+    }
+
+    @Test
+    public void testMerge() {
+        for (int split : new int[]{100, 10000, 100000}) {
+            final HyperLogLog a = new HyperLogLog();
+            final HyperLogLog b = new HyperLogLog();
+            final HyperLogLog all = new HyperLogLog();
+            for (int i = 0; i < split; i++) {
+                a.add(HashCode.xxHash64(i, 0));
+                all.add(HashCode.xxHash64(i, 0));
+            }
+            for (int i = split / 2; i < 2 * split; i++) {
+                b.add(HashCode.xxHash64(i, 0));
+                all.add(HashCode.xxHash64(i, 0));
+            }
+            final HyperLogLog sparseFirst = HyperLogLog.fromByteArray(a.toByteArray());
+            a.merge(b);
+            Assert.assertEquals(all.cardinality(), a.cardinality());
+            b.merge(sparseFirst);
+            Assert.assertEquals(all.cardinality(), b.cardinality());
+        }
+        {
+            boolean caught = false;
+            try {
+                new HyperLogLog(10).merge(new HyperLogLog(12));
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                new HyperLogLog(HyperLogLog.MAX_PRECISION + 1);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                HyperLogLog.fromByteArray(new byte[]{3, 14});
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testHyperLogLogPerf() {
+        final HyperLogLog sketch = new HyperLogLog();
+        final long s = System.currentTimeMillis();
+        for (int i = 0; i < 10000000; i++) {
+            sketch.add(HashCode.xxHash64(i, 0));
+        }
+        final long e = System.currentTimeMillis();
+        System.out.println("HyperLogLog add Perf (10M): " + (e - s) + ", estimate: " + sketch.cardinality()
+                + ", bytes: " + sketch.toByteArray().length);
+    }
+}
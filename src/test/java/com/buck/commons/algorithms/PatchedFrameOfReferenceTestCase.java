@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Tests the PatchedFrameOfReference class.
+ *
+ * @author Robert J. Buck
+ */
+public class PatchedFrameOfReferenceTestCase {
+
+    private int assertRoundTrip(int[] src, ByteBuffer bb) {
+        bb.clear();
+        PatchedFrameOfReference.encode(src, 0, src.length, bb);
+        final int encodedLength = bb.position();
+        bb.flip();
+        final int[] dst = new int[src.length + 2];
+        PatchedFrameOfReference.decode(bb, dst, 1, src.length);
+        Assert.assertFalse(bb.hasRemaining());
+        for (int i = 0; i < src.length; i++) {
+            Assert.assertEquals(src[i], dst[i + 1]);
+        }
+        return encodedLength;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        final Random rng = new Random();
+        final int n = 1000;
+        final ByteBuffer[] buffers = {
+                ByteBuffer.allocate(PatchedFrameOfReference.maxEncodedLength(n)),
+                ByteBuffer.allocateDirect(PatchedFrameOfReference.maxEncodedLength(n))
+        };
+        for (ByteBuffer bb : buffers) {
+            assertRoundTrip(new int[0], bb);
+            assertRoundTrip(new int[]{7}, bb);
+            assertRoundTrip(new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1}, bb);
+
+            final int[] random = new int[n];
+            for (int i = 0; i < n; i++) {
+                random[i] = rng.nextInt();
+            }
+            assertRoundTrip(random, bb);
+
+            // mostly small values with rare outliers; outliers must not
+            // inflate the width of the whole block
+            final int[] skewed = new int[n];
+            for (int i = 0; i < n; i++) {
+                skewed[i] = i % 50 == 0 ? rng.nextInt(1 << 30) : rng.nextInt(16);
+            }
+            final int patched = assertRoundTrip(skewed, bb);
+            bb.clear();
+            FrameOfReference.encode(skewed, 0, n, bb);
+            Assert.assertTrue(patched < bb.position() / 3);
+        }
+    }
+
+    @Test
+    public void testDecodePerf() {
+        final int n = 1 << 16;
+        final int[] src = new int[n];
+        final Random rng = new Random();
+        for (int i = 0; i < n; i++) {
+            src[i] = i % 64 == 0 ? rng.nextInt() : rng.nextInt(1 << 8);
+        }
+        final ByteBuffer bb = ByteBuffer.allocate(PatchedFrameOfReference.maxEncodedLength(n));
+        PatchedFrameOfReference.encode(src, 0, n, bb);
+        bb.flip();
+        final int[] dst = new int[n];
+        final long s = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            bb.rewind();
+            PatchedFrameOfReference.decode(bb, dst, 0, n);
+        }
+        final long e = System.currentTimeMillis();
+        System.out.println("PatchedFrameOfReference decode Perf (65M ints): " + (e - s));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests the SpaceSaving class.
+ *
+ * @author Robert J. Buck
+ */
+public class SpaceSavingTestCase {
+
+    @Test
+    public void testHeavyHitters() {
+        final SpaceSaving sketch = new SpaceSaving(100);
+        final Random rng = new Random(42);
+        final long[] truth = new long[10];
+        for (int k = 0; k < 1000000; k++) {
+            // ten heavy keys take half the stream, the rest is noise
+            if (rng.nextBoolean()) {
+                final int i = rng.nextInt(truth.length);
+                truth[i] += 1;
+                sketch.offer(i);
+            } else {
+                sketch.offer(1000 + rng.nextInt(1000000));
+            }
+        }
+        Assert.assertEquals(1000000, sketch.total());
+        Assert.assertEquals(100, sketch.size());
+        final long[] top = sketch.top(10);
+        Assert.assertEquals(10, top.length);
+        for (int i = 0; i < top.length; i++) {
+            Assert.assertTrue(top[i] < truth.length);
+            if (i > 0) {
+                Assert.assertTrue(sketch.count(top[i - 1]) >= sketch.count(top[i]));
+            }
+        }
+        for (int i = 0; i < truth.length; i++) {
+            Assert.assertTrue(sketch.count(i) >= truth[i]);
+            Assert.assertTrue(sketch.count(i) - sketch.error(i) <= truth[i]);
+        }
+        Assert.assertEquals(0, sketch.count(-1));
+
+        final SpaceSaving copy = SpaceSaving.fromByteArray(sketch.toByteArray());
+        Assert.assertEquals(sketch.total(), copy.total());
+        Assert.assertEquals(sketch.size(), copy.size());
+        for (long key : sketch.top(100)) {
+            Assert.assertEquals(sketch.count(key), copy.count(key));
+            Assert.assertEquals(sketch.error(key), copy.error(key));
+        }
+        // the copy continues to evict the smallest counter
+        copy.offer(-1);
+        Assert.assertEquals(100, copy.size());
+        Assert.assertTrue(copy.count(-1) > 0);
+
+        final SpaceSaving small = new SpaceSaving(3);
+        small.offer("a");
+        small.offer("b");
+        small.offer("b");
+        Assert.assertEquals(2, small.size());
+        Assert.assertEquals(HashCode.xxHash64("b", 0), small.top(5)[0]);
+        {
+            boolean caught = false;
+            try {
+                new SpaceSaving(0);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                SpaceSaving.fromByteArray(new byte[]{0, 0, 0, 1, 0, 0, 0, 2});
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testSpaceSavingPerf() {
+        final SpaceSaving sketch = new SpaceSaving(1000);
+        final Random rng = new Random(42);
+        final long s = System.currentTimeMillis();
+        for (int i = 0; i < 10000000; i++) {
+            sketch.offer((i & 1) == 0 ? i & 0xFF : rng.nextInt());
+        }
+        final long e = System.currentTimeMillis();
+        System.out.println("SpaceSaving offer Perf (10M): " + (e - s));
+        Assert.assertEquals(1000, sketch.size());
+    }
+}
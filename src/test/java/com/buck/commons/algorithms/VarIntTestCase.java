@@ -0,0 +1,143 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Tests the VarInt class.
+ *
+ * @author Robert J. Buck
+ */
+public class VarIntTestCase {
+
+    @Test
+    public void testZigZag() {
+        Assert.assertEquals(0, VarInt.zigZagEncode(0));
+        Assert.assertEquals(1, VarInt.zigZagEncode(-1));
+        Assert.assertEquals(2, VarInt.zigZagEncode(1));
+        Assert.assertEquals(-1, VarInt.zigZagEncode(Integer.MIN_VALUE));
+        Assert.assertEquals(-1L, VarInt.zigZagEncode(Long.MIN_VALUE));
+        final int[] ia = {0, 1, -1, 63, -64, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int i : ia) {
+            Assert.assertEquals(i, VarInt.zigZagDecode(VarInt.zigZagEncode(i)));
+            Assert.assertEquals((long) i, VarInt.zigZagDecode(VarInt.zigZagEncode((long) i)));
+        }
+    }
+
+    @Test
+    public void testVarInt() {
+        final int[] ia = {0, 1, 127, 128, 16383, 16384, -1, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        final int[] sizes = {1, 1, 1, 2, 2, 3, 5, 5, 5};
+        final ByteBuffer bb = ByteBuffer.allocate(64);
+        for (int i = 0; i < ia.length; i++) {
+            Assert.assertEquals(sizes[i], VarInt.sizeOfVarInt(ia[i]));
+            bb.clear();
+            VarInt.writeVarInt(bb, ia[i]);
+            Assert.assertEquals(sizes[i], bb.position());
+            final byte[] array = new byte[8];
+            Assert.assertEquals(sizes[i] + 1, VarInt.writeVarInt(array, 1, ia[i]));
+            bb.flip();
+            Assert.assertEquals(ia[i], VarInt.readVarInt(bb));
+            Assert.assertEquals(ia[i], VarInt.readVarInt(ByteBuffer.wrap(array, 1, 7)));
+
+            bb.clear();
+            VarInt.writeSignedVarInt(bb, ia[i]);
+            bb.flip();
+            Assert.assertEquals(ia[i], VarInt.readSignedVarInt(bb));
+        }
+        final long[] la = {0L, 1L, 127L, 128L, -1L, Long.MAX_VALUE, Long.MIN_VALUE};
+        final int[] lsizes = {1, 1, 1, 2, 10, 9, 10};
+        for (int i = 0; i < la.length; i++) {
+            Assert.assertEquals(lsizes[i], VarInt.sizeOfVarLong(la[i]));
+            bb.clear();
+            VarInt.writeVarLong(bb, la[i]);
+            Assert.assertEquals(lsizes[i], bb.position());
+            bb.flip();
+            Assert.assertEquals(la[i], VarInt.readVarLong(bb));
+
+            bb.clear();
+            VarInt.writeSignedVarLong(bb, la[i]);
+            bb.flip();
+            Assert.assertEquals(la[i], VarInt.readSignedVarLong(bb));
+        }
+        {
+            boolean caught = false;
+            try {
+                VarInt.readVarInt(ByteBuffer.wrap(new byte[]{-1, -1, -1, -1, -1, 1}));
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testDeltas() {
+        final Random rng = new Random();
+        final int n = 1000;
+        final int[] ia = new int[n];
+        final long[] la = new long[n];
+        int iv = rng.nextInt();
+        long lv = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) {
+            iv += rng.nextInt(1000) - 100;
+            lv += rng.nextInt(1000);
+            ia[i] = iv;
+            la[i] = lv;
+        }
+        final ByteBuffer bb = ByteBuffer.allocate(n * VarInt.MAX_VARLONG_SIZE);
+        VarInt.writeDeltas(bb, ia, 0, n);
+        Assert.assertTrue(bb.position() < n * 3);
+        VarInt.writeDeltas(bb, la, 0, n);
+        bb.flip();
+        final int[] io = new int[n];
+        final long[] lo = new long[n];
+        VarInt.readDeltas(bb, io, 0, n);
+        VarInt.readDeltas(bb, lo, 0, n);
+        Assert.assertFalse(bb.hasRemaining());
+        for (int i = 0; i < n; i++) {
+            Assert.assertEquals(ia[i], io[i]);
+            Assert.assertEquals(la[i], lo[i]);
+        }
+    }
+
+    @Test
+    public void testReadDeltasPerf() {
+        final int n = 1 << 16;
+        final int[] src = new int[n];
+        final Random rng = new Random();
+        for (int i = 1; i < n; i++) {
+            src[i] = src[i - 1] + rng.nextInt(300);
+        }
+        final ByteBuffer bb = ByteBuffer.allocate(n * VarInt.MAX_VARINT_SIZE);
+        VarInt.writeDeltas(bb, src, 0, n);
+        bb.flip();
+        final int[] dst = new int[n];
+        final long s = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            bb.rewind();
+            VarInt.readDeltas(bb, dst, 0, n);
+        }
+        final long e = System.currentTimeMillis();
+        System.out.println("VarInt readDeltas Perf (65M ints): " + (e - s));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests the IntIntHashMap class.
+ *
+ * @author Robert J. Buck
+ */
+public class IntIntHashMapTestCase {
+
+    @Test
+    public void testBasics() {
+        final IntIntHashMap map = new IntIntHashMap(4, Integer.MIN_VALUE);
+        Assert.assertEquals(Integer.MIN_VALUE, map.get(0));
+        Assert.assertEquals(Integer.MIN_VALUE, map.put(0, 1));
+        Assert.assertEquals(1, map.put(0, 2));
+        Assert.assertEquals(2, map.get(0));
+        Assert.assertEquals(Integer.MIN_VALUE + 3, map.addTo(-5, 3));
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals(2, map.remove(0));
+        Assert.assertEquals(Integer.MIN_VALUE, map.remove(0));
+        Assert.assertEquals(1, map.size());
+        Assert.assertEquals(1, map.keys().length);
+        Assert.assertEquals(-5, map.keys()[0]);
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        final Random rng = new Random(7);
+        final IntIntHashMap map = new IntIntHashMap();
+        final Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+        for (int i = 0; i < 200000; i++) {
+            final int key = rng.nextInt(3000) - 1500;
+            final int value = rng.nextInt();
+            switch (rng.nextInt(3)) {
+                case 0: {
+                    final Integer previous = expected.put(key, value);
+                    Assert.assertEquals(previous == null ? 0 : previous, map.put(key, value));
+                    break;
+                }
+                case 1: {
+                    final Integer previous = expected.remove(key);
+                    Assert.assertEquals(previous == null ? 0 : previous, map.remove(key));
+                    break;
+                }
+                default: {
+                    final Integer previous = expected.get(key);
+                    Assert.assertEquals(previous == null ? 0 : previous, map.get(key));
+                }
+            }
+            Assert.assertEquals(expected.size(), map.size());
+        }
+        int count = 0;
+        final IntIntHashMap.Cursor cursor = map.cursor();
+        while (cursor.next()) {
+            Assert.assertEquals(expected.get(cursor.key()).intValue(), cursor.value());
+            count++;
+        }
+        Assert.assertEquals(expected.size(), count);
+    }
+
+    @Test
+    public void testPerf() {
+        final int n = 1 << 20;
+        final int[] keys = new int[n];
+        final Random rng = new Random();
+        for (int i = 0; i < n; i++) {
+            keys[i] = rng.nextInt();
+        }
+        long s = System.currentTimeMillis();
+        final IntIntHashMap map = new IntIntHashMap();
+        for (int i = 0; i < n; i++) {
+            map.addTo(keys[i], 1);
+        }
+        long e = System.currentTimeMillis();
+        System.out.println("IntIntHashMap Perf (1M addTo): " + (e - s));
+        s = System.currentTimeMillis();
+        final Map<Integer, Integer> boxed = new HashMap<Integer, Integer>();
+        for (int i = 0; i < n; i++) {
+            final Integer previous = boxed.get(keys[i]);
+            boxed.put(keys[i], previous == null ? 1 : previous + 1);
+        }
+        e = System.currentTimeMillis();
+        System.out.println("HashMap<Integer,Integer> Perf (1M increments): " + (e - s));
+        Assert.assertEquals(boxed.size(), map.size());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Tests the LongHashSet class.
+ *
+ * @author Robert J. Buck
+ */
+public class LongHashSetTestCase {
+
+    @Test
+    public void testBasics() {
+        final LongHashSet set = new LongHashSet(0);
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertTrue(set.add(0));
+        Assert.assertFalse(set.add(0));
+        Assert.assertTrue(set.add(-1));
+        Assert.assertTrue(set.contains(0));
+        Assert.assertTrue(set.contains(-1));
+        Assert.assertFalse(set.contains(1));
+        Assert.assertEquals(2, set.size());
+        Assert.assertTrue(set.remove(0));
+        Assert.assertFalse(set.remove(0));
+        Assert.assertArrayEquals(new long[]{-1}, set.toArray());
+        set.clear();
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertFalse(set.cursor().next());
+    }
+
+    @Test
+    public void testAgainstHashSet() {
+        final Random rng = new Random(3);
+        final LongHashSet set = new LongHashSet();
+        final Set<Long> expected = new HashSet<Long>();
+        for (int i = 0; i < 200000; i++) {
+            final long key = rng.nextInt(4000) - 2000;
+            switch (rng.nextInt(3)) {
+                case 0:
+                    Assert.assertEquals(expected.add(key), set.add(key));
+                    break;
+                case 1:
+                    Assert.assertEquals(expected.remove(key), set.remove(key));
+                    break;
+                default:
+                    Assert.assertEquals(expected.contains(key), set.contains(key));
+            }
+            Assert.assertEquals(expected.size(), set.size());
+        }
+        final LongHashSet.Cursor cursor = set.cursor();
+        int count = 0;
+        while (cursor.next()) {
+            Assert.assertTrue(expected.contains(cursor.key()));
+            count++;
+        }
+        Assert.assertEquals(expected.size(), count);
+    }
+
+    @Test
+    public void testSequentialKeys() {
+        // sequential keys must not cluster under the per-set seeded mix
+        final LongHashSet set = new LongHashSet();
+        set.ensureCapacity(100000);
+        for (long i = 0; i < 100000; i++) {
+            Assert.assertTrue(set.add(i << 32));
+        }
+        final LongHashSet copy = new LongHashSet();
+        final LongHashSet.Cursor cursor = set.cursor();
+        while (cursor.next()) {
+            copy.add(cursor.key());
+        }
+        Assert.assertEquals(100000, copy.size());
+        for (long i = 0; i < 100000; i++) {
+            Assert.assertTrue(copy.contains(i << 32));
+        }
+    }
+}
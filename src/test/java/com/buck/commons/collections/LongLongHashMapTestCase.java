@@ -0,0 +1,191 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Tests the LongLongHashMap class.
+ *
+ * @author Robert J. Buck
+ */
+public class LongLongHashMapTestCase {
+
+    @Test
+    public void testBasics() {
+        final LongLongHashMap map = new LongLongHashMap(0, -1L);
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertEquals(-1L, map.getNoEntryValue());
+        Assert.assertEquals(-1L, map.get(0));
+        Assert.assertEquals(-1L, map.put(0, 10));
+        Assert.assertEquals(-1L, map.put(7, 70));
+        Assert.assertEquals(2, map.size());
+        Assert.assertTrue(map.containsKey(0));
+        Assert.assertTrue(map.containsKey(7));
+        Assert.assertFalse(map.containsKey(8));
+        Assert.assertEquals(10L, map.put(0, 11));
+        Assert.assertEquals(11L, map.get(0));
+        Assert.assertEquals(75L, map.addTo(7, 5));
+        Assert.assertEquals(4L, map.addTo(9, 5));
+        Assert.assertEquals(11L, map.remove(0));
+        Assert.assertEquals(-1L, map.remove(0));
+        Assert.assertFalse(map.containsKey(0));
+        Assert.assertEquals(2, map.size());
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertEquals(-1L, map.get(7));
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        final Random rng = new Random(42);
+        final LongLongHashMap map = new LongLongHashMap();
+        final Map<Long, Long> expected = new HashMap<Long, Long>();
+        for (int i = 0; i < 200000; i++) {
+            // a small key range forces collisions, removals and reinsertions
+            final long key = rng.nextInt(5000) - 2500;
+            final long value = rng.nextLong();
+            switch (rng.nextInt(4)) {
+                case 0:
+                case 1: {
+                    final Long previous = expected.put(key, value);
+                    Assert.assertEquals(previous == null ? 0L : previous, map.put(key, value));
+                    break;
+                }
+                case 2: {
+                    final Long previous = expected.remove(key);
+                    Assert.assertEquals(previous == null ? 0L : previous, map.remove(key));
+                    break;
+                }
+                default: {
+                    final Long previous = expected.get(key);
+                    Assert.assertEquals(previous == null ? 0L : previous, map.get(key));
+                    Assert.assertEquals(previous != null, map.containsKey(key));
+                }
+            }
+            Assert.assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            Assert.assertEquals(entry.getValue().longValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testCursor() {
+        final LongLongHashMap map = new LongLongHashMap();
+        for (long i = 0; i < 1000; i++) {
+            map.put(i * 31, i);
+        }
+        final Set<Long> seen = new HashSet<Long>();
+        final LongLongHashMap.Cursor cursor = map.cursor();
+        while (cursor.next()) {
+            Assert.assertEquals(cursor.key(), cursor.value() * 31);
+            Assert.assertTrue(seen.add(cursor.key()));
+            cursor.setValue(-cursor.value());
+        }
+        Assert.assertEquals(1000, seen.size());
+        for (long i = 0; i < 1000; i++) {
+            Assert.assertEquals(-i, map.get(i * 31));
+        }
+        final long[] keys = map.keys();
+        Assert.assertEquals(1000, keys.length);
+        for (long key : keys) {
+            Assert.assertTrue(seen.remove(key));
+        }
+        Assert.assertFalse(new LongLongHashMap().cursor().next());
+    }
+
+    @Test
+    public void testCapacity() {
+        final LongLongHashMap map = new LongLongHashMap();
+        map.ensureCapacity(10000);
+        for (long i = 1; i <= 10000; i++) {
+            map.put(i, i);
+        }
+        Assert.assertEquals(10000, map.size());
+        {
+            boolean caught = false;
+            try {
+                new LongLongHashMap(-1);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                map.ensureCapacity(Integer.MAX_VALUE);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testPerf() {
+        final int n = 1 << 20;
+        final long[] keys = new long[n];
+        final Random rng = new Random();
+        for (int i = 0; i < n; i++) {
+            keys[i] = rng.nextLong();
+        }
+        final Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        long s = System.currentTimeMillis();
+        final LongLongHashMap map = new LongLongHashMap();
+        for (int i = 0; i < n; i++) {
+            map.put(keys[i], i);
+        }
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += map.get(keys[i]);
+        }
+        long e = System.currentTimeMillis();
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        System.out.println("LongLongHashMap Perf (1M put+get): " + (e - s) + " ms, "
+                + (after - before) / n + " bytes/entry");
+
+        System.gc();
+        before = runtime.totalMemory() - runtime.freeMemory();
+        s = System.currentTimeMillis();
+        final Map<Long, Long> boxed = new HashMap<Long, Long>();
+        for (int i = 0; i < n; i++) {
+            boxed.put(keys[i], (long) i);
+        }
+        for (int i = 0; i < n; i++) {
+            sum -= boxed.get(keys[i]);
+        }
+        e = System.currentTimeMillis();
+        System.gc();
+        after = runtime.totalMemory() - runtime.freeMemory();
+        System.out.println("HashMap<Long,Long> Perf (1M put+get): " + (e - s) + " ms, "
+                + (after - before) / n + " bytes/entry");
+        Assert.assertEquals(0L, sum);
+        Assert.assertEquals(boxed.size(), map.size());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests the LongObjectHashMap class.
+ *
+ * @author Robert J. Buck
+ */
+public class LongObjectHashMapTestCase {
+
+    @Test
+    public void testBasics() {
+        final LongObjectHashMap<String> map = new LongObjectHashMap<String>();
+        Assert.assertNull(map.get(0));
+        Assert.assertNull(map.put(0, "zero"));
+        Assert.assertNull(map.put(Long.MIN_VALUE, "min"));
+        Assert.assertEquals("zero", map.put(0, "nil"));
+        Assert.assertEquals("nil", map.get(0));
+        Assert.assertEquals("min", map.get(Long.MIN_VALUE));
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals("nil", map.remove(0));
+        Assert.assertNull(map.remove(0));
+        Assert.assertFalse(map.containsKey(0));
+        Assert.assertTrue(map.containsKey(Long.MIN_VALUE));
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.get(Long.MIN_VALUE));
+        {
+            boolean caught = false;
+            try {
+                map.put(1, null);
+            } catch (NullPointerException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        final Random rng = new Random(11);
+        final LongObjectHashMap<Long> map = new LongObjectHashMap<Long>();
+        final Map<Long, Long> expected = new HashMap<Long, Long>();
+        for (int i = 0; i < 200000; i++) {
+            final long key = rng.nextInt(4000) - 2000;
+            final Long value = rng.nextLong();
+            switch (rng.nextInt(3)) {
+                case 0:
+                    Assert.assertEquals(expected.put(key, value), map.put(key, value));
+                    break;
+                case 1:
+                    Assert.assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                default:
+                    Assert.assertEquals(expected.get(key), map.get(key));
+            }
+            Assert.assertEquals(expected.size(), map.size());
+        }
+        int count = 0;
+        final LongObjectHashMap<Long>.Cursor cursor = map.cursor();
+        while (cursor.next()) {
+            Assert.assertEquals(expected.get(cursor.key()), cursor.value());
+            cursor.setValue(cursor.key());
+            count++;
+        }
+        Assert.assertEquals(expected.size(), count);
+        for (long key : map.keys()) {
+            Assert.assertEquals(Long.valueOf(key), map.get(key));
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests the OffHeapLongHashIndex class.
+ *
+ * @author Robert J. Buck
+ */
+public class OffHeapLongHashIndexTestCase {
+
+    @Test
+    public void testBasics() {
+        final OffHeapLongHashIndex index = OffHeapLongHashIndex.allocateDirect(10, 8);
+        Assert.assertEquals(8, index.getValueWidth());
+        Assert.assertTrue(index.capacity() >= 10);
+        Assert.assertTrue(index.isEmpty());
+        Assert.assertEquals(-1L, index.getLong(0, -1L));
+        Assert.assertTrue(index.putLong(0, 5));
+        Assert.assertFalse(index.putLong(0, 6));
+        Assert.assertTrue(index.putLong(Long.MIN_VALUE, 7));
+        Assert.assertEquals(6L, index.getLong(0, -1L));
+        Assert.assertEquals(7L, index.getLong(Long.MIN_VALUE, -1L));
+        Assert.assertEquals(2, index.size());
+        Assert.assertTrue(index.remove(0));
+        Assert.assertFalse(index.remove(0));
+        Assert.assertFalse(index.containsKey(0));
+        Assert.assertTrue(index.containsKey(Long.MIN_VALUE));
+        index.clear();
+        Assert.assertTrue(index.isEmpty());
+        Assert.assertEquals(-1L, index.getLong(Long.MIN_VALUE, -1L));
+    }
+
+    @Test
+    public void testByteValues() {
+        final OffHeapLongHashIndex index = OffHeapLongHashIndex.allocateDirect(100, 3);
+        final byte[] value = new byte[5];
+        Assert.assertFalse(index.get(1, value, 0));
+        for (long key = 0; key < 100; key++) {
+            Assert.assertTrue(index.put(key, new byte[]{0, (byte) key, (byte) (key >> 8), 1, 0}, 1));
+        }
+        for (long key = 0; key < 100; key++) {
+            Assert.assertTrue(index.get(key, value, 2));
+            Assert.assertEquals((byte) key, value[2]);
+            Assert.assertEquals((byte) (key >> 8), value[3]);
+            Assert.assertEquals(1, value[4]);
+        }
+        // an absent key leaves the array unchanged
+        Assert.assertFalse(index.get(1000, value, 2));
+        Assert.assertEquals((byte) 99, value[2]);
+        Assert.assertEquals(1, value[4]);
+        {
+            boolean caught = false;
+            try {
+                index.getLong(1, 0);
+            } catch (IllegalStateException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                index.get(1, value, 3);
+            } catch (IndexOutOfBoundsException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        final Random rng = new Random(5);
+        final OffHeapLongHashIndex index = OffHeapLongHashIndex.allocateDirect(3000, 8);
+        final Map<Long, Long> expected = new HashMap<Long, Long>();
+        for (int i = 0; i < 200000; i++) {
+            final long key = rng.nextInt(3000) - 1500;
+            final long value = rng.nextLong();
+            switch (rng.nextInt(3)) {
+                case 0:
+                    Assert.assertEquals(expected.put(key, value) == null, index.putLong(key, value));
+                    break;
+                case 1:
+                    Assert.assertEquals(expected.remove(key) != null, index.remove(key));
+                    break;
+                default: {
+                    final Long previous = expected.get(key);
+                    Assert.assertEquals(previous == null ? -1L : previous, index.getLong(key, -1L));
+                }
+            }
+            Assert.assertEquals(expected.size(), index.size());
+        }
+    }
+
+    @Test
+    public void testFull() {
+        final OffHeapLongHashIndex index = OffHeapLongHashIndex.allocateDirect(3, 0);
+        final long capacity = index.capacity();
+        for (long key = 0; key < capacity; key++) {
+            Assert.assertTrue(index.put(key, new byte[0], 0));
+        }
+        Assert.assertFalse(index.put(0, new byte[0], 0));
+        {
+            boolean caught = false;
+            try {
+                index.put(capacity, new byte[0], 0);
+            } catch (IllegalStateException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                OffHeapLongHashIndex.allocateDirect(-1, 8);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                OffHeapLongHashIndex.allocateDirect(1, OffHeapLongHashIndex.MAX_VALUE_WIDTH + 1);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testPersistence() throws IOException {
+        final File file = File.createTempFile("index", ".bin");
+        file.deleteOnExit();
+        final OffHeapLongHashIndex index = OffHeapLongHashIndex.create(file, 1000, 16);
+        for (long key = 0; key < 1000; key++) {
+            index.putLong(key * 7919, key);
+        }
+        index.remove(7919);
+        index.force();
+
+        final OffHeapLongHashIndex reopened = OffHeapLongHashIndex.open(file);
+        Assert.assertEquals(16, reopened.getValueWidth());
+        Assert.assertEquals(999, reopened.size());
+        Assert.assertEquals(0L, reopened.getLong(0, -1L));
+        Assert.assertEquals(-1L, reopened.getLong(7919, -1L));
+        for (long key = 2; key < 1000; key++) {
+            Assert.assertEquals(key, reopened.getLong(key * 7919, -1L));
+        }
+
+        final File garbage = File.createTempFile("index", ".bin");
+        garbage.deleteOnExit();
+        final FileOutputStream out = new FileOutputStream(garbage);
+        out.write(new byte[64]);
+        out.close();
+        boolean caught = false;
+        try {
+            OffHeapLongHashIndex.open(garbage);
+        } catch (IOException e) {
+            caught = true;
+        }
+        Assert.assertTrue(caught);
+    }
+
+    @Test
+    public void testConcurrentReaders() throws InterruptedException {
+        final int n = 10000;
+        final OffHeapLongHashIndex index = OffHeapLongHashIndex.allocateDirect(n, 8);
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicLong errors = new AtomicLong();
+        final Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread() {
+                public void run() {
+                    final Random rng = new Random();
+                    while (!done.get()) {
+                        // the writer only ever associates key k with ~k
+                        final long key = rng.nextInt(n);
+                        final long value = index.getLong(key, ~key);
+                        if (value != ~key) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            readers[t].start();
+        }
+        final Random rng = new Random();
+        for (int i = 0; i < 500000; i++) {
+            final long key = rng.nextInt(n);
+            if (rng.nextBoolean()) {
+                index.putLong(key, ~key);
+            } else {
+                index.remove(key);
+            }
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        Assert.assertEquals(0L, errors.get());
+    }
+
+    @Test
+    public void testPerf() {
+        final int n = 1 << 20;
+        final long[] keys = new long[n];
+        final Random rng = new Random();
+        for (int i = 0; i < n; i++) {
+            keys[i] = rng.nextLong();
+        }
+        final OffHeapLongHashIndex index = OffHeapLongHashIndex.allocateDirect(n, 8);
+        long s = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) {
+            index.putLong(keys[i], i);
+        }
+        long e = System.currentTimeMillis();
+        System.out.println("OffHeapLongHashIndex Perf (1M puts): " + (e - s));
+        long sum = 0;
+        s = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) {
+            sum += index.getLong(keys[i], 0);
+        }
+        e = System.currentTimeMillis();
+        System.out.println("OffHeapLongHashIndex Perf (1M gets): " + (e - s));
+        Assert.assertEquals((long) n * (n - 1) / 2, sum);
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import com.buck.commons.algorithms.VarInt;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Tests the ByteBufferDataInputStream class.
+ *
+ * @author Robert J. Buck
+ */
+public class ByteBufferDataInputStreamTestCase {
+
+    @Test
+    public void testPrimitives() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBoolean(true);
+        out.writeByte(-2);
+        out.writeByte(200);
+        out.writeShort(-3);
+        out.writeShort(60000);
+        out.writeChar('\u20AC');
+        out.writeInt(0xCAFEBABE);
+        out.writeLong(Long.MIN_VALUE + 1);
+        out.writeFloat(1.5f);
+        out.writeDouble(-2.25);
+        out.writeUTF("na\u00EFve \u0000 \uD83D\uDE00");
+        out.writeBytes("one\rtwo\r\nthree\nfour");
+        out.close();
+
+        final ByteBufferDataInputStream in = new ByteBufferDataInputStream(ByteBuffer.wrap(bytes.toByteArray()));
+        Assert.assertTrue(in.readBoolean());
+        Assert.assertEquals(-2, in.readByte());
+        Assert.assertEquals(200, in.readUnsignedByte());
+        Assert.assertEquals(-3, in.readShort());
+        Assert.assertEquals(60000, in.readUnsignedShort());
+        Assert.assertEquals('\u20AC', in.readChar());
+        Assert.assertEquals(0xCAFEBABE, in.readInt());
+        Assert.assertEquals(Long.MIN_VALUE + 1, in.readLong());
+        Assert.assertEquals(1.5f, in.readFloat(), 0.0f);
+        Assert.assertEquals(-2.25, in.readDouble(), 0.0);
+        Assert.assertEquals("na\u00EFve \u0000 \uD83D\uDE00", in.readUTF());
+        Assert.assertEquals("one", in.readLine());
+        Assert.assertEquals("two", in.readLine());
+        Assert.assertEquals("three", in.readLine());
+        Assert.assertEquals("four", in.readLine());
+        Assert.assertNull(in.readLine());
+        Assert.assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void testByteOrder() throws IOException {
+        final ByteBuffer bb = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(1).putLong(2L).flip();
+        final ByteBufferDataInputStream in = new ByteBufferDataInputStream(bb);
+        Assert.assertEquals(1, in.readInt());
+        Assert.assertEquals(2L, in.readLong());
+    }
+
+    @Test
+    public void testEndOfStream() throws IOException {
+        final ByteBufferDataInputStream in = new ByteBufferDataInputStream(ByteBuffer.wrap(new byte[]{1, 2, 3, (byte) 0x80}));
+        in.mark(4);
+        Assert.assertEquals(0x0102, in.readShort());
+        {
+            boolean caught = false;
+            try {
+                in.readInt();
+            } catch (EOFException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        Assert.assertEquals(2, in.available());
+        Assert.assertEquals(3, in.readVarInt());
+        {
+            boolean caught = false;
+            try {
+                in.readVarLong();
+            } catch (EOFException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        Assert.assertEquals(1, in.available());
+        {
+            boolean caught = false;
+            try {
+                in.readFully(new byte[2]);
+            } catch (EOFException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        in.reset();
+        final byte[] all = new byte[4];
+        in.readFully(all);
+        Assert.assertEquals((byte) 0x80, all[3]);
+        Assert.assertEquals(0, in.skipBytes(1));
+    }
+
+    @Test
+    public void testVarInts() throws IOException {
+        final ByteBuffer bb = ByteBuffer.allocate(256);
+        final int[] ia = {0, 1, -1, 300, Integer.MIN_VALUE};
+        final long[] la = {0L, -1L, Long.MAX_VALUE, 1L << 40};
+        for (int i : ia) {
+            VarInt.writeVarInt(bb, i);
+            VarInt.writeSignedVarInt(bb, i);
+        }
+        for (long l : la) {
+            VarInt.writeVarLong(bb, l);
+            VarInt.writeSignedVarLong(bb, l);
+        }
+        bb.flip();
+        final ByteBufferDataInputStream in = new ByteBufferDataInputStream(bb);
+        for (int i : ia) {
+            Assert.assertEquals(i, in.readVarInt());
+            Assert.assertEquals(i, in.readSignedVarInt());
+        }
+        for (long l : la) {
+            Assert.assertEquals(l, in.readVarLong());
+            Assert.assertEquals(l, in.readSignedVarLong());
+        }
+        Assert.assertEquals(0, in.available());
+    }
+
+    @Test
+    public void testPerf() throws IOException {
+        final int n = 1 << 20;
+        final ByteBuffer bb = ByteBuffer.allocate(n * 8);
+        for (int i = 0; i < n; i++) {
+            bb.putLong(i);
+        }
+        long sum = 0;
+        long s = System.currentTimeMillis();
+        for (int r = 0; r < 10; r++) {
+            bb.clear();
+            final DataInputStream in = new DataInputStream(new ByteBufferInputStream(bb));
+            for (int i = 0; i < n; i++) {
+                sum += in.readLong();
+            }
+        }
+        long e = System.currentTimeMillis();
+        System.out.println("DataInputStream readLong Perf (10M): " + (e - s));
+        s = System.currentTimeMillis();
+        for (int r = 0; r < 10; r++) {
+            bb.clear();
+            final ByteBufferDataInputStream in = new ByteBufferDataInputStream(bb);
+            for (int i = 0; i < n; i++) {
+                sum -= in.readLong();
+            }
+        }
+        e = System.currentTimeMillis();
+        System.out.println("ByteBufferDataInputStream readLong Perf (10M): " + (e - s));
+        Assert.assertEquals(0L, sum);
+    }
+
+    @Test
+    public void testForCurrentThread() throws IOException {
+        final ByteBuffer message = ByteBuffer.allocate(16);
+        message.putInt(7).putLong(-7L).flip();
+        final ByteBufferDataInputStream in = ByteBufferDataInputStream.forCurrentThread(message);
+        Assert.assertEquals(7, in.readInt());
+        Assert.assertEquals(-7L, in.readLong());
+        Assert.assertEquals(-1, in.read());
+
+        // the reset stream adopts the new buffer's byte order
+        final ByteBuffer little = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        little.putInt(0x01020304).flip();
+        Assert.assertSame(in, ByteBufferDataInputStream.forCurrentThread(little));
+        Assert.assertEquals(0x01020304, in.readInt());
+    }
+
+    @Test
+    public void testMessagePerf() throws IOException {
+        final int messages = 5000000;
+        final ByteBuffer message = ByteBuffer.allocate(16);
+        message.putInt(1).putLong(2L).flip();
+        long sum = 0;
+        long s = System.currentTimeMillis();
+        for (int i = 0; i < messages; i++) {
+            message.rewind();
+            final ByteBufferDataInputStream in = new ByteBufferDataInputStream(message);
+            sum += in.readInt() + in.readLong();
+        }
+        long e = System.currentTimeMillis();
+        System.out.println("ByteBufferDataInputStream new per message Perf (5M): " + (e - s));
+        s = System.currentTimeMillis();
+        for (int i = 0; i < messages; i++) {
+            message.rewind();
+            final ByteBufferDataInputStream in = ByteBufferDataInputStream.forCurrentThread(message);
+            sum -= in.readInt() + in.readLong();
+        }
+        e = System.currentTimeMillis();
+        System.out.println("ByteBufferDataInputStream thread local per message Perf (5M): " + (e - s));
+        Assert.assertEquals(0L, sum);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Tests the ByteBufferDataOutputStream class.
+ *
+ * @author Robert J. Buck
+ */
+public class ByteBufferDataOutputStreamTestCase {
+
+    private static final String TEXT = "na\u00EFve \u0000 \u20AC \uD83D\uDE00";
+
+    @Test
+    public void testMatchesDataOutputStream() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream expected = new DataOutputStream(bytes);
+        final ByteBufferDataOutputStream actual = new ByteBufferDataOutputStream(1);
+        final DataOutput[] outs = {expected, actual};
+        for (DataOutput out : outs) {
+            out.writeBoolean(true);
+            out.writeByte(-2);
+            out.writeShort(60000);
+            out.writeChar('\u20AC');
+            out.writeInt(0xCAFEBABE);
+            out.writeLong(Long.MIN_VALUE + 1);
+            out.writeFloat(1.5f);
+            out.writeDouble(-2.25);
+            out.writeUTF(TEXT);
+            out.writeBytes(TEXT);
+            out.writeChars(TEXT);
+            out.write(new byte[]{1, 2, 3}, 1, 2);
+        }
+        expected.close();
+        Assert.assertArrayEquals(bytes.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final ByteBufferDataOutputStream out = new ByteBufferDataOutputStream(
+                ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN), true);
+        out.writeInt(1);
+        out.writeLong(-2L);
+        out.writeVarInt(300);
+        out.writeSignedVarInt(-300);
+        out.writeVarLong(Long.MIN_VALUE);
+        out.writeSignedVarLong(-1L);
+        out.writeUTF(TEXT);
+        Assert.assertEquals(ByteOrder.LITTLE_ENDIAN, out.getBuffer().order());
+        final ByteBufferDataInputStream in = new ByteBufferDataInputStream(out.asReadOnlyBuffer());
+        Assert.assertEquals(1, in.readInt());
+        Assert.assertEquals(-2L, in.readLong());
+        Assert.assertEquals(300, in.readVarInt());
+        Assert.assertEquals(-300, in.readSignedVarInt());
+        Assert.assertEquals(Long.MIN_VALUE, in.readVarLong());
+        Assert.assertEquals(-1L, in.readSignedVarLong());
+        Assert.assertEquals(TEXT, in.readUTF());
+        Assert.assertEquals(0, in.available());
+    }
+
+    @Test
+    public void testOverflow() throws IOException {
+        final ByteBufferDataOutputStream out = new ByteBufferDataOutputStream(ByteBuffer.allocate(6), false);
+        out.writeInt(7);
+        {
+            boolean caught = false;
+            try {
+                out.writeLong(8);
+            } catch (BufferOverflowException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                out.writeUTF("abc");
+            } catch (BufferOverflowException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        Assert.assertEquals(4, out.size());
+        {
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 40000; i++) {
+                sb.append('\u00E9');
+            }
+            boolean caught = false;
+            try {
+                new ByteBufferDataOutputStream().writeUTF(sb.toString());
+            } catch (UTFDataFormatException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testPerf() throws IOException {
+        final int n = 10000000;
+        long s = System.currentTimeMillis();
+        final ByteBufferOutputStream sink = new ByteBufferOutputStream(n * 12);
+        final DataOutputStream dos = new DataOutputStream(sink);
+        for (int i = 0; i < n; i++) {
+            dos.writeLong(i);
+            dos.writeInt(i);
+        }
+        long e = System.currentTimeMillis();
+        System.out.println("DataOutputStream writeLong+writeInt Perf (10M): " + (e - s));
+        s = System.currentTimeMillis();
+        final ByteBufferDataOutputStream out = new ByteBufferDataOutputStream(n * 12);
+        for (int i = 0; i < n; i++) {
+            out.writeLong(i);
+            out.writeInt(i);
+        }
+        e = System.currentTimeMillis();
+        System.out.println("ByteBufferDataOutputStream writeLong+writeInt Perf (10M): " + (e - s));
+        Assert.assertEquals(sink.size(), out.size());
+    }
+}
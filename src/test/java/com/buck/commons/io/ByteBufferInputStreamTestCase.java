@@ -28,15 +28,42 @@ import java.nio.ByteBuffer;
  * @author Robert J. Buck
  */
 public class ByteBufferInputStreamTestCase {
-    @Test
-    public void testByteBufferInputStream() throws IOException {
+
+    static ByteBuffer newSequenceBuffer() {
         ByteBuffer bb = ByteBuffer.allocate(64);
         for (int i = 0; i < 64; i++) {
             bb.put((byte) i);
         }
         bb.flip();
+        return bb;
+    }
+
+    @Test
+    public void testByteBufferInputStream() throws IOException {
+        assertStreamSemantics(new ByteBufferInputStream(newSequenceBuffer()));
+    }
+
+    @Test
+    public void testResetBuffer() throws IOException {
+        final ByteBufferInputStream bbis = new ByteBufferInputStream(ByteBuffer.allocate(4));
+        Assert.assertSame(bbis, bbis.reset(newSequenceBuffer()));
+        assertStreamSemantics(bbis);
+
+        // positions are relative to the buffer position at reset
+        ByteBuffer bb = ByteBuffer.allocate(72);
+        for (int i = 0; i < 72; i++) {
+            bb.put((byte) (i - 8));
+        }
+        bb.position(8);
+        assertStreamSemantics(bbis.reset(bb));
+    }
+
+    /**
+     * Asserts the behaviour common to the stream variants, given a stream over
+     * the buffer returned by {@link #newSequenceBuffer()}.
+     */
+    static void assertStreamSemantics(ByteBufferInputStream bbis) throws IOException {
         {
-            ByteBufferInputStream bbis = new ByteBufferInputStream(bb);
             bbis.close(); // noop
             Assert.assertTrue("supports mark", bbis.markSupported());
             {
@@ -20,9 +20,18 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.Random;
 
 /**
  * Tests the ByteBufferOutputStream class.
@@ -220,4 +229,367 @@ public class ByteBufferOutputStreamTestCase {
             assertByteArraysIdentical("ByteBufferOutputStream(byte[] backing, int index, int length)", expected, ao);
         }
     }
+
+    @Test
+    public void testGrowth() throws IOException {
+        {
+            ByteBufferOutputStream bbos = new ByteBufferOutputStream(1);
+            for (int i = 0; i < 1000; i++) {
+                bbos.write(i);
+            }
+            Assert.assertEquals(1000, bbos.size());
+            Assert.assertEquals(1024, bbos.getBuffer().capacity());
+            final byte[] oa = bbos.toByteArray();
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertEquals((byte) i, oa[i]);
+            }
+        }
+        {
+            ByteBufferOutputStream bbos = new ByteBufferOutputStream(4, 1.5f, 10);
+            Assert.assertEquals(1.5f, bbos.getGrowthFactor(), 0.0f);
+            Assert.assertEquals(10, bbos.getMaxSize());
+            bbos.write(new byte[5]);
+            Assert.assertEquals(6, bbos.getBuffer().capacity());
+            bbos.write(new byte[2]);
+            Assert.assertEquals(9, bbos.getBuffer().capacity());
+            bbos.write(new byte[3]);
+            Assert.assertEquals(10, bbos.getBuffer().capacity());
+            boolean caught = false;
+            try {
+                bbos.write(0);
+            } catch (BufferOverflowException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+            Assert.assertEquals(10, bbos.size());
+        }
+        {
+            ByteBufferOutputStream bbos = new ByteBufferOutputStream(2);
+            bbos.write(7);
+            bbos.ensureCapacity(100);
+            Assert.assertEquals(100, bbos.getBuffer().capacity());
+            bbos.ensureCapacity(50);
+            Assert.assertEquals(100, bbos.getBuffer().capacity());
+            Assert.assertEquals(1, bbos.size());
+            Assert.assertEquals(7, bbos.toByteArray()[0]);
+
+            ByteBufferOutputStream fixed = new ByteBufferOutputStream(new byte[2]);
+            fixed.ensureCapacity(100);
+            Assert.assertEquals(2, fixed.getBuffer().capacity());
+        }
+        {
+            boolean caught = false;
+            try {
+                new ByteBufferOutputStream(4, 1.0f, 10);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+        {
+            boolean caught = false;
+            try {
+                new ByteBufferOutputStream(4, 2.0f, 3);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testGrowthPerf() {
+        final int n = 100 * 1024 * 1024;
+        ByteBufferOutputStream bbos = new ByteBufferOutputStream();
+        final long s = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) {
+            bbos.write(i);
+        }
+        final long e = System.currentTimeMillis();
+        System.out.println("ByteBufferOutputStream Perf (100MB byte writes): " + (e - s));
+        Assert.assertEquals(n, bbos.size());
+    }
+
+    @Test
+    public void testDirect() throws IOException {
+        ByteBufferOutputStream bbos = new ByteBufferOutputStream(2, true, true);
+        Assert.assertTrue(bbos.getBuffer().isDirect());
+        bbos.write("word".getBytes("US-ASCII"));
+        Assert.assertTrue(bbos.getBuffer().isDirect());
+        Assert.assertEquals("word", bbos.toString());
+        final ByteBuffer view = bbos.asReadOnlyBuffer();
+        Assert.assertTrue(view.isReadOnly());
+        Assert.assertTrue(view.isDirect());
+        Assert.assertEquals(0, view.position());
+        Assert.assertEquals(4, view.remaining());
+        Assert.assertEquals('w', view.get(0));
+        Assert.assertEquals(4, bbos.size());
+    }
+
+    @Test
+    public void testPooled() throws IOException {
+        final SizeClassByteBufferPool pool = new SizeClassByteBufferPool(16, 1024, 4, true);
+        ByteBufferOutputStream bbos = new ByteBufferOutputStream(pool, 16);
+        final ByteBuffer initial = bbos.getBuffer();
+        Assert.assertTrue(initial.isDirect());
+        bbos.write(new byte[100]);
+        Assert.assertEquals(128, bbos.getBuffer().capacity());
+        Assert.assertEquals(1, pool.getRetainedCount());
+        bbos.reset();
+        Assert.assertSame(initial, bbos.getBuffer());
+        Assert.assertEquals(0, bbos.size());
+        Assert.assertEquals(1, pool.getRetainedCount());
+        bbos.write(7);
+        bbos.close();
+        Assert.assertEquals(0, bbos.size());
+        Assert.assertEquals(2, pool.getRetainedCount());
+        bbos.write(8);
+        Assert.assertEquals(1, bbos.size());
+        Assert.assertEquals(8, bbos.toByteArray()[0]);
+        Assert.assertEquals(1, pool.getRetainedCount());
+    }
+
+    @Test
+    public void testChannelPerf() throws IOException {
+        final File file = File.createTempFile("bbos", ".bin");
+        file.deleteOnExit();
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final byte[] message = new byte[4096];
+            final int n = 100000;
+            final SizeClassByteBufferPool pool = new SizeClassByteBufferPool(4096, 1 << 20, 4, true);
+            final String[] labels = {"heap", "direct pooled"};
+            for (int mode = 0; mode < 2; mode++) {
+                final long s = System.currentTimeMillis();
+                for (int i = 0; i < n; i++) {
+                    final ByteBufferOutputStream bbos = mode == 0
+                            ? new ByteBufferOutputStream(1024) : new ByteBufferOutputStream(pool, 1024);
+                    bbos.write(message);
+                    final ByteBuffer view = bbos.asReadOnlyBuffer();
+                    while (view.hasRemaining()) {
+                        channel.write(view, view.position());
+                    }
+                    bbos.close();
+                }
+                final long e = System.currentTimeMillis();
+                System.out.println("ByteBufferOutputStream " + labels[mode] + " channel write Perf (100K 4KB): "
+                        + (e - s));
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static String randomString(Random rng, int len) {
+        final char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            switch (rng.nextInt(5)) {
+                case 0:
+                    chars[i] = (char) rng.nextInt(0x80);
+                    break;
+                case 1:
+                    chars[i] = (char) (0x80 + rng.nextInt(0x780));
+                    break;
+                case 2:
+                    // includes unpaired surrogates
+                    chars[i] = (char) (0x800 + rng.nextInt(0xF800));
+                    break;
+                default:
+                    if (i + 1 < len) {
+                        final char[] pair = Character.toChars(0x10000 + rng.nextInt(0x100000));
+                        chars[i++] = pair[0];
+                        chars[i] = pair[1];
+                    } else {
+                        chars[i] = 'z';
+                    }
+            }
+        }
+        return new String(chars);
+    }
+
+    @Test
+    public void testWriteStrings() throws IOException {
+        final Charset utf8 = Charset.forName("UTF-8");
+        final Random rng = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            final String text = randomString(rng, rng.nextInt(40));
+            final ByteBufferOutputStream bbos = new ByteBufferOutputStream(1);
+            bbos.writeUtf8(text);
+            Assert.assertArrayEquals(text, text.getBytes(utf8), bbos.toByteArray());
+
+            final ByteBufferOutputStream encoded = new ByteBufferOutputStream(1, true, true);
+            encoded.writeChars(text, Charset.forName("UTF-16BE").newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE));
+            Assert.assertArrayEquals(text.getBytes("UTF-16BE"), encoded.toByteArray());
+        }
+        {
+            final ByteBufferOutputStream bbos = new ByteBufferOutputStream(1);
+            bbos.writeAscii(new StringBuilder("caf\u00E9!"));
+            Assert.assertEquals("caf?!", bbos.toString(utf8));
+        }
+        {
+            final ByteBufferOutputStream bbos = new ByteBufferOutputStream(new byte[4]);
+            bbos.write('x');
+            boolean caught = false;
+            try {
+                bbos.writeUtf8("\u20AC\u20AC");
+            } catch (BufferOverflowException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+            caught = false;
+            try {
+                bbos.writeChars("abcd", utf8.newEncoder());
+            } catch (BufferOverflowException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+            Assert.assertEquals(1, bbos.size());
+        }
+        {
+            // growth stops at the maximum size part way through the encoding
+            final ByteBufferOutputStream bbos = new ByteBufferOutputStream(4, 2.0f, 8);
+            boolean caught = false;
+            try {
+                bbos.writeChars("abcdefghijkl", utf8.newEncoder());
+            } catch (BufferOverflowException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+            Assert.assertEquals(0, bbos.size());
+        }
+        {
+            final ByteBufferOutputStream bbos = new ByteBufferOutputStream(16);
+            bbos.write('x');
+            boolean caught = false;
+            try {
+                bbos.writeChars("ab\u20AC", Charset.forName("US-ASCII").newEncoder());
+            } catch (CharacterCodingException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+            Assert.assertEquals(1, bbos.size());
+        }
+    }
+
+    @Test
+    public void testToStringCharset() throws IOException {
+        final String text = "gr\u00FC\u00DFe \uD83D\uDE00";
+        final Charset[] charsets = {Charset.forName("UTF-8"), Charset.forName("UTF-16LE")};
+        for (Charset charset : charsets) {
+            final ByteBufferOutputStream[] streams = {
+                    new ByteBufferOutputStream(4), new ByteBufferOutputStream(4, true, true)};
+            for (ByteBufferOutputStream bbos : streams) {
+                bbos.write(text.getBytes(charset.name()));
+                Assert.assertEquals(text, bbos.toString(charset));
+                Assert.assertEquals(text, bbos.toString(charset.name()));
+            }
+        }
+    }
+
+    @Test
+    public void testWriteUtf8Perf() throws IOException {
+        final String text = randomString(new Random(2), 200);
+        final Charset utf8 = Charset.forName("UTF-8");
+        final ByteBufferOutputStream bbos = new ByteBufferOutputStream(1 << 16);
+        long s = System.currentTimeMillis();
+        for (int i = 0; i < 200000; i++) {
+            bbos.reset();
+            bbos.write(text.getBytes(utf8));
+        }
+        long e = System.currentTimeMillis();
+        System.out.println("ByteBufferOutputStream getBytes Perf (200K): " + (e - s));
+        s = System.currentTimeMillis();
+        for (int i = 0; i < 200000; i++) {
+            bbos.reset();
+            bbos.writeUtf8(text);
+        }
+        e = System.currentTimeMillis();
+        System.out.println("ByteBufferOutputStream writeUtf8 Perf (200K): " + (e - s));
+    }
+
+    /**
+     * A channel accepting at most a few bytes per write.
+     */
+    private static class TrickleChannel implements GatheringByteChannel {
+        private final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                if (srcs[i].hasRemaining()) {
+                    return write(srcs[i]);
+                }
+            }
+            return 0;
+        }
+
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        public int write(ByteBuffer src) {
+            final int n = Math.min(src.remaining(), 5);
+            for (int i = 0; i < n; i++) {
+                sink.write(src.get());
+            }
+            return n;
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+
+        public void close() {
+        }
+    }
+
+    @Test
+    public void testChannels() throws IOException {
+        final byte[] data = new byte[100];
+        new Random(3).nextBytes(data);
+        final ByteBufferOutputStream[] streams = {
+                new ByteBufferOutputStream(8), new ByteBufferOutputStream(8, true, true)};
+        for (ByteBufferOutputStream bbos : streams) {
+            bbos.write(data);
+            {
+                final TrickleChannel channel = new TrickleChannel();
+                Assert.assertEquals(100, bbos.writeTo((WritableByteChannel) channel));
+                Assert.assertArrayEquals(data, channel.sink.toByteArray());
+                Assert.assertEquals(100, bbos.size());
+            }
+            {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                bbos.writeTo(out);
+                Assert.assertArrayEquals(data, out.toByteArray());
+            }
+            {
+                final ByteBufferOutputStream header = new ByteBufferOutputStream(4);
+                header.write(new byte[]{1, 2, 3});
+                final TrickleChannel channel = new TrickleChannel();
+                Assert.assertEquals(103L, ByteBufferOutputStream.writeTo(channel, header, new ByteBufferOutputStream(), bbos));
+                final byte[] written = channel.sink.toByteArray();
+                Assert.assertEquals(103, written.length);
+                Assert.assertEquals(3, written[2]);
+                Assert.assertEquals(data[99], written[102]);
+            }
+            {
+                final File file = File.createTempFile("bbos", ".bin");
+                file.deleteOnExit();
+                final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                    final FileChannel channel = raf.getChannel();
+                    Assert.assertEquals(100, bbos.transferTo(channel, 10));
+                    Assert.assertEquals(0L, channel.position());
+                    Assert.assertEquals(110L, channel.size());
+                    final byte[] read = new byte[100];
+                    raf.seek(10);
+                    raf.readFully(read);
+                    Assert.assertArrayEquals(data, read);
+                } finally {
+                    raf.close();
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests the ByteRingBufferOutputStream and ByteRingBufferInputStream
+ * classes.
+ *
+ * @author Robert J. Buck
+ */
+public class ByteRingBufferStreamTestCase {
+
+    private static Thread produce(final ByteRingBuffer ring, final int records,
+                                  final AtomicReference<Throwable> failure) {
+        final Thread producer = new Thread() {
+            public void run() {
+                try {
+                    final DataOutputStream out = new DataOutputStream(new ByteRingBufferOutputStream(ring));
+                    for (int i = 0; i < records; i++) {
+                        out.writeInt(i);
+                        out.writeLong(-i);
+                        out.writeUTF("record " + i);
+                        if (i % 100 == 0) {
+                            out.flush();
+                        }
+                    }
+                    out.close();
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        };
+        producer.start();
+        return producer;
+    }
+
+    @Test
+    public void testPipe() throws Exception {
+        final ByteRingBuffer ring = new ByteRingBuffer(1024);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread producer = produce(ring, 50000, failure);
+        final DataInputStream in = new DataInputStream(new ByteRingBufferInputStream(ring));
+        for (int i = 0; i < 50000; i++) {
+            Assert.assertEquals(i, in.readInt());
+            Assert.assertEquals(-i, in.readLong());
+            Assert.assertEquals("record " + i, in.readUTF());
+        }
+        Assert.assertEquals(-1, in.read());
+        Assert.assertEquals(-1, in.read(new byte[4], 0, 4));
+        Assert.assertEquals(-1, new ByteRingBufferInputStream(ring).read(ByteBuffer.allocate(4)));
+        producer.join();
+        Assert.assertNull(failure.get());
+
+        boolean caught = false;
+        try {
+            new ByteRingBufferOutputStream(ring).write(1);
+        } catch (IOException e) {
+            caught = true;
+        }
+        Assert.assertTrue(caught);
+    }
+
+    @Test
+    public void testEndOfStream() throws IOException {
+        final ByteRingBuffer ring = new ByteRingBuffer(8);
+        final ByteRingBufferOutputStream out = new ByteRingBufferOutputStream(ring);
+        out.write(new byte[]{1, 2, 3});
+        out.close();
+        final DataInputStream in = new DataInputStream(new ByteRingBufferInputStream(ring));
+        Assert.assertEquals(3, in.available());
+        Assert.assertEquals(1, in.skip(1));
+        Assert.assertEquals(2, in.read());
+        Assert.assertEquals(3, in.read());
+        boolean caught = false;
+        try {
+            in.readInt();
+        } catch (EOFException e) {
+            caught = true;
+        }
+        Assert.assertTrue(caught);
+    }
+
+    @Test
+    public void testPipePerf() throws Exception {
+        final int records = 2000000;
+        final byte[] record = new byte[64];
+
+        final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<byte[]>(1024);
+        long start = System.currentTimeMillis();
+        final Thread queueProducer = new Thread() {
+            public void run() {
+                try {
+                    final ByteBufferOutputStream out = new ByteBufferOutputStream(64);
+                    for (int i = 0; i < records; i++) {
+                        out.reset();
+                        out.write(record);
+                        queue.put(out.toByteArray());
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        queueProducer.start();
+        long received = 0;
+        for (int i = 0; i < records; i++) {
+            received += queue.take().length;
+        }
+        queueProducer.join();
+        long end = System.currentTimeMillis();
+        System.out.println("BlockingQueue Perf Pipe: " + (end - start));
+        Assert.assertEquals((long) records * record.length, received);
+
+        final ByteRingBuffer ring = new ByteRingBuffer(1 << 16);
+        start = System.currentTimeMillis();
+        final Thread ringProducer = new Thread() {
+            public void run() {
+                try {
+                    final ByteRingBufferOutputStream out = new ByteRingBufferOutputStream(ring);
+                    for (int i = 0; i < records; i++) {
+                        out.write(record);
+                        if ((i & 63) == 0) {
+                            out.flush();
+                        }
+                    }
+                    out.close();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        ringProducer.start();
+        final ByteRingBufferInputStream in = new ByteRingBufferInputStream(ring);
+        final byte[] b = new byte[8192];
+        received = 0;
+        int n;
+        while ((n = in.read(b, 0, b.length)) != -1) {
+            received += n;
+        }
+        ringProducer.join();
+        end = System.currentTimeMillis();
+        System.out.println("ByteRingBuffer Perf Pipe: " + (end - start));
+        Assert.assertEquals((long) records * record.length, received);
+    }
+}
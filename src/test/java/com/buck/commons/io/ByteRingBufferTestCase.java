@@ -0,0 +1,107 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+/**
+ * Tests the ByteRingBuffer class.
+ *
+ * @author Robert J. Buck
+ */
+public class ByteRingBufferTestCase {
+
+    @Test
+    public void testCapacity() {
+        Assert.assertEquals(16, new ByteRingBuffer(16).capacity());
+        final int[] illegal = {0, -8, 12};
+        for (int capacity : illegal) {
+            boolean caught = false;
+            try {
+                new ByteRingBuffer(capacity);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+
+    @Test
+    public void testPublishAndWrap() {
+        final ByteRingBuffer ring = new ByteRingBuffer(16);
+        final byte[] bytes = new byte[40];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        // unpublished bytes are invisible to the consumer
+        Assert.assertEquals(10, ring.write(bytes, 0, 10));
+        Assert.assertEquals(0, ring.available());
+        Assert.assertEquals(0, ring.read(new byte[4], 0, 4));
+        ring.publish();
+        Assert.assertEquals(10, ring.available());
+
+        // only the free space is written
+        Assert.assertEquals(6, ring.write(bytes, 10, 30));
+        Assert.assertEquals(0, ring.write(bytes, 16, 1));
+        ring.publish();
+
+        final byte[] out = new byte[40];
+        Assert.assertEquals(12, ring.read(out, 0, 12));
+        // this write wraps around the end of the ring
+        Assert.assertEquals(12, ring.write(ByteBuffer.wrap(bytes, 16, 12)));
+        ring.publish();
+        Assert.assertEquals(16, ring.available());
+        final ByteBuffer dst = ByteBuffer.wrap(out, 12, 16);
+        Assert.assertEquals(16, ring.read(dst));
+        Assert.assertFalse(dst.hasRemaining());
+        Assert.assertTrue(Arrays.equals(Arrays.copyOf(bytes, 28), Arrays.copyOf(out, 28)));
+        Assert.assertEquals(0, ring.available());
+
+        ring.write(bytes, 0, 3);
+        Assert.assertFalse(ring.isClosed());
+        ring.close();
+        Assert.assertTrue(ring.isClosed());
+        Assert.assertEquals(3, ring.available());
+    }
+
+    @Test
+    public void testWriteTo() throws Exception {
+        final ByteRingBuffer ring = new ByteRingBuffer(64);
+        final byte[] bytes = new byte[200];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 7);
+        }
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        int written = 0;
+        while (written < bytes.length) {
+            written += ring.write(bytes, written, Math.min(25, bytes.length - written));
+            ring.publish();
+            if (ring.available() > 40) {
+                ring.writeTo(Channels.newChannel(sink));
+            }
+        }
+        Assert.assertEquals(ring.available(), ring.writeTo(Channels.newChannel(sink)));
+        Assert.assertEquals(0, ring.writeTo(Channels.newChannel(sink)));
+        Assert.assertTrue(Arrays.equals(bytes, sink.toByteArray()));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import com.buck.commons.algorithms.CRC32C;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.Adler32;
+import java.util.zip.Checksum;
+
+/**
+ * Tests the ChecksumOutputStream class.
+ *
+ * @author Robert J. Buck
+ */
+public class ChecksumOutputStreamTestCase {
+
+    private static void writeFrame(ChecksumOutputStream out, byte[] b) throws IOException {
+        out.write(b[0]);
+        out.write(b, 1, 99);
+        final ByteBuffer heap = ByteBuffer.wrap(b, 100, 400);
+        out.write(heap);
+        Assert.assertFalse(heap.hasRemaining());
+        final ByteBuffer direct = ByteBuffer.allocateDirect(b.length - 500);
+        direct.put(b, 500, b.length - 500).flip();
+        out.write(direct);
+        Assert.assertFalse(direct.hasRemaining());
+    }
+
+    @Test
+    public void testChecksum() throws IOException {
+        final byte[] b = new byte[20000];
+        new Random().nextBytes(b);
+        final Checksum[] checksums = {new CRC32C(), new Adler32()};
+        for (Checksum expected : checksums) {
+            expected.update(b, 0, b.length);
+            final OutputStream[] sinks = {new ByteBufferOutputStream(16), new ByteArrayOutputStream()};
+            for (OutputStream sink : sinks) {
+                final Checksum checksum = expected instanceof CRC32C ? new CRC32C() : new Adler32();
+                final ChecksumOutputStream out = new ChecksumOutputStream(sink, checksum);
+                writeFrame(out, b);
+                out.close();
+                Assert.assertSame(checksum, out.getChecksum());
+                Assert.assertEquals(expected.getValue(), checksum.getValue());
+                final byte[] written = sink instanceof ByteBufferOutputStream
+                        ? ((ByteBufferOutputStream) sink).toByteArray()
+                        : ((ByteArrayOutputStream) sink).toByteArray();
+                Assert.assertArrayEquals(b, written);
+            }
+        }
+    }
+
+    @Test
+    public void testChecksumOutputStreamPerf() throws IOException {
+        final byte[] frame = new byte[4096];
+        new Random().nextBytes(frame);
+        final ByteBufferOutputStream sink = new ByteBufferOutputStream(frame.length);
+        final ChecksumOutputStream out = new ChecksumOutputStream(sink, new CRC32C());
+        long sum = 0;
+        final long s = System.currentTimeMillis();
+        for (int i = 0; i < 65536; i++) {
+            sink.reset();
+            out.getChecksum().reset();
+            out.write(frame, 0, frame.length);
+            sum += out.getChecksum().getValue();
+        }
+        final long e = System.currentTimeMillis();
+        System.out.println("ChecksumOutputStream CRC32C Perf (64K 4KB frames): " + (e - s));
+        Assert.assertTrue(sum != 0);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Tests the FixedSizeByteBufferPool class.
+ *
+ * @author Robert J. Buck
+ */
+public class FixedSizeByteBufferPoolTestCase {
+
+    @Test
+    public void testRecycling() {
+        final FixedSizeByteBufferPool pool = new FixedSizeByteBufferPool(16, false, 1);
+        Assert.assertEquals(16, pool.getBufferSize());
+        Assert.assertFalse(pool.isDirect());
+        final ByteBuffer a = pool.acquire(10);
+        final ByteBuffer b = pool.acquire(16);
+        Assert.assertEquals(16, a.capacity());
+        Assert.assertNotSame(a, b);
+        a.order(ByteOrder.LITTLE_ENDIAN).putInt(1);
+        pool.release(a);
+        pool.release(b);
+        Assert.assertEquals(1, pool.getRetainedCount());
+        final ByteBuffer c = pool.acquire(1);
+        Assert.assertSame(a, c);
+        Assert.assertEquals(0, c.position());
+        Assert.assertEquals(16, c.limit());
+        Assert.assertEquals(ByteOrder.BIG_ENDIAN, c.order());
+
+        // oversized requests and foreign buffers bypass the pool
+        final ByteBuffer large = pool.acquire(17);
+        Assert.assertEquals(17, large.capacity());
+        pool.release(large);
+        pool.release(ByteBuffer.allocateDirect(16));
+        Assert.assertEquals(0, pool.getRetainedCount());
+    }
+
+    @Test
+    public void testIllegalSizing() {
+        boolean caught = false;
+        try {
+            new FixedSizeByteBufferPool(0, false, 1);
+        } catch (IllegalArgumentException e) {
+            caught = true;
+        }
+        Assert.assertTrue(caught);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests the MappedByteBufferOutputStream class.
+ *
+ * @author Robert J. Buck
+ */
+public class MappedByteBufferOutputStreamTestCase {
+
+    private static File newFile() throws IOException {
+        final File file = File.createTempFile("mapped", ".log");
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final InputStream in = new FileInputStream(file);
+        try {
+            final byte[] b = new byte[8192];
+            int n;
+            while ((n = in.read(b)) != -1) {
+                out.write(b, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testWriteAcrossSegments() throws IOException {
+        final File file = newFile();
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        // an odd segment size forces writes to straddle segments
+        final MappedByteBufferOutputStream out = new MappedByteBufferOutputStream(file, 4099, false);
+        final Random rng = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            final byte[] record = new byte[rng.nextInt(300)];
+            rng.nextBytes(record);
+            out.write(i);
+            expected.write(i);
+            if (i % 2 == 0) {
+                out.write(record);
+            } else {
+                out.write(ByteBuffer.wrap(record));
+            }
+            expected.write(record);
+            Assert.assertEquals(expected.size(), out.position());
+        }
+        out.close();
+        out.close();
+        Assert.assertEquals(expected.size(), file.length());
+        Assert.assertTrue(Arrays.equals(expected.toByteArray(), readFile(file)));
+
+        boolean caught = false;
+        try {
+            out.write(0);
+        } catch (IOException e) {
+            caught = true;
+        }
+        Assert.assertTrue(caught);
+    }
+
+    @Test
+    public void testAppendAndTruncate() throws IOException {
+        final File file = newFile();
+        MappedByteBufferOutputStream out = new MappedByteBufferOutputStream(file, 64, true);
+        out.write("hello ".getBytes("US-ASCII"));
+        out.close();
+        out = new MappedByteBufferOutputStream(file, 64, true);
+        Assert.assertEquals(6, out.position());
+        out.write("world".getBytes("US-ASCII"));
+        out.close();
+        Assert.assertEquals("hello world", new String(readFile(file), "US-ASCII"));
+
+        out = new MappedByteBufferOutputStream(file, 64, false);
+        Assert.assertEquals(0, out.position());
+        out.write('x');
+        out.close();
+        Assert.assertEquals("x", new String(readFile(file), "US-ASCII"));
+
+        // while open the file extends to the end of the mapped segment
+        out = new MappedByteBufferOutputStream(file, 64, false);
+        out.write('y');
+        Assert.assertEquals(64, file.length());
+        out.close();
+        Assert.assertEquals(1, file.length());
+
+        boolean caught = false;
+        try {
+            new MappedByteBufferOutputStream(file, 0, true);
+        } catch (IllegalArgumentException e) {
+            caught = true;
+        }
+        Assert.assertTrue(caught);
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        final File file = newFile();
+        final MappedByteBufferOutputStream out = new MappedByteBufferOutputStream(file, 1 << 16, false);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final byte tag = (byte) t;
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        final byte[] record = new byte[100];
+                        Arrays.fill(record, tag);
+                        for (int i = 0; i < 200; i++) {
+                            final long end;
+                            synchronized (out) {
+                                out.write(record);
+                                end = out.position();
+                            }
+                            out.sync(end);
+                            Assert.assertTrue(out.durablePosition() >= end);
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(threads.length * 200 * 100, out.durablePosition());
+        out.close();
+
+        // records are never interleaved
+        final byte[] content = readFile(file);
+        Assert.assertEquals(threads.length * 200 * 100, content.length);
+        for (int i = 0; i < content.length; i += 100) {
+            for (int j = 1; j < 100; j++) {
+                Assert.assertEquals(content[i], content[i + j]);
+            }
+        }
+    }
+
+    @Test
+    public void testAppendPerf() throws IOException {
+        final int records = 1000000;
+        final byte[] record = new byte[100];
+        new Random(1).nextBytes(record);
+
+        final File file = newFile();
+        long start = System.currentTimeMillis();
+        final OutputStream stream = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+        for (int i = 0; i < records; i++) {
+            stream.write(record);
+        }
+        stream.close();
+        long end = System.currentTimeMillis();
+        System.out.println("FileOutputStream Perf Append: " + (end - start));
+
+        start = System.currentTimeMillis();
+        final MappedByteBufferOutputStream out = new MappedByteBufferOutputStream(file, 1 << 24, false);
+        for (int i = 0; i < records; i++) {
+            out.write(record);
+        }
+        out.close();
+        end = System.currentTimeMillis();
+        System.out.println("MappedByteBufferOutputStream Perf Append: " + (end - start));
+        Assert.assertEquals((long) records * record.length, file.length());
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * Tests the MappedFileInputStream class.
+ *
+ * @author Robert J. Buck
+ */
+public class MappedFileInputStreamTestCase {
+
+    private static File writeRecords(int n) throws IOException {
+        final File file = File.createTempFile("mapped", ".bin");
+        file.deleteOnExit();
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            final Random rng = new Random(n);
+            for (int i = 0; i < n; i++) {
+                out.writeByte(i);
+                out.writeShort(i);
+                out.writeInt(rng.nextInt());
+                out.writeLong(rng.nextLong());
+                out.writeDouble(i / 3.0);
+                out.writeUTF("record " + i);
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    @Test
+    public void testMatchesDataInputStream() throws IOException {
+        final File file = writeRecords(10000);
+        // an odd window size forces primitives to straddle windows
+        final MappedFileInputStream in = new MappedFileInputStream(file, 4099, true);
+        final DataInputStream expected = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            Assert.assertEquals(file.length(), in.size());
+            for (int i = 0; i < 10000; i++) {
+                Assert.assertEquals(expected.readByte(), in.readByte());
+                Assert.assertEquals(expected.readShort(), in.readShort());
+                Assert.assertEquals(expected.readInt(), in.readInt());
+                Assert.assertEquals(expected.readLong(), in.readLong());
+                Assert.assertEquals(expected.readDouble(), in.readDouble(), 0.0);
+                Assert.assertEquals(expected.readUTF(), in.readUTF());
+            }
+            Assert.assertEquals(-1, in.read());
+            Assert.assertEquals(0, in.available());
+            boolean caught = false;
+            try {
+                in.readInt();
+            } catch (EOFException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        } finally {
+            expected.close();
+            in.close();
+        }
+        Assert.assertFalse(in.isOpen());
+    }
+
+    @Test
+    public void testReadsAndPositioning() throws IOException {
+        final File file = File.createTempFile("mapped", ".bin");
+        file.deleteOnExit();
+        final byte[] data = new byte[10000];
+        new Random(4).nextBytes(data);
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write(data);
+        out.close();
+
+        final MappedFileInputStream in = new MappedFileInputStream(file, 1000, false);
+        try {
+            final byte[] read = new byte[10000];
+            Assert.assertEquals(10000, in.read(read, 0, 10000));
+            Assert.assertArrayEquals(data, read);
+            Assert.assertEquals(-1, in.read(read, 0, 1));
+
+            in.position(1500);
+            in.mark(0);
+            Assert.assertEquals(data[1500] & 0xFF, in.read());
+            Assert.assertEquals(3000, in.skip(3000));
+            Assert.assertEquals(4501, in.position());
+            in.reset();
+            Assert.assertEquals(1500, in.position());
+
+            final ByteBuffer dst = ByteBuffer.allocate(800);
+            Assert.assertEquals(500, in.read(dst));
+            Assert.assertEquals(300, in.read(dst));
+            Assert.assertEquals(data[2299], dst.get(799));
+
+            in.position(9999);
+            Assert.assertEquals(1, in.skip(10));
+            Assert.assertEquals(-1, in.read(ByteBuffer.allocate(1)));
+
+            in.position(998).order(ByteOrder.LITTLE_ENDIAN);
+            final int expected = ByteBuffer.wrap(data, 998, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            Assert.assertEquals(expected, in.readInt());
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testReadLine() throws IOException {
+        final File file = File.createTempFile("mapped", ".txt");
+        file.deleteOnExit();
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write("one\rtwo\r\nthree\nfour".getBytes("US-ASCII"));
+        out.close();
+        final MappedFileInputStream in = new MappedFileInputStream(file, 5, false);
+        try {
+            Assert.assertEquals("one", in.readLine());
+            Assert.assertEquals("two", in.readLine());
+            Assert.assertEquals("three", in.readLine());
+            Assert.assertEquals("four", in.readLine());
+            Assert.assertNull(in.readLine());
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testBeyondTwoGigabytes() throws IOException {
+        final File file = File.createTempFile("mapped", ".bin");
+        file.deleteOnExit();
+        final long size = 3L << 30;
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            // sparse on most file systems
+            raf.setLength(size);
+            raf.seek(size - 8);
+            raf.writeLong(0x0123456789ABCDEFL);
+        } finally {
+            raf.close();
+        }
+        final MappedFileInputStream in = new MappedFileInputStream(file);
+        try {
+            Assert.assertEquals(size, in.size());
+            Assert.assertEquals(Integer.MAX_VALUE, in.available());
+            in.position(size - 12);
+            Assert.assertEquals(0, in.readInt());
+            Assert.assertEquals(0x0123456789ABCDEFL, in.readLong());
+            Assert.assertEquals(-1, in.read());
+        } finally {
+            in.close();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testIllegalWindowSize() throws IOException {
+        final File file = File.createTempFile("mapped", ".bin");
+        file.deleteOnExit();
+        boolean caught = false;
+        try {
+            new MappedFileInputStream(file, 0, false);
+        } catch (IllegalArgumentException e) {
+            caught = true;
+        }
+        Assert.assertTrue(caught);
+    }
+
+    @Test
+    public void testPerf() throws IOException {
+        final File file = File.createTempFile("mapped", ".bin");
+        file.deleteOnExit();
+        final int n = 8 * 1024 * 1024;
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        for (int i = 0; i < n; i++) {
+            out.writeLong(i);
+        }
+        out.close();
+        long sum = 0;
+        long s = System.currentTimeMillis();
+        final DataInputStream buffered = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        for (int i = 0; i < n; i++) {
+            sum += buffered.readLong();
+        }
+        buffered.close();
+        long e = System.currentTimeMillis();
+        System.out.println("FileInputStream readLong Perf (64MB): " + (e - s));
+        s = System.currentTimeMillis();
+        final MappedFileInputStream mapped = new MappedFileInputStream(file, MappedFileInputStream.DEFAULT_WINDOW_SIZE, true);
+        for (int i = 0; i < n; i++) {
+            sum -= mapped.readLong();
+        }
+        mapped.close();
+        e = System.currentTimeMillis();
+        System.out.println("MappedFileInputStream readLong Perf (64MB): " + (e - s));
+        Assert.assertEquals(0L, sum);
+        file.delete();
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests the MpscByteRingBuffer class.
+ *
+ * @author Robert J. Buck
+ */
+public class MpscByteRingBufferTestCase {
+
+    @Test
+    public void testWholeRecords() {
+        final MpscByteRingBuffer ring = new MpscByteRingBuffer(16);
+        final byte[] record = new byte[10];
+        Assert.assertEquals(10, ring.write(record, 0, 10));
+        // writes are published immediately, and never partially
+        Assert.assertEquals(10, ring.available());
+        Assert.assertEquals(0, ring.write(record, 0, 10));
+        Assert.assertEquals(0, ring.write(ByteBuffer.wrap(record)));
+        Assert.assertEquals(6, ring.write(ByteBuffer.wrap(record, 0, 6)));
+        Assert.assertEquals(16, ring.available());
+
+        boolean caught = false;
+        try {
+            ring.write(new byte[17], 0, 17);
+        } catch (IllegalArgumentException e) {
+            caught = true;
+        }
+        Assert.assertTrue(caught);
+    }
+
+    @Test
+    public void testProducers() throws Exception {
+        final int producers = 4;
+        final int records = 20000;
+        final int size = 13;
+        final MpscByteRingBuffer ring = new MpscByteRingBuffer(256);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread[] threads = new Thread[producers];
+        for (int t = 0; t < producers; t++) {
+            final byte tag = (byte) (t + 1);
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        final byte[] record = new byte[size];
+                        Arrays.fill(record, tag);
+                        for (int i = 0; i < records; i++) {
+                            int count = 0;
+                            while (ring.write(record, 0, size) == 0) {
+                                count = ByteRingBuffer.idle(count);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        final int[] counts = new int[producers + 1];
+        final byte[] record = new byte[size];
+        int filled = 0;
+        int total = 0;
+        while (total < producers * records) {
+            final int n = ring.read(record, filled, size - filled);
+            filled += n;
+            if (filled == size) {
+                for (int j = 1; j < size; j++) {
+                    Assert.assertEquals(record[0], record[j]);
+                }
+                counts[record[0]]++;
+                filled = 0;
+                total++;
+            } else if (n == 0) {
+                Thread.yield();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull(failure.get());
+        for (int t = 1; t <= producers; t++) {
+            Assert.assertEquals(records, counts[t]);
+        }
+        Assert.assertEquals(0, ring.available());
+    }
+
+    @Test
+    public void testCloseWhileProducing() throws Exception {
+        final int producers = 4;
+        final int size = 13;
+        final MpscByteRingBuffer ring = new MpscByteRingBuffer(256);
+        final AtomicInteger[] accepted = new AtomicInteger[producers + 1];
+        for (int t = 0; t <= producers; t++) {
+            accepted[t] = new AtomicInteger();
+        }
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread[] threads = new Thread[producers];
+        for (int t = 0; t < producers; t++) {
+            final byte tag = (byte) (t + 1);
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        final byte[] record = new byte[size];
+                        Arrays.fill(record, tag);
+                        // the first producer closes the ring while the others write on
+                        final int records = tag == 1 ? 5000 : Integer.MAX_VALUE;
+                        for (int i = 0; i < records && !ring.isClosed(); i++) {
+                            int count = 0;
+                            int n;
+                            while ((n = ring.write(record, 0, size)) == 0 && !ring.isClosed()) {
+                                count = ByteRingBuffer.idle(count);
+                            }
+                            if (n == size) {
+                                accepted[tag].incrementAndGet();
+                            }
+                        }
+                        if (tag == 1) {
+                            ring.close();
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        final int[] counts = new int[producers + 1];
+        final ByteRingBufferInputStream in = new ByteRingBufferInputStream(ring);
+        final byte[] record = new byte[size];
+        int filled = 0;
+        int n;
+        while ((n = in.read(record, filled, size - filled)) != -1) {
+            filled += n;
+            if (filled == size) {
+                for (int j = 1; j < size; j++) {
+                    Assert.assertEquals(record[0], record[j]);
+                }
+                counts[record[0]]++;
+                filled = 0;
+            }
+        }
+        Assert.assertEquals(0, filled);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull(failure.get());
+        for (int t = 1; t <= producers; t++) {
+            Assert.assertEquals(accepted[t].get(), counts[t]);
+        }
+        Assert.assertEquals(5000, counts[1]);
+
+        // writes after close are refused
+        Assert.assertEquals(0, ring.write(record, 0, size));
+        Assert.assertEquals(0, ring.write(ByteBuffer.wrap(record)));
+        boolean caught = false;
+        try {
+            new ByteRingBufferOutputStream(ring).write(record);
+        } catch (IOException e) {
+            caught = true;
+        }
+        Assert.assertTrue(caught);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Tests the SegmentedByteBufferInputStream class.
+ *
+ * @author Robert J. Buck
+ */
+public class SegmentedByteBufferInputStreamTestCase {
+
+    private static SegmentedByteBufferInputStream newStream() {
+        final ByteBuffer[] buffers = {
+                ByteBuffer.wrap(new byte[]{0, 1, 2}),
+                ByteBuffer.allocate(0),
+                ByteBuffer.wrap(new byte[]{9, 3, 4, 5}, 1, 3),
+                ByteBuffer.wrap(new byte[]{6})
+        };
+        return new SegmentedByteBufferInputStream(buffers);
+    }
+
+    @Test
+    public void testRead() {
+        final SegmentedByteBufferInputStream in = newStream();
+        Assert.assertEquals(7, in.available());
+        Assert.assertEquals(0, in.read());
+        final byte[] b = new byte[10];
+        Assert.assertEquals(5, in.read(b, 0, 5));
+        Assert.assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, Arrays.copyOf(b, 5));
+        Assert.assertEquals(1, in.available());
+        Assert.assertEquals(1, in.read(b, 0, 10));
+        Assert.assertEquals(6, b[0]);
+        Assert.assertEquals(-1, in.read());
+        Assert.assertEquals(-1, in.read(b, 0, 10));
+        Assert.assertEquals(0, in.read(b, 0, 0));
+        Assert.assertEquals(0, in.remaining());
+    }
+
+    @Test
+    public void testSkipMarkReset() {
+        final SegmentedByteBufferInputStream in = newStream();
+        Assert.assertTrue(in.markSupported());
+        Assert.assertEquals(2, in.skip(2));
+        in.mark(0);
+        Assert.assertEquals(2, in.read());
+        Assert.assertEquals(3, in.skip(3));
+        Assert.assertEquals(6, in.read());
+        in.reset();
+        Assert.assertEquals(5, in.available());
+        Assert.assertEquals(2, in.read());
+        Assert.assertEquals(3, in.read());
+        Assert.assertEquals(10, in.skip(100) + 7);
+        in.reset();
+        Assert.assertEquals(2, in.read());
+
+        final SegmentedByteBufferInputStream fresh = newStream();
+        fresh.skip(6);
+        fresh.reset();
+        Assert.assertEquals(0, fresh.read());
+        Assert.assertEquals(6, fresh.available());
+    }
+
+    @Test
+    public void testSourceUntouched() {
+        final ByteBuffer source = ByteBuffer.wrap(new byte[]{1, 2, 3});
+        final SegmentedByteBufferInputStream in = new SegmentedByteBufferInputStream(new ByteBuffer[]{source});
+        Assert.assertEquals(3, in.skip(3));
+        Assert.assertEquals(0, source.position());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        final SegmentedByteBufferOutputStream out = new SegmentedByteBufferOutputStream(10);
+        for (int i = 0; i < 1000; i++) {
+            out.write(i);
+        }
+        final SegmentedByteBufferInputStream in = out.toInputStream();
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(i & 0xFF, in.read());
+        }
+        Assert.assertEquals(-1, in.read());
+    }
+}
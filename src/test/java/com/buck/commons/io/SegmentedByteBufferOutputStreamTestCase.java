@@ -0,0 +1,163 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Random;
+
+/**
+ * Tests the SegmentedByteBufferOutputStream class.
+ *
+ * @author Robert J. Buck
+ */
+public class SegmentedByteBufferOutputStreamTestCase {
+
+    /**
+     * A channel accepting at most a few bytes per write, as a congested socket
+     * might.
+     */
+    private static class TrickleChannel implements GatheringByteChannel {
+        private final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                if (srcs[i].hasRemaining()) {
+                    return write(srcs[i]);
+                }
+            }
+            return 0;
+        }
+
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        public int write(ByteBuffer src) {
+            final int n = Math.min(src.remaining(), 7);
+            for (int i = 0; i < n; i++) {
+                sink.write(src.get());
+            }
+            return n;
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+
+        public void close() {
+        }
+    }
+
+    private static byte[] randomBytes(int n) {
+        final byte[] data = new byte[n];
+        new Random(n).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        final byte[] data = randomBytes(1000);
+        final SegmentedByteBufferOutputStream out = new SegmentedByteBufferOutputStream(64);
+        out.write(data[0]);
+        out.write(data, 1, 499);
+        final ByteBuffer src = ByteBuffer.wrap(data, 500, 500);
+        out.write(src);
+        Assert.assertFalse(src.hasRemaining());
+        Assert.assertEquals(1000, out.size());
+        Assert.assertArrayEquals(data, out.toByteArray());
+
+        final ByteBuffer[] buffers = out.getBuffers();
+        Assert.assertEquals(16, buffers.length);
+        int total = 0;
+        for (ByteBuffer buffer : buffers) {
+            Assert.assertTrue(buffer.isReadOnly());
+            total += buffer.remaining();
+        }
+        Assert.assertEquals(1000, total);
+
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        out.writeTo(sink);
+        Assert.assertArrayEquals(data, sink.toByteArray());
+
+        final TrickleChannel channel = new TrickleChannel();
+        Assert.assertEquals(1000L, out.writeTo(channel));
+        Assert.assertArrayEquals(data, channel.sink.toByteArray());
+        Assert.assertEquals(1000, out.size());
+    }
+
+    @Test
+    public void testPooling() throws IOException {
+        final FixedSizeByteBufferPool pool = new FixedSizeByteBufferPool(128, true, 4);
+        final SegmentedByteBufferOutputStream out = new SegmentedByteBufferOutputStream(pool, 128);
+        final byte[] data = randomBytes(1000);
+        out.write(data);
+        out.reset();
+        Assert.assertEquals(0, out.size());
+        Assert.assertEquals(4, pool.getRetainedCount());
+        out.write(data);
+        Assert.assertEquals(0, pool.getRetainedCount());
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        out.writeTo(sink);
+        Assert.assertArrayEquals(data, sink.toByteArray());
+        Assert.assertArrayEquals(data, out.toByteArray());
+        out.close();
+        Assert.assertEquals(4, pool.getRetainedCount());
+        Assert.assertEquals(0, out.getBuffers().length);
+        out.write(1);
+        Assert.assertEquals(1, out.size());
+        Assert.assertEquals(3, pool.getRetainedCount());
+    }
+
+    @Test
+    public void testIllegalSegmentSize() {
+        boolean caught = false;
+        try {
+            new SegmentedByteBufferOutputStream(0);
+        } catch (IllegalArgumentException e) {
+            caught = true;
+        }
+        Assert.assertTrue(caught);
+    }
+
+    @Test
+    public void testPerf() throws IOException {
+        final byte[] chunk = randomBytes(1000);
+        final int n = 256 * 1024;
+        long s = System.currentTimeMillis();
+        final SegmentedByteBufferOutputStream segmented = new SegmentedByteBufferOutputStream();
+        for (int i = 0; i < n; i++) {
+            segmented.write(chunk);
+        }
+        long e = System.currentTimeMillis();
+        System.out.println("SegmentedByteBufferOutputStream Perf (256MB): " + (e - s));
+        segmented.close();
+        s = System.currentTimeMillis();
+        final ByteBufferOutputStream contiguous = new ByteBufferOutputStream();
+        for (int i = 0; i < n; i++) {
+            contiguous.write(chunk);
+        }
+        e = System.currentTimeMillis();
+        System.out.println("ByteBufferOutputStream Perf (256MB): " + (e - s));
+        Assert.assertEquals((long) n * chunk.length, contiguous.size());
+    }
+}
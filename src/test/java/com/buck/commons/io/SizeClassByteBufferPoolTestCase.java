@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Tests the SizeClassByteBufferPool class.
+ *
+ * @author Robert J. Buck
+ */
+public class SizeClassByteBufferPoolTestCase {
+
+    @Test
+    public void testSizeClasses() {
+        final SizeClassByteBufferPool pool = new SizeClassByteBufferPool(100, 1000, 2, true);
+        Assert.assertTrue(pool.isDirect());
+        Assert.assertEquals(128, pool.acquire(1).capacity());
+        Assert.assertEquals(128, pool.acquire(128).capacity());
+        Assert.assertEquals(256, pool.acquire(129).capacity());
+        Assert.assertEquals(1024, pool.acquire(1000).capacity());
+        Assert.assertEquals(1025, pool.acquire(1025).capacity());
+        Assert.assertTrue(pool.acquire(1).isDirect());
+    }
+
+    @Test
+    public void testRecycling() {
+        final SizeClassByteBufferPool pool = new SizeClassByteBufferPool(16, 64, 1, false);
+        final ByteBuffer a = pool.acquire(20);
+        final ByteBuffer b = pool.acquire(20);
+        final ByteBuffer c = pool.acquire(60);
+        a.put((byte) 1);
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+        Assert.assertEquals(2, pool.getRetainedCount());
+        final ByteBuffer d = pool.acquire(17);
+        Assert.assertSame(a, d);
+        Assert.assertEquals(0, d.position());
+        Assert.assertSame(c, pool.acquire(33));
+        Assert.assertEquals(0, pool.getRetainedCount());
+
+        // buffers outside the classes are not retained
+        pool.release(ByteBuffer.allocate(24));
+        pool.release(ByteBuffer.allocate(128));
+        pool.release(ByteBuffer.allocateDirect(32));
+        pool.release(ByteBuffer.allocate(32).asReadOnlyBuffer());
+        Assert.assertEquals(0, pool.getRetainedCount());
+    }
+
+    @Test
+    public void testIllegalSizing() {
+        final int[][] sizings = {{0, 16, 1}, {32, 16, 1}, {16, (1 << 30) + 1, 1}, {16, 32, -1}};
+        for (int[] sizing : sizings) {
+            boolean caught = false;
+            try {
+                new SizeClassByteBufferPool(sizing[0], sizing[1], sizing[2], false);
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            Assert.assertTrue(caught);
+        }
+    }
+}
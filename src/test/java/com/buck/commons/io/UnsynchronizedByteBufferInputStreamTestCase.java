@@ -0,0 +1,102 @@
+/*
+ * Copyright 2010-2013 Robert J. Buck
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buck.commons.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Tests the UnsynchronizedByteBufferInputStream class.
+ *
+ * @author Robert J. Buck
+ */
+public class UnsynchronizedByteBufferInputStreamTestCase {
+
+    @Test
+    public void testSemantics() throws IOException {
+        ByteBufferInputStreamTestCase.assertStreamSemantics(
+                new UnsynchronizedByteBufferInputStream(ByteBufferInputStreamTestCase.newSequenceBuffer()));
+    }
+
+    @Test
+    public void testForCurrentThread() throws Exception {
+        final UnsynchronizedByteBufferInputStream local =
+                UnsynchronizedByteBufferInputStream.forCurrentThread(ByteBuffer.allocate(1));
+        Assert.assertEquals(1, local.available());
+        Assert.assertSame(local, UnsynchronizedByteBufferInputStream.forCurrentThread(
+                ByteBufferInputStreamTestCase.newSequenceBuffer()));
+        ByteBufferInputStreamTestCase.assertStreamSemantics(local);
+
+        final UnsynchronizedByteBufferInputStream[] other = new UnsynchronizedByteBufferInputStream[1];
+        final Thread thread = new Thread() {
+            public void run() {
+                other[0] = UnsynchronizedByteBufferInputStream.forCurrentThread(ByteBuffer.allocate(2));
+            }
+        };
+        thread.start();
+        thread.join();
+        Assert.assertNotSame(local, other[0]);
+        Assert.assertEquals(2, other[0].available());
+    }
+
+    private static long readBytes(InputStream in) throws IOException {
+        long sum = 0;
+        for (int b; (b = in.read()) != -1; ) {
+            sum += b;
+        }
+        return sum;
+    }
+
+    private static long readBulk(InputStream in, byte[] chunk) throws IOException {
+        long sum = 0;
+        for (int n; (n = in.read(chunk, 0, chunk.length)) != -1; ) {
+            sum += chunk[n - 1];
+        }
+        return sum;
+    }
+
+    @Test
+    public void testPerf() throws IOException {
+        final ByteBuffer bb = ByteBuffer.allocate(1 << 20);
+        final byte[] chunk = new byte[64];
+        final String[] labels = {"synchronized", "unsynchronized"};
+        final long[] sums = new long[2];
+        for (int mode = 0; mode < 2; mode++) {
+            long s = System.currentTimeMillis();
+            for (int i = 0; i < 20; i++) {
+                bb.clear();
+                sums[mode] += readBytes(mode == 0
+                        ? new ByteBufferInputStream(bb) : new UnsynchronizedByteBufferInputStream(bb));
+            }
+            long e = System.currentTimeMillis();
+            System.out.println("ByteBufferInputStream " + labels[mode] + " byte read Perf (20MB): " + (e - s));
+            s = System.currentTimeMillis();
+            for (int i = 0; i < 20; i++) {
+                bb.clear();
+                sums[mode] += readBulk(mode == 0
+                        ? new ByteBufferInputStream(bb) : new UnsynchronizedByteBufferInputStream(bb), chunk);
+            }
+            e = System.currentTimeMillis();
+            System.out.println("ByteBufferInputStream " + labels[mode] + " 64 byte read Perf (20MB): " + (e - s));
+        }
+        Assert.assertEquals(sums[0], sums[1]);
+    }
+}
@@ -43,6 +43,11 @@ public class URNTestCase {
         HashSet<URN> set = new HashSet<URN>();
         set.add(u0);
         Assert.assertTrue("set contains", set.contains(u1));
+        URN u2 = new URN("URN:NID:nSs");
+        Assert.assertEquals("URN equals ignoring case", u0, u2);
+        Assert.assertEquals("URN hash ignoring case", u0.hashCode(), u2.hashCode());
+        Assert.assertTrue("set contains", set.contains(u2));
+        Assert.assertFalse("set contains", set.contains(new URN("urn:nid:nsx")));
     }
 
     @Test